@@ -0,0 +1,363 @@
+package ua.nuzp.cool.bench;
+
+import ua.nuzp.cool.Ast;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Наївний інтерпретатор AST — точка порівняння для Vm у VmBenchmark.
+// Обхід дерева Visitor'ом без жодної підготовки: значення упаковані (Integer, Boolean, String,
+// Obj з HashMap атрибутів), змінні — ланцюжок HashMap-областей, методи та атрибути шукаються
+// за іменем по ланцюжку предків при кожному зверненні, case перевіряє гілки для кожного предка
+// динамічного класу по черзі. Підтримує всю мову (включно з явним викликом і case).
+// Помилки виконання — RuntimeException з повідомленням у стилі Vm.
+public class AstEvaluator implements Ast.Visitor<Object> {
+
+    static final class Obj {
+        final String className;
+        final Map<String, Object> fields = new HashMap<>();
+
+        Obj(String className) { this.className = className; }
+    }
+
+    // Область видимості: параметри методу або змінні let / гілки case
+    private static final class Scope {
+        final Map<String, Object> vars = new HashMap<>();
+        final Scope parent;
+
+        Scope(Scope parent) { this.parent = parent; }
+    }
+
+    private final Map<String, Ast.ClassDecl> classes = new HashMap<>();
+    private final BufferedReader in;
+    private final PrintStream out;
+    private Obj self;
+    private Scope scope;
+
+    public AstEvaluator(Ast.Program program, InputStream in, PrintStream out) {
+        for (Ast.ClassDecl c : program.classes) classes.put(c.name, c);
+        this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.out = out;
+    }
+
+    // (new Main).main()
+    public Object run() {
+        Obj main = instantiate("Main");
+        Object result = invoke(main, "Main", "main", List.of());
+        out.flush();
+        return result;
+    }
+
+    // ===== Класи та об'єкти =====
+
+    private String parentOf(String className) {
+        switch (className) {
+            case "Object": return null;
+            case "IO": case "Int": case "String": case "Bool": return "Object";
+            default: {
+                String parent = classes.get(className).parent;
+                return parent != null ? parent : "Object";
+            }
+        }
+    }
+
+    private Obj instantiate(String className) {
+        Obj o = new Obj(className);
+        initialize(o, className);
+        return o;
+    }
+
+    // Атрибути предків ініціалізуються першими
+    private void initialize(Obj o, String className) {
+        Ast.ClassDecl c = classes.get(className);
+        if (c == null) return;
+        initialize(o, parentOf(className));
+        for (Ast.Feature f : c.features) {
+            if (!(f instanceof Ast.Attribute)) continue;
+            o.fields.put(f.name, defaultValue(((Ast.Attribute) f).type));
+        }
+        Obj savedSelf = self;
+        Scope savedScope = scope;
+        self = o;
+        scope = null;
+        for (Ast.Feature f : c.features) {
+            if (f instanceof Ast.Attribute && ((Ast.Attribute) f).init != null) {
+                o.fields.put(f.name, eval(((Ast.Attribute) f).init));
+            }
+        }
+        self = savedSelf;
+        scope = savedScope;
+    }
+
+    private static Object defaultValue(String type) {
+        switch (type) {
+            case "Int": return 0;
+            case "Bool": return false;
+            case "String": return "";
+            default: return null;
+        }
+    }
+
+    private static String typeName(Object value) {
+        if (value instanceof Integer) return "Int";
+        if (value instanceof Boolean) return "Bool";
+        if (value instanceof String) return "String";
+        return ((Obj) value).className;
+    }
+
+    // ===== Виклики =====
+
+    // Метод шукається від класу from вгору; вбудовані — якщо користувацького немає
+    private Object invoke(Object receiver, String from, String name, List<Object> args) {
+        if (receiver == null) throw new RuntimeException("Dispatch to void");
+        for (String c = from; c != null; c = parentOf(c)) {
+            Ast.ClassDecl decl = classes.get(c);
+            if (decl == null) continue;
+            for (Ast.Feature f : decl.features) {
+                if (f instanceof Ast.Method && f.name.equals(name)) return call((Obj) receiver, (Ast.Method) f, args);
+            }
+        }
+        return builtin(receiver, name, args);
+    }
+
+    private Object call(Obj receiver, Ast.Method m, List<Object> args) {
+        Obj savedSelf = self;
+        Scope savedScope = scope;
+        self = receiver;
+        scope = new Scope(null);
+        for (int i = 0; i < args.size(); i++) scope.vars.put(m.formals.get(i).name, args.get(i));
+        try {
+            return eval(m.body);
+        } finally {
+            self = savedSelf;
+            scope = savedScope;
+        }
+    }
+
+    private Object builtin(Object receiver, String name, List<Object> args) {
+        switch (name) {
+            case "abort": throw new RuntimeException("Abort called from class " + typeName(receiver));
+            case "type_name": return typeName(receiver);
+            case "copy": {
+                if (!(receiver instanceof Obj)) return receiver;
+                Obj o = new Obj(((Obj) receiver).className);
+                o.fields.putAll(((Obj) receiver).fields);
+                return o;
+            }
+            case "out_string": out.print((String) args.get(0)); return receiver;
+            case "out_int": out.print((int) (Integer) args.get(0)); return receiver;
+            case "in_string": {
+                String line = readLine();
+                return line != null ? line : "";
+            }
+            case "in_int": {
+                String line = readLine();
+                try {
+                    return line != null ? Integer.parseInt(line.trim()) : 0;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+            case "length": return ((String) receiver).length();
+            case "concat": return (String) receiver + args.get(0);
+            case "substr": {
+                String s = (String) receiver;
+                int i = (Integer) args.get(0);
+                int l = (Integer) args.get(1);
+                if (i < 0 || l < 0 || i + l > s.length()) throw new RuntimeException("Substring out of range");
+                return s.substring(i, i + l);
+            }
+            default: throw new IllegalStateException("Unknown method " + name);
+        }
+    }
+
+    private String readLine() {
+        try {
+            return in.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Object[] evalArgs(List<Ast.Expr> args) {
+        Object[] values = new Object[args.size()];
+        for (int i = 0; i < values.length; i++) values[i] = eval(args.get(i));
+        return values;
+    }
+
+    // ===== Вирази =====
+
+    private Object eval(Ast.Expr e) {
+        return e.accept(this);
+    }
+
+    @Override
+    public Object visitProgram(Ast.Program n) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public Object visitClassDecl(Ast.ClassDecl n) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public Object visitAttribute(Ast.Attribute n) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public Object visitMethod(Ast.Method n) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public Object visitAssign(Ast.Assign n) {
+        Object value = eval(n.value);
+        for (Scope s = scope; s != null; s = s.parent) {
+            if (s.vars.containsKey(n.name)) {
+                s.vars.put(n.name, value);
+                return value;
+            }
+        }
+        self.fields.put(n.name, value);
+        return value;
+    }
+
+    @Override
+    public Object visitDispatch(Ast.Dispatch n) {
+        Object receiver = eval(n.target);
+        List<Object> args = Arrays.asList(evalArgs(n.args));
+        if (receiver == null) throw new RuntimeException("Dispatch to void");
+        return invoke(receiver, n.staticType != null ? n.staticType : typeName(receiver), n.name, args);
+    }
+
+    @Override
+    public Object visitImplicitDispatch(Ast.ImplicitDispatch n) {
+        return invoke(self, self.className, n.name, Arrays.asList(evalArgs(n.args)));
+    }
+
+    @Override
+    public Object visitIf(Ast.If n) {
+        return (Boolean) eval(n.condition) ? eval(n.thenBranch) : eval(n.elseBranch);
+    }
+
+    @Override
+    public Object visitWhile(Ast.While n) {
+        while ((Boolean) eval(n.condition)) eval(n.body);
+        return null;
+    }
+
+    @Override
+    public Object visitBlock(Ast.Block n) {
+        Object last = null;
+        for (Ast.Expr e : n.body) last = eval(e);
+        return last;
+    }
+
+    @Override
+    public Object visitLet(Ast.Let n) {
+        Scope saved = scope;
+        try {
+            for (Ast.LetBinding b : n.bindings) {
+                Object value = b.init != null ? eval(b.init) : defaultValue(b.type);
+                scope = new Scope(scope);
+                scope.vars.put(b.name, value);
+            }
+            return eval(n.body);
+        } finally {
+            scope = saved;
+        }
+    }
+
+    // Найближчий предок динамічного класу серед типів гілок
+    @Override
+    public Object visitCase(Ast.Case n) {
+        Object value = eval(n.value);
+        if (value == null) throw new RuntimeException("Case on void");
+        for (String c = typeName(value); c != null; c = parentOf(c)) {
+            for (Ast.CaseBranch b : n.branches) {
+                if (!b.type.equals(c)) continue;
+                Scope saved = scope;
+                scope = new Scope(scope);
+                scope.vars.put(b.name, value);
+                try {
+                    return eval(b.body);
+                } finally {
+                    scope = saved;
+                }
+            }
+        }
+        throw new RuntimeException("No case branch matches class " + typeName(value));
+    }
+
+    @Override
+    public Object visitNew(Ast.New n) {
+        String type = n.type.equals("SELF_TYPE") ? self.className : n.type;
+        Object basic = defaultValue(type);
+        return basic != null ? basic : instantiate(type);
+    }
+
+    @Override
+    public Object visitIsVoid(Ast.IsVoid n) {
+        return eval(n.e) == null;
+    }
+
+    @Override
+    public Object visitNegation(Ast.Negation n) {
+        return -(Integer) eval(n.e);
+    }
+
+    @Override
+    public Object visitNot(Ast.Not n) {
+        return !(Boolean) eval(n.e);
+    }
+
+    @Override
+    public Object visitMulDiv(Ast.MulDiv n) {
+        int a = (Integer) eval(n.left);
+        int b = (Integer) eval(n.right);
+        if (n.op == Ast.Op.MULT) return a * b;
+        if (b == 0) throw new RuntimeException("Division by zero");
+        return a / b;
+    }
+
+    @Override
+    public Object visitAddSub(Ast.AddSub n) {
+        int a = (Integer) eval(n.left);
+        int b = (Integer) eval(n.right);
+        return n.op == Ast.Op.PLUS ? a + b : a - b;
+    }
+
+    @Override
+    public Object visitCompare(Ast.Compare n) {
+        Object a = eval(n.left);
+        Object b = eval(n.right);
+        switch (n.op) {
+            case LT: return (Integer) a < (Integer) b;
+            case LE: return (Integer) a <= (Integer) b;
+            default:
+                if (a == b) return true;
+                return a instanceof Obj || a == null ? false : a.equals(b);
+        }
+    }
+
+    @Override
+    public Object visitId(Ast.Id n) {
+        if (n.name.equals("self")) return self;
+        for (Scope s = scope; s != null; s = s.parent) {
+            if (s.vars.containsKey(n.name)) return s.vars.get(n.name);
+        }
+        return self.fields.get(n.name);
+    }
+
+    @Override
+    public Object visitIntConst(Ast.IntConst n) { return n.value; }
+
+    @Override
+    public Object visitStringConst(Ast.StringConst n) { return n.value; }
+
+    @Override
+    public Object visitBoolConst(Ast.BoolConst n) { return n.value; }
+}
@@ -0,0 +1,29 @@
+package ua.nuzp.cool.bench;
+
+// Вхідні програми Cool для бенчмарків: small / medium / large.
+// Medium та large створює ProgramGenerator з фіксованим seed,
+// тож усі запуски вимірюють однаковий (коректний, без помилок) код.
+public final class BenchmarkInputs {
+
+    public static final String SMALL =
+            "class Main inherits IO {\n  main() : Object {\n    out_string(\"Hello world!\\n\")\n  };\n};\n";
+
+    public static final long SEED = 20240501L;
+
+    private BenchmarkInputs() { }
+
+    public static String forSize(String size) {
+        switch (size) {
+            case "small": return SMALL;
+            case "medium": return generated(20);   // ~80 KB
+            case "large": return generated(500);   // ~2 MB
+            default: throw new IllegalArgumentException("Unknown input size: " + size);
+        }
+    }
+
+    public static String generated(int classes) {
+        ProgramGenerator.Config config = new ProgramGenerator.Config();
+        config.classes = classes;
+        return ProgramGenerator.generate(config, SEED);
+    }
+}
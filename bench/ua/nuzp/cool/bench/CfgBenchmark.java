@@ -0,0 +1,65 @@
+package ua.nuzp.cool.bench;
+
+import org.openjdk.jmh.annotations.*;
+import ua.nuzp.cool.Cfg;
+import ua.nuzp.cool.Compilation;
+import ua.nuzp.cool.Ir;
+import ua.nuzp.cool.Liveness;
+
+import java.util.concurrent.TimeUnit;
+
+// Побудова CFG та аналіз живучості на одному великому методі.
+// statements — кількість операторів у методі (інструкцій IR приблизно в 20-30 разів більше).
+// Запуск: java -cp ... org.openjdk.jmh.Main CfgBenchmark -prof gc
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CfgBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int statements;
+
+    private Ir.Function function;
+    private Cfg cfg;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        function = largestFunction(statements);
+        cfg = Cfg.build(function);
+    }
+
+    // Метод з найбільшою кількістю інструкцій у програмі з одного класу
+    static Ir.Function largestFunction(int statements) {
+        ProgramGenerator.Config config = new ProgramGenerator.Config();
+        config.classes = 1;
+        config.methodsPerClass = 1;
+        config.statementsPerMethod = statements;
+        Compilation compilation = new Compilation(ProgramGenerator.generate(config, BenchmarkInputs.SEED));
+
+        Ir.Function largest = null;
+        for (Ir.ClassUnit c : compilation.getIr().classes) {
+            for (Ir.Function f : c.methods) {
+                if (largest == null || f.code.size() > largest.code.size()) largest = f;
+            }
+        }
+        return largest;
+    }
+
+    @Benchmark
+    public Cfg buildCfg() {
+        return Cfg.build(function);
+    }
+
+    @Benchmark
+    public Liveness liveness() {
+        return Liveness.analyze(cfg);
+    }
+
+    @Benchmark
+    public Liveness buildCfgAndLiveness() {
+        return Liveness.analyze(Cfg.build(function));
+    }
+}
@@ -0,0 +1,126 @@
+package ua.nuzp.cool.bench;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ua.nuzp.cool.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// JMH-бенчмарки фаз компілятора: по одному на фазу (включно з побудовою AST) + повний конвеєр.
+// Кожна фаза вимірюється окремо: вхід для неї готується один раз у setup().
+//
+// Збірка та запуск (jmh-core, jmh-generator-annprocess на classpath):
+//   javac -cp "lib/*:jmh/*" -d out src/ua/nuzp/cool/*.java bench/ua/nuzp/cool/bench/*.java
+//   java -cp "out:lib/*:jmh/*" ua.nuzp.cool.bench.CompilerBenchmark [regexp]
+// main() вмикає GC profiler, тож звіт містить gc.alloc.rate та gc.alloc.rate.norm.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompilerBenchmark {
+
+    @Param({"small", "medium", "large"})
+    public String size;
+
+    private String source;
+    private List<? extends Token> tokens;
+    private ParseTree tree;
+    private Ast.Program ast;
+    private ClassTable classTable;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        source = BenchmarkInputs.forSize(size);
+        tokens = new CoolLexer(CharStreams.fromString(source)).getAllTokens();
+
+        Compilation compilation = new Compilation(source);
+        if (compilation.hasErrors())
+            throw new IllegalStateException("Benchmark input must compile cleanly: " + size);
+        tree = compilation.getTree();
+        ast = compilation.getAst();
+        classTable = compilation.getSemantic().getClassTable();
+    }
+
+    // ===== Окремі фази =====
+
+    @Benchmark
+    public List<? extends Token> lexer() {
+        return new CoolLexer(CharStreams.fromString(source)).getAllTokens();
+    }
+
+    @Benchmark
+    public ParseTree parser() {
+        CoolParser parser = new CoolParser(new CommonTokenStream(new ListTokenSource(tokens)));
+        parser.removeErrorListeners();
+        return parser.program();
+    }
+
+    @Benchmark
+    public Ast.Program ast() {
+        return AstBuilder.build((CoolParser.ProgramContext) tree);
+    }
+
+    @Benchmark
+    public void semantic(Blackhole bh) {
+        SemanticAnalyzer analyzer = new SemanticAnalyzer();
+        analyzer.analyze(ast);
+        bh.consume(analyzer.getErrors());
+        bh.consume(analyzer.getWarnings());
+    }
+
+    @Benchmark
+    public Ir.Program codegen() {
+        CodeGenerator generator = new CodeGenerator();
+        generator.generate(ast);
+        return generator.getProgram();
+    }
+
+    // Генерація IR + текст (як у IDE та драйвері)
+    @Benchmark
+    public String codegenText() {
+        CodeGenerator generator = new CodeGenerator();
+        generator.generate(ast);
+        return generator.getGeneratedCode();
+    }
+
+    // Генерація IR + оптимізація (увесь конвеєр Optimizer)
+    @Benchmark
+    public Ir.Program codegenOptimized() {
+        CodeGenerator generator = new CodeGenerator();
+        generator.generate(ast);
+        new Optimizer().optimize(generator.getProgram(), classTable);
+        return generator.getProgram();
+    }
+
+    // Байткод JVM з AST (статичні типи виразів записав семантичний аналіз у setup)
+    @Benchmark
+    public Map<String, byte[]> jvmBackend() {
+        return JvmBackend.compile(ast, classTable, "bench.cl");
+    }
+
+    // ===== Повний конвеєр =====
+
+    @Benchmark
+    public String endToEnd() {
+        return new Compilation(source).getGeneratedCode();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CompilerBenchmark.class.getSimpleName() + (args.length > 0 ? "." + args[0] : ""))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
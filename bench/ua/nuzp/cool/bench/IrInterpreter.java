@@ -0,0 +1,264 @@
+package ua.nuzp.cool.bench;
+
+import ua.nuzp.cool.Ast;
+import ua.nuzp.cool.Ir;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Інтерпретатор триадресного коду однієї функції — еталон для перевірки оптимізацій.
+// Функція виконується ізольовано: параметри та атрибути отримують значення від seed
+// за оголошеними типами, викликані методи не виконуються — CALL повертає значення від seed
+// та номера виклику. Результат — trace спостережуваної поведінки: виклики з аргументами,
+// зміни атрибутів і повернене значення. Однаковий seed — однакові входи, тож код до та після
+// оптимізації має давати однаковий trace.
+// Аварійне завершення: DIV0 (ділення на нуль), TYPE (значення не того типу: void,
+// неініціалізована змінна), VOID (CHECK отримувача void), LIMIT (перевищено кількість кроків).
+public class IrInterpreter {
+
+    public static final int STEP_LIMIT = 100_000;
+
+    // Об'єкт Cool: лише ідентичність (поля та методи не моделюються)
+    static final class Obj {
+        final int id;
+
+        Obj(int id) { this.id = id; }
+
+        @Override public boolean equals(Object o) { return o instanceof Obj && ((Obj) o).id == id; }
+        @Override public int hashCode() { return id; }
+        @Override public String toString() { return "obj" + id; }
+    }
+
+    private static final Map<String, String> BUILTIN_RESULTS = new HashMap<>();
+
+    static {
+        BUILTIN_RESULTS.put("in_int", "Int");
+        BUILTIN_RESULTS.put("length", "Int");
+        BUILTIN_RESULTS.put("in_string", "String");
+        BUILTIN_RESULTS.put("concat", "String");
+        BUILTIN_RESULTS.put("substr", "String");
+        BUILTIN_RESULTS.put("type_name", "String");
+    }
+
+    private final Map<String, String> attributeTypes = new HashMap<>();
+    private final Map<String, String> resultTypes = new HashMap<>(BUILTIN_RESULTS);
+    private final Map<String, List<String>> paramTypes = new HashMap<>(); // "Клас.метод"
+
+    public IrInterpreter(Ast.Program program) {
+        for (Ast.ClassDecl c : program.classes) {
+            for (Ast.Feature f : c.features) {
+                if (f instanceof Ast.Attribute) {
+                    attributeTypes.put(f.name, ((Ast.Attribute) f).type);
+                    continue;
+                }
+                Ast.Method m = (Ast.Method) f;
+                resultTypes.put(m.name, m.returnType);
+                List<String> types = new ArrayList<>();
+                for (Ast.Formal formal : m.formals) types.add(formal.type);
+                paramTypes.put(c.name + "." + m.name, types);
+            }
+        }
+    }
+
+    // ===== Виконання =====
+
+    private static final class Abort extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Abort(String reason) { super(reason, null, false, false); }
+    }
+
+    public String run(Ir.Function function, int seed) {
+        StringBuilder trace = new StringBuilder();
+        try {
+            execute(function, seed, trace);
+        } catch (Abort e) {
+            trace.append(e.getMessage());
+        } catch (ClassCastException | NullPointerException e) {
+            trace.append("TYPE");
+        }
+        return trace.toString();
+    }
+
+    private void execute(Ir.Function function, int seed, StringBuilder trace) {
+        List<Ir.Instr> code = function.code;
+        Map<Ir.Label, Integer> labels = new IdentityHashMap<>();
+        for (int i = 0; i < code.size(); i++) {
+            if (code.get(i).op == Ir.Opcode.LABEL) labels.put(code.get(i).label, i);
+        }
+
+        Object[] locals = new Object[function.locals().size()];
+        boolean[] assigned = new boolean[locals.length];
+        Map<String, Object> attributes = new HashMap<>();
+        List<String> types = paramTypes.get(function.className + "." + function.name);
+        for (int i = 0; i < function.params.size(); i++) {
+            Ir.Var p = function.params.get(i);
+            locals[p.index] = value(types != null && i < types.size() ? types.get(i) : "Int", seed * 31 + i);
+            assigned[p.index] = true;
+        }
+
+        Frame f = new Frame(locals, assigned, attributes, seed);
+        List<Object> params = new ArrayList<>();
+        int calls = 0;
+        int objects = 1000;
+        int pc = 0;
+        for (int steps = 0; pc < code.size(); steps++) {
+            if (steps == STEP_LIMIT) throw new Abort("LIMIT");
+            Ir.Instr instr = code.get(pc++);
+            switch (instr.op) {
+                case LABEL:
+                case FOLDED:
+                    break;
+                case GOTO:
+                    pc = labels.get(instr.label);
+                    break;
+                case IF_FALSE:
+                    if (!(Boolean) f.get(instr.a)) pc = labels.get(instr.label);
+                    break;
+                case IF_GE:
+                    if ((Integer) f.get(instr.a) >= (Integer) f.get(instr.b)) pc = labels.get(instr.label);
+                    break;
+                case IF_GT:
+                    if ((Integer) f.get(instr.a) > (Integer) f.get(instr.b)) pc = labels.get(instr.label);
+                    break;
+                case IF_NE:
+                    if (!equal(f.get(instr.a), f.get(instr.b))) pc = labels.get(instr.label);
+                    break;
+                case RET:
+                    trace.append("RET ").append(instr.a == null ? "-" : f.get(instr.a));
+                    return;
+                case PARAM:
+                    params.add(f.get(instr.a));
+                    break;
+                case CALL: {
+                    trace.append("CALL ");
+                    if (instr.a != null) trace.append(f.get(instr.a)).append(instr.direct ? "@" + instr.type : "").append('.');
+                    trace.append(instr.name).append(params).append("; ");
+                    params.clear();
+                    String type = resultTypes.getOrDefault(instr.name, "Object");
+                    f.set(instr.dst, value(type, seed * 7 + ++calls), trace);
+                    break;
+                }
+                case NEW:
+                    f.set(instr.dst, new Obj(++objects), trace);
+                    break;
+                case CASE: {
+                    // Класи не моделюються: гілка — від seed та номера, як результат CALL
+                    trace.append("CASE ").append(f.get(instr.a)).append("; ");
+                    f.set(instr.dst, Math.floorMod(seed * 7 + ++calls, instr.types.length), trace);
+                    break;
+                }
+                case LOAD:
+                    // Атрибут іншого об'єкта не моделюється: значення — як результат CALL
+                    trace.append("LOAD ").append(f.get(instr.a)).append('.').append(instr.name).append("; ");
+                    f.set(instr.dst, value(attributeTypes.getOrDefault(instr.name, "Int"), seed * 7 + ++calls), trace);
+                    break;
+                case STORE:
+                    trace.append("STORE ").append(f.get(instr.a)).append('.').append(instr.name)
+                         .append(' ').append(f.get(instr.b)).append("; ");
+                    break;
+                case CHECK:
+                    if (f.get(instr.a) == null) throw new Abort("VOID");
+                    break;
+                case MOVE:
+                    f.set(instr.dst, f.get(instr.a), trace);
+                    break;
+                case NOT:
+                    f.set(instr.dst, !(Boolean) f.get(instr.a), trace);
+                    break;
+                case NEG:
+                    f.set(instr.dst, -(Integer) f.get(instr.a), trace);
+                    break;
+                case ISVOID:
+                    f.set(instr.dst, f.get(instr.a) == null, trace);
+                    break;
+                case EQ:
+                    f.set(instr.dst, equal(f.get(instr.a), f.get(instr.b)), trace);
+                    break;
+                default:
+                    f.set(instr.dst, arithmetic(instr.op, (Integer) f.get(instr.a), (Integer) f.get(instr.b)), trace);
+            }
+        }
+        trace.append("END");
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static Object arithmetic(Ir.Opcode op, int a, int b) {
+        switch (op) {
+            case ADD: return a + b;
+            case SUB: return a - b;
+            case MUL: return a * b;
+            case DIV:
+                if (b == 0) throw new Abort("DIV0");
+                return a / b;
+            case LT: return a < b;
+            case LE: return a <= b;
+            default: throw new IllegalStateException("Unexpected opcode " + op);
+        }
+    }
+
+    // Детерміноване значення типу від seed; об'єкт — інколи void
+    static Object value(String type, int seed) {
+        switch (type) {
+            case "Int": return Math.floorMod(seed * 37 + 11, 41) - 10;
+            case "Bool": return (seed & 1) == 0;
+            case "String": return "s" + Math.floorMod(seed, 7);
+            default: return Math.floorMod(seed, 3) == 0 ? null : new Obj(seed);
+        }
+    }
+
+    // Стан виконання: локальні змінні за Local.index та атрибути за іменем
+    private final class Frame {
+        final Object[] locals;
+        final boolean[] assigned;
+        final Map<String, Object> attributes;
+        final int seed;
+
+        Frame(Object[] locals, boolean[] assigned, Map<String, Object> attributes, int seed) {
+            this.locals = locals;
+            this.assigned = assigned;
+            this.attributes = attributes;
+            this.seed = seed;
+        }
+
+        Object get(Ir.Operand operand) {
+            if (operand instanceof Ir.Const) return ((Ir.Const) operand).value();
+            if (isAttribute(operand)) {
+                String name = ((Ir.Var) operand).name;
+                if (!attributes.containsKey(name)) {
+                    attributes.put(name, value(attributeTypes.getOrDefault(name, "Int"), name.hashCode() ^ seed));
+                }
+                return attributes.get(name);
+            }
+            Ir.Local l = (Ir.Local) operand;
+            if (!assigned[l.index]) {
+                if (l instanceof Ir.Var && ((Ir.Var) l).name.equals("self")) return new Obj(1);
+                throw new Abort("TYPE"); // читання до присвоєння
+            }
+            return locals[l.index];
+        }
+
+        void set(Ir.Local dst, Object value, StringBuilder trace) {
+            if (isAttribute(dst)) {
+                // Спостережувана лише зміна значення: x <- x для атрибута — не дія
+                String name = ((Ir.Var) dst).name;
+                if (equal(get(dst), value)) return;
+                attributes.put(name, value);
+                trace.append("SET ").append(name).append('=').append(value).append("; ");
+                return;
+            }
+            locals[dst.index] = value;
+            assigned[dst.index] = true;
+        }
+    }
+
+    private static boolean isAttribute(Ir.Operand operand) {
+        return operand instanceof Ir.Var && ((Ir.Var) operand).attribute;
+    }
+}
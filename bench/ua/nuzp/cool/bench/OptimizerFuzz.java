@@ -0,0 +1,196 @@
+package ua.nuzp.cool.bench;
+
+import ua.nuzp.cool.Bytecode;
+import ua.nuzp.cool.CodeGenerator;
+import ua.nuzp.cool.Compilation;
+import ua.nuzp.cool.Ir;
+import ua.nuzp.cool.Optimizer;
+import ua.nuzp.cool.Vm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Перевірка оптимізатора на випадкових програмах: кожна функція виконується IrInterpreter
+// до та після пофункційної оптимізації з однаковими входами, trace мають збігатися.
+// Міжпроцедурний прохід (Inliner) змінює самі виклики, тож його перевірка — вся програма
+// на Vm з -O0 і з -O: виводи мають збігатися (місце помилки виконання не порівнюється —
+// після вбудовування вона трапляється в іншій функції).
+// Програми створює ProgramGenerator (цикли з лічильниками, арифметика, let, if);
+// замість них можна передати файли .cl або каталоги з ними. Програми REGRESSIONS
+// (знайдені раніше помилки оптимізатора) перевіряються завжди. Виняток усередині Vm —
+// теж розбіжність, з повідомленням замість виводу.
+//
+// Використання: OptimizerFuzz [--programs N] [--seed N] [--inputs N] [file.cl | dir ...]
+// Код виходу 1 — знайдено розбіжність (друкуються функція, вхід та обидва trace).
+public class OptimizerFuzz {
+
+    private static final int MAX_PRINTED = 10;
+
+    private static final String[] REGRESSIONS = {
+            // Після скалярної заміни SCCP отримує IF_FALSE на наступну мітку (єдине ребро Cfg)
+            "class Node { v : Int; };\n"
+            + "class Main inherits IO {\n"
+            + "  main() : Object {\n"
+            + "    let i : Int <- 0, n : Int <- 0, t : Node in {\n"
+            + "      while i < 10 loop {\n"
+            + "        if i - (i / 5) * 5 = 0 then t <- (new Node) else t <- t fi;\n"
+            + "        n <- (n + 1);\n"
+            + "        i <- (i + 1);\n"
+            + "      } pool;\n"
+            + "      out_int(n);\n"
+            + "    }\n"
+            + "  };\n"
+            + "};\n",
+    };
+    private static final String CRASH = "VM crashed: ";
+
+    private int inputs = 8;
+    private int checked = 0;
+    private int skipped = 0;   // еталонний запуск аварійно завершився (TYPE, LIMIT)
+    private int mismatches = 0;
+    private int hoisted = 0;
+    private int reduced = 0;
+    private int inlined = 0;
+    private int allocationsRemoved = 0;
+
+    public static void main(String[] args) throws IOException {
+        OptimizerFuzz fuzz = new OptimizerFuzz();
+        int programs = 200;
+        long seed = 1;
+        List<Path> files = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--programs": programs = Integer.parseInt(value); i++; break;
+                case "--seed": seed = Long.parseLong(value); i++; break;
+                case "--inputs": fuzz.inputs = Integer.parseInt(value); i++; break;
+                default: files.addAll(sources(Paths.get(args[i])));
+            }
+        }
+
+        for (int r = 0; r < REGRESSIONS.length; r++) fuzz.check("regression " + (r + 1), REGRESSIONS[r]);
+
+        if (files.isEmpty()) {
+            ProgramGenerator.Config config = new ProgramGenerator.Config();
+            config.classes = 3;
+            config.statementsPerMethod = 6;
+            config.loopIterations = 6;
+            // Кожна друга програма — з малими методами, які вбудовує Inliner
+            ProgramGenerator.Config small = new ProgramGenerator.Config();
+            small.classes = 3;
+            small.statementsPerMethod = 0;
+            small.exprDepth = 2;
+            for (int p = 0; p < programs; p++) {
+                fuzz.check("seed " + (seed + p), ProgramGenerator.generate(p % 2 == 0 ? config : small, seed + p));
+            }
+        } else {
+            for (Path file : files) {
+                fuzz.check(file.toString(), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            }
+        }
+
+        System.out.println("Checked " + fuzz.checked + " runs, " + fuzz.skipped + " skipped, "
+                + fuzz.mismatches + " mismatches (loop invariants hoisted: " + fuzz.hoisted
+                + ", multiplications strength-reduced: " + fuzz.reduced + ", calls inlined: " + fuzz.inlined
+                + ", allocations removed: " + fuzz.allocationsRemoved + ")");
+        if (fuzz.mismatches > 0) System.exit(1);
+    }
+
+    private static List<Path> sources(Path path) throws IOException {
+        List<Path> result = new ArrayList<>();
+        if (!Files.isDirectory(path)) {
+            result.add(path);
+            return result;
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            walk.filter(p -> p.toString().endsWith(".cl")).sorted().forEach(result::add);
+        }
+        return result;
+    }
+
+    // ===== Порівняння =====
+
+    private void check(String name, String source) {
+        Compilation reference = new Compilation(source);
+        reference.setOptimize(false);
+        if (reference.hasErrors()) {
+            System.err.println(name + ": skipped, program has errors");
+            return;
+        }
+        Ir.Program before = reference.getIr();
+        CodeGenerator generator = new CodeGenerator();
+        generator.generate(reference.getAst());
+        Optimizer optimizer = new Optimizer();
+        optimizer.optimize(generator.getProgram());
+        Ir.Program after = generator.getProgram();
+        for (Optimizer.FunctionReport r : optimizer.getReports()) {
+            hoisted += r.get(Optimizer.Counter.INVARIANTS_HOISTED);
+            reduced += r.get(Optimizer.Counter.STRENGTH_REDUCED);
+        }
+
+        IrInterpreter interpreter = new IrInterpreter(reference.getAst());
+        for (int c = 0; c < before.classes.size(); c++) {
+            Ir.ClassUnit u0 = before.classes.get(c);
+            Ir.ClassUnit u1 = after.classes.get(c);
+            check(name, interpreter, u0.init, u1.init);
+            for (int m = 0; m < u0.methods.size(); m++) check(name, interpreter, u0.methods.get(m), u1.methods.get(m));
+        }
+
+        Compilation optimized = new Compilation(source);
+        String expected = output(reference.getBytecode());
+        String actual = output(optimized.getBytecode());
+        for (Optimizer.FunctionReport r : optimized.getOptimizer().getReports()) {
+            inlined += r.get(Optimizer.Counter.INLINED);
+            allocationsRemoved += r.get(Optimizer.Counter.ALLOCATIONS_REMOVED);
+        }
+        checked++;
+        boolean crashed = expected.startsWith(CRASH) || actual.startsWith(CRASH);
+        if ((crashed || !expected.equals(actual)) && ++mismatches <= MAX_PRINTED) {
+            System.out.println(name + ": program output\n  -O0: " + expected + "\n  -O:  " + actual);
+        }
+    }
+
+    // Вивід програми; помилка виконання — лише повідомлення, без функції, де вона сталася;
+    // виняток Vm (неправильний байткод) — CRASH з винятком
+    private static String output(Bytecode.Program program) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        boolean ok;
+        try {
+            ok = Vm.run(program, new ByteArrayInputStream(new byte[0]), out,
+                    new PrintStream(errors, true, StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            return CRASH + e;
+        }
+        String error = errors.toString(StandardCharsets.UTF_8);
+        return bytes.toString(StandardCharsets.UTF_8) + (ok ? "" : error.substring(error.indexOf(": ") + 2));
+    }
+
+    private void check(String name, IrInterpreter interpreter, Ir.Function f0, Ir.Function f1) {
+        for (int input = 0; input < inputs; input++) {
+            String expected = interpreter.run(f0, input);
+            if (expected.endsWith("TYPE") || expected.endsWith("LIMIT")) {
+                skipped++;
+                continue;
+            }
+            checked++;
+            String actual = interpreter.run(f1, input);
+            if (expected.equals(actual)) continue;
+            if (++mismatches <= MAX_PRINTED) {
+                System.out.println(name + ": " + f0.className + "." + (f0.name != null ? f0.name : "<init>")
+                        + " input " + input + "\n  -O0: " + expected + "\n  -O:  " + actual);
+            }
+        }
+    }
+}
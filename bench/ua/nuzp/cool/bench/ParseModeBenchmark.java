@@ -0,0 +1,39 @@
+package ua.nuzp.cool.bench;
+
+import org.antlr.v4.runtime.*;
+import org.openjdk.jmh.annotations.*;
+import ua.nuzp.cool.CoolLexer;
+import ua.nuzp.cool.CoolParser;
+import ua.nuzp.cool.ParseMode;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Порівняння режимів передбачення парсера: повний LL проти SLL -> LL.
+// Запуск: java -cp ... org.openjdk.jmh.Main ParseModeBenchmark -prof gc
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseModeBenchmark {
+
+    @Param({"small", "medium", "large"})
+    public String size;
+
+    @Param({"LL", "TWO_STAGE"})
+    public ParseMode parseMode;
+
+    private List<? extends Token> tokens;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        tokens = new CoolLexer(CharStreams.fromString(BenchmarkInputs.forSize(size))).getAllTokens();
+    }
+
+    @Benchmark
+    public CoolParser.ProgramContext parse() {
+        return parseMode.parse(new CommonTokenStream(new ListTokenSource(tokens)), null);
+    }
+}
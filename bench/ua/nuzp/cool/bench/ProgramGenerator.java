@@ -0,0 +1,446 @@
+package ua.nuzp.cool.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Генератор синтетичних програм Cool для стрес-тестів та вимірювання масштабування.
+// Вихід відповідає граматиці CoolParser.g4 і проходить семантичний аналіз без помилок:
+// вирази будуються з урахуванням типів, усі бінарні операції беруться в дужки,
+// методи викликають лише раніше оголошені методи, цикли мають обмежений лічильник,
+// ділення виконується лише на ненульову константу. Однаковий seed = однакова програма.
+//
+// Використання: ProgramGenerator [--classes N] [--methods N] [--depth N] [--let N]
+//                                [--case N] [--strings N] [--size 64MB] [--seed N] [-o file.cl]
+public class ProgramGenerator {
+
+    // ===== Параметри генерації =====
+
+    public static class Config {
+        public int classes = 10;          // кількість класів (якщо не задано targetBytes)
+        public int methodsPerClass = 4;
+        public int attributesPerClass = 3;
+        public int statementsPerMethod = 4;
+        public int exprDepth = 4;         // максимальна глибина виразу
+        public int letNesting = 2;        // максимальна вкладеність let
+        public int caseNesting = 1;       // максимальна вкладеність case
+        public int stringLength = 16;     // середня довжина рядкової константи
+        public int loopIterations = 4;    // верхня межа лічильника while
+        public long targetBytes = 0;      // якщо > 0 — генерувати класи до досягнення розміру
+    }
+
+    enum Kind {
+        INT("Int"), BOOL("Bool"), STRING("String");
+
+        final String typeName;
+        Kind(String typeName) { this.typeName = typeName; }
+    }
+
+    // Змінна в області видимості генератора
+    static class Var {
+        final String name;
+        final Kind kind;
+        final boolean assignable;
+
+        Var(String name, Kind kind, boolean assignable) {
+            this.name = name;
+            this.kind = kind;
+            this.assignable = assignable;
+        }
+    }
+
+    // Сигнатура вже згенерованого методу
+    static class MethodSig {
+        final String className;
+        final String name;
+        final Kind[] params;
+        final Kind result;
+
+        MethodSig(String className, String name, Kind[] params, Kind result) {
+            this.className = className;
+            this.name = name;
+            this.params = params;
+            this.result = result;
+        }
+    }
+
+    private final Config config;
+    private final Random random;
+
+    private final List<String> classNames = new ArrayList<>();
+    private final List<MethodSig> publicMethods = new ArrayList<>(); // перший метод кожного класу
+    private List<MethodSig> classMethods;   // методи поточного класу
+    private List<Var> scope;                // змінні, видимі в поточному методі
+    private int localCounter;
+    private int letDepth;
+    private int caseDepth;
+    private int loopDepth;
+
+    public ProgramGenerator(Config config, long seed) {
+        this.config = config;
+        this.random = new Random(seed);
+    }
+
+    public static String generate(Config config, long seed) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            new ProgramGenerator(config, seed).generate(sb);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringBuilder не кидає IOException
+        }
+        return sb.toString();
+    }
+
+    // ===== Програма =====
+
+    public long generate(Appendable out) throws IOException {
+        long written = 0;
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; config.targetBytes > 0 ? written < config.targetBytes : i < config.classes; i++) {
+            sb.setLength(0);
+            generateClass(sb, i);
+            out.append(sb);
+            written += sb.length();
+        }
+
+        sb.setLength(0);
+        generateMain(sb);
+        out.append(sb);
+        return written + sb.length();
+    }
+
+    private void generateClass(StringBuilder sb, int index) {
+        String name = "C" + index;
+        // Наслідування від випадкового попереднього класу; корінь ієрархії — IO
+        String parent = classNames.isEmpty() || random.nextInt(3) == 0
+                ? "IO"
+                : classNames.get(random.nextInt(classNames.size()));
+
+        sb.append("class ").append(name).append(" inherits ").append(parent).append(" {\n");
+
+        List<Var> attributes = new ArrayList<>();
+        classMethods = new ArrayList<>();
+        for (int a = 0; a < config.attributesPerClass; a++) {
+            Kind kind = randomKind();
+            Var attr = new Var("a" + index + "_" + a, kind, true);
+            scope = new ArrayList<>(attributes);
+            resetCounters();
+            sb.append("  ").append(attr.name).append(" : ").append(kind.typeName)
+              .append(" <- ").append(expr(kind, 1)).append(";\n");
+            attributes.add(attr);
+        }
+
+        for (int m = 0; m < config.methodsPerClass; m++) {
+            generateMethod(sb, name, "m" + index + "_" + m, attributes);
+        }
+        sb.append("};\n\n");
+
+        classNames.add(name);
+        if (!classMethods.isEmpty()) publicMethods.add(classMethods.get(0));
+    }
+
+    private void generateMethod(StringBuilder sb, String className, String name, List<Var> attributes) {
+        Kind result = randomKind();
+        Kind[] params = new Kind[random.nextInt(3)];
+
+        scope = new ArrayList<>(attributes);
+        resetCounters();
+
+        sb.append("  ").append(name).append("(");
+        for (int p = 0; p < params.length; p++) {
+            params[p] = randomKind();
+            String pName = "p" + p;
+            scope.add(new Var(pName, params[p], true));
+            if (p > 0) sb.append(", ");
+            sb.append(pName).append(" : ").append(params[p].typeName);
+        }
+        sb.append(") : ").append(result.typeName).append(" {\n    {\n");
+
+        for (int s = 0; s < config.statementsPerMethod; s++) {
+            sb.append("      ").append(statement(config.exprDepth)).append(";\n");
+        }
+        // Параметри використовуються, щоб аналізатор не видавав попереджень
+        for (int p = 0; p < params.length; p++) {
+            sb.append("      ").append(use(new Var("p" + p, params[p], true))).append(";\n");
+        }
+        sb.append("      ").append(expr(result, config.exprDepth)).append(";\n");
+        sb.append("    }\n  };\n");
+
+        classMethods.add(new MethodSig(className, name, params, result));
+    }
+
+    private void generateMain(StringBuilder sb) {
+        scope = new ArrayList<>();
+        classMethods = new ArrayList<>();
+        resetCounters();
+
+        sb.append("class Main inherits IO {\n  main() : Object {\n    {\n");
+        for (MethodSig m : publicMethods) {
+            sb.append("      ").append(dispatch(m, 1)).append(";\n");
+        }
+        sb.append("      out_string(\"done\\n\");\n    }\n  };\n};\n");
+    }
+
+    private void resetCounters() {
+        localCounter = 0;
+        letDepth = 0;
+        caseDepth = 0;
+        loopDepth = 0;
+    }
+
+    // ===== Інструкції (елементи блоку) =====
+
+    private String statement(int depth) {
+        switch (random.nextInt(7)) {
+            case 0: {
+                Var target = randomVar(null, true);
+                if (target != null) return target.name + " <- " + expr(target.kind, depth);
+                return "out_int(" + expr(Kind.INT, depth) + ")";
+            }
+            case 1:
+                return "out_int(" + expr(Kind.INT, depth) + ")";
+            case 2:
+                return "out_string(" + expr(Kind.STRING, depth) + ")";
+            case 3:
+                if (loopDepth < 2) return loop(depth);
+                return "out_int(" + expr(Kind.INT, depth) + ")";
+            case 4:
+                if (caseDepth < config.caseNesting) return caseExpr(depth);
+                return expr(Kind.BOOL, depth);
+            case 5:
+                if (!publicMethods.isEmpty())
+                    return dispatch(publicMethods.get(random.nextInt(publicMethods.size())), depth);
+                return expr(Kind.INT, depth);
+            default:
+                return expr(randomKind(), depth);
+        }
+    }
+
+    // while з локальним лічильником, який тіло циклу не змінює
+    private String loop(int depth) {
+        String counter = "i" + (localCounter++);
+        loopDepth++;
+        scope.add(new Var(counter, Kind.INT, false));
+        String body = statement(depth - 1);
+        scope.remove(scope.size() - 1);
+        loopDepth--;
+
+        int bound = 1 + random.nextInt(config.loopIterations);
+        return "let " + counter + " : Int <- 0 in while " + counter + " < " + bound + " loop { "
+                + body + "; " + counter + " <- (" + counter + " + 1); } pool";
+    }
+
+    // case як окрема інструкція: гілки повертають Int, змінна гілки не використовується
+    private String caseExpr(int depth) {
+        caseDepth++;
+        StringBuilder sb = new StringBuilder("case ").append(expr(randomKind(), depth - 1)).append(" of ");
+        String[] types = {"Int", "Bool", "String", "Object"};
+        int branches = 1 + random.nextInt(types.length);
+        for (int b = 0; b < branches; b++) {
+            String result = caseDepth < config.caseNesting && random.nextBoolean()
+                    ? caseExpr(depth - 1)
+                    : expr(Kind.INT, depth - 1);
+            sb.append("c").append(localCounter++).append(" : ").append(types[b])
+              .append(" => ").append(result).append("; ");
+        }
+        caseDepth--;
+        return sb.append("esac").toString();
+    }
+
+    private String dispatch(MethodSig m, int depth) {
+        StringBuilder sb = new StringBuilder("(new ").append(m.className).append(").").append(m.name).append("(");
+        appendArguments(sb, m, depth);
+        return sb.append(")").toString();
+    }
+
+    private void appendArguments(StringBuilder sb, MethodSig m, int depth) {
+        for (int i = 0; i < m.params.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(expr(m.params[i], depth - 1));
+        }
+    }
+
+    // ===== Типізовані вирази =====
+
+    private String expr(Kind kind, int depth) {
+        if (depth <= 0) return leaf(kind);
+
+        switch (random.nextInt(8)) {
+            case 0:
+                return leaf(kind);
+            case 1:
+                return "if " + expr(Kind.BOOL, depth - 1) + " then " + expr(kind, depth - 1)
+                        + " else " + expr(kind, depth - 1) + " fi";
+            case 2:
+                return "{ " + statement(depth - 1) + "; " + expr(kind, depth - 1) + "; }";
+            case 3:
+                if (letDepth < config.letNesting) return let(kind, depth);
+                return leaf(kind);
+            case 4: {
+                MethodSig m = randomMethod(kind);
+                if (m != null) {
+                    StringBuilder sb = new StringBuilder(m.name).append("(");
+                    appendArguments(sb, m, depth);
+                    return sb.append(")").toString();
+                }
+                return leaf(kind);
+            }
+            default:
+                return operator(kind, depth);
+        }
+    }
+
+    private String operator(Kind kind, int depth) {
+        switch (kind) {
+            case INT:
+                switch (random.nextInt(5)) {
+                    case 0: return "(" + expr(Kind.INT, depth - 1) + " + " + expr(Kind.INT, depth - 1) + ")";
+                    case 1: return "(" + expr(Kind.INT, depth - 1) + " - " + expr(Kind.INT, depth - 1) + ")";
+                    case 2: return "(" + expr(Kind.INT, depth - 1) + " * " + expr(Kind.INT, depth - 1) + ")";
+                    case 3: return "(" + expr(Kind.INT, depth - 1) + " / " + (1 + random.nextInt(9)) + ")";
+                    default: return "(~" + expr(Kind.INT, depth - 1) + ")";
+                }
+            case BOOL:
+                switch (random.nextInt(4)) {
+                    case 0: return "(" + expr(Kind.INT, depth - 1) + " < " + expr(Kind.INT, depth - 1) + ")";
+                    case 1: return "(" + expr(Kind.INT, depth - 1) + " <= " + expr(Kind.INT, depth - 1) + ")";
+                    case 2: return "(" + expr(Kind.INT, depth - 1) + " = " + expr(Kind.INT, depth - 1) + ")";
+                    default: return "(not " + expr(Kind.BOOL, depth - 1) + ")";
+                }
+            default:
+                return leaf(kind);
+        }
+    }
+
+    private String let(Kind kind, int depth) {
+        letDepth++;
+        int bindings = 1 + random.nextInt(2);
+        StringBuilder sb = new StringBuilder("let ");
+        List<Var> added = new ArrayList<>();
+        for (int i = 0; i < bindings; i++) {
+            Kind varKind = randomKind();
+            Var v = new Var("l" + (localCounter++), varKind, true);
+            if (i > 0) sb.append(", ");
+            sb.append(v.name).append(" : ").append(varKind.typeName)
+              .append(" <- ").append(expr(varKind, depth - 1));
+            scope.add(v);
+            added.add(v);
+        }
+        // Тіло обов'язково використовує кожну змінну let (інакше — попередження аналізатора)
+        sb.append(" in { ");
+        for (Var v : added) sb.append(use(v)).append("; ");
+        sb.append("(").append(expr(kind, depth - 1)).append("); }");
+
+        scope.subList(scope.size() - added.size(), scope.size()).clear();
+        letDepth--;
+        return sb.toString();
+    }
+
+    private String use(Var v) {
+        switch (v.kind) {
+            case INT: return "out_int(" + v.name + ")";
+            case STRING: return "out_string(" + v.name + ")";
+            default: return "if " + v.name + " then 1 else 0 fi";
+        }
+    }
+
+    private String leaf(Kind kind) {
+        if (random.nextBoolean()) {
+            Var v = randomVar(kind, false);
+            if (v != null) return v.name;
+        }
+        switch (kind) {
+            case INT: return Integer.toString(random.nextInt(1000));
+            case BOOL: return random.nextBoolean() ? "true" : "false";
+            default: return stringConstant();
+        }
+    }
+
+    private String stringConstant() {
+        int length = config.stringLength <= 0 ? 0 : random.nextInt(2 * config.stringLength + 1);
+        StringBuilder sb = new StringBuilder(length + 2).append('"');
+        for (int i = 0; i < length; i++) {
+            int c = random.nextInt(40);
+            if (c < 26) sb.append((char) ('a' + c));
+            else if (c < 36) sb.append((char) ('0' + c - 26));
+            else if (c < 39) sb.append(' ');
+            else sb.append("\\n");
+        }
+        return sb.append('"').toString();
+    }
+
+    // ===== Вибір випадкових елементів =====
+
+    private Kind randomKind() {
+        return Kind.values()[random.nextInt(Kind.values().length)];
+    }
+
+    private Var randomVar(Kind kind, boolean assignable) {
+        List<Var> candidates = new ArrayList<>();
+        for (Var v : scope) {
+            if ((kind == null || v.kind == kind) && (!assignable || v.assignable)) candidates.add(v);
+        }
+        return candidates.isEmpty() ? null : candidates.get(random.nextInt(candidates.size()));
+    }
+
+    private MethodSig randomMethod(Kind result) {
+        List<MethodSig> candidates = new ArrayList<>();
+        for (MethodSig m : classMethods) {
+            if (m.result == result) candidates.add(m);
+        }
+        return candidates.isEmpty() ? null : candidates.get(random.nextInt(candidates.size()));
+    }
+
+    // ===== Командний рядок =====
+
+    public static void main(String[] args) throws IOException {
+        Config config = new Config();
+        long seed = 42;
+        String output = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--classes": config.classes = Integer.parseInt(value); i++; break;
+                case "--methods": config.methodsPerClass = Integer.parseInt(value); i++; break;
+                case "--depth": config.exprDepth = Integer.parseInt(value); i++; break;
+                case "--let": config.letNesting = Integer.parseInt(value); i++; break;
+                case "--case": config.caseNesting = Integer.parseInt(value); i++; break;
+                case "--strings": config.stringLength = Integer.parseInt(value); i++; break;
+                case "--size": config.targetBytes = parseSize(value); i++; break;
+                case "--seed": seed = Long.parseLong(value); i++; break;
+                case "-o": output = value; i++; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        if (output == null) {
+            Writer out = new java.io.OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+            new ProgramGenerator(config, seed).generate(out);
+            out.flush();
+        } else {
+            try (BufferedWriter out = Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8)) {
+                long bytes = new ProgramGenerator(config, seed).generate(out);
+                System.err.println("Generated " + bytes + " bytes into " + output);
+            }
+        }
+    }
+
+    // 512, 64KB, 10MB, 1GB
+    static long parseSize(String text) {
+        String s = text.trim().toUpperCase();
+        long multiplier = 1;
+        if (s.endsWith("KB")) multiplier = 1L << 10;
+        else if (s.endsWith("MB")) multiplier = 1L << 20;
+        else if (s.endsWith("GB")) multiplier = 1L << 30;
+        if (multiplier > 1) s = s.substring(0, s.length() - 2);
+        return Long.parseLong(s.trim()) * multiplier;
+    }
+}
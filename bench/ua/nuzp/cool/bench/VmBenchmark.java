@@ -0,0 +1,323 @@
+package ua.nuzp.cool.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ua.nuzp.cool.Ast;
+import ua.nuzp.cool.Bytecode;
+import ua.nuzp.cool.Compilation;
+import ua.nuzp.cool.Vm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Виконання програм Cool: регістрова VM (байткод з оптимізованого IR і з -O0)
+// проти наївного інтерпретатора AST (AstEvaluator). Компіляція — у setup(), вимірюється лише запуск.
+//   fib        — рекурсія та арифметика (виклики, параметри, повернення Int);
+//   loop       — цикл з let-змінними (арифметика, порівняння, переходи);
+//   attributes — методи, що читають і змінюють атрибути self, та створення об'єктів;
+//   dispatch   — явні виклики в циклі: одне місце виклику бачить три класи (поліморфний кеш),
+//                інше — завжди один (мономорфний);
+//   cases      — інтерпретатор на case: вибір гілки за класом вузла з ієрархії глибини 3;
+//   accessors  — гетери та сетери точки в циклі (цілі виклику єдині — Inliner вбудовує їх);
+//   allocation — короткоживучі списки в циклі і довгоживучий ланцюжок (збирач купи Vm);
+//   temporaries — тимчасові вектори в тілі циклу, що не залишають main (ScalarReplacement);
+//   builders   — методи з результатом SELF_TYPE, перевизначені в нащадку (ланцюжки викликів, copy).
+// У setup() виводи всіх трьох виконавців порівнюються — бенчмарк не міряє неправильну роботу.
+//
+//   java -cp "out:lib/*:jmh/*" ua.nuzp.cool.bench.VmBenchmark [regexp]
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VmBenchmark {
+
+    public static final String FIB =
+            "class Main inherits IO {\n"
+            + "  fib(n : Int) : Int { if n < 2 then n else fib(n - 1) + fib(n - 2) fi };\n"
+            + "  main() : Object { out_int(fib(24)) };\n"
+            + "};\n";
+
+    public static final String LOOP =
+            "class Main inherits IO {\n"
+            + "  main() : Object {\n"
+            + "    let i : Int <- 0, sum : Int <- 0 in {\n"
+            + "      while i < 1000000 loop {\n"
+            + "        if i - (i / 3) * 3 = 0 then sum <- (sum + i) else sum <- (sum - 1) fi;\n"
+            + "        i <- (i + 1);\n"
+            + "      } pool;\n"
+            + "      out_int(sum);\n"
+            + "    }\n"
+            + "  };\n"
+            + "};\n";
+
+    public static final String ATTRIBUTES =
+            "class Main inherits IO {\n"
+            + "  steps : Int;\n"
+            + "  last : Object;\n"
+            + "  step(x : Int) : Int {{\n"
+            + "    steps <- (steps + 1);\n"
+            + "    if x - (x / 2) * 2 = 0 then x / 2 else (3 * x) + 1 fi;\n"
+            + "  }};\n"
+            + "  collatz(n : Int) : Int {{\n"
+            + "    while not (n = 1) loop n <- step(n) pool;\n"
+            + "    last <- new Object;\n"
+            + "    steps;\n"
+            + "  }};\n"
+            + "  main() : Object {{\n"
+            + "    let i : Int <- 1 in while i < 3000 loop { collatz(i); i <- (i + 1); } pool;\n"
+            + "    out_int(steps);\n"
+            + "  }};\n"
+            + "};\n";
+
+    public static final String DISPATCH =
+            "class Shape { area() : Int { 0 }; };\n"
+            + "class Square inherits Shape { s : Int <- 3; area() : Int { s * s }; };\n"
+            + "class Circle inherits Shape { r : Int <- 2; area() : Int { (3 * r) * r }; };\n"
+            + "class Triangle inherits Shape { area() : Int { 5 }; };\n"
+            + "class Main inherits IO {\n"
+            + "  main() : Object {\n"
+            + "    let shapes : Shape, square : Shape <- new Square, circle : Shape <- new Circle,\n"
+            + "        triangle : Shape <- new Triangle, i : Int <- 0, sum : Int <- 0 in {\n"
+            + "      while i < 300000 loop {\n"
+            + "        if i - (i / 3) * 3 = 0 then shapes <- square else\n"
+            + "        if i - (i / 3) * 3 = 1 then shapes <- circle else shapes <- triangle fi fi;\n"
+            + "        sum <- (sum + shapes.area());\n"
+            + "        sum <- (sum - square.area());\n"
+            + "        i <- (i + 1);\n"
+            + "      } pool;\n"
+            + "      out_int(sum);\n"
+            + "    }\n"
+            + "  };\n"
+            + "};\n";
+
+    public static final String CASES =
+            "class Op {\n"
+            + "  next : Op;\n"
+            + "  link(n : Op) : Op {{ next <- n; self; }};\n"
+            + "  following() : Op { next };\n"
+            + "};\n"
+            + "class Push inherits Op { };\n"
+            + "class Add inherits Op { };\n"
+            + "class Twice inherits Add { };\n"
+            + "class Sub inherits Op { };\n"
+            + "class Neg inherits Sub { };\n"
+            + "class Main inherits IO {\n"
+            + "  step(op : Op, acc : Int) : Int {\n"
+            + "    case op of\n"
+            + "      p : Push => acc + 7;\n"
+            + "      o : Op => acc;\n"
+            + "      a : Add => acc + 3;\n"
+            + "      n : Neg => 0 - acc;\n"
+            + "      t : Twice => acc + acc;\n"
+            + "      s : Sub => acc - 1;\n"
+            + "    esac\n"
+            + "  };\n"
+            + "  main() : Object {\n"
+            + "    let first : Op <- new Push, op : Op, i : Int <- 0, acc : Int <- 0 in {\n"
+            + "      first.link((new Add).link((new Twice).link((new Op).link((new Sub).link((new Neg).link(first))))));\n"
+            + "      op <- first;\n"
+            + "      while i < 300000 loop {\n"
+            + "        acc <- step(op, acc);\n"
+            + "        acc <- (acc - (acc / 10007) * 10007);\n"
+            + "        op <- op.following();\n"
+            + "        i <- (i + 1);\n"
+            + "      } pool;\n"
+            + "      out_int(acc);\n"
+            + "    }\n"
+            + "  };\n"
+            + "};\n";
+
+    public static final String ACCESSORS =
+            "class Point {\n"
+            + "  x : Int;\n"
+            + "  y : Int;\n"
+            + "  getX() : Int { x };\n"
+            + "  getY() : Int { y };\n"
+            + "  setX(v : Int) : SELF_TYPE {{ x <- v; self; }};\n"
+            + "  setY(v : Int) : SELF_TYPE {{ y <- v; self; }};\n"
+            + "  move(dx : Int, dy : Int) : SELF_TYPE {{ x <- (x + dx); y <- (y + dy); self; }};\n"
+            + "};\n"
+            + "class Main inherits IO {\n"
+            + "  main() : Object {\n"
+            + "    let p : Point <- new Point, q : Point <- new Point, i : Int <- 0, sum : Int <- 0 in {\n"
+            + "      while i < 300000 loop {\n"
+            + "        p.move(1, 2);\n"
+            + "        q.setX(p.getY() - q.getX()).setY(q.getY() + 1);\n"
+            + "        sum <- (sum + (p.getX() - q.getY()) + q.getX());\n"
+            + "        sum <- (sum - (sum / 10007) * 10007);\n"
+            + "        i <- (i + 1);\n"
+            + "      } pool;\n"
+            + "      out_int(sum);\n"
+            + "    }\n"
+            + "  };\n"
+            + "};\n";
+
+    public static final String ALLOCATION =
+            "class Cell {\n"
+            + "  v : Int;\n"
+            + "  next : Cell;\n"
+            + "  init(x : Int, n : Cell) : Cell {{ v <- x; next <- n; self; }};\n"
+            + "  sum() : Int {\n"
+            + "    let c : Cell <- self, s : Int <- 0 in {\n"
+            + "      while not isvoid c loop { s <- (s + c.value()); c <- (c.following()); } pool;\n"
+            + "      s;\n"
+            + "    }\n"
+            + "  };\n"
+            + "  value() : Int { v };\n"
+            + "  following() : Cell { next };\n"
+            + "};\n"
+            + "class Main inherits IO {\n"
+            + "  kept : Cell;\n"
+            + "  main() : Object {\n"
+            + "    let i : Int <- 0, total : Int <- 0 in {\n"
+            + "      while i < 2000 loop {\n"
+            + "        let list : Cell, j : Int <- 0 in {\n"
+            + "          while j < 200 loop { list <- ((new Cell).init(j, list)); j <- (j + 1); } pool;\n"
+            + "          total <- (total + list.sum());\n"
+            + "          if i - (i / 20) * 20 = 0 then kept <- ((new Cell).init(i, kept)) else 0 fi;\n"
+            + "        };\n"
+            + "        total <- (total - (total / 10007) * 10007);\n"
+            + "        i <- (i + 1);\n"
+            + "      } pool;\n"
+            + "      out_int(total + kept.sum());\n"
+            + "    }\n"
+            + "  };\n"
+            + "};\n";
+
+    public static final String TEMPORARIES =
+            "class Vec {\n"
+            + "  x : Int;\n"
+            + "  y : Int;\n"
+            + "  init(a : Int, b : Int) : SELF_TYPE {{ x <- a; y <- b; self; }};\n"
+            + "  getX() : Int { x };\n"
+            + "  getY() : Int { y };\n"
+            + "};\n"
+            + "class Main inherits IO {\n"
+            + "  main() : Object {\n"
+            + "    let i : Int <- 0, sum : Int <- 0 in {\n"
+            + "      while i < 300000 loop {\n"
+            + "        let v : Vec <- (new Vec).init(i, 3), w : Vec <- (new Vec).init(2, i - 1) in {\n"
+            + "          sum <- (sum + (v.getX() * w.getX()) + (v.getY() * w.getY()));\n"
+            + "          sum <- (sum - (sum / 10007) * 10007);\n"
+            + "        };\n"
+            + "        i <- (i + 1);\n"
+            + "      } pool;\n"
+            + "      out_int(sum);\n"
+            + "    }\n"
+            + "  };\n"
+            + "};\n";
+
+    public static final String BUILDERS =
+            "class Counter {\n"
+            + "  n : Int;\n"
+            + "  count() : Int { n };\n"
+            + "  add(k : Int) : SELF_TYPE {{ n <- (n + k); self; }};\n"
+            + "  twice() : SELF_TYPE { add(n) };\n"
+            + "};\n"
+            + "class Bounded inherits Counter {\n"
+            + "  add(k : Int) : SELF_TYPE {{ n <- (n + k); n <- (n - (n / 10007) * 10007); self; }};\n"
+            + "  twice() : SELF_TYPE { copy().add(count()) };\n"
+            + "};\n"
+            + "class Main inherits IO {\n"
+            + "  main() : Object {\n"
+            + "    let c : Counter <- new Counter, b : Counter <- new Bounded, i : Int <- 0 in {\n"
+            + "      while i < 100000 loop {\n"
+            + "        c.add(1).add(2);\n"
+            + "        b <- (b.add(i).twice());\n"
+            + "        i <- (i + 1);\n"
+            + "      } pool;\n"
+            + "      out_int(c.count() + b.count());\n"
+            + "    }\n"
+            + "  };\n"
+            + "};\n";
+
+    @Param({"fib", "loop", "attributes", "dispatch", "cases", "accessors", "allocation", "temporaries", "builders"})
+    public String program;
+
+    private Bytecode.Program optimized;
+    private Bytecode.Program unoptimized;
+    private Ast.Program ast;
+
+    private static final PrintStream NULL = new PrintStream(OutputStream.nullOutputStream());
+    private static final InputStream EMPTY = new ByteArrayInputStream(new byte[0]);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String source = source(program);
+        optimized = compile(source, true).getBytecode();
+        unoptimized = compile(source, false).getBytecode();
+        ast = compile(source, true).getAst();
+
+        String expected = output(s -> Vm.run(optimized, EMPTY, s, s));
+        if (!expected.equals(output(s -> Vm.run(unoptimized, EMPTY, s, s)))
+                || !expected.equals(output(s -> new AstEvaluator(ast, EMPTY, s).run())))
+            throw new IllegalStateException("Engines disagree on " + program);
+    }
+
+    static String source(String program) {
+        switch (program) {
+            case "fib": return FIB;
+            case "loop": return LOOP;
+            case "attributes": return ATTRIBUTES;
+            case "dispatch": return DISPATCH;
+            case "cases": return CASES;
+            case "accessors": return ACCESSORS;
+            case "allocation": return ALLOCATION;
+            case "temporaries": return TEMPORARIES;
+            case "builders": return BUILDERS;
+            default: throw new IllegalArgumentException("Unknown program: " + program);
+        }
+    }
+
+    private static Compilation compile(String source, boolean optimize) {
+        Compilation compilation = new Compilation(source);
+        compilation.setOptimize(optimize);
+        if (compilation.hasErrors()) throw new IllegalStateException("Benchmark program must compile cleanly");
+        return compilation;
+    }
+
+    private interface Engine {
+        void run(PrintStream out);
+    }
+
+    private static String output(Engine engine) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+        engine.run(out);
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    // ===== Виконавці =====
+
+    @Benchmark
+    public boolean vm() {
+        return Vm.run(optimized, EMPTY, NULL, NULL);
+    }
+
+    @Benchmark
+    public boolean vmUnoptimized() {
+        return Vm.run(unoptimized, EMPTY, NULL, NULL);
+    }
+
+    @Benchmark
+    public Object treeWalker() {
+        return new AstEvaluator(ast, EMPTY, NULL).run();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(VmBenchmark.class.getSimpleName() + (args.length > 0 ? "." + args[0] : ""))
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,433 @@
+package ua.nuzp.cool;
+
+import java.util.List;
+
+// Компактне типізоване AST мови Cool.
+// Будується з дерева розбору (AstBuilder) і після цього не залежить від ANTLR:
+// вузли незмінні, зберігають лише імена (інтерновані), дочірні вузли та позицію;
+// єдиний виняток — статичний тип виразу, який записує семантичний аналіз.
+// Кожній мітці правила expr у CoolParser.g4 відповідає свій клас, крім двох спрощень:
+// Paren не зберігається (дужки лише групують), True/False об'єднані в BoolConst.
+public final class Ast {
+
+    private Ast() { }
+
+    // ===== Базові вузли =====
+
+    public abstract static class Node {
+        public final int line;
+        public final int column;
+
+        Node(int line, int column) {
+            this.line = line;
+            this.column = column;
+        }
+
+        public abstract <R> R accept(Visitor<R> v);
+    }
+
+    public abstract static class Expr extends Node {
+        // Статичний тип за SemanticAnalyzer (SELF_TYPE — поточний клас); null до аналізу
+        public Type checkedType;
+
+        Expr(int line, int column) { super(line, column); }
+    }
+
+    public abstract static class Feature extends Node {
+        public final String name;
+
+        Feature(int line, int column, String name) {
+            super(line, column);
+            this.name = name;
+        }
+    }
+
+    public interface Visitor<R> {
+        R visitProgram(Program n);
+        R visitClassDecl(ClassDecl n);
+        R visitAttribute(Attribute n);
+        R visitMethod(Method n);
+
+        R visitAssign(Assign n);
+        R visitDispatch(Dispatch n);
+        R visitImplicitDispatch(ImplicitDispatch n);
+        R visitIf(If n);
+        R visitWhile(While n);
+        R visitBlock(Block n);
+        R visitLet(Let n);
+        R visitCase(Case n);
+        R visitNew(New n);
+        R visitIsVoid(IsVoid n);
+        R visitNegation(Negation n);
+        R visitNot(Not n);
+        R visitMulDiv(MulDiv n);
+        R visitAddSub(AddSub n);
+        R visitCompare(Compare n);
+        R visitId(Id n);
+        R visitIntConst(IntConst n);
+        R visitStringConst(StringConst n);
+        R visitBoolConst(BoolConst n);
+    }
+
+    // ===== Програма, класи, члени класу =====
+
+    public static final class Program extends Node {
+        public final List<ClassDecl> classes;
+
+        public Program(int line, int column, List<ClassDecl> classes) {
+            super(line, column);
+            this.classes = List.copyOf(classes);
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitProgram(this); }
+    }
+
+    public static final class ClassDecl extends Node {
+        public final String name;
+        public final String parent; // null, якщо INHERITS відсутній
+        public final List<Feature> features;
+
+        public ClassDecl(int line, int column, String name, String parent, List<Feature> features) {
+            super(line, column);
+            this.name = name;
+            this.parent = parent;
+            this.features = List.copyOf(features);
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitClassDecl(this); }
+    }
+
+    public static final class Attribute extends Feature {
+        public final String type;
+        public final Expr init; // null, якщо ініціалізатор відсутній
+
+        public Attribute(int line, int column, String name, String type, Expr init) {
+            super(line, column, name);
+            this.type = type;
+            this.init = init;
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitAttribute(this); }
+    }
+
+    public static final class Method extends Feature {
+        public final List<Formal> formals;
+        public final String returnType;
+        public final Expr body;
+
+        public Method(int line, int column, String name, List<Formal> formals, String returnType, Expr body) {
+            super(line, column, name);
+            this.formals = List.copyOf(formals);
+            this.returnType = returnType;
+            this.body = body;
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitMethod(this); }
+    }
+
+    // Параметр методу, змінна let, гілка case: ім'я + оголошений тип
+    public static class Binding {
+        public final int line;
+        public final int column;
+        public final String name;
+        public final String type;
+
+        Binding(int line, int column, String name, String type) {
+            this.line = line;
+            this.column = column;
+            this.name = name;
+            this.type = type;
+        }
+    }
+
+    public static final class Formal extends Binding {
+        public Formal(int line, int column, String name, String type) {
+            super(line, column, name, type);
+        }
+    }
+
+    public static final class LetBinding extends Binding {
+        public final Expr init; // null, якщо ініціалізатор відсутній
+
+        public LetBinding(int line, int column, String name, String type, Expr init) {
+            super(line, column, name, type);
+            this.init = init;
+        }
+    }
+
+    public static final class CaseBranch extends Binding {
+        public final Expr body;
+
+        public CaseBranch(int line, int column, String name, String type, Expr body) {
+            super(line, column, name, type);
+            this.body = body;
+        }
+    }
+
+    // ===== Вирази =====
+
+    public static final class Assign extends Expr {
+        public final String name;
+        public final Expr value;
+
+        public Assign(int line, int column, String name, Expr value) {
+            super(line, column);
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitAssign(this); }
+    }
+
+    public static final class Dispatch extends Expr {
+        public final Expr target;
+        public final String staticType; // target@Type.method(...), інакше null
+        public final String name;
+        public final List<Expr> args;
+
+        public Dispatch(int line, int column, Expr target, String staticType, String name, List<Expr> args) {
+            super(line, column);
+            this.target = target;
+            this.staticType = staticType;
+            this.name = name;
+            this.args = List.copyOf(args);
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitDispatch(this); }
+    }
+
+    public static final class ImplicitDispatch extends Expr {
+        public final String name;
+        public final List<Expr> args;
+
+        public ImplicitDispatch(int line, int column, String name, List<Expr> args) {
+            super(line, column);
+            this.name = name;
+            this.args = List.copyOf(args);
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitImplicitDispatch(this); }
+    }
+
+    public static final class If extends Expr {
+        public final Expr condition;
+        public final Expr thenBranch;
+        public final Expr elseBranch;
+
+        public If(int line, int column, Expr condition, Expr thenBranch, Expr elseBranch) {
+            super(line, column);
+            this.condition = condition;
+            this.thenBranch = thenBranch;
+            this.elseBranch = elseBranch;
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitIf(this); }
+    }
+
+    public static final class While extends Expr {
+        public final Expr condition;
+        public final Expr body;
+
+        public While(int line, int column, Expr condition, Expr body) {
+            super(line, column);
+            this.condition = condition;
+            this.body = body;
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitWhile(this); }
+    }
+
+    public static final class Block extends Expr {
+        public final List<Expr> body;
+
+        public Block(int line, int column, List<Expr> body) {
+            super(line, column);
+            this.body = List.copyOf(body);
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitBlock(this); }
+    }
+
+    public static final class Let extends Expr {
+        public final List<LetBinding> bindings;
+        public final Expr body;
+
+        public Let(int line, int column, List<LetBinding> bindings, Expr body) {
+            super(line, column);
+            this.bindings = List.copyOf(bindings);
+            this.body = body;
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitLet(this); }
+    }
+
+    public static final class Case extends Expr {
+        public final Expr value;
+        public final List<CaseBranch> branches;
+
+        public Case(int line, int column, Expr value, List<CaseBranch> branches) {
+            super(line, column);
+            this.value = value;
+            this.branches = List.copyOf(branches);
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitCase(this); }
+    }
+
+    public static final class New extends Expr {
+        public final String type;
+
+        public New(int line, int column, String type) {
+            super(line, column);
+            this.type = type;
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitNew(this); }
+    }
+
+    public static final class IsVoid extends Expr {
+        public final Expr e;
+
+        public IsVoid(int line, int column, Expr e) {
+            super(line, column);
+            this.e = e;
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitIsVoid(this); }
+    }
+
+    public static final class Negation extends Expr {
+        public final Expr e;
+
+        public Negation(int line, int column, Expr e) {
+            super(line, column);
+            this.e = e;
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitNegation(this); }
+    }
+
+    public static final class Not extends Expr {
+        public final Expr e;
+
+        public Not(int line, int column, Expr e) {
+            super(line, column);
+            this.e = e;
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitNot(this); }
+    }
+
+    // Бінарні оператори
+    public enum Op {
+        PLUS("+"), MINUS("-"), MULT("*"), DIV("/"), LT("<"), LE("<="), EQ("=");
+
+        public final String symbol;
+        Op(String symbol) { this.symbol = symbol; }
+    }
+
+    public abstract static class Binary extends Expr {
+        public final Op op;
+        public final Expr left;
+        public final Expr right;
+
+        Binary(int line, int column, Op op, Expr left, Expr right) {
+            super(line, column);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    public static final class MulDiv extends Binary {
+        public MulDiv(int line, int column, Op op, Expr left, Expr right) {
+            super(line, column, op, left, right);
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitMulDiv(this); }
+    }
+
+    public static final class AddSub extends Binary {
+        public AddSub(int line, int column, Op op, Expr left, Expr right) {
+            super(line, column, op, left, right);
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitAddSub(this); }
+    }
+
+    public static final class Compare extends Binary {
+        public Compare(int line, int column, Op op, Expr left, Expr right) {
+            super(line, column, op, left, right);
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitCompare(this); }
+    }
+
+    // ===== Листи =====
+
+    public static final class Id extends Expr {
+        public final String name;
+
+        public Id(int line, int column, String name) {
+            super(line, column);
+            this.name = name;
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitId(this); }
+    }
+
+    public static final class IntConst extends Expr {
+        public final int value;
+        public final boolean overflow; // літерал не вміщується в 32-бітний Int
+
+        public IntConst(int line, int column, int value, boolean overflow) {
+            super(line, column);
+            this.value = value;
+            this.overflow = overflow;
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitIntConst(this); }
+    }
+
+    public static final class StringConst extends Expr {
+        public final String value; // без лапок, escape-послідовності розкрито
+
+        public StringConst(int line, int column, String value) {
+            super(line, column);
+            this.value = value;
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitStringConst(this); }
+    }
+
+    public static final class BoolConst extends Expr {
+        public final boolean value;
+
+        public BoolConst(int line, int column, boolean value) {
+            super(line, column);
+            this.value = value;
+        }
+
+        @Override public <R> R accept(Visitor<R> v) { return v.visitBoolConst(this); }
+    }
+
+    // ===== Допоміжні =====
+
+    // Зворотне перетворення значення рядка в літерал Cool (для виводу коду)
+    public static String quote(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\n': sb.append("\\n"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\b': sb.append("\\b"); break;
+                case '\f': sb.append("\\f"); break;
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                default: sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
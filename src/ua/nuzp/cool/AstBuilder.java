@@ -0,0 +1,234 @@
+package ua.nuzp.cool;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Перетворення дерева розбору ANTLR у компактне AST (Ast).
+// Імена ідентифікаторів і типів інтернуються в межах однієї програми,
+// тож однакові імена в AST посилаються на один об'єкт String.
+// Після побудови дерево розбору та буфер токенів можна звільнити.
+public class AstBuilder extends CoolParserBaseVisitor<Ast.Expr> {
+
+    private final Map<String, String> names = new HashMap<>();
+
+    public static Ast.Program build(CoolParser.ProgramContext ctx) {
+        return new AstBuilder().program(ctx);
+    }
+
+    // ===== Програма, класи, члени класу =====
+
+    public Ast.Program program(CoolParser.ProgramContext ctx) {
+        List<Ast.ClassDecl> classes = new ArrayList<>(ctx.classDefine().size());
+        for (CoolParser.ClassDefineContext c : ctx.classDefine()) {
+            classes.add(classDecl(c));
+        }
+        return new Ast.Program(line(ctx), column(ctx), classes);
+    }
+
+    private Ast.ClassDecl classDecl(CoolParser.ClassDefineContext ctx) {
+        List<Ast.Feature> features = new ArrayList<>(ctx.feature().size());
+        for (CoolParser.FeatureContext f : ctx.feature()) {
+            features.add(f.method() != null ? method(f.method()) : attribute(f.attribute()));
+        }
+        return new Ast.ClassDecl(line(ctx), column(ctx), name(ctx.type),
+                ctx.parent != null ? name(ctx.parent) : null, features);
+    }
+
+    private Ast.Attribute attribute(CoolParser.AttributeContext ctx) {
+        return new Ast.Attribute(line(ctx), column(ctx), name(ctx.name), name(ctx.type),
+                ctx.value != null ? visit(ctx.value) : null);
+    }
+
+    private Ast.Method method(CoolParser.MethodContext ctx) {
+        List<Ast.Formal> formals = new ArrayList<>(ctx.formal().size());
+        for (CoolParser.FormalContext f : ctx.formal()) {
+            formals.add(new Ast.Formal(line(f), column(f), name(f.name), name(f.type)));
+        }
+        return new Ast.Method(line(ctx), column(ctx), name(ctx.name), formals,
+                name(ctx.returnType), visit(ctx.body));
+    }
+
+    // ===== Вирази =====
+
+    @Override
+    public Ast.Expr visitAssign(CoolParser.AssignContext ctx) {
+        return new Ast.Assign(line(ctx), column(ctx), name(ctx.name), visit(ctx.value));
+    }
+
+    @Override
+    public Ast.Expr visitDispatch(CoolParser.DispatchContext ctx) {
+        // expr(0) — target, решта — аргументи
+        List<CoolParser.ExprContext> exprs = ctx.expr();
+        List<Ast.Expr> args = new ArrayList<>(exprs.size() - 1);
+        for (int i = 1; i < exprs.size(); i++) args.add(visit(exprs.get(i)));
+
+        return new Ast.Dispatch(line(ctx), column(ctx), visit(ctx.target),
+                ctx.type != null ? name(ctx.type) : null, name(ctx.name), args);
+    }
+
+    @Override
+    public Ast.Expr visitImplicitDispatch(CoolParser.ImplicitDispatchContext ctx) {
+        return new Ast.ImplicitDispatch(line(ctx), column(ctx), name(ctx.name), exprs(ctx.expr()));
+    }
+
+    @Override
+    public Ast.Expr visitIf(CoolParser.IfContext ctx) {
+        return new Ast.If(line(ctx), column(ctx),
+                visit(ctx.condition), visit(ctx.thenBranch), visit(ctx.elseBranch));
+    }
+
+    @Override
+    public Ast.Expr visitWhile(CoolParser.WhileContext ctx) {
+        return new Ast.While(line(ctx), column(ctx), visit(ctx.condition), visit(ctx.body));
+    }
+
+    @Override
+    public Ast.Expr visitBlock(CoolParser.BlockContext ctx) {
+        return new Ast.Block(line(ctx), column(ctx), exprs(ctx.expr()));
+    }
+
+    @Override
+    public Ast.Expr visitLet(CoolParser.LetContext ctx) {
+        List<Ast.LetBinding> bindings = new ArrayList<>(ctx.letMap().size());
+        for (CoolParser.LetMapContext map : ctx.letMap()) {
+            bindings.add(new Ast.LetBinding(line(map), column(map), name(map.name), name(map.type),
+                    map.value != null ? visit(map.value) : null));
+        }
+        return new Ast.Let(line(ctx), column(ctx), bindings, visit(ctx.body));
+    }
+
+    @Override
+    public Ast.Expr visitCase(CoolParser.CaseContext ctx) {
+        List<Ast.CaseBranch> branches = new ArrayList<>(ctx.caseBranch().size());
+        for (CoolParser.CaseBranchContext b : ctx.caseBranch()) {
+            branches.add(new Ast.CaseBranch(line(b), column(b), name(b.name), name(b.type), visit(b.result)));
+        }
+        return new Ast.Case(line(ctx), column(ctx), visit(ctx.value), branches);
+    }
+
+    @Override
+    public Ast.Expr visitNew(CoolParser.NewContext ctx) {
+        return new Ast.New(line(ctx), column(ctx), name(ctx.type));
+    }
+
+    @Override
+    public Ast.Expr visitIsVoid(CoolParser.IsVoidContext ctx) {
+        return new Ast.IsVoid(line(ctx), column(ctx), visit(ctx.e));
+    }
+
+    @Override
+    public Ast.Expr visitNegation(CoolParser.NegationContext ctx) {
+        return new Ast.Negation(line(ctx), column(ctx), visit(ctx.e));
+    }
+
+    @Override
+    public Ast.Expr visitNot(CoolParser.NotContext ctx) {
+        return new Ast.Not(line(ctx), column(ctx), visit(ctx.e));
+    }
+
+    @Override
+    public Ast.Expr visitMulDiv(CoolParser.MulDivContext ctx) {
+        Ast.Op op = ctx.op.getType() == CoolParser.MULT ? Ast.Op.MULT : Ast.Op.DIV;
+        return new Ast.MulDiv(line(ctx), column(ctx), op, visit(ctx.left), visit(ctx.right));
+    }
+
+    @Override
+    public Ast.Expr visitAddSub(CoolParser.AddSubContext ctx) {
+        Ast.Op op = ctx.op.getType() == CoolParser.PLUS ? Ast.Op.PLUS : Ast.Op.MINUS;
+        return new Ast.AddSub(line(ctx), column(ctx), op, visit(ctx.left), visit(ctx.right));
+    }
+
+    @Override
+    public Ast.Expr visitCompare(CoolParser.CompareContext ctx) {
+        Ast.Op op;
+        switch (ctx.op.getType()) {
+            case CoolParser.LT: op = Ast.Op.LT; break;
+            case CoolParser.LE: op = Ast.Op.LE; break;
+            default: op = Ast.Op.EQ;
+        }
+        return new Ast.Compare(line(ctx), column(ctx), op, visit(ctx.left), visit(ctx.right));
+    }
+
+    // Дужки лише групують: у AST залишається внутрішній вираз
+    @Override
+    public Ast.Expr visitParen(CoolParser.ParenContext ctx) {
+        return visit(ctx.e);
+    }
+
+    // ===== Листи =====
+
+    @Override
+    public Ast.Expr visitId(CoolParser.IdContext ctx) {
+        return new Ast.Id(line(ctx), column(ctx), name(ctx.ID));
+    }
+
+    @Override
+    public Ast.Expr visitInt(CoolParser.IntContext ctx) {
+        String text = ctx.INT_CONST().getText();
+        int value;
+        boolean overflow = false;
+        try {
+            value = Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            value = Integer.MAX_VALUE;
+            overflow = true;
+        }
+        return new Ast.IntConst(line(ctx), column(ctx), value, overflow);
+    }
+
+    @Override
+    public Ast.Expr visitString(CoolParser.StringContext ctx) {
+        return new Ast.StringConst(line(ctx), column(ctx), unescape(ctx.STRING_CONST().getText()));
+    }
+
+    @Override
+    public Ast.Expr visitTrue(CoolParser.TrueContext ctx) {
+        return new Ast.BoolConst(line(ctx), column(ctx), true);
+    }
+
+    @Override
+    public Ast.Expr visitFalse(CoolParser.FalseContext ctx) {
+        return new Ast.BoolConst(line(ctx), column(ctx), false);
+    }
+
+    // ===== Допоміжні =====
+
+    private List<Ast.Expr> exprs(List<CoolParser.ExprContext> ctxs) {
+        List<Ast.Expr> result = new ArrayList<>(ctxs.size());
+        for (CoolParser.ExprContext e : ctxs) result.add(visit(e));
+        return result;
+    }
+
+    private String name(Token token) {
+        return names.computeIfAbsent(token.getText(), n -> n);
+    }
+
+    private static int line(ParserRuleContext ctx) { return ctx.start.getLine(); }
+    private static int column(ParserRuleContext ctx) { return ctx.start.getCharPositionInLine(); }
+
+    // "a\nb" (текст токена з лапками) -> значення рядка
+    static String unescape(String literal) {
+        StringBuilder sb = new StringBuilder(literal.length());
+        for (int i = 1; i < literal.length() - 1; i++) {
+            char c = literal.charAt(i);
+            if (c == '\\' && i + 1 < literal.length() - 1) {
+                char next = literal.charAt(++i);
+                switch (next) {
+                    case 'n': sb.append('\n'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    default: sb.append(next);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,980 @@
+package ua.nuzp.cool;
+
+import ua.nuzp.cool.Ir.Opcode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Компактний регістровий байткод для Vm, що транслюється з IR (оптимізованого чи ні).
+// Функція — один масив int[]: код операції, за ним операнди — номери регістрів кадру,
+// безпосередні значення, індекси констант або адреси переходів.
+// Регістр кадру зберігає або int (Int і Bool — без упаковки), або посилання (String, об'єкти,
+// void, упаковані Int/Bool у змінних типу Object). Вид регістра визначається при трансляції:
+//   параметри та атрибути — за оголошеним типом, решта змінних — за присвоєннями
+//   (лише Int, лише Bool — int; змішані або посилання — посилання, значення упаковуються).
+// Регістр 0 — self, 1..n — параметри. Константи-операнди завантажуються у власні регістри
+// один раз на початку функції. PARAM не має окремої інструкції: аргументи перелічуються в CALL.
+// Ініціалізація атрибутів класу — функція-конструктор, що спершу викликає конструктор предка.
+// Методи класу — таблиця vtable: успадкований метод лишається у слоті предка (перевизначення
+// займає той самий слот), тож слот методу однаковий для класу та всіх нащадків. Динамічний
+// виклик — номер слоту у CallSite з вбудованим кешем; статичний (e@T.m) — одразу Function.
+// Тег класу — номер в обході дерева наслідування в глибину, тож нащадки класу мають суміжні
+// теги [tag, lastTag]: гілка case для тегу береться з таблиці переходів (CaseTable).
+// Об'єкти живуть у купі Vm (Heap): атрибут — слово за номером від заголовка, new копіює
+// прототип класу; рядки-константи та імена класів — у постійній області Program.image.
+public final class Bytecode {
+
+    private Bytecode() { }
+
+    // ===== Коди операцій =====
+    // d — регістр результату, a/b — регістри операндів, t — адреса переходу
+
+    public static final int MOV = 0;      // d a        int
+    public static final int MOVR = 1;     // d a        посилання
+    public static final int LDI = 2;      // d imm
+    public static final int LDK = 3;      // d k        константа-посилання literals[k]
+    public static final int ADD = 4;      // d a b
+    public static final int SUB = 5;
+    public static final int MUL = 6;
+    public static final int DIV = 7;
+    public static final int ADDI = 8;     // d a imm
+    public static final int LT = 9;       // d a b
+    public static final int LE = 10;
+    public static final int EQ = 11;      // d a b      int
+    public static final int EQR = 12;     // d a b      посилання (Int, Bool, String — за значенням)
+    public static final int NOT = 13;     // d a
+    public static final int NEG = 14;
+    public static final int ISVOID = 15;
+    public static final int BOXI = 16;    // d a        Int -> посилання
+    public static final int BOXB = 17;    // d a        Bool -> посилання
+    public static final int UNBOX = 18;   // d a        посилання -> int
+    public static final int GETF = 19;    // d f        атрибут self (f — слово об'єкта)
+    public static final int GETFR = 20;
+    public static final int PUTF = 21;    // f a
+    public static final int PUTFR = 22;
+    public static final int NEW = 23;     // d c        об'єкт класу c (з конструктором)
+    public static final int NEWSELF = 24; // d          new SELF_TYPE
+    public static final int INIT = 25;    // d c        конструктор класу c для self (предок)
+    public static final int JMP = 26;     // t
+    public static final int JF = 27;      // a t        if a == 0
+    public static final int JGE = 28;     // a b t
+    public static final int JGT = 29;
+    public static final int JNE = 30;     // a b t      int
+    public static final int JNER = 31;    // a b t      посилання
+    public static final int CALL = 32;    // d r s n a1..an — метод отримувача r через місце виклику sites[s]
+    public static final int RET = 33;     // a          int
+    public static final int RETR = 34;    // a          посилання
+    public static final int CALLD = 35;   // d r k n a1..an — метод constants[k] (Function) без диспетчеризації
+    public static final int CASE = 36;    // d a k      номер гілки з таблиці constants[k] (CaseTable) за тегом a
+    public static final int GETO = 37;    // d o f      атрибут об'єкта o (тіло вбудованого методу)
+    public static final int GETOR = 38;
+    public static final int PUTO = 39;    // o f a
+    public static final int PUTOR = 40;
+    public static final int CHECK = 41;   // a          помилка, якщо a — void
+
+    // Довжина інструкції без аргументів CALL / CALLD
+    static final int[] LENGTH = {
+            3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4, 4, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 2, 3,
+            2, 3, 4, 4, 4, 4, 5, 2, 2, 5, 4, 4, 4, 4, 4, 2
+    };
+
+    // ===== Види значень =====
+
+    public static final byte INT = 1;
+    public static final byte BOOL = 2;
+    public static final byte REF = 3;
+
+    static byte kindOf(ClassTable table, Type t) {
+        if (t == table.intType) return INT;
+        if (t == table.boolType) return BOOL;
+        return REF;
+    }
+
+    // ===== Вбудовані методи =====
+
+    public static final int NATIVE_ABORT = 0;
+    public static final int NATIVE_TYPE_NAME = 1;
+    public static final int NATIVE_COPY = 2;
+    public static final int NATIVE_OUT_STRING = 3;
+    public static final int NATIVE_OUT_INT = 4;
+    public static final int NATIVE_IN_STRING = 5;
+    public static final int NATIVE_IN_INT = 6;
+    public static final int NATIVE_LENGTH = 7;
+    public static final int NATIVE_CONCAT = 8;
+    public static final int NATIVE_SUBSTR = 9;
+
+    // ===== Програма =====
+
+    public static final class Function {
+        public final String className;
+        public final String name;       // null — конструктор
+        public final byte[] paramKinds;
+        public final byte returnKind;
+        public final int nativeId;      // -1 — функція з байткодом
+        int[] code;
+        Object[] constants;
+        long[] literals;                // значення Heap для LDK
+        CallSite[] sites;
+        int registers;
+
+        Function(String className, String name, byte[] paramKinds, byte returnKind, int nativeId) {
+            this.className = className;
+            this.name = name;
+            this.paramKinds = paramKinds;
+            this.returnKind = returnKind;
+            this.nativeId = nativeId;
+        }
+
+        @Override
+        public String toString() {
+            return className + "." + (name != null ? name : "<init>");
+        }
+    }
+
+    public static final class ClassInfo {
+        public final String name;
+        public final int tag;               // номер у обході дерева наслідування в глибину (pre-order)
+        int lastTag;                        // найбільший тег нащадка: нащадки — теги (tag, lastTag]
+        public final ClassInfo parent;
+        final Map<String, Integer> fields = new HashMap<>(); // атрибут -> слово об'єкта (1 — перше після заголовка)
+        long[] prototype;                   // заголовок і початкові значення атрибутів ("" для String)
+        int[] refOffsets = new int[0];      // слова-посилання — для збирача
+        long typeName;                      // ім'я класу в постійній області
+        Function constructor;               // null — атрибутів з ініціалізаторами немає
+        final Map<String, Integer> slots = new HashMap<>(); // метод -> слот vtable (разом з успадкованими)
+        Function[] vtable;
+
+        ClassInfo(String name, int tag, ClassInfo parent) {
+            this.name = name;
+            this.tag = tag;
+            this.lastTag = tag;
+            this.parent = parent;
+        }
+
+        public Function lookupMethod(String name) {
+            Integer slot = slots.get(name);
+            return slot != null ? vtable[slot] : null;
+        }
+    }
+
+    // Місце динамічного виклику з вбудованим кешем (inline cache) класів отримувачів.
+    // Vm спершу порівнює тег класу отримувача з tag (мономорфний кеш — одне порівняння);
+    // lookup() переглядає решту записаних класів (поліморфний кеш) і лише для нового класу
+    // звертається до vtable. Після POLYMORPHIC_LIMIT різних класів місце мегаморфне:
+    // нові класи не записуються, метод береться з vtable[slot].
+    // Кеш належить програмі: повторні запуски тієї самої Program починають із заповненим кешем.
+    public static final class CallSite {
+        public static final int POLYMORPHIC_LIMIT = 4;
+
+        final String name;
+        final int slot;
+        int tag = -1;       // тег першого класу отримувача
+        Function target;
+        private final ClassInfo[] classes = new ClassInfo[POLYMORPHIC_LIMIT];
+        private final Function[] targets = new Function[POLYMORPHIC_LIMIT];
+        private int size;
+        public int lookups; // звернення до vtable (промахи кешу)
+
+        CallSite(String name, int slot) {
+            this.name = name;
+            this.slot = slot;
+        }
+
+        // Промах мономорфного кешу
+        Function lookup(ClassInfo c) {
+            for (int i = 1; i < size; i++) {
+                if (classes[i] == c) return targets[i];
+            }
+            lookups++;
+            Function f = c.vtable[slot];
+            if (size == 0) {
+                tag = c.tag;
+                target = f;
+            }
+            if (size < POLYMORPHIC_LIMIT) {
+                classes[size] = c;
+                targets[size++] = f;
+            }
+            return f;
+        }
+
+        public boolean isMegamorphic() { return lookups > POLYMORPHIC_LIMIT; }
+
+        @Override
+        public String toString() {
+            String state = size == 0 ? "unused" : size == 1 ? "monomorphic"
+                    : isMegamorphic() ? "megamorphic" : "polymorphic (" + size + ")";
+            return name + ": " + state;
+        }
+    }
+
+    // Таблиця переходів case: номер гілки для кожного тегу з [low, low + branches.length),
+    // -1 — жодна гілка не підходить. Гілка займає діапазон тегів свого типу; гілки записуються
+    // від загальніших типів до точніших, тож точніша перезаписує частину діапазону предка
+    // і для кожного тегу лишається найближча гілка.
+    static final class CaseTable {
+        final int low;
+        final int[] branches;
+
+        CaseTable(int low, int[] branches) {
+            this.low = low;
+            this.branches = branches;
+        }
+
+        int branch(int tag) {
+            int i = tag - low;
+            return i >= 0 && i < branches.length ? branches[i] : -1;
+        }
+    }
+
+    public static final class Program {
+        final ClassInfo[] classes; // за ClassInfo.tag
+        final long[] image;        // постійна область купи
+        final ClassInfo main;
+        // Класи значень Int, Bool та String — отримувачі викликів методів Object / String
+        final ClassInfo intClass;
+        final ClassInfo boolClass;
+        final ClassInfo stringClass;
+
+        Program(ClassInfo[] classes, long[] image, ClassInfo main,
+                ClassInfo intClass, ClassInfo boolClass, ClassInfo stringClass) {
+            this.classes = classes;
+            this.image = image;
+            this.main = main;
+            this.intClass = intClass;
+            this.boolClass = boolClass;
+            this.stringClass = stringClass;
+        }
+    }
+
+    // ===== Трансляція IR =====
+
+    public static Program compile(Ir.Program ir, ClassTable table) {
+        Map<String, Ir.ClassUnit> units = new HashMap<>();
+        for (Ir.ClassUnit u : ir.classes) units.put(u.name, u);
+
+        // Обхід дерева в глибину (Type.pre): предки — раніше за нащадків, позиція — тег класу
+        List<Type> types = new ArrayList<>(table.getTypes());
+        types.sort(Comparator.comparingInt(t -> t.pre));
+
+        // Спершу розкладка, vtable та порожні функції всіх класів: виклик може посилатися
+        // на метод класу, що транслюється пізніше. classes — за Type.index, byTag — за тегом
+        ClassInfo[] classes = new ClassInfo[types.size()];
+        ClassInfo[] byTag = new ClassInfo[types.size()];
+        Heap.Image image = new Heap.Image(types.indexOf(table.stringType));
+        int tag = 0;
+        for (Type t : types) {
+            ClassInfo parent = t.getParent() != null ? classes[t.getParent().index] : null;
+            ClassInfo c = new ClassInfo(t.name, tag++, parent);
+            classes[t.index] = c;
+            byTag[c.tag] = c;
+            c.typeName = image.string(t.name);
+            layout(c, t, table, image);
+            declareMethods(c, t, table);
+
+            // Без власних ініціалізаторів достатньо конструктора предка
+            Ir.ClassUnit unit = units.get(t.name);
+            c.constructor = unit == null || unit.init.code.isEmpty()
+                    ? (parent != null ? parent.constructor : null)
+                    : new Function(t.name, null, new byte[0], REF, -1);
+        }
+        // Нащадки йдуть одразу за класом: діапазон класу закінчується останнім тегом нащадків
+        for (int i = byTag.length - 1; i > 0; i--) {
+            ClassInfo c = byTag[i];
+            c.parent.lastTag = Math.max(c.parent.lastTag, c.lastTag);
+        }
+
+        Map<List<String>, CaseTable> caseTables = new HashMap<>();
+
+        for (Ir.ClassUnit unit : ir.classes) {
+            Type t = table.lookup(unit.name);
+            ClassInfo c = classes[t.index];
+            for (Ir.Function f : unit.methods) {
+                new Translator(f, t, c, t.getMethods().get(f.name), table, classes, caseTables, image).translate(c.lookupMethod(f.name));
+            }
+            if (c.constructor != null && (c.parent == null || c.constructor != c.parent.constructor)) {
+                new Translator(unit.init, t, c, null, table, classes, caseTables, image).translate(c.constructor);
+            }
+        }
+
+        Type main = table.lookup("Main");
+        return new Program(byTag, image.toArray(), main != null ? classes[main.index] : null,
+                classes[table.intType.index], classes[table.boolType.index], classes[table.stringType.index]);
+    }
+
+    // Атрибути предка займають ті самі слова, власні додаються після них
+    private static void layout(ClassInfo c, Type t, ClassTable table, Heap.Image image) {
+        List<Long> words = new ArrayList<>();
+        List<Integer> refs = new ArrayList<>();
+        words.add(0L); // заголовок
+        if (c.parent != null) {
+            c.fields.putAll(c.parent.fields);
+            for (int i = 1; i < c.parent.prototype.length; i++) words.add(c.parent.prototype[i]);
+            for (int offset : c.parent.refOffsets) refs.add(offset);
+        }
+        for (Type.Attribute a : t.getAttributes().values()) {
+            c.fields.put(a.name, words.size());
+            if (kindOf(table, a.type) != REF) {
+                words.add(0L);
+            } else {
+                refs.add(words.size());
+                words.add(a.type == table.stringType ? image.string("") : Heap.VOID);
+            }
+        }
+        c.prototype = words.stream().mapToLong(Long::longValue).toArray();
+        c.prototype[0] = Heap.header(c.tag, c.prototype.length);
+        c.refOffsets = refs.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Методи предка зберігають свої слоти; перевизначення займає слот предка, новий метод — наступний
+    private static void declareMethods(ClassInfo c, Type t, ClassTable table) {
+        List<Function> vtable = new ArrayList<>();
+        if (c.parent != null) {
+            c.slots.putAll(c.parent.slots);
+            vtable.addAll(Arrays.asList(c.parent.vtable));
+        }
+        boolean builtin = table.isBasic(t) || t == table.ioType;
+        for (Type.Method m : t.getMethods().values()) {
+            Function f = new Function(t.name, m.name, paramKinds(m, table), returnKind(m, table),
+                    builtin ? nativeId(m) : -1);
+            Integer slot = c.slots.get(m.name);
+            if (slot != null) {
+                vtable.set(slot, f);
+            } else {
+                c.slots.put(m.name, vtable.size());
+                vtable.add(f);
+            }
+        }
+        c.vtable = vtable.toArray(new Function[0]);
+    }
+
+    private static int nativeId(Type.Method m) {
+        switch (m.name) {
+            case "abort": return NATIVE_ABORT;
+            case "type_name": return NATIVE_TYPE_NAME;
+            case "copy": return NATIVE_COPY;
+            case "out_string": return NATIVE_OUT_STRING;
+            case "out_int": return NATIVE_OUT_INT;
+            case "in_string": return NATIVE_IN_STRING;
+            case "in_int": return NATIVE_IN_INT;
+            case "length": return NATIVE_LENGTH;
+            case "concat": return NATIVE_CONCAT;
+            case "substr": return NATIVE_SUBSTR;
+            default: throw new IllegalStateException("Unknown built-in method " + m.owner + "." + m.name);
+        }
+    }
+
+    private static byte[] paramKinds(Type.Method m, ClassTable table) {
+        byte[] kinds = new byte[m.params.size()];
+        for (int i = 0; i < kinds.length; i++) kinds[i] = kindOf(table, m.params.get(i));
+        return kinds;
+    }
+
+    private static byte returnKind(Type.Method m, ClassTable table) {
+        return m.returnsSelfType ? REF : kindOf(table, m.returnType);
+    }
+
+    // Трансляція однієї функції IR
+    private static final class Translator {
+        private final Ir.Function function;
+        private final Type type;
+        private final ClassInfo info;
+        private final Type.Method method; // null — конструктор
+        private final ClassTable table;
+        private final ClassInfo[] classes; // за Type.index
+        private final Map<List<String>, CaseTable> caseTables; // спільні для програми: типи гілок -> таблиця
+        private final Heap.Image image;
+        private final List<Ir.Instr> instrs;
+
+        private final byte[] kinds;   // за Local.index
+        private final int[] regs;     // за Local.index; -1 — атрибут
+        private int registers;
+
+        // Регістри констант (заповнюються прологом): [REF?, значення] -> регістр
+        private final Map<List<Object>, Integer> constRegs = new LinkedHashMap<>();
+        private final Map<List<Object>, Integer> constIndex = new HashMap<>();
+        private final List<Object> constants = new ArrayList<>();
+        private final Map<Long, Integer> literalIndex = new HashMap<>();
+        private final List<Long> literals = new ArrayList<>();
+
+        // Тимчасові регістри інструкції (звільняються після неї) та регістри аргументів за глибиною
+        private int scratchBase;
+        private int scratchNext;
+        private final List<Integer> scratchPool = new ArrayList<>();
+        private final List<Integer> paramRegs = new ArrayList<>();
+        private int[] callOf;             // PARAM -> індекс його CALL
+        private int[] argIndex;           // PARAM -> позиція аргументу
+        private Type.Method[] callees;    // CALL -> метод
+        private ClassInfo[] owners;       // CALL -> клас, у якому шукається метод
+        private final List<CallSite> sites = new ArrayList<>();
+
+        private int[] code = new int[64];
+        private int size = 0;
+        private final Map<Ir.Label, Integer> labels = new IdentityHashMap<>();
+        private final List<int[]> fixups = new ArrayList<>(); // {позиція операнда, номер мітки в списку}
+        private final List<Ir.Label> fixupLabels = new ArrayList<>();
+
+        Translator(Ir.Function function, Type type, ClassInfo info, Type.Method method,
+                   ClassTable table, ClassInfo[] classes, Map<List<String>, CaseTable> caseTables, Heap.Image image) {
+            this.function = function;
+            this.type = type;
+            this.info = info;
+            this.method = method;
+            this.table = table;
+            this.classes = classes;
+            this.caseTables = caseTables;
+            this.image = image;
+            this.instrs = function.code;
+            this.kinds = new byte[function.locals().size()];
+            this.regs = new int[kinds.length];
+        }
+
+        // Заповнює код функції f, оголошеної в compile()
+        void translate(Function f) {
+            matchCalls();
+            inferKinds(f.paramKinds);
+            assignRegisters();
+
+            scratchNext = scratchBase;
+            if (method == null && info.parent != null && info.parent.constructor != null) {
+                emit(INIT, scratch(), info.parent.tag);
+            }
+            for (int i = 0; i < instrs.size(); i++) {
+                scratchNext = scratchBase;
+                translate(i, instrs.get(i));
+            }
+            if (method == null) emit(RETR, 0);
+
+            // Пролог: константи-операнди; переходи зсуваються на його довжину
+            int[] body = Arrays.copyOf(code, size);
+            code = new int[64];
+            size = 0;
+            for (Map.Entry<List<Object>, Integer> e : constRegs.entrySet()) {
+                Object value = e.getKey().get(1);
+                if (e.getKey().get(0) == Boolean.FALSE) emit(LDI, e.getValue(), (Integer) value);
+                else emit(LDK, e.getValue(), literal(value));
+            }
+            int prologue = size;
+            for (int i = 0; i < fixups.size(); i++) {
+                Integer target = labels.get(fixupLabels.get(i));
+                if (target == null) throw new IllegalStateException("Undefined label " + fixupLabels.get(i));
+                body[fixups.get(i)[0]] = target + prologue;
+            }
+            f.code = Arrays.copyOf(code, prologue + body.length);
+            System.arraycopy(body, 0, f.code, prologue, body.length);
+            f.constants = constants.toArray();
+            f.literals = literals.stream().mapToLong(Long::longValue).toArray();
+            f.sites = sites.toArray(new CallSite[0]);
+            f.registers = registers;
+        }
+
+        // ===== Аналіз =====
+
+        // Кожному PARAM — його CALL і позиція: аргументи вкладених викликів ідуть стеком
+        private void matchCalls() {
+            callOf = new int[instrs.size()];
+            argIndex = new int[instrs.size()];
+            callees = new Type.Method[instrs.size()];
+            owners = new ClassInfo[instrs.size()];
+            int[] pending = new int[instrs.size()];
+            int depth = 0;
+            for (int i = 0; i < instrs.size(); i++) {
+                Ir.Instr instr = instrs.get(i);
+                if (instr.op == Opcode.PARAM) {
+                    pending[depth++] = i;
+                } else if (instr.op == Opcode.CALL) {
+                    Type owner = instr.a == null ? type : table.lookup(instr.type);
+                    Type.Method m = owner != null ? owner.lookupMethod(instr.name) : null;
+                    if (m == null || m.params.size() > depth)
+                        throw new IllegalStateException("Malformed call " + instr + " in " + function.className);
+                    callees[i] = m;
+                    owners[i] = classes[owner.index];
+                    int argc = m.params.size();
+                    for (int j = 0; j < argc; j++) {
+                        int p = pending[depth - argc + j];
+                        callOf[p] = i;
+                        argIndex[p] = j;
+                    }
+                    depth -= argc;
+                }
+            }
+        }
+
+        // Вид кожної змінної: найменша верхня межа видів усіх присвоєнь (до нерухомої точки)
+        private void inferKinds(byte[] params) {
+            boolean[] fixed = new boolean[kinds.length];
+            for (int i = 0; i < function.params.size(); i++) {
+                Ir.Var p = function.params.get(i);
+                kinds[p.index] = params[i];
+                fixed[p.index] = true;
+            }
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int i = 0; i < instrs.size(); i++) {
+                    Ir.Instr instr = instrs.get(i);
+                    if (instr.dst == null || isAttribute(instr.dst) || fixed[instr.dst.index]) continue;
+                    byte k = resultKind(i, instr);
+                    byte joined = join(kinds[instr.dst.index], k);
+                    if (joined != kinds[instr.dst.index]) {
+                        kinds[instr.dst.index] = joined;
+                        changed = true;
+                    }
+                }
+            }
+            for (int i = 0; i < kinds.length; i++) {
+                if (kinds[i] == 0) kinds[i] = REF; // не присвоюється (self) — посилання
+            }
+        }
+
+        private static byte join(byte a, byte b) {
+            if (a == 0) return b;
+            if (b == 0 || a == b) return a;
+            return REF;
+        }
+
+        private byte resultKind(int index, Ir.Instr instr) {
+            switch (instr.op) {
+                case MOVE: return operandKind(instr.a);
+                case ADD: case SUB: case MUL: case DIV: case NEG: return INT;
+                case LT: case LE: case EQ: case NOT: case ISVOID: return BOOL;
+                case NEW: return newKind(instr.name);
+                case CASE: return INT;
+                case LOAD: return kindOf(table, attributeOf(instr).type);
+                case CALL: return returnKind(callees[index], table);
+                case PHI: throw new IllegalStateException("PHI outside SSA in " + function.className);
+                default: return 0;
+            }
+        }
+
+        private byte newKind(String name) {
+            if (name.equals("Int")) return INT;
+            if (name.equals("Bool")) return BOOL;
+            return REF;
+        }
+
+        private byte operandKind(Ir.Operand op) {
+            if (op instanceof Ir.IntConst) return INT;
+            if (op instanceof Ir.BoolConst) return BOOL;
+            if (isAttribute(op)) return attributeKind((Ir.Var) op);
+            if (op instanceof Ir.Local) return kinds[((Ir.Local) op).index];
+            return REF; // рядок, void, відсутнє значення
+        }
+
+        private byte attributeKind(Ir.Var v) {
+            Type.Attribute a = type.lookupAttribute(v.name);
+            if (a == null) throw new IllegalStateException("Unknown attribute " + v.name + " in " + type.name);
+            return kindOf(table, a.type);
+        }
+
+        // LOAD / STORE: атрибут класу instr.type
+        private Type.Attribute attributeOf(Ir.Instr instr) {
+            Type t = table.lookup(instr.type);
+            Type.Attribute a = t != null ? t.lookupAttribute(instr.name) : null;
+            if (a == null) throw new IllegalStateException("Unknown attribute " + instr.name + " in " + instr.type);
+            return a;
+        }
+
+        private static boolean isAttribute(Ir.Operand op) {
+            return op instanceof Ir.Var && ((Ir.Var) op).attribute;
+        }
+
+        // self — 0, параметри — 1..n, решта змінних — далі, за ними тимчасові регістри
+        private void assignRegisters() {
+            Arrays.fill(regs, -1);
+            int next = 1;
+            for (Ir.Var p : function.params) regs[p.index] = next++;
+            for (Ir.Local l : function.locals()) {
+                if (regs[l.index] >= 0 || isAttribute(l)) continue;
+                if (l instanceof Ir.Var && ((Ir.Var) l).name.equals("self")) regs[l.index] = 0;
+                else regs[l.index] = next++;
+            }
+            registers = next;
+            scratchBase = next;
+        }
+
+        // ===== Регістри операндів =====
+
+        private int scratch() {
+            int i = scratchNext++ - scratchBase;
+            if (i == scratchPool.size()) scratchPool.add(registers++);
+            return scratchPool.get(i);
+        }
+
+        private int paramRegister(int depth) {
+            while (paramRegs.size() <= depth) paramRegs.add(registers++);
+            return paramRegs.get(depth);
+        }
+
+        private boolean isScratch(int reg) {
+            return scratchPool.contains(reg);
+        }
+
+        // Регістр зі значенням операнда у вигляді want (0 — як є)
+        private int use(Ir.Operand op, byte want) {
+            byte k = operandKind(op);
+            int reg;
+            if (op instanceof Ir.Const || op == null) {
+                if (want == REF && k != REF) return constRegister(refConst(op));
+                return constRegister(op == null ? null : constValue((Ir.Const) op));
+            } else if (isAttribute(op)) {
+                reg = scratch();
+                emit(k == REF ? GETFR : GETF, reg, field((Ir.Var) op));
+            } else {
+                reg = regs[((Ir.Local) op).index];
+            }
+            if (want == 0 || want == k) return reg;
+            int out = scratch();
+            convert(out, reg, k, want);
+            return out;
+        }
+
+        // Значення константи у регістрі: Int і Bool — int, решта — посилання
+        private static Object constValue(Ir.Const c) {
+            if (c instanceof Ir.IntConst) return ((Ir.IntConst) c).value;
+            if (c instanceof Ir.BoolConst) return ((Ir.BoolConst) c).value ? 1 : 0;
+            return new Object[] { c.value() }; // обгортка: відрізняє "5" і 5
+        }
+
+        private static Object refConst(Ir.Operand c) {
+            if (c == null) return null;
+            return new Object[] { ((Ir.Const) c).value() };
+        }
+
+        // value — Integer для int-регістра або обгортка Object[] { посилання }
+        private int constRegister(Object value) {
+            boolean ref = value == null || value instanceof Object[];
+            List<Object> key = Arrays.asList(ref, ref && value != null ? ((Object[]) value)[0] : value);
+            Integer reg = constRegs.get(key);
+            if (reg == null) {
+                reg = registers++;
+                constRegs.put(key, reg);
+            }
+            return reg;
+        }
+
+        // Індекс у таблиці констант функції (клас враховується: 1 і true — різні константи)
+        private int constant(Object value) {
+            List<Object> key = Arrays.asList(value == null ? null : value.getClass(), value);
+            Integer i = constIndex.get(key);
+            if (i == null) {
+                i = constants.size();
+                constants.add(value);
+                constIndex.put(key, i);
+            }
+            return i;
+        }
+
+        // Індекс у literals функції: константа-посилання як значення Heap
+        private int literal(Object value) {
+            long v = value == null ? Heap.VOID
+                    : value instanceof Integer ? Heap.ofInt((Integer) value)
+                    : value instanceof Boolean ? Heap.ofBool((Boolean) value)
+                    : image.string((String) value);
+            return literalIndex.computeIfAbsent(v, k -> {
+                literals.add(k);
+                return literals.size() - 1;
+            });
+        }
+
+        private int field(Ir.Var v) {
+            Integer slot = info.fields.get(v.name);
+            if (slot == null) throw new IllegalStateException("Unknown attribute " + v.name + " in " + info.name);
+            return slot;
+        }
+
+        // Слот атрибута однаковий для класу та всіх нащадків
+        private int objectField(Ir.Instr instr) {
+            return classes[table.lookup(instr.type).index].fields.get(instr.name);
+        }
+
+        private void convert(int dst, int src, byte from, byte to) {
+            if (from == to || (from != REF && to != REF)) {
+                if (dst != src) emit(from == REF ? MOVR : MOV, dst, src);
+            } else if (to == REF) {
+                emit(from == INT ? BOXI : BOXB, dst, src);
+            } else {
+                emit(UNBOX, dst, src);
+            }
+        }
+
+        // Регістр для результату виду k; store(...) переносить його у dst
+        private int target(Ir.Local dst, byte k) {
+            if (isAttribute(dst) || kinds[dst.index] != k) return scratch();
+            return regs[dst.index];
+        }
+
+        private void store(Ir.Local dst, int reg, byte k) {
+            if (isAttribute(dst)) {
+                byte want = attributeKind((Ir.Var) dst);
+                int value = reg;
+                if (want != k) {
+                    value = scratch();
+                    convert(value, reg, k, want);
+                }
+                emit(want == REF ? PUTFR : PUTF, field((Ir.Var) dst), value);
+            } else {
+                convert(regs[dst.index], reg, k, kinds[dst.index]);
+            }
+        }
+
+        // ===== Інструкції =====
+
+        private void translate(int index, Ir.Instr instr) {
+            switch (instr.op) {
+                case LABEL:
+                    labels.put(instr.label, size);
+                    break;
+                case FOLDED:
+                    break;
+                case MOVE:
+                    move(instr.dst, instr.a);
+                    break;
+                case ADD:
+                case SUB:
+                    if (instr.b instanceof Ir.IntConst) {
+                        int imm = ((Ir.IntConst) instr.b).value;
+                        int a = use(instr.a, INT);
+                        int d = target(instr.dst, INT);
+                        emit(ADDI, d, a, instr.op == Opcode.ADD ? imm : -imm);
+                        store(instr.dst, d, INT);
+                        break;
+                    }
+                    binary(instr, instr.op == Opcode.ADD ? ADD : SUB, INT);
+                    break;
+                case MUL: binary(instr, MUL, INT); break;
+                case DIV: binary(instr, DIV, INT); break;
+                case LT: binary(instr, LT, BOOL); break;
+                case LE: binary(instr, LE, BOOL); break;
+                case EQ:
+                    if (isInt(instr.a) && isInt(instr.b)) binary(instr, EQ, BOOL);
+                    else refBinary(instr);
+                    break;
+                case NOT: unary(instr, NOT, BOOL, BOOL); break;
+                case NEG: unary(instr, NEG, INT, INT); break;
+                case ISVOID:
+                    if (isInt(instr.a)) {
+                        int d = target(instr.dst, BOOL);
+                        emit(LDI, d, 0);
+                        store(instr.dst, d, BOOL);
+                    } else {
+                        unary(instr, ISVOID, REF, BOOL);
+                    }
+                    break;
+                case NEW:
+                    newObject(instr);
+                    break;
+                case CASE: {
+                    int a = use(instr.a, REF);
+                    int d = target(instr.dst, INT);
+                    emit(CASE, d, a, constant(caseTable(instr.types)));
+                    store(instr.dst, d, INT);
+                    break;
+                }
+                case LOAD: {
+                    byte k = kindOf(table, attributeOf(instr).type);
+                    int o = use(instr.a, REF);
+                    int d = target(instr.dst, k);
+                    emit(k == REF ? GETOR : GETO, d, o, objectField(instr));
+                    store(instr.dst, d, k);
+                    break;
+                }
+                case STORE: {
+                    byte k = kindOf(table, attributeOf(instr).type);
+                    int o = use(instr.a, REF);
+                    emit(k == REF ? PUTOR : PUTO, o, objectField(instr), use(instr.b, k));
+                    break;
+                }
+                case CHECK:
+                    emit(CHECK, use(instr.a, REF));
+                    break;
+                case GOTO:
+                    emit(JMP, 0);
+                    fixup(instr.label);
+                    break;
+                case IF_FALSE:
+                    emit(JF, use(instr.a, BOOL), 0);
+                    fixup(instr.label);
+                    break;
+                case IF_GE:
+                case IF_GT: {
+                    int a = use(instr.a, INT);
+                    int b = use(instr.b, INT);
+                    emit(instr.op == Opcode.IF_GE ? JGE : JGT, a, b, 0);
+                    fixup(instr.label);
+                    break;
+                }
+                case IF_NE: {
+                    boolean ints = isInt(instr.a) && isInt(instr.b);
+                    int a = use(instr.a, ints ? (byte) 0 : REF);
+                    int b = use(instr.b, ints ? (byte) 0 : REF);
+                    emit(ints ? JNE : JNER, a, b, 0);
+                    fixup(instr.label);
+                    break;
+                }
+                case PARAM:
+                    param(index, instr);
+                    break;
+                case CALL:
+                    call(index, instr);
+                    break;
+                case RET: {
+                    byte k = method != null ? returnKind(method, table) : REF;
+                    emit(k == REF ? RETR : RET, use(instr.a, k));
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unexpected " + instr + " in " + function.className);
+            }
+        }
+
+        private boolean isInt(Ir.Operand op) {
+            return operandKind(op) != REF;
+        }
+
+        private void move(Ir.Local dst, Ir.Operand a) {
+            byte k = operandKind(a);
+            // Константа у змінну відповідного виду — без регістра константи
+            if (!isAttribute(dst) && kinds[dst.index] == k && (a instanceof Ir.Const || a == null)) {
+                Object value = a == null ? new Object[] { null } : constValue((Ir.Const) a);
+                if (value instanceof Integer) emit(LDI, regs[dst.index], (Integer) value);
+                else emit(LDK, regs[dst.index], literal(((Object[]) value)[0]));
+                return;
+            }
+            store(dst, use(a, (byte) 0), k);
+        }
+
+        private void binary(Ir.Instr instr, int opcode, byte k) {
+            int a = use(instr.a, INT);
+            int b = use(instr.b, INT);
+            int d = target(instr.dst, k);
+            emit(opcode, d, a, b);
+            store(instr.dst, d, k);
+        }
+
+        private void refBinary(Ir.Instr instr) {
+            int a = use(instr.a, REF);
+            int b = use(instr.b, REF);
+            int d = target(instr.dst, BOOL);
+            emit(EQR, d, a, b);
+            store(instr.dst, d, BOOL);
+        }
+
+        private void unary(Ir.Instr instr, int opcode, byte operand, byte k) {
+            int a = use(instr.a, operand);
+            int d = target(instr.dst, k);
+            emit(opcode, d, a);
+            store(instr.dst, d, k);
+        }
+
+        private void newObject(Ir.Instr instr) {
+            byte k = newKind(instr.name);
+            int d = target(instr.dst, k);
+            if (k != REF) {
+                emit(LDI, d, 0);
+            } else if (instr.name.equals("String")) {
+                emit(LDK, d, literal(""));
+            } else if (instr.name.equals("SELF_TYPE")) {
+                emit(NEWSELF, d);
+            } else {
+                Type t = table.lookup(instr.name);
+                if (t == null) throw new IllegalStateException("Unknown class " + instr.name);
+                emit(NEW, d, classes[t.index].tag);
+            }
+            store(instr.dst, d, k);
+        }
+
+        // Рівні за глибиною типи гілок — різні піддерева; серед однакових типів перемагає
+        // перша гілка (записується останньою)
+        private CaseTable caseTable(String[] types) {
+            List<String> key = Arrays.asList(types);
+            CaseTable cached = caseTables.get(key);
+            if (cached != null) return cached;
+
+            ClassInfo[] branch = new ClassInfo[types.length];
+            Integer[] order = new Integer[types.length];
+            int low = Integer.MAX_VALUE;
+            int high = -1;
+            for (int i = 0; i < types.length; i++) {
+                Type t = table.lookup(types[i]);
+                if (t == null) throw new IllegalStateException("Unknown class " + types[i]);
+                branch[i] = classes[t.index];
+                order[i] = i;
+                low = Math.min(low, branch[i].tag);
+                high = Math.max(high, branch[i].lastTag);
+            }
+            Arrays.sort(order, Comparator.comparingInt((Integer i) -> table.lookup(types[i]).getDepth())
+                    .thenComparing(Comparator.reverseOrder()));
+            int[] branches = new int[high - low + 1];
+            Arrays.fill(branches, -1);
+            for (int i : order) Arrays.fill(branches, branch[i].tag - low, branch[i].lastTag - low + 1, i);
+
+            CaseTable t = new CaseTable(low, branches);
+            caseTables.put(key, t);
+            return t;
+        }
+
+        // Аргумент лишається у своєму регістрі, якщо до CALL його ніщо не перезапише;
+        // інакше значення копіюється в регістр аргументу за глибиною вкладеності
+        private void param(int index, Ir.Instr instr) {
+            int call = callOf[index];
+            byte want = paramKinds(callees[call], table)[argIndex[index]];
+            int reg = use(instr.a, want);
+            boolean stable = !isScratch(reg);
+            if (stable && instr.a instanceof Ir.Local) {
+                for (int i = index + 1; i < call && stable; i++) {
+                    if (instrs.get(i).dst == instr.a) stable = false;
+                }
+            }
+            if (!stable) {
+                int depth = pendingArgs.size();
+                int p = paramRegister(depth);
+                convert(p, reg, want, want);
+                reg = p;
+            }
+            pendingArgs.add(reg);
+        }
+
+        private final List<Integer> pendingArgs = new ArrayList<>();
+
+        // Неявний виклик — на self (регістр 0); Int і Bool як отримувачі упаковуються
+        private void call(int index, Ir.Instr instr) {
+            Type.Method m = callees[index];
+            ClassInfo owner = owners[index];
+            int argc = m.params.size();
+            byte k = returnKind(m, table);
+            int receiver = instr.a != null ? use(instr.a, REF) : 0;
+            int d = target(instr.dst, k);
+            if (instr.direct) {
+                emit(CALLD, d, receiver, constant(owner.lookupMethod(instr.name)), argc);
+            } else {
+                sites.add(new CallSite(owner.name + "." + instr.name, owner.slots.get(instr.name)));
+                emit(CALL, d, receiver, sites.size() - 1, argc);
+            }
+            List<Integer> args = pendingArgs.subList(pendingArgs.size() - argc, pendingArgs.size());
+            for (int reg : args) emit(reg);
+            args.clear();
+            store(instr.dst, d, k);
+        }
+
+        // ===== Запис коду =====
+
+        private void emit(int... words) {
+            if (size + words.length > code.length) code = Arrays.copyOf(code, Math.max(code.length * 2, size + words.length));
+            System.arraycopy(words, 0, code, size, words.length);
+            size += words.length;
+        }
+
+        // Адреса переходу — останнє слово щойно записаної інструкції
+        private void fixup(Ir.Label label) {
+            fixups.add(new int[] { size - 1 });
+            fixupLabels.add(label);
+        }
+    }
+}
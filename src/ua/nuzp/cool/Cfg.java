@@ -0,0 +1,154 @@
+package ua.nuzp.cool;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Граф потоку керування (CFG) однієї функції IR.
+// Базовий блок починається з першої інструкції, з мітки (LABEL) або з інструкції після
+// переходу/RET і закінчується переходом, RET або перед наступною міткою.
+// Інструкції LABEL залишаються першими в своїх блоках, тож toCode() відновлює лінійний код.
+// Вхідний блок не має попередників: якщо код починається з мітки (цикл на початку методу),
+// перед нею лишається порожній вхідний блок — місце для значень на вході у функцію.
+// Побудова — O(n) від кількості інструкцій.
+public class Cfg {
+
+    public static final class Block {
+        public final int index;
+        public final List<Ir.Instr> instrs = new ArrayList<>();
+        public final List<Block> succs = new ArrayList<>(2);
+        public final List<Block> preds = new ArrayList<>(2);
+
+        Block(int index) { this.index = index; }
+
+        public Ir.Instr last() {
+            return instrs.isEmpty() ? null : instrs.get(instrs.size() - 1);
+        }
+
+        @Override public String toString() { return "B" + index; }
+    }
+
+    public final Ir.Function function;
+    // У порядку розміщення коду; Block.index — щільний номер, що після splitFallThrough
+    // може не збігатися з позицією в списку
+    public final List<Block> blocks = new ArrayList<>();
+
+    private Cfg(Ir.Function function) {
+        this.function = function;
+    }
+
+    public Block entry() {
+        return blocks.get(0);
+    }
+
+    // ===== Побудова =====
+
+    public static Cfg build(Ir.Function function) {
+        Cfg cfg = new Cfg(function);
+        Map<Ir.Label, Block> labels = new IdentityHashMap<>();
+
+        Block current = cfg.newBlock();
+        boolean afterJump = false;
+        for (Ir.Instr instr : function.code) {
+            if ((instr.op == Ir.Opcode.LABEL || afterJump) && (!current.instrs.isEmpty() || current.index == 0)) {
+                current = cfg.newBlock();
+            }
+            if (instr.op == Ir.Opcode.LABEL) labels.put(instr.label, current);
+            current.instrs.add(instr);
+            afterJump = instr.op.isJump() || instr.op == Ir.Opcode.RET;
+        }
+
+        // Ребра: перехід на мітку та/або до наступного блоку
+        for (int i = 0; i < cfg.blocks.size(); i++) {
+            Block b = cfg.blocks.get(i);
+            Block next = i + 1 < cfg.blocks.size() ? cfg.blocks.get(i + 1) : null;
+            Ir.Instr last = b.last();
+            Ir.Opcode op = last != null ? last.op : null;
+
+            if (op != null && op.isJump()) {
+                Block target = labels.get(last.label);
+                if (target == null) throw new IllegalStateException("Undefined label " + last.label);
+                addEdge(b, target);
+            }
+            if (op != Ir.Opcode.GOTO && op != Ir.Opcode.RET && next != null) addEdge(b, next);
+        }
+        return cfg;
+    }
+
+    private Block newBlock() {
+        Block b = new Block(blocks.size());
+        blocks.add(b);
+        return b;
+    }
+
+    private static void addEdge(Block from, Block to) {
+        if (from.succs.contains(to)) return; // IF_FALSE на наступний блок
+        from.succs.add(to);
+        to.preds.add(from);
+    }
+
+    // ===== Зміна графа =====
+
+    // Новий порожній блок на ребрі from -> to, де to йде одразу за from без переходу на мітку.
+    // Новий блок стоїть перед to, тож toCode() зберігає перехід без мітки. Аргументи phi
+    // у to не змінюються: новий блок займає місце from серед попередників.
+    public Block splitFallThrough(Block from, Block to) {
+        Block b = new Block(blocks.size());
+        blocks.add(blocks.indexOf(to), b);
+        from.succs.set(from.succs.indexOf(to), b);
+        to.preds.set(to.preds.indexOf(from), b);
+        b.preds.add(from);
+        b.succs.add(to);
+        return b;
+    }
+
+    // ===== Обхід =====
+
+    // Досяжні з входу блоки в зворотному post-order (ітеративний DFS, без рекурсії)
+    public List<Block> reversePostOrder() {
+        int n = blocks.size();
+        Block[] order = new Block[n];
+        int pos = n;
+
+        boolean[] visited = new boolean[n];
+        Block[] stack = new Block[n];
+        int[] nextSucc = new int[n];
+        int sp = 0;
+        stack[sp++] = entry();
+        visited[entry().index] = true;
+        while (sp > 0) {
+            Block b = stack[sp - 1];
+            if (nextSucc[b.index] < b.succs.size()) {
+                Block s = b.succs.get(nextSucc[b.index]++);
+                if (!visited[s.index]) {
+                    visited[s.index] = true;
+                    stack[sp++] = s;
+                }
+            } else {
+                sp--;
+                order[--pos] = b;
+            }
+        }
+
+        List<Block> result = new ArrayList<>(n - pos);
+        for (int i = pos; i < n; i++) result.add(order[i]);
+        return result;
+    }
+
+    // Записує інструкції блоків назад у функцію (у порядку блоків)
+    public void toCode() {
+        function.code.clear();
+        for (Block b : blocks) function.code.addAll(b.instrs);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Block b : blocks) {
+            sb.append(b).append(" -> ").append(b.succs).append('\n');
+            for (Ir.Instr instr : b.instrs) sb.append("    ").append(instr).append('\n');
+        }
+        return sb.toString();
+    }
+}
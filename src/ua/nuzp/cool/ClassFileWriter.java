@@ -0,0 +1,477 @@
+package ua.nuzp.cool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Запис class-файлів JVM без зовнішніх бібліотек: пул констант, поля, методи з атрибутом Code.
+// Версія формату 49 (Java 5): StackMapTable не потрібна, типи на стеку в точках злиття
+// виводить сам верифікатор. Код методу пишеться через Code: глибина стеку рахується
+// при кожній інструкції (max_stack), переходи — на мітки з дописуванням зміщень у кінці.
+// Недосяжний код — після безумовного переходу до мітки, на яку ще ніхто не переходив, — не
+// записується (константні умови): глибина стеку там невідома, а верифікатору він не потрібен.
+// Підтримано лише те, що потрібно JvmBackend: значення займають один слот (int або посилання).
+public class ClassFileWriter {
+
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_STATIC = 0x0008;
+    public static final int ACC_SUPER = 0x0020;
+
+    // ===== Коди інструкцій =====
+
+    public static final int ACONST_NULL = 0x01, ICONST_0 = 0x03, BIPUSH = 0x10, SIPUSH = 0x11, LDC = 0x12, LDC_W = 0x13;
+    public static final int ILOAD = 0x15, ALOAD = 0x19, ISTORE = 0x36, ASTORE = 0x3a;
+    public static final int POP = 0x57, DUP = 0x59, DUP_X1 = 0x5a, SWAP = 0x5f;
+    public static final int IADD = 0x60, ISUB = 0x64, IMUL = 0x68, IDIV = 0x6c, INEG = 0x74, IXOR = 0x82;
+    public static final int IFEQ = 0x99, IFNE = 0x9a, IF_ICMPEQ = 0x9f, IF_ICMPNE = 0xa0, IF_ICMPLT = 0xa1,
+            IF_ICMPGE = 0xa2, IF_ICMPGT = 0xa3, IF_ICMPLE = 0xa4, IF_ACMPEQ = 0xa5, IF_ACMPNE = 0xa6, GOTO = 0xa7;
+    public static final int IRETURN = 0xac, ARETURN = 0xb0, RETURN = 0xb1;
+    public static final int GETFIELD = 0xb4, PUTFIELD = 0xb5;
+    public static final int INVOKEVIRTUAL = 0xb6, INVOKESPECIAL = 0xb7, INVOKESTATIC = 0xb8;
+    public static final int NEW = 0xbb, ATHROW = 0xbf, CHECKCAST = 0xc0, INSTANCEOF = 0xc1;
+    public static final int IFNULL = 0xc6, IFNONNULL = 0xc7;
+    private static final int WIDE = 0xc4;
+
+    // Зміна глибини стеку інструкцій без операндів
+    private static final int[] STACK_EFFECT = new int[256];
+
+    static {
+        Arrays.fill(STACK_EFFECT, Integer.MIN_VALUE);
+        STACK_EFFECT[ACONST_NULL] = 1;
+        for (int op = 0x02; op <= 0x08; op++) STACK_EFFECT[op] = 1; // ICONST_M1..ICONST_5
+        STACK_EFFECT[POP] = -1;
+        STACK_EFFECT[DUP] = 1;
+        STACK_EFFECT[DUP_X1] = 1;
+        STACK_EFFECT[SWAP] = 0;
+        STACK_EFFECT[IADD] = STACK_EFFECT[ISUB] = STACK_EFFECT[IMUL] = STACK_EFFECT[IDIV] = -1;
+        STACK_EFFECT[IXOR] = -1;
+        STACK_EFFECT[INEG] = 0;
+        STACK_EFFECT[IRETURN] = STACK_EFFECT[ARETURN] = -1;
+        STACK_EFFECT[RETURN] = 0;
+        STACK_EFFECT[ATHROW] = -1;
+    }
+
+    private final String name;
+    private final String superName;
+    private final ConstantPool pool = new ConstantPool();
+    private final List<byte[]> fields = new ArrayList<>();
+    private final List<Code> methods = new ArrayList<>();
+    private String sourceFile;
+
+    public ClassFileWriter(String name, String superName) {
+        this.name = name;
+        this.superName = superName;
+    }
+
+    public String getName() { return name; }
+
+    public void setSourceFile(String sourceFile) { this.sourceFile = sourceFile; }
+
+    public void addField(int access, String fieldName, String descriptor) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(access);
+            out.writeShort(pool.utf8(fieldName));
+            out.writeShort(pool.utf8(descriptor));
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        fields.add(bytes.toByteArray());
+    }
+
+    // Новий метод; код дописується через повернений Code до виклику toByteArray
+    public Code addMethod(int access, String methodName, String descriptor) {
+        Code code = new Code(access, methodName, descriptor);
+        methods.add(code);
+        return code;
+    }
+
+    public byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            // Індекси пулу потрібні до запису самого пулу: тіло класу пишеться окремо
+            ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+            DataOutputStream b = new DataOutputStream(body);
+            b.writeShort(ACC_PUBLIC | ACC_SUPER);
+            b.writeShort(pool.classRef(name));
+            b.writeShort(pool.classRef(superName));
+            b.writeShort(0); // інтерфейси
+            b.writeShort(fields.size());
+            for (byte[] f : fields) b.write(f);
+            b.writeShort(methods.size());
+            for (Code m : methods) m.write(b);
+            if (sourceFile != null) {
+                b.writeShort(1);
+                b.writeShort(pool.utf8("SourceFile"));
+                b.writeInt(2);
+                b.writeShort(pool.utf8(sourceFile));
+            } else {
+                b.writeShort(0);
+            }
+
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            out.writeShort(pool.count);
+            pool.bytes.writeTo(out);
+            body.writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Кількість слотів параметрів за дескриптором методу
+    static int argumentSlots(String descriptor) {
+        int slots = 0;
+        for (int i = 1; descriptor.charAt(i) != ')'; i++) {
+            char c = descriptor.charAt(i);
+            while (c == '[') c = descriptor.charAt(++i);
+            if (c == 'L') i = descriptor.indexOf(';', i);
+            slots += c == 'J' || c == 'D' ? 2 : 1;
+        }
+        return slots;
+    }
+
+    // ===== Пул констант =====
+
+    // Ключ елемента пулу: тег та до трьох рядків без склеювання (хеші рядків кешуються)
+    private static final class Key {
+        final int tag;
+        final String a;
+        final String b;
+        final String c;
+        final int hash;
+
+        Key(int tag, String a, String b, String c) {
+            this.tag = tag;
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.hash = ((tag * 31 + a.hashCode()) * 31 + (b != null ? b.hashCode() : 0)) * 31
+                    + (c != null ? c.hashCode() : 0);
+        }
+
+        @Override public int hashCode() { return hash; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return k.hash == hash && k.tag == tag && k.a.equals(a)
+                    && Objects.equals(k.b, b) && Objects.equals(k.c, c);
+        }
+    }
+
+    private static final class ConstantPool {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        final Map<String, Integer> utf8 = new HashMap<>();
+        final Map<Key, Integer> index = new HashMap<>();
+        int count = 1; // нульовий елемент не використовується
+
+        int utf8(String value) {
+            Integer i = utf8.get(value);
+            if (i != null) return i;
+            try {
+                out.writeByte(1);
+                out.writeUTF(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            i = next();
+            utf8.put(value, i);
+            return i;
+        }
+
+        int classRef(String name) { return ref(new Key(7, name, null, null), utf8(name), -1); }
+
+        int string(String value) { return ref(new Key(8, value, null, null), utf8(value), -1); }
+
+        int integer(int value) {
+            Key key = new Key(3, Integer.toString(value), null, null);
+            Integer i = index.get(key);
+            if (i != null) return i;
+            try {
+                out.writeByte(3);
+                out.writeInt(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            i = next();
+            index.put(key, i);
+            return i;
+        }
+
+        // Fieldref (9) або Methodref (10)
+        int member(int tag, String owner, String name, String descriptor) {
+            Key key = new Key(tag, owner, name, descriptor);
+            Integer i = index.get(key);
+            if (i != null) return i;
+            int classIndex = classRef(owner);
+            int nameAndType = ref(new Key(12, name, descriptor, null), utf8(name), utf8(descriptor));
+            return ref(key, classIndex, nameAndType);
+        }
+
+        private int ref(Key key, int first, int second) {
+            Integer i = index.get(key);
+            if (i != null) return i;
+            try {
+                out.writeByte(key.tag);
+                out.writeShort(first);
+                if (second >= 0) out.writeShort(second);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            i = next();
+            index.put(key, i);
+            return i;
+        }
+
+        private int next() {
+            if (count == 0xffff) throw new IllegalStateException("Constant pool overflow");
+            return count++;
+        }
+    }
+
+    // ===== Мітки =====
+
+    public static final class Label {
+        int position = -1;
+        int stack = -1;      // глибина стеку в точці мітки (відома після першого переходу)
+        int[] fixups = new int[2];
+        int fixupCount = 0;
+    }
+
+    // ===== Код методу =====
+
+    public final class Code {
+        private final int access;
+        private final String methodName;
+        private final String descriptor;
+        private byte[] code = new byte[64];
+        private int length = 0;
+        private int stack = 0;
+        private int maxStack = 0;
+        private int maxLocals;
+        private boolean reachable = true;
+        private final List<Label> labels = new ArrayList<>();
+        private int[] lines = new int[16]; // пари (зміщення, рядок) для LineNumberTable
+        private int lineCount = 0;
+
+        Code(int access, String methodName, String descriptor) {
+            this.access = access;
+            this.methodName = methodName;
+            this.descriptor = descriptor;
+            this.maxLocals = argumentSlots(descriptor) + ((access & ACC_STATIC) != 0 ? 0 : 1);
+        }
+
+        // Рядок джерела для наступних інструкцій
+        public void line(int line) {
+            if (!reachable) return;
+            if (lineCount > 0 && lines[2 * lineCount - 1] == line) return;
+            if (lineCount > 0 && lines[2 * lineCount - 2] == length) lineCount--;
+            if (2 * lineCount + 2 > lines.length) lines = Arrays.copyOf(lines, lines.length * 2);
+            lines[2 * lineCount] = length;
+            lines[2 * lineCount + 1] = line;
+            lineCount++;
+        }
+
+        // Інструкція без операндів
+        public void op(int opcode) {
+            if (!reachable) return;
+            int effect = STACK_EFFECT[opcode];
+            if (effect == Integer.MIN_VALUE) throw new IllegalArgumentException("Unsupported opcode " + opcode);
+            emit(opcode);
+            adjust(effect);
+            if (opcode == GOTO || opcode == ATHROW || (opcode >= IRETURN && opcode <= RETURN)) reachable = false;
+        }
+
+        public void iconst(int value) {
+            if (!reachable) return;
+            if (value >= -1 && value <= 5) {
+                emit(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                emit(BIPUSH);
+                emit(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                emit(SIPUSH);
+                emit16(value);
+            } else {
+                ldc(pool.integer(value));
+                return;
+            }
+            adjust(1);
+        }
+
+        public void sconst(String value) {
+            if (!reachable) return;
+            ldc(pool.string(value));
+        }
+
+        private void ldc(int index) {
+            if (index < 256) {
+                emit(LDC);
+                emit(index);
+            } else {
+                emit(LDC_W);
+                emit16(index);
+            }
+            adjust(1);
+        }
+
+        // ILOAD/ALOAD/ISTORE/ASTORE з короткими формами для слотів 0..3
+        public void local(int opcode, int slot) {
+            if (!reachable) return;
+            maxLocals = Math.max(maxLocals, slot + 1);
+            if (slot <= 3) {
+                int base = opcode == ILOAD ? 0x1a : opcode == ALOAD ? 0x2a : opcode == ISTORE ? 0x3b : 0x4b;
+                emit(base + slot);
+            } else if (slot <= 255) {
+                emit(opcode);
+                emit(slot);
+            } else {
+                emit(WIDE);
+                emit(opcode);
+                emit16(slot);
+            }
+            adjust(opcode == ILOAD || opcode == ALOAD ? 1 : -1);
+        }
+
+        // NEW, CHECKCAST, INSTANCEOF
+        public void type(int opcode, String className) {
+            if (!reachable) return;
+            emit(opcode);
+            emit16(pool.classRef(className));
+            if (opcode == NEW) adjust(1);
+        }
+
+        // GETFIELD/PUTFIELD (значення поля — один слот)
+        public void field(int opcode, String owner, String fieldName, String fieldDescriptor) {
+            if (!reachable) return;
+            emit(opcode);
+            emit16(pool.member(9, owner, fieldName, fieldDescriptor));
+            adjust(opcode == GETFIELD ? 0 : -2);
+        }
+
+        public void invoke(int opcode, String owner, String name, String methodDescriptor) {
+            if (!reachable) return;
+            emit(opcode);
+            emit16(pool.member(10, owner, name, methodDescriptor));
+            int effect = -argumentSlots(methodDescriptor) - (opcode == INVOKESTATIC ? 0 : 1);
+            if (!methodDescriptor.endsWith(")V")) effect++;
+            adjust(effect);
+        }
+
+        // ===== Переходи =====
+
+        public void jump(int opcode, Label target) {
+            if (!reachable) return;
+            if (target.position >= 0 && target.stack < 0)
+                throw new IllegalStateException("Jump to unreachable code in " + methodName);
+            int at = length;
+            emit(opcode);
+            emit16(0);
+            if (opcode == IF_ICMPEQ || opcode == IF_ICMPNE || opcode == IF_ICMPLT || opcode == IF_ICMPGE
+                    || opcode == IF_ICMPGT || opcode == IF_ICMPLE || opcode == IF_ACMPEQ || opcode == IF_ACMPNE) {
+                adjust(-2);
+            } else if (opcode != GOTO) {
+                adjust(-1);
+            }
+            if (target.stack < 0) target.stack = stack;
+            else if (target.stack != stack) throw new IllegalStateException("Stack mismatch at jump in " + methodName);
+
+            if (target.position >= 0) {
+                patch(at, target.position);
+            } else {
+                if (target.fixupCount == target.fixups.length) target.fixups = Arrays.copyOf(target.fixups, target.fixupCount * 2);
+                target.fixups[target.fixupCount++] = at;
+                if (target.fixupCount == 1) labels.add(target);
+            }
+            if (opcode == GOTO) reachable = false;
+        }
+
+        // Позиція мітки — поточне місце в коді
+        public void mark(Label label) {
+            if (label.position >= 0) throw new IllegalStateException("Label placed twice in " + methodName);
+            label.position = length;
+            if (!reachable) {
+                if (label.stack < 0) return; // переходів немає — код далі недосяжний
+                stack = label.stack;
+                reachable = true;
+            } else if (label.stack >= 0 && label.stack != stack) {
+                throw new IllegalStateException("Stack mismatch at label in " + methodName);
+            }
+            label.stack = stack;
+            for (int i = 0; i < label.fixupCount; i++) patch(label.fixups[i], label.position);
+            label.fixupCount = 0;
+        }
+
+        private void patch(int at, int target) {
+            int offset = target - at;
+            if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE)
+                throw new IllegalStateException("Method " + methodName + " is too large for 16-bit branch offsets");
+            code[at + 1] = (byte) (offset >> 8);
+            code[at + 2] = (byte) offset;
+        }
+
+        // ===== Запис =====
+
+        private void adjust(int effect) {
+            stack += effect;
+            if (stack < 0) throw new IllegalStateException("Stack underflow in " + methodName);
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        private void emit(int b) {
+            if (length == code.length) code = Arrays.copyOf(code, length * 2);
+            code[length++] = (byte) b;
+        }
+
+        private void emit16(int v) {
+            emit(v >> 8);
+            emit(v);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            for (Label l : labels) {
+                if (l.fixupCount > 0) throw new IllegalStateException("Unplaced label in " + methodName);
+            }
+            if (length > 0xffff) throw new IllegalStateException("Method " + methodName + " exceeds 64K of bytecode");
+            out.writeShort(access);
+            out.writeShort(pool.utf8(methodName));
+            out.writeShort(pool.utf8(descriptor));
+            out.writeShort(1);
+            out.writeShort(pool.utf8("Code"));
+            int lineTable = lineCount > 0 ? 8 + 4 * lineCount : 0;
+            out.writeInt(12 + length + lineTable);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(length);
+            out.write(code, 0, length);
+            out.writeShort(0); // таблиця винятків
+            if (lineCount == 0) {
+                out.writeShort(0);
+                return;
+            }
+            out.writeShort(1);
+            out.writeShort(pool.utf8("LineNumberTable"));
+            out.writeInt(2 + 4 * lineCount);
+            out.writeShort(lineCount);
+            for (int i = 0; i < lineCount; i++) {
+                out.writeShort(lines[2 * i]);
+                out.writeShort(lines[2 * i + 1]);
+            }
+        }
+    }
+}
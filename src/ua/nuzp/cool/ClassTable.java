@@ -0,0 +1,228 @@
+package ua.nuzp.cool;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Таблиця класів програми: інтерновані Type для базових і користувацьких класів,
+// дерево наслідування з INHERITS та запити над ним за сталий час:
+//   conforms(A, B) — через pre/post-нумерацію дерева (Type.conformsTo);
+//   lub(A, B)      — найменший спільний предок через Euler tour + sparse table (RMQ).
+// Побудова — O(n log n) для n класів; некоректне наслідування (невідомий предок,
+// наслідування від Int/String/Bool, цикли) повідомляється і замінюється на Object.
+public class ClassTable {
+
+    public interface ErrorReporter {
+        void error(int line, int column, Diagnostic.Code code, Object... args);
+    }
+
+    private final Map<String, Type> types = new HashMap<>();
+    private final List<Type> all = new ArrayList<>();
+
+    public final Type objectType;
+    public final Type ioType;
+    public final Type intType;
+    public final Type stringType;
+    public final Type boolType;
+
+    // Euler tour для LCA
+    private int[] first;          // перше входження типу в тур
+    private Type[][] sparse;      // sparse[k][i] — тип мінімальної глибини на [i, i + 2^k)
+
+    public ClassTable() {
+        objectType = define("Object");
+        ioType = define("IO");
+        intType = define("Int");
+        stringType = define("String");
+        boolType = define("Bool");
+        for (int i = 1; i < all.size(); i++) all.get(i).parent = objectType;
+        defineBasicMethods();
+    }
+
+    // Вбудовані методи базових класів
+    private void defineBasicMethods() {
+        addMethod(objectType, "abort", List.of(), objectType, false);
+        addMethod(objectType, "type_name", List.of(), stringType, false);
+        addMethod(objectType, "copy", List.of(), objectType, true);
+
+        addMethod(ioType, "out_string", List.of(stringType), ioType, true);
+        addMethod(ioType, "out_int", List.of(intType), ioType, true);
+        addMethod(ioType, "in_string", List.of(), stringType, false);
+        addMethod(ioType, "in_int", List.of(), intType, false);
+
+        addMethod(stringType, "length", List.of(), intType, false);
+        addMethod(stringType, "concat", List.of(stringType), stringType, false);
+        addMethod(stringType, "substr", List.of(intType, intType), stringType, false);
+    }
+
+    public Type.Method addMethod(Type owner, String name, List<Type> params, Type returnType, boolean selfType) {
+        Type.Method m = new Type.Method(name, params, returnType, selfType, owner);
+        owner.methods.put(name, m);
+        return m;
+    }
+
+    public Type.Attribute addAttribute(Type owner, String name, Type type) {
+        Type.Attribute a = new Type.Attribute(name, type, owner);
+        owner.attributes.put(name, a);
+        return a;
+    }
+
+    public boolean isBasic(Type t) {
+        return t.index <= boolType.index;
+    }
+
+    // Реєстрація класів програми та побудова ієрархії
+    public static ClassTable build(Ast.Program program, ErrorReporter reporter) {
+        ClassTable table = new ClassTable();
+        table.addClasses(program, reporter);
+        table.number();
+        return table;
+    }
+
+    // ===== Запити =====
+
+    public Type lookup(String name) {
+        return types.get(name);
+    }
+
+    public boolean isDefined(String name) {
+        return types.containsKey(name);
+    }
+
+    public List<Type> getTypes() {
+        return all;
+    }
+
+    public boolean conforms(Type sub, Type sup) {
+        return sub.conformsTo(sup);
+    }
+
+    // Найменша верхня межа (найближчий спільний предок) за O(1)
+    public Type lub(Type a, Type b) {
+        if (a == b) return a;
+        int l = first[a.index], r = first[b.index];
+        if (l > r) { int t = l; l = r; r = t; }
+        int k = 31 - Integer.numberOfLeadingZeros(r - l + 1);
+        Type x = sparse[k][l];
+        Type y = sparse[k][r - (1 << k) + 1];
+        return x.depth <= y.depth ? x : y;
+    }
+
+    // ===== Побудова =====
+
+    private Type define(String name) {
+        Type t = new Type(name, all.size());
+        types.put(name, t);
+        all.add(t);
+        return t;
+    }
+
+    private void addClasses(Ast.Program program, ErrorReporter reporter) {
+        Map<Type, Ast.ClassDecl> decls = new LinkedHashMap<>();
+
+        for (Ast.ClassDecl c : program.classes) {
+            if (types.containsKey(c.name)) {
+                reporter.error(c.line, c.column, Diagnostic.Code.DUPLICATE_CLASS, c.name);
+            } else {
+                decls.put(define(c.name), c);
+            }
+        }
+
+        // Предки з INHERITS
+        for (Map.Entry<Type, Ast.ClassDecl> e : decls.entrySet()) {
+            Type t = e.getKey();
+            Ast.ClassDecl c = e.getValue();
+            t.parent = objectType;
+            if (c.parent == null) continue;
+
+            Type parent = types.get(c.parent);
+            if (parent == null) {
+                reporter.error(c.line, c.column, Diagnostic.Code.UNDEFINED_PARENT, c.name, c.parent);
+            } else if (parent == intType || parent == stringType || parent == boolType) {
+                reporter.error(c.line, c.column, Diagnostic.Code.INVALID_PARENT, c.name, c.parent);
+            } else {
+                t.parent = parent;
+            }
+        }
+
+        // Пошук циклів: кожен ланцюжок предків проходиться не більше одного разу
+        int[] state = new int[all.size()]; // 0 — не відвідано, 1 — в поточному ланцюжку, 2 — готово
+        state[objectType.index] = 2;
+        for (Ast.ClassDecl c : program.classes) {
+            Type start = types.get(c.name);
+            if (decls.get(start) != c) continue; // дублікат
+
+            List<Type> chain = new ArrayList<>();
+            Type t = start;
+            while (t != null && state[t.index] == 0) {
+                state[t.index] = 1;
+                chain.add(t);
+                t = t.parent;
+            }
+            if (t != null && state[t.index] == 1) {
+                Ast.ClassDecl cyclic = decls.get(t);
+                reporter.error(cyclic.line, cyclic.column, Diagnostic.Code.INHERITANCE_CYCLE, t.name);
+                t.parent = objectType; // розрив циклу
+            }
+            for (Type done : chain) state[done.index] = 2;
+        }
+    }
+
+    // Нумерація дерева: pre/post, глибина, Euler tour, sparse table
+    private void number() {
+        int n = all.size();
+        List<List<Type>> children = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) children.add(new ArrayList<>());
+        for (Type t : all) {
+            if (t.parent != null) children.get(t.parent.index).add(t);
+        }
+
+        first = new int[n];
+        Type[] euler = new Type[2 * n - 1];
+        int tourLength = 0;
+        int counter = 0;
+
+        // Ітеративний DFS (глибина ієрархії може бути тисячі класів)
+        Type[] stack = new Type[n];
+        int[] nextChild = new int[n];
+        int sp = 0;
+        stack[sp++] = objectType;
+        objectType.depth = 0;
+        objectType.pre = counter++;
+        first[objectType.index] = tourLength;
+        euler[tourLength++] = objectType;
+
+        while (sp > 0) {
+            Type t = stack[sp - 1];
+            List<Type> kids = children.get(t.index);
+            if (nextChild[t.index] < kids.size()) {
+                Type child = kids.get(nextChild[t.index]++);
+                child.depth = t.depth + 1;
+                child.pre = counter++;
+                first[child.index] = tourLength;
+                euler[tourLength++] = child;
+                stack[sp++] = child;
+            } else {
+                t.post = counter++;
+                sp--;
+                if (sp > 0) euler[tourLength++] = stack[sp - 1];
+            }
+        }
+
+        int levels = 32 - Integer.numberOfLeadingZeros(tourLength);
+        sparse = new Type[levels][];
+        sparse[0] = euler;
+        for (int k = 1; k < levels; k++) {
+            int len = tourLength - (1 << k) + 1;
+            Type[] prev = sparse[k - 1];
+            Type[] row = new Type[len];
+            for (int i = 0; i < len; i++) {
+                Type x = prev[i], y = prev[i + (1 << (k - 1))];
+                row[i] = x.depth <= y.depth ? x : y;
+            }
+            sparse[k] = row;
+        }
+    }
+}
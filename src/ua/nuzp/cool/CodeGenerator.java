@@ -1,203 +1,381 @@
 package ua.nuzp.cool;
 
-import org.antlr.v4.runtime.tree.ParseTree;
+import ua.nuzp.cool.Ir.Opcode;
 
-public class CodeGenerator extends CoolParserBaseVisitor<String> {
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+// Генерація проміжного представлення (Ir) з AST.
+// Результат — Ir.Program з інструкціями та типізованими операндами; текст триадресного
+// коду формується лише в getGeneratedCode().
+public class CodeGenerator implements Ast.Visitor<Ir.Operand> {
 
     // ===== Поля генератора =====
 
-    private StringBuilder output = new StringBuilder();
+    private final Ir.Program program = new Ir.Program();
+    private Ir.Function function; // поточна функція (метод або ініціалізація атрибутів)
+    private final Map<String, Ir.Var> scope = new HashMap<>(); // параметри та змінні let
+    // Інструкції поточного члена класу; копіюються у функцію одним масивом точного розміру,
+    // замість поступового розширення списку кожної функції
+    private final ArrayList<Ir.Instr> code = new ArrayList<>(1024);
     private int tempCounter = 0;
     private int labelCounter = 0;
+    private String generatedCode;
+
+    public Ir.Program getProgram() {
+        return program;
+    }
 
     public String getGeneratedCode() {
-        return output.toString();
+        if (generatedCode == null) generatedCode = program.toText();
+        return generatedCode;
+    }
+
+    public void generate(Ast.Program program) {
+        program.accept(this);
     }
 
     // ===== Допоміжні методи =====
 
-    private String newTemp() {
-        return "t" + (++tempCounter);
+    private Ir.Operand visit(Ast.Node node) {
+        return node.accept(this);
+    }
+
+    private Ir.Temp newTemp() {
+        return function.newTemp(++tempCounter);
     }
 
-    private String newLabel() {
-        return "L" + (++labelCounter);
+    private Ir.Label newLabel() {
+        return new Ir.Label(++labelCounter);
     }
 
-    private void emit(String instruction) {
-        output.append(instruction).append("\n");
+    private Ir.Instr emit(Opcode op, Ir.Local dst, Ir.Operand a, Ir.Operand b) {
+        Ir.Instr instr = new Ir.Instr(op, dst, a, b);
+        code.add(instr);
+        return instr;
+    }
+
+    private void emitLabel(Ir.Label label) {
+        emit(Opcode.LABEL, null, null, null).label = label;
+    }
+
+    private void emitJump(Opcode op, Ir.Operand cond, Ir.Label label) {
+        emit(op, null, cond, null).label = label;
+    }
+
+    // Ім'я з поточної області видимості; інакше — атрибут класу (self — неявний параметр)
+    private Ir.Var lookup(String name) {
+        Ir.Var v = scope.get(name);
+        if (v != null) return v;
+        if (!name.equals("self")) return function.attribute(name);
+        v = function.newVar(name);
+        scope.put(name, v);
+        return v;
     }
 
     // ===== Visitor логіка =====
 
     @Override
-    public String visitProgram(CoolParser.ProgramContext ctx) {
-        emit("; --- START OF CODE GENERATION ---");
-        emit("; Target: 3-Address Code (Intermediate Representation)\n");
-        visitChildren(ctx);
-        emit("\n; --- END OF PROGRAM ---");
+    public Ir.Operand visitProgram(Ast.Program p) {
+        for (Ast.ClassDecl c : p.classes) visit(c);
+        return null;
+    }
+
+    @Override
+    public Ir.Operand visitClassDecl(Ast.ClassDecl c) {
+        Ir.ClassUnit unit = new Ir.ClassUnit(c.name);
+        program.classes.add(unit);
+
+        for (Ast.Feature f : c.features) {
+            if (f instanceof Ast.Method) {
+                function = new Ir.Function(c.name, f.name);
+                unit.methods.add(function);
+            } else {
+                function = unit.init;
+            }
+            scope.clear();
+            visit(f);
+            function.code.addAll(code);
+            code.clear();
+        }
+        function = null;
         return null;
     }
 
     @Override
-    public String visitClassDefine(CoolParser.ClassDefineContext ctx) {
-        emit("\n; CLASS: " + ctx.type.getText());
-        visitChildren(ctx);
+    public Ir.Operand visitAttribute(Ast.Attribute a) {
+        if (a.init != null) emit(Opcode.MOVE, function.attribute(a.name), visit(a.init), null);
         return null;
     }
 
     @Override
-    public String visitMethod(CoolParser.MethodContext ctx) {
-        emit("\nFUNC " + ctx.name.getText() + ":");
-        visit(ctx.body);
-        emit("RET");
+    public Ir.Operand visitMethod(Ast.Method m) {
+        for (Ast.Formal f : m.formals) {
+            Ir.Var param = function.newVar(f.name);
+            function.params.add(param);
+            scope.put(f.name, param);
+        }
+        Ir.Operand result = visit(m.body);
+        emit(Opcode.RET, null, result, null);
         return null;
     }
 
     @Override
-    public String visitAssign(CoolParser.AssignContext ctx) {
-        String valueReg = visit(ctx.value);
-        String varName = ctx.name.getText();
-        emit("MOVE " + varName + ", " + valueReg);
-        return varName;
+    public Ir.Operand visitAssign(Ast.Assign n) {
+        Ir.Operand value = visit(n.value);
+        Ir.Var var = lookup(n.name);
+        emit(Opcode.MOVE, var, value, null);
+        return var;
     }
 
     @Override
-    public String visitInt(CoolParser.IntContext ctx) {
-        return "#" + ctx.getText();
+    public Ir.Operand visitIntConst(Ast.IntConst n) {
+        return Ir.IntConst.of(n.value);
     }
 
     @Override
-    public String visitId(CoolParser.IdContext ctx) {
-        return ctx.OBJECTID().getText();
+    public Ir.Operand visitId(Ast.Id n) {
+        return lookup(n.name);
     }
 
     @Override
-    public String visitString(CoolParser.StringContext ctx) {
-        return ctx.getText();
+    public Ir.Operand visitStringConst(Ast.StringConst n) {
+        return new Ir.StringConst(n.value);
     }
 
     // Арифметика з оптимізацією (Constant Folding)
 
     @Override
-    public String visitAddSub(CoolParser.AddSubContext ctx) {
-        String left = visit(ctx.left);
-        String right = visit(ctx.right);
-        String op = ctx.op.getType() == CoolParser.PLUS ? "ADD" : "SUB";
-
-        // Якщо обидва операнди — константи, обчислюємо одразу
-        if (left.startsWith("#") && right.startsWith("#")) {
-            try {
-                int lVal = Integer.parseInt(left.substring(1));
-                int rVal = Integer.parseInt(right.substring(1));
-                int res = ctx.op.getType() == CoolParser.PLUS ? (lVal + rVal) : (lVal - rVal);
-
-                emit("; OPTIMIZATION: Folded constant " + left + (ctx.op.getType() == CoolParser.PLUS ? "+" : "-") + right);
-                return "#" + res;
-            } catch (NumberFormatException e) {
-            }
-        }
-
-        String temp = newTemp();
-        emit(op + " " + temp + ", " + left + ", " + right);
-        return temp;
+    public Ir.Operand visitAddSub(Ast.AddSub n) {
+        return arithmetic(n, n.op == Ast.Op.PLUS ? Opcode.ADD : Opcode.SUB);
     }
 
     @Override
-    public String visitMulDiv(CoolParser.MulDivContext ctx) {
-        String left = visit(ctx.left);
-        String right = visit(ctx.right);
-        String op = ctx.op.getType() == CoolParser.MULT ? "MUL" : "DIV";
+    public Ir.Operand visitMulDiv(Ast.MulDiv n) {
+        return arithmetic(n, n.op == Ast.Op.MULT ? Opcode.MUL : Opcode.DIV);
+    }
 
-        // Constant Folding
-        if (left.startsWith("#") && right.startsWith("#")) {
-            try {
-                int lVal = Integer.parseInt(left.substring(1));
-                int rVal = Integer.parseInt(right.substring(1));
-                int res = ctx.op.getType() == CoolParser.MULT ? (lVal * rVal) : (lVal / rVal);
-                emit("; OPTIMIZATION: Folded constant " + left + (ctx.op.getType() == CoolParser.MULT ? "*" : "/") + right);
-                return "#" + res;
-            } catch (Exception e) {}
+    private Ir.Operand arithmetic(Ast.Binary n, Opcode op) {
+        Ir.Operand left = readBefore(visit(n.left), n.right);
+        Ir.Operand right = visit(n.right);
+
+        // Якщо обидва операнди — константи, обчислюємо одразу
+        if (left instanceof Ir.IntConst && right instanceof Ir.IntConst) {
+            int lVal = ((Ir.IntConst) left).value;
+            int rVal = ((Ir.IntConst) right).value;
+            if (op != Opcode.DIV || rVal != 0) {
+                int res;
+                switch (op) {
+                    case ADD: res = lVal + rVal; break;
+                    case SUB: res = lVal - rVal; break;
+                    case MUL: res = lVal * rVal; break;
+                    default: res = lVal / rVal;
+                }
+                emit(Opcode.FOLDED, null, left, right).name = n.op.symbol;
+                return Ir.IntConst.of(res);
+            }
         }
 
-        String temp = newTemp();
-        emit(op + " " + temp + ", " + left + ", " + right);
+        Ir.Temp temp = newTemp();
+        emit(op, temp, left, right);
         return temp;
     }
 
     // ===== Керуючі конструкції =====
 
     @Override
-    public String visitIf(CoolParser.IfContext ctx) {
-        String elseLabel = newLabel();
-        String endLabel = newLabel();
+    public Ir.Operand visitIf(Ast.If n) {
+        Ir.Label elseLabel = newLabel();
+        Ir.Label endLabel = newLabel();
+        Ir.Temp result = newTemp();
 
-        String cond = visit(ctx.condition);
+        Ir.Operand cond = visit(n.condition);
 
-        emit("IF_FALSE " + cond + " GOTO " + elseLabel);
+        emitJump(Opcode.IF_FALSE, cond, elseLabel);
 
-        visit(ctx.thenBranch);
-        emit("GOTO " + endLabel);
+        Ir.Operand thenValue = visit(n.thenBranch);
+        if (thenValue != null) emit(Opcode.MOVE, result, thenValue, null);
+        emitJump(Opcode.GOTO, null, endLabel);
 
-        emit(elseLabel + ":");
-        visit(ctx.elseBranch);
+        emitLabel(elseLabel);
+        Ir.Operand elseValue = visit(n.elseBranch);
+        if (elseValue != null) emit(Opcode.MOVE, result, elseValue, null);
 
-        emit(endLabel + ":");
-        return null;
+        emitLabel(endLabel);
+        return result;
     }
 
     @Override
-    public String visitWhile(CoolParser.WhileContext ctx) {
-        String startLabel = newLabel();
-        String endLabel = newLabel();
+    public Ir.Operand visitWhile(Ast.While n) {
+        Ir.Label startLabel = newLabel();
+        Ir.Label endLabel = newLabel();
 
-        emit(startLabel + ":");
-        String cond = visit(ctx.condition);
+        emitLabel(startLabel);
+        Ir.Operand cond = visit(n.condition);
 
-        emit("IF_FALSE " + cond + " GOTO " + endLabel);
+        emitJump(Opcode.IF_FALSE, cond, endLabel);
 
-        visit(ctx.body);
-        emit("GOTO " + startLabel);
+        visit(n.body);
+        emitJump(Opcode.GOTO, null, startLabel);
 
-        emit(endLabel + ":");
-        return null;
+        emitLabel(endLabel);
+        return Ir.VoidConst.INSTANCE; // значення циклу — void
     }
 
     // ===== Виклик методів =====
 
     @Override
-    public String visitImplicitDispatch(CoolParser.ImplicitDispatchContext ctx) {
-        String methodName = ctx.OBJECTID().getText();
+    public Ir.Operand visitImplicitDispatch(Ast.ImplicitDispatch n) {
+        for (int i = 0; i < n.args.size(); i++) { // без ітератора: найчастіший цикл генерації
+            Ir.Operand argValue = visit(n.args.get(i));
+            emit(Opcode.PARAM, null, argValue, null);
+        }
 
-        if (ctx.expr() != null) {
-            for (CoolParser.ExprContext arg : ctx.expr()) {
-                String argTemp = visit(arg);
-                emit("PARAM " + argTemp);
-            }
+        Ir.Temp resultTemp = newTemp();
+        emit(Opcode.CALL, resultTemp, null, null).name = n.name;
+        return resultTemp;
+    }
+
+    // Отримувач обчислюється до аргументів; змінну-отримувача аргументи можуть перезаписати,
+    // тож її значення спершу копіюється. Метод шукається у статичному типі отримувача
+    // (Ast.Expr.checkedType) або в T для target@T.method(...)
+    // Лівий операнд-змінна читається до правого: присвоєння чи виклик у правому можуть її
+    // змінити (x + f(), де f пише x). Як і отримувач у visitDispatch — копія в Temp;
+    // правий операнд без побічних ефектів (змінна, константа) копії не потребує
+    private Ir.Operand readBefore(Ir.Operand left, Ast.Expr right) {
+        if (!(left instanceof Ir.Var) || right instanceof Ast.Id || right instanceof Ast.IntConst
+                || right instanceof Ast.StringConst || right instanceof Ast.BoolConst) return left;
+        Ir.Temp copy = newTemp();
+        emit(Opcode.MOVE, copy, left, null);
+        return copy;
+    }
+
+    @Override
+    public Ir.Operand visitDispatch(Ast.Dispatch n) {
+        Ir.Operand target = visit(n.target);
+        if (target instanceof Ir.Var && !n.args.isEmpty() && !((Ir.Var) target).name.equals("self")) {
+            Ir.Temp copy = newTemp();
+            emit(Opcode.MOVE, copy, target, null);
+            target = copy;
+        }
+        for (int i = 0; i < n.args.size(); i++) {
+            Ir.Operand argValue = visit(n.args.get(i));
+            emit(Opcode.PARAM, null, argValue, null);
         }
 
-        String resultTemp = newTemp();
-        emit("CALL " + resultTemp + ", " + methodName);
+        Ir.Temp resultTemp = newTemp();
+        Ir.Instr call = emit(Opcode.CALL, resultTemp, target, null);
+        call.name = n.name;
+        call.type = n.staticType != null ? n.staticType : n.target.checkedType.name;
+        call.direct = n.staticType != null;
         return resultTemp;
     }
 
     // ===== Блоки =====
 
     @Override
-    public String visitBlock(CoolParser.BlockContext ctx) {
-        String last = null;
-        for(CoolParser.ExprContext e : ctx.expr()) {
-            last = visit(e);
+    public Ir.Operand visitBlock(Ast.Block b) {
+        Ir.Operand last = null;
+        for (int i = 0; i < b.body.size(); i++) {
+            last = visit(b.body.get(i));
         }
         return last;
     }
 
+    // ===== Let / Case =====
+
+    @Override
+    public Ir.Operand visitLet(Ast.Let let) {
+        // Ініціалізатор бачить лише попередні зв'язування; затінені імена відновлюються після тіла
+        Ir.Var[] shadowed = new Ir.Var[let.bindings.size()];
+        for (int i = 0; i < shadowed.length; i++) {
+            Ast.LetBinding map = let.bindings.get(i);
+            Ir.Operand value = map.init != null ? visit(map.init) : defaultValue(map.type);
+            Ir.Var var = function.newVar(map.name);
+            emit(Opcode.MOVE, var, value, null);
+            shadowed[i] = scope.put(map.name, var);
+        }
+        Ir.Operand result = visit(let.body);
+        for (int i = shadowed.length - 1; i >= 0; i--) {
+            String name = let.bindings.get(i).name;
+            if (shadowed[i] != null) scope.put(name, shadowed[i]);
+            else scope.remove(name);
+        }
+        return result;
+    }
+
+    // Значення за замовчуванням для неініціалізованих змінних
+    private static Ir.Const defaultValue(String type) {
+        switch (type) {
+            case "Int": return Ir.IntConst.of(0);
+            case "Bool": return Ir.BoolConst.FALSE;
+            case "String": return new Ir.StringConst("");
+            default: return Ir.VoidConst.INSTANCE;
+        }
+    }
+
+    // CASE обирає гілку за динамічним класом значення (void і відсутність гілки — помилки
+    // виконання); далі — двійковий пошук за номером гілки. Змінна гілки — нова Var зі значенням,
+    // результат кожної гілки — у спільний Temp, як у visitIf
+    @Override
+    public Ir.Operand visitCase(Ast.Case c) {
+        Ir.Operand value = visit(c.value);
+        String[] types = new String[c.branches.size()];
+        for (int i = 0; i < types.length; i++) types[i] = c.branches.get(i).type;
+        Ir.Temp branch = newTemp();
+        emit(Opcode.CASE, branch, value, null).types = types;
+
+        Ir.Temp result = newTemp();
+        Ir.Label end = newLabel();
+        caseBranches(c, value, branch, result, end, 0, types.length);
+        emitLabel(end);
+        return result;
+    }
+
+    // Гілки [from, to): поділ навпіл до однієї гілки; остання у коді переходить на end без GOTO
+    private void caseBranches(Ast.Case c, Ir.Operand value, Ir.Temp branch, Ir.Temp result, Ir.Label end,
+                              int from, int to) {
+        if (to - from > 1) {
+            int middle = (from + to) >>> 1;
+            Ir.Label upper = newLabel();
+            Ir.Temp below = newTemp();
+            emit(Opcode.LT, below, branch, Ir.IntConst.of(middle));
+            emitJump(Opcode.IF_FALSE, below, upper);
+            caseBranches(c, value, branch, result, end, from, middle);
+            emitLabel(upper);
+            caseBranches(c, value, branch, result, end, middle, to);
+            return;
+        }
+        Ast.CaseBranch b = c.branches.get(from);
+        Ir.Var var = function.newVar(b.name);
+        emit(Opcode.MOVE, var, value, null);
+        Ir.Var shadowed = scope.put(b.name, var);
+        Ir.Operand branchValue = visit(b.body);
+        if (branchValue != null) emit(Opcode.MOVE, result, branchValue, null);
+        if (shadowed != null) scope.put(b.name, shadowed);
+        else scope.remove(b.name);
+        if (from != c.branches.size() - 1) emitJump(Opcode.GOTO, null, end);
+    }
+
     // ===== Інші вузли =====
 
-    @Override public String visitCompare(CoolParser.CompareContext ctx) {
-        String l = visit(ctx.left); String r = visit(ctx.right);
-        String t = newTemp(); emit("CMP " + t + ", " + l + ", " + r); return t;
+    @Override public Ir.Operand visitCompare(Ast.Compare n) {
+        Ir.Operand l = readBefore(visit(n.left), n.right); Ir.Operand r = visit(n.right);
+        Opcode op = n.op == Ast.Op.LT ? Opcode.LT : n.op == Ast.Op.LE ? Opcode.LE : Opcode.EQ;
+        Ir.Temp t = newTemp(); emit(op, t, l, r); return t;
+    }
+    @Override public Ir.Operand visitNot(Ast.Not n) {
+        Ir.Operand v = visit(n.e); Ir.Temp t = newTemp(); emit(Opcode.NOT, t, v, null); return t;
+    }
+    @Override public Ir.Operand visitNegation(Ast.Negation n) {
+        Ir.Operand v = visit(n.e); Ir.Temp t = newTemp(); emit(Opcode.NEG, t, v, null); return t;
+    }
+    @Override public Ir.Operand visitIsVoid(Ast.IsVoid n) {
+        Ir.Operand v = visit(n.e); Ir.Temp t = newTemp(); emit(Opcode.ISVOID, t, v, null); return t;
+    }
+    @Override public Ir.Operand visitNew(Ast.New n) {
+        Ir.Temp t = newTemp(); emit(Opcode.NEW, t, null, null).name = n.type; return t;
     }
-    @Override public String visitTrue(CoolParser.TrueContext ctx) { return "#1"; }
-    @Override public String visitFalse(CoolParser.FalseContext ctx) { return "#0"; }
-}
\ No newline at end of file
+    @Override public Ir.Operand visitBoolConst(Ast.BoolConst n) { return Ir.BoolConst.of(n.value); }
+}
@@ -0,0 +1,228 @@
+package ua.nuzp.cool;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Конвеєр компіляції одного джерела.
+// Лексичний і синтаксичний аналіз виконуються один раз; токени, дерево розбору, AST,
+// результати семантики, IR, згенерований код, class-файли JVM та байткод VM обчислюються ліниво
+// при першому запиті і далі повторно використовуються всіма фазами (IDE, пакетний драйвер).
+// Семантика та генерація коду працюють з AST, тож після getAst() дерево розбору
+// і токени можна звільнити (releaseParseTree) — це основна частина пам'яті компіляції.
+// Об'єкт не потокобезпечний: одна компіляція = один потік.
+public class Compilation {
+
+    private final String source;
+    private final String sourceName;
+    private final ParseMode parseMode;
+
+    // ===== Результати фаз (ліниві) =====
+
+    private CommonTokenStream tokenStream;
+    private ParseTree tree;
+    private Ast.Program ast;
+    private boolean parseTreeReleased = false;
+    private SemanticAnalyzer semantic;
+    private Ir.Program ir;
+    private Optimizer optimizer;
+    private String generatedCode;
+    private Map<String, byte[]> classFiles;
+    private Bytecode.Program bytecode;
+
+    private final List<Diagnostic> lexerErrors = new ArrayList<>();
+    private final List<Diagnostic> parserErrors = new ArrayList<>();
+    private int maxErrors = Integer.MAX_VALUE;
+    private boolean optimize = true;
+
+    public Compilation(String source) {
+        this(source, IntStream.UNKNOWN_SOURCE_NAME);
+    }
+
+    public Compilation(String source, String sourceName) {
+        this(source, sourceName, ParseMode.TWO_STAGE);
+    }
+
+    public Compilation(String source, String sourceName, ParseMode parseMode) {
+        this.source = source;
+        this.sourceName = sourceName;
+        this.parseMode = parseMode;
+    }
+
+    public String getSource() { return source; }
+    public String getSourceName() { return sourceName; }
+    public ParseMode getParseMode() { return parseMode; }
+
+    // Ліміт помилок для кожної фази; задається до запуску фаз
+    public void setMaxErrors(int maxErrors) {
+        if (maxErrors < 1) throw new IllegalArgumentException("maxErrors must be positive");
+        this.maxErrors = maxErrors;
+    }
+
+    // Оптимізація IR (SSA + SCCP); вимикається для налагодження генератора (-O0)
+    public void setOptimize(boolean optimize) {
+        this.optimize = optimize;
+    }
+
+    // ===== 1. Лексичний аналіз =====
+
+    public List<Token> getTokens() {
+        return tokenStream().getTokens();
+    }
+
+    public List<Diagnostic> getLexerErrors() {
+        tokenStream();
+        return lexerErrors;
+    }
+
+    private CommonTokenStream tokenStream() {
+        checkNotReleased();
+        if (tokenStream == null) {
+            CoolLexer lexer = new CoolLexer(CharStreams.fromString(source, sourceName));
+            lexer.removeErrorListeners();
+            lexer.addErrorListener(createErrorListener(lexerErrors, Diagnostic.Code.LEXER_ERROR));
+
+            tokenStream = new CommonTokenStream(lexer);
+            tokenStream.fill();
+        }
+        return tokenStream;
+    }
+
+    // ===== 2. Синтаксичний аналіз =====
+
+    public ParseTree getTree() {
+        checkNotReleased();
+        if (tree == null) {
+            tree = parseMode.parse(tokenStream(), createErrorListener(parserErrors, Diagnostic.Code.SYNTAX_ERROR));
+        }
+        return tree;
+    }
+
+    public List<String> getRuleNames() {
+        return List.of(CoolParser.ruleNames);
+    }
+
+    public List<Diagnostic> getSyntaxErrors() {
+        if (!parseTreeReleased) getTree();
+        List<Diagnostic> all = new ArrayList<>(lexerErrors);
+        all.addAll(parserErrors);
+        return all;
+    }
+
+    public boolean hasSyntaxErrors() {
+        if (!parseTreeReleased) getTree();
+        return !lexerErrors.isEmpty() || !parserErrors.isEmpty();
+    }
+
+    // ===== AST =====
+
+    public Ast.Program getAst() {
+        if (ast == null) {
+            if (hasSyntaxErrors())
+                throw new IllegalStateException("AST requires a syntactically valid program");
+            ast = AstBuilder.build((CoolParser.ProgramContext) getTree());
+        }
+        return ast;
+    }
+
+    // Звільняє дерево розбору та буфер токенів; далі доступні лише AST та наступні фази
+    public void releaseParseTree() {
+        getAst();
+        tokenStream = null;
+        tree = null;
+        parseTreeReleased = true;
+    }
+
+    private void checkNotReleased() {
+        if (parseTreeReleased)
+            throw new IllegalStateException("Parse tree and tokens have been released");
+    }
+
+    // ===== 3. Семантичний аналіз =====
+
+    public SemanticAnalyzer getSemantic() {
+        if (semantic == null) {
+            if (hasSyntaxErrors())
+                throw new IllegalStateException("Semantic analysis requires a syntactically valid program");
+            semantic = new SemanticAnalyzer();
+            semantic.setMaxErrors(maxErrors);
+            semantic.analyze(getAst());
+        }
+        return semantic;
+    }
+
+    public boolean hasErrors() {
+        return hasSyntaxErrors() || !getSemantic().getErrors().isEmpty();
+    }
+
+    // Чи досягла якась із виконаних фаз ліміту помилок (і, можливо, зупинилась раніше)
+    public boolean isErrorLimitReached() {
+        return lexerErrors.size() >= maxErrors || parserErrors.size() >= maxErrors
+                || (semantic != null && semantic.isErrorLimitReached());
+    }
+
+    // ===== 4. Генерація коду =====
+
+    public Ir.Program getIr() {
+        if (ir == null) {
+            if (hasErrors())
+                throw new IllegalStateException("Code generation requires a program without errors");
+            CodeGenerator generator = new CodeGenerator();
+            generator.generate(getAst());
+            ir = generator.getProgram();
+            if (optimize) {
+                optimizer = new Optimizer();
+                optimizer.optimize(ir, getSemantic().getClassTable());
+            }
+        }
+        return ir;
+    }
+
+    // Звіт оптимізатора по функціях (null, якщо оптимізацію вимкнено)
+    public Optimizer getOptimizer() {
+        getIr();
+        return optimizer;
+    }
+
+    // Текст триадресного коду (формується з IR при першому запиті)
+    public String getGeneratedCode() {
+        if (generatedCode == null) generatedCode = getIr().toText();
+        return generatedCode;
+    }
+
+    // ===== 5. Байткод JVM =====
+
+    // Class-файли програми (JvmBackend): ім'я класу -> вміст; запуск — CoolRuntime.run
+    public Map<String, byte[]> getClassFiles() {
+        if (classFiles == null) {
+            if (hasErrors())
+                throw new IllegalStateException("Code generation requires a program without errors");
+            classFiles = JvmBackend.compile(getAst(), getSemantic().getClassTable(), sourceName);
+        }
+        return classFiles;
+    }
+
+    // ===== 6. Байткод VM =====
+
+    // Регістровий байткод з IR (оптимізованого, якщо оптимізацію не вимкнено); запуск — Vm.run
+    public Bytecode.Program getBytecode() {
+        if (bytecode == null) bytecode = Bytecode.compile(getIr(), getSemantic().getClassTable());
+        return bytecode;
+    }
+
+    // ===== Допоміжні =====
+
+    // Помилки понад ліміт відкидаються (ANTLR все одно відновлюється після кожної)
+    private BaseErrorListener createErrorListener(List<Diagnostic> sink, Diagnostic.Code code) {
+        return new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol,
+                                    int line, int charPositionInLine, String msg, RecognitionException e) {
+                if (sink.size() < maxErrors) sink.add(new Diagnostic(code, line, charPositionInLine, msg));
+            }
+        };
+    }
+}
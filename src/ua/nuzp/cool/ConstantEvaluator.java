@@ -0,0 +1,192 @@
+package ua.nuzp.cool;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+// Обчислення константних значень виразів (constant folding на рівні AST).
+// Один прохід знизу вгору: значення кожного вузла обчислюється рівно один раз
+// із вже обчислених значень дочірніх вузлів і запам'ятовується для вузлів-констант.
+// Значення: Integer (Int), Boolean (Bool), String (String); null — не константа.
+// Приклади констант: true, not false, 1 < 2, 2 * 3 = 6, if true then 1 else x fi.
+public class ConstantEvaluator implements Ast.Visitor<Object> {
+
+    private final Map<Ast.Expr, Object> constants = new IdentityHashMap<>();
+
+    public static ConstantEvaluator evaluate(Ast.Node root) {
+        ConstantEvaluator evaluator = new ConstantEvaluator();
+        root.accept(evaluator);
+        return evaluator;
+    }
+
+    // Константне значення виразу або null
+    public Object valueOf(Ast.Expr e) {
+        return constants.get(e);
+    }
+
+    public boolean isTrue(Ast.Expr e) {
+        return Boolean.TRUE.equals(constants.get(e));
+    }
+
+    public boolean isFalse(Ast.Expr e) {
+        return Boolean.FALSE.equals(constants.get(e));
+    }
+
+    // ===== Допоміжні =====
+
+    private Object eval(Ast.Expr e) {
+        Object value = e.accept(this);
+        if (value != null) constants.put(e, value);
+        return value;
+    }
+
+    // ===== Структура програми (лише обхід) =====
+
+    @Override
+    public Object visitProgram(Ast.Program n) {
+        for (Ast.ClassDecl c : n.classes) c.accept(this);
+        return null;
+    }
+
+    @Override
+    public Object visitClassDecl(Ast.ClassDecl n) {
+        for (Ast.Feature f : n.features) f.accept(this);
+        return null;
+    }
+
+    @Override
+    public Object visitAttribute(Ast.Attribute n) {
+        if (n.init != null) eval(n.init);
+        return null;
+    }
+
+    @Override
+    public Object visitMethod(Ast.Method n) {
+        eval(n.body);
+        return null;
+    }
+
+    // ===== Вирази =====
+
+    @Override
+    public Object visitAssign(Ast.Assign n) {
+        return eval(n.value);
+    }
+
+    @Override
+    public Object visitDispatch(Ast.Dispatch n) {
+        eval(n.target);
+        for (Ast.Expr arg : n.args) eval(arg);
+        return null;
+    }
+
+    @Override
+    public Object visitImplicitDispatch(Ast.ImplicitDispatch n) {
+        for (Ast.Expr arg : n.args) eval(arg);
+        return null;
+    }
+
+    @Override
+    public Object visitIf(Ast.If n) {
+        Object cond = eval(n.condition);
+        Object t = eval(n.thenBranch);
+        Object e = eval(n.elseBranch);
+        if (cond instanceof Boolean) return (Boolean) cond ? t : e;
+        return null;
+    }
+
+    @Override
+    public Object visitWhile(Ast.While n) {
+        eval(n.condition);
+        eval(n.body);
+        return null; // значення циклу — void
+    }
+
+    @Override
+    public Object visitBlock(Ast.Block n) {
+        Object last = null;
+        for (Ast.Expr e : n.body) last = eval(e);
+        return last;
+    }
+
+    @Override
+    public Object visitLet(Ast.Let n) {
+        for (Ast.LetBinding b : n.bindings) {
+            if (b.init != null) eval(b.init);
+        }
+        return eval(n.body);
+    }
+
+    @Override
+    public Object visitCase(Ast.Case n) {
+        eval(n.value);
+        for (Ast.CaseBranch b : n.branches) eval(b.body);
+        return null;
+    }
+
+    @Override
+    public Object visitNew(Ast.New n) {
+        return null;
+    }
+
+    @Override
+    public Object visitIsVoid(Ast.IsVoid n) {
+        Object v = eval(n.e);
+        // Константи базових типів ніколи не void
+        return v != null ? Boolean.FALSE : null;
+    }
+
+    @Override
+    public Object visitNegation(Ast.Negation n) {
+        Object v = eval(n.e);
+        return v instanceof Integer ? -(Integer) v : null;
+    }
+
+    @Override
+    public Object visitNot(Ast.Not n) {
+        Object v = eval(n.e);
+        return v instanceof Boolean ? !(Boolean) v : null;
+    }
+
+    @Override
+    public Object visitMulDiv(Ast.MulDiv n) {
+        return arithmetic(n);
+    }
+
+    @Override
+    public Object visitAddSub(Ast.AddSub n) {
+        return arithmetic(n);
+    }
+
+    private Object arithmetic(Ast.Binary n) {
+        Object l = eval(n.left);
+        Object r = eval(n.right);
+        if (!(l instanceof Integer) || !(r instanceof Integer)) return null;
+
+        int a = (Integer) l, b = (Integer) r;
+        switch (n.op) {
+            case PLUS: return a + b;
+            case MINUS: return a - b;
+            case MULT: return a * b;
+            default: return b == 0 ? null : a / b; // ділення на нуль — помилка часу виконання
+        }
+    }
+
+    @Override
+    public Object visitCompare(Ast.Compare n) {
+        Object l = eval(n.left);
+        Object r = eval(n.right);
+        if (l == null || r == null) return null;
+
+        if (n.op == Ast.Op.EQ) return l.equals(r);
+        if (!(l instanceof Integer) || !(r instanceof Integer)) return null;
+        int a = (Integer) l, b = (Integer) r;
+        return n.op == Ast.Op.LT ? a < b : a <= b;
+    }
+
+    // ===== Листи =====
+
+    @Override public Object visitId(Ast.Id n) { return null; }
+    @Override public Object visitIntConst(Ast.IntConst n) { return n.overflow ? null : n.value; }
+    @Override public Object visitStringConst(Ast.StringConst n) { return n.value; }
+    @Override public Object visitBoolConst(Ast.BoolConst n) { return n.value; }
+}
@@ -0,0 +1,308 @@
+package ua.nuzp.cool;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Консольний драйвер компілятора (без GUI).
+// Використання: coolc [-j потоки] [-d каталог] [--parse-mode ll|two-stage] [-O0] [--opt-report]
+//                    [--max-errors N] [--format text|json] [--target tac|jvm] [--run] [--gc-stats]
+//                    файл.cl | каталог ...
+// Кожен файл проходить повний конвеєр lexer -> parser -> semantic -> codegen
+// як окрема задача fork-join пулу; повідомлення виводяться в порядку файлів.
+// --format json: діагностики — по одному JSON-об'єкту на рядок у stdout, підсумок — у stderr.
+// --opt-report: скільки інструкцій оптимізатор видалив у кожному методі (у JSON-режимі — у stderr).
+// --target jvm: замість file.tac — каталог file.classes з class-файлами (JvmBackend).
+// --run: після компіляції файл виконується зі stdin/stdout драйвера: для tac — на регістровій
+//        VM (Bytecode, Vm), для jvm — на JVM (CoolRuntime). Невдалі запуски — у підсумковому рядку;
+//        внутрішня помилка виконавця — діагностика файлу, решта файлів виконується далі.
+// --gc-stats: з --run для tac — статистика збирача купи VM (Heap) у stderr після виконання.
+public class CoolCompiler {
+
+    // ===== Вхідний файл та результат його компіляції =====
+
+    static class SourceFile {
+        final Path path;
+        final Path relative; // шлях відносно аргументу командного рядка
+
+        SourceFile(Path path, Path relative) {
+            this.path = path;
+            this.relative = relative;
+        }
+    }
+
+    static class FileResult {
+        final SourceFile source;
+        final List<Diagnostic> diagnostics = new ArrayList<>();
+        boolean failed = false;
+        boolean errorLimitReached = false;
+        String optimizationReport; // null, якщо звіт не запитано
+        Map<String, byte[]> classFiles; // для --run з --target jvm
+        Bytecode.Program bytecode;      // для --run з --target tac
+
+        FileResult(SourceFile source) { this.source = source; }
+    }
+
+    // ===== Параметри =====
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Path outputDir = null;
+    private ParseMode parseMode = ParseMode.TWO_STAGE;
+    private int maxErrors = Integer.MAX_VALUE;
+    private boolean json = false;
+    private boolean optimize = true;
+    private boolean optimizationReport = false;
+    private boolean jvm = false;
+    private boolean run = false;
+    private boolean gcStats = false;
+    private final List<SourceFile> sources = new ArrayList<>();
+
+    // ===== Точка входу =====
+
+    public static void main(String[] args) {
+        CoolCompiler compiler = new CoolCompiler();
+        try {
+            compiler.parseArguments(args);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("coolc: " + e.getMessage());
+            printUsage(System.err);
+            System.exit(2);
+        }
+        System.exit(compiler.run(System.out, System.err) ? 0 : 1);
+    }
+
+    private static void printUsage(PrintStream out) {
+        out.println("Usage: coolc [-j threads] [-d outputDir] [--parse-mode ll|two-stage] [-O0] [--opt-report]"
+                + " [--max-errors n] [--format text|json] [--target tac|jvm] [--run] [--gc-stats] <file.cl | directory>...");
+    }
+
+    private void parseArguments(String[] args) throws IOException {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-j":
+                    threads = Integer.parseInt(requireValue(args, ++i, arg));
+                    if (threads < 1) throw new IllegalArgumentException("-j must be positive");
+                    break;
+                case "-d":
+                    outputDir = Paths.get(requireValue(args, ++i, arg));
+                    break;
+                case "--parse-mode":
+                    parseMode = ParseMode.fromName(requireValue(args, ++i, arg));
+                    break;
+                case "-O0":
+                    optimize = false;
+                    break;
+                case "--opt-report":
+                    optimizationReport = true;
+                    break;
+                case "--max-errors":
+                    maxErrors = Integer.parseInt(requireValue(args, ++i, arg));
+                    if (maxErrors < 1) throw new IllegalArgumentException("--max-errors must be positive");
+                    break;
+                case "--format":
+                    String format = requireValue(args, ++i, arg);
+                    if (!format.equals("text") && !format.equals("json"))
+                        throw new IllegalArgumentException("unknown format " + format);
+                    json = format.equals("json");
+                    break;
+                case "--target":
+                    String target = requireValue(args, ++i, arg);
+                    if (!target.equals("tac") && !target.equals("jvm"))
+                        throw new IllegalArgumentException("unknown target " + target);
+                    jvm = target.equals("jvm");
+                    break;
+                case "--run":
+                    run = true;
+                    break;
+                case "--gc-stats":
+                    gcStats = true;
+                    break;
+                case "-h":
+                case "--help":
+                    printUsage(System.out);
+                    System.exit(0);
+                    break;
+                default:
+                    if (arg.startsWith("-")) throw new IllegalArgumentException("unknown option " + arg);
+                    addSources(Paths.get(arg));
+            }
+        }
+        if (sources.isEmpty()) throw new IllegalArgumentException("no input files");
+
+        // Файли компілюються паралельно: два джерела з одним результатом (a/x.cl і b/x.cl з -d)
+        // записували б його навперегони
+        String extension = jvm ? ".classes" : ".tac";
+        Map<Path, SourceFile> targets = new HashMap<>();
+        for (SourceFile source : sources) {
+            Path target = outputPath(source, extension);
+            SourceFile previous = targets.putIfAbsent(target.toAbsolutePath().normalize(), source);
+            if (previous != null) {
+                throw new IllegalArgumentException(previous.path + " and " + source.path
+                        + " have the same output " + target);
+            }
+        }
+    }
+
+    private static String requireValue(String[] args, int i, String option) {
+        if (i >= args.length) throw new IllegalArgumentException("missing value for " + option);
+        return args[i];
+    }
+
+    // Каталоги обходяться рекурсивно; порядок файлів відсортований, щоб вивід не залежав від ФС
+    private void addSources(Path arg) throws IOException {
+        if (Files.isDirectory(arg)) {
+            try (Stream<Path> walk = Files.walk(arg)) {
+                List<Path> found = walk
+                        .filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".cl"))
+                        .sorted()
+                        .collect(Collectors.toList());
+                for (Path p : found) sources.add(new SourceFile(p, arg.relativize(p)));
+            }
+        } else if (Files.isRegularFile(arg)) {
+            sources.add(new SourceFile(arg, arg.getFileName()));
+        } else {
+            throw new IOException("file not found: " + arg);
+        }
+    }
+
+    // ===== Паралельна компіляція =====
+
+    boolean run(PrintStream out, PrintStream err) {
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        int failed = 0;
+        int runFailed = 0;
+
+        try {
+            List<ForkJoinTask<FileResult>> tasks = new ArrayList<>(sources.size());
+            for (SourceFile source : sources) {
+                tasks.add(pool.submit(() -> compile(source)));
+            }
+
+            // Результати забираються в порядку вхідних файлів, незалежно від розкладу потоків
+            for (ForkJoinTask<FileResult> task : tasks) {
+                FileResult result = task.join();
+                report(result, out, err);
+                if (result.failed) failed++;
+                // Програми виконуються по черзі, у порядку файлів
+                else if (run && !execute(result, out, err)) runFailed++;
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        (json ? err : out).println("Compiled " + sources.size() + " file(s), " + failed + " failed"
+                + (run ? ", " + runFailed + " run(s) failed" : "") + ", in " + millis + " ms.");
+        return failed == 0 && runFailed == 0;
+    }
+
+    // Помилка виконання програми (abort, ділення на нуль) виводить сам виконавець; виняток
+    // виконавця — діагностика файлу, пакет продовжується з наступного
+    private boolean execute(FileResult result, PrintStream out, PrintStream err) {
+        try {
+            if (result.classFiles != null) return CoolRuntime.run(result.classFiles, System.in, out, err);
+            return Vm.run(result.bytecode, System.in, out, err, gcStats ? err : null);
+        } catch (RuntimeException e) {
+            print(result.source, new Diagnostic(Diagnostic.Code.RUN_INTERNAL_ERROR, 0, 0, e.toString()), out, err);
+            return false;
+        }
+    }
+
+    // Повідомлення форматуються лише тут, при виводі
+    private void report(FileResult result, PrintStream out, PrintStream err) {
+        String file = result.source.path.toString();
+        for (Diagnostic d : result.diagnostics) print(result.source, d, out, err);
+        if (result.errorLimitReached && !json)
+            err.println(file + ": too many errors, stopped after " + maxErrors + ".");
+        if (result.optimizationReport != null) {
+            for (String line : result.optimizationReport.split("\n")) (json ? err : out).println(file + ": " + line);
+        }
+    }
+
+    private void print(SourceFile source, Diagnostic d, PrintStream out, PrintStream err) {
+        String file = source.path.toString();
+        if (json) out.println(d.toJson(file));
+        else err.println(file + ": " + d);
+    }
+
+    FileResult compile(SourceFile source) {
+        FileResult result = new FileResult(source);
+
+        String code;
+        try {
+            code = new String(Files.readAllBytes(source.path), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            result.diagnostics.add(new Diagnostic(Diagnostic.Code.READ_ERROR, 0, 0, e.getMessage()));
+            result.failed = true;
+            return result;
+        }
+
+        // 1. Lexer + Parser
+        Compilation compilation = new Compilation(code, source.path.toString(), parseMode);
+        compilation.setMaxErrors(maxErrors);
+        compilation.setOptimize(optimize);
+        if (compilation.hasSyntaxErrors()) {
+            result.diagnostics.addAll(compilation.getSyntaxErrors());
+            result.errorLimitReached = compilation.isErrorLimitReached();
+            result.failed = true;
+            return result;
+        }
+        compilation.releaseParseTree();
+
+        // 2. Семантичний аналіз
+        SemanticAnalyzer analyzer = compilation.getSemantic();
+        result.diagnostics.addAll(analyzer.getErrors());
+        result.diagnostics.addAll(analyzer.getWarnings());
+        result.errorLimitReached = compilation.isErrorLimitReached();
+        if (!analyzer.getErrors().isEmpty()) {
+            result.failed = true;
+            return result;
+        }
+
+        // 3. Генерація коду
+        try {
+            if (jvm) {
+                Path directory = outputPath(source, ".classes");
+                Files.createDirectories(directory);
+                for (Map.Entry<String, byte[]> e : compilation.getClassFiles().entrySet())
+                    Files.write(directory.resolve(e.getKey() + ".class"), e.getValue());
+            } else {
+                Path target = outputPath(source, ".tac");
+                if (target.getParent() != null) Files.createDirectories(target.getParent());
+                Files.write(target, compilation.getGeneratedCode().getBytes(StandardCharsets.UTF_8));
+                if (optimizationReport && compilation.getOptimizer() != null)
+                    result.optimizationReport = compilation.getOptimizer().summary();
+            }
+            if (run && jvm) result.classFiles = compilation.getClassFiles();
+            else if (run) result.bytecode = compilation.getBytecode();
+        } catch (IOException e) {
+            result.diagnostics.add(new Diagnostic(Diagnostic.Code.WRITE_ERROR, 0, 0, e.getMessage()));
+            result.failed = true;
+        }
+        return result;
+    }
+
+    // file.cl -> file.tac / file.classes (поряд із джерелом або в каталозі -d зі збереженням структури)
+    private Path outputPath(SourceFile source, String extension) {
+        String name = source.path.getFileName().toString();
+        String outName = name.endsWith(".cl")
+                ? name.substring(0, name.length() - ".cl".length()) + extension
+                : name + extension;
+
+        if (outputDir == null) return source.path.resolveSibling(outName);
+        return outputDir.resolve(source.relative).resolveSibling(outName);
+    }
+}
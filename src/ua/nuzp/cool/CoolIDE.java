@@ -7,7 +7,6 @@ import org.antlr.v4.runtime.tree.ParseTree;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.util.Arrays;
 import java.util.List;
 
 public class CoolIDE extends JFrame {
@@ -20,6 +19,8 @@ public class CoolIDE extends JFrame {
     private JPanel treePanel;
     private JTabbedPane tabbedPane; // Вкладки для результатів
 
+    private Compilation compilation; // Результати фаз для поточного тексту
+
     public CoolIDE() {
         super("Cool Compiler IDE");
 
@@ -95,24 +96,30 @@ public class CoolIDE extends JFrame {
         add(mainSplit, BorderLayout.CENTER);
     }
 
+    // Спільна компіляція для всіх кнопок: перебудовується лише після зміни тексту
+    private Compilation compilation() {
+        String code = inputArea.getText();
+        if (compilation == null || !compilation.getSource().equals(code)) {
+            compilation = new Compilation(code);
+        }
+        return compilation;
+    }
+
     // Лексичний аналіз
     private void runLexer() {
         tokensModel.setRowCount(0);
         errorArea.setText("Lexer started...\n");
 
-        String code = inputArea.getText();
-        CoolLexer lexer = new CoolLexer(CharStreams.fromString(code));
-
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(createErrorListener());
-
-        List<? extends Token> tokens = lexer.getAllTokens();
-        for (Token t : tokens) {
+        Compilation c = compilation();
+        for (Token t : c.getTokens()) {
+            if (t.getType() == Token.EOF) continue;
             String rule = CoolLexer.VOCABULARY.getSymbolicName(t.getType());
             tokensModel.addRow(new Object[]{rule, t.getText(), t.getLine() + ":" + t.getCharPositionInLine()});
         }
 
-        if (errorArea.getText().equals("Lexer started...\n"))
+        for (Diagnostic err : c.getLexerErrors()) errorArea.append(err + "\n");
+
+        if (c.getLexerErrors().isEmpty())
             errorArea.append("Lexer finished successfully.\n");
     }
 
@@ -121,23 +128,13 @@ public class CoolIDE extends JFrame {
         errorArea.setText("Parser started...\n");
         treePanel.removeAll();
 
-        String code = inputArea.getText();
-
-        CoolLexer lexer = new CoolLexer(CharStreams.fromString(code));
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(createErrorListener());
-
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
-
-        CoolParser parser = new CoolParser(tokens);
-        parser.removeErrorListeners();
-        parser.addErrorListener(createErrorListener());
-
-        ParseTree tree = parser.program();
+        Compilation c = compilation();
+        ParseTree tree = c.getTree();
+        for (Diagnostic err : c.getSyntaxErrors()) errorArea.append(err + "\n");
 
         // Відобразити дерево якщо без помилок
-        if (parser.getNumberOfSyntaxErrors() == 0) {
-            TreeViewer viewer = new TreeViewer(Arrays.asList(parser.getRuleNames()), tree);
+        if (!c.hasSyntaxErrors()) {
+            TreeViewer viewer = new TreeViewer(c.getRuleNames(), tree);
             viewer.setScale(1.5);
             treePanel.add(viewer, BorderLayout.CENTER);
             errorArea.append("Parsing completed. Tree built.\n");
@@ -151,29 +148,21 @@ public class CoolIDE extends JFrame {
 
     private void runSemantic() {
         errorArea.setText("Semantic analysis started...\n");
-        String code = inputArea.getText();
 
-        // 1. Побудова AST (Lexer + Parser)
-        CoolLexer lexer = new CoolLexer(CharStreams.fromString(code));
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
-        CoolParser parser = new CoolParser(tokens);
-
-        parser.removeErrorListeners(); // вимкнути консольні помилки
-
-        ParseTree tree = parser.program();
+        // 1. Дерево розбору (спільне з іншими фазами)
+        Compilation c = compilation();
 
         // Якщо є синтаксичні помилки — семантику не запускаємо
-        if (parser.getNumberOfSyntaxErrors() > 0) {
+        if (c.hasSyntaxErrors()) {
             errorArea.append("CRITICAL: Fix syntax errors before semantic analysis!\n");
             return;
         }
 
         // 2. Семантичний аналіз
-        SemanticAnalyzer analyzer = new SemanticAnalyzer();
-        analyzer.visit(tree);
+        SemanticAnalyzer analyzer = c.getSemantic();
 
-        List<String> errors = analyzer.getErrors();
-        List<String> warnings = analyzer.getWarnings();
+        List<Diagnostic> errors = analyzer.getErrors();
+        List<Diagnostic> warnings = analyzer.getWarnings();
 
         // 3. Вивід результатів
         if (errors.isEmpty() && warnings.isEmpty()) {
@@ -181,11 +170,11 @@ public class CoolIDE extends JFrame {
         } else {
             if (!errors.isEmpty()) {
                 errorArea.append("✕ ERRORS (" + errors.size() + "):\n");
-                for (String err : errors) errorArea.append(err + "\n");
+                for (Diagnostic err : errors) errorArea.append(err + "\n");
             }
             if (!warnings.isEmpty()) {
                 errorArea.append("\n⚠ WARNINGS (" + warnings.size() + "):\n");
-                for (String w : warnings) errorArea.append(w + "\n");
+                for (Diagnostic w : warnings) errorArea.append(w + "\n");
             }
         }
     }
@@ -194,37 +183,28 @@ public class CoolIDE extends JFrame {
     private void runCodeGeneration() {
         errorArea.setText("Code generation started...\n");
         codeOutputArea.setText("");
-        String code = inputArea.getText();
 
         try {
-            // 1. Побудова AST (Lexer + Parser)
-            CoolLexer lexer = new CoolLexer(CharStreams.fromString(code));
-            CommonTokenStream tokens = new CommonTokenStream(lexer);
-            CoolParser parser = new CoolParser(tokens);
-            parser.removeErrorListeners();
-            ParseTree tree = parser.program();
-
-            if (parser.getNumberOfSyntaxErrors() > 0) {
+            // 1. Дерево розбору (спільне з іншими фазами)
+            Compilation c = compilation();
+
+            if (c.hasSyntaxErrors()) {
                 errorArea.append("CRITICAL: Cannot generate code due to SYNTAX errors.\n");
                 return;
             }
 
-            // 2. Семантичний аналіз
-            SemanticAnalyzer semantic = new SemanticAnalyzer();
-            semantic.visit(tree);
+            // 2. Семантичний аналіз (результат повторно використовується)
+            SemanticAnalyzer semantic = c.getSemantic();
             if (!semantic.getErrors().isEmpty()) {
                 errorArea.append("CRITICAL: Cannot generate code due to SEMANTIC errors.\n");
-                for (String err : semantic.getErrors()) errorArea.append(err + "\n");
+                for (Diagnostic err : semantic.getErrors()) errorArea.append(err + "\n");
                 return;
             }
 
-            // 3. Генерація коду
-            CodeGenerator generator = new CodeGenerator();
-            generator.visit(tree);
-
-            // 4. Вивід результатів
-            codeOutputArea.setText(generator.getGeneratedCode());
+            // 3-4. Генерація коду та вивід результатів
+            codeOutputArea.setText(c.getGeneratedCode());
             errorArea.append("Code generated successfully!\n");
+            if (c.getOptimizer() != null) errorArea.append("\nOptimizations:\n" + c.getOptimizer().summary());
 
             tabbedPane.setSelectedIndex(2);
 
@@ -234,17 +214,6 @@ public class CoolIDE extends JFrame {
         }
     }
 
-    // Listener для виводу помилок
-    private BaseErrorListener createErrorListener() {
-        return new BaseErrorListener() {
-            @Override
-            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol,
-                                    int line, int charPositionInLine, String msg, RecognitionException e) {
-                errorArea.append("Error at " + line + ":" + charPositionInLine + " -> " + msg + "\n");
-            }
-        };
-    }
-
     // Точка входу
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> new CoolIDE().setVisible(true));
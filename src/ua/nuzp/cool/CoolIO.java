@@ -0,0 +1,44 @@
+package ua.nuzp.cool;
+
+// Вбудований клас IO для коду JvmBackend: введення/виведення через потоки CoolRuntime.
+// Статичні варіанти — для статичної диспетчеризації e@IO.m(), яка оминає перевизначення.
+public class CoolIO extends CoolObject {
+
+    public CoolIO out_string(String s) { return out_string$static(this, s); }
+
+    public CoolIO out_int(int i) { return out_int$static(this, i); }
+
+    public String in_string() { return in_string$static(this); }
+
+    public int in_int() { return in_int$static(this); }
+
+    public static CoolIO out_string$static(CoolIO self, String s) {
+        if (self == null) throw CoolRuntime.dispatchToVoid();
+        CoolRuntime.out().print(s);
+        return self;
+    }
+
+    public static CoolIO out_int$static(CoolIO self, int i) {
+        if (self == null) throw CoolRuntime.dispatchToVoid();
+        CoolRuntime.out().print(i);
+        return self;
+    }
+
+    public static String in_string$static(CoolIO self) {
+        if (self == null) throw CoolRuntime.dispatchToVoid();
+        String line = CoolRuntime.readLine();
+        return line != null ? line : "";
+    }
+
+    // Некоректне число або кінець введення — 0
+    public static int in_int$static(CoolIO self) {
+        if (self == null) throw CoolRuntime.dispatchToVoid();
+        String line = CoolRuntime.readLine();
+        if (line == null) return 0;
+        try {
+            return Integer.parseInt(line.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
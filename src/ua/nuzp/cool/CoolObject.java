@@ -0,0 +1,46 @@
+package ua.nuzp.cool;
+
+// Базовий клас об'єктів Cool у коді JvmBackend: класи програми без INHERITS успадковують його.
+// Int, Bool і String представлені int, Integer/Boolean (коли значення має статичний тип Object)
+// та java.lang.String, тож методи Object для довільного значення — статичні варіанти *$static;
+// їх же викликає статична диспетчеризація e@Object.m().
+public class CoolObject implements Cloneable {
+
+    public Object abort() {
+        return abort$static(this);
+    }
+
+    public String type_name() {
+        return type_name$static(this);
+    }
+
+    public Object copy() {
+        try {
+            return clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    // ===== Статичні варіанти для довільного значення =====
+
+    public static Object abort$static(Object self) {
+        throw new CoolRuntime.Abort(type_name$static(self));
+    }
+
+    public static String type_name$static(Object self) {
+        if (self == null) throw CoolRuntime.dispatchToVoid();
+        if (self instanceof Integer) return "Int";
+        if (self instanceof Boolean) return "Bool";
+        if (self instanceof String) return "String";
+        if (self.getClass() == CoolObject.class) return "Object";
+        if (self.getClass() == CoolIO.class) return "IO";
+        return self.getClass().getName();
+    }
+
+    public static Object copy$static(Object self) {
+        if (self == null) throw CoolRuntime.dispatchToVoid();
+        // Значення базових типів незмінні
+        return self instanceof CoolObject ? ((CoolObject) self).copy() : self;
+    }
+}
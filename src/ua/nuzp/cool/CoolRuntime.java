@@ -0,0 +1,169 @@
+package ua.nuzp.cool;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+// Середовище виконання програм, скомпільованих JvmBackend: завантаження класів, запуск
+// (new Main).main(), потоки введення/виведення IO та допоміжні операції згенерованого коду.
+// Помилки виконання Cool — RuntimeError; NullPointerException (виклик методу void),
+// ArithmeticException (ділення на нуль) та переповнення стеку перетворюються на них при запуску.
+// Рядок джерела береться зі стеку викликів (згенеровані методи мають LineNumberTable).
+// Потоки статичні: одночасно виконується одна програма.
+public final class CoolRuntime {
+
+    // Стек потоку програми: глибока рекурсія Cool не повинна впиратися в стек main
+    private static final long STACK_SIZE = 512L << 20;
+
+    private static PrintStream out = System.out;
+    private static BufferedReader in;
+
+    private CoolRuntime() { }
+
+    // ===== Помилки виконання =====
+
+    public static class RuntimeError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public RuntimeError(String message) { super(message); }
+    }
+
+    // abort(): завершення програми (не помилка компілятора чи середовища)
+    public static final class Abort extends RuntimeError {
+        private static final long serialVersionUID = 1L;
+
+        Abort(String className) { super("Abort called from class " + className); }
+    }
+
+    public static RuntimeError dispatchToVoid() {
+        return new RuntimeError("Dispatch to void");
+    }
+
+    public static RuntimeError caseOnVoid() {
+        return new RuntimeError("Case on void");
+    }
+
+    public static RuntimeError caseNoMatch(Object value) {
+        return new RuntimeError("No case branch matches class " + CoolObject.type_name$static(value));
+    }
+
+    // ===== Операції згенерованого коду =====
+
+    // = у Cool: для Int, Bool та String — порівняння значень, для об'єктів — посилань
+    public static boolean equal(Object a, Object b) {
+        if (a == b) return true;
+        if (a instanceof Integer || a instanceof Boolean || a instanceof String) return a.equals(b);
+        return false;
+    }
+
+    // new SELF_TYPE: новий об'єкт динамічного класу self
+    public static Object newSelf(Object self) {
+        if (self instanceof Integer) return 0;
+        if (self instanceof Boolean) return Boolean.FALSE;
+        if (self instanceof String) return "";
+        try {
+            return self.getClass().getDeclaredConstructor().newInstance();
+        } catch (InvocationTargetException e) {
+            throw rethrow(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static PrintStream out() { return out; }
+
+    static String readLine() {
+        try {
+            return in.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ===== Завантаження та запуск =====
+
+    // Класи програми мають пріоритет над класами компілятора з тими самими іменами
+    public static final class Loader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+
+        public Loader(Map<String, byte[]> classes) {
+            super(CoolRuntime.class.getClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> c = findLoadedClass(name);
+                if (c == null) {
+                    byte[] bytes = classes.get(name);
+                    c = bytes != null ? defineClass(name, bytes, 0, bytes.length) : super.loadClass(name, false);
+                }
+                if (resolve) resolveClass(c);
+                return c;
+            }
+        }
+    }
+
+    // Виконує (new Main).main(); false — помилка виконання (повідомлення — в err)
+    public static synchronized boolean run(Map<String, byte[]> classes, InputStream input,
+                                           PrintStream output, PrintStream err) {
+        Throwable[] failure = new Throwable[1];
+        out = output;
+        in = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        Thread thread = new Thread(null, () -> {
+            try {
+                Class<?> main = new Loader(classes).loadClass("Main");
+                Object instance = main.getDeclaredConstructor().newInstance();
+                main.getMethod("main").invoke(instance);
+            } catch (InvocationTargetException e) {
+                failure[0] = e.getCause();
+            } catch (ReflectiveOperationException e) {
+                failure[0] = e;
+            }
+        }, "cool-main", STACK_SIZE);
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure[0] = e;
+        } finally {
+            output.flush();
+            out = System.out;
+            in = null;
+        }
+        if (failure[0] == null) return true;
+        err.println(describe(failure[0], classes));
+        return false;
+    }
+
+    private static String describe(Throwable t, Map<String, byte[]> classes) {
+        String message;
+        if (t instanceof Abort) return t.getMessage();
+        if (t instanceof RuntimeError) message = t.getMessage();
+        else if (t instanceof NullPointerException) message = "Dispatch to void";
+        else if (t instanceof ArithmeticException) message = "Division by zero";
+        else if (t instanceof StackOverflowError) message = "Stack overflow";
+        else return "Runtime error: " + t;
+
+        for (StackTraceElement e : t.getStackTrace()) {
+            if (classes.containsKey(e.getClassName()) && e.getLineNumber() > 0) {
+                return "Runtime error at line " + e.getLineNumber() + ": " + message;
+            }
+        }
+        return "Runtime error: " + message;
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) return (RuntimeException) t;
+        if (t instanceof Error) throw (Error) t;
+        return new IllegalStateException(t);
+    }
+}
@@ -0,0 +1,21 @@
+package ua.nuzp.cool;
+
+// Методи String для коду JvmBackend: рядок Cool — java.lang.String, тож методи статичні.
+public final class CoolString {
+
+    private CoolString() { }
+
+    public static int length$static(String self) {
+        return self.length();
+    }
+
+    public static String concat$static(String self, String s) {
+        return self.concat(s);
+    }
+
+    public static String substr$static(String self, int i, int l) {
+        if (i < 0 || l < 0 || i > self.length() - l)
+            throw new CoolRuntime.RuntimeError("Substring out of range: substr(" + i + ", " + l + ") of length " + self.length());
+        return self.substring(i, i + l);
+    }
+}
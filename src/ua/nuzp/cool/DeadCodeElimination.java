@@ -0,0 +1,203 @@
+package ua.nuzp.cool;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+// Видалення мертвого коду.
+//
+// removeDead (над SSA): mark-sweep. Спочатку позначаються інструкції з побічними ефектами
+// (виклики, NEW, переходи, RET, запис атрибутів, ділення, що може впасти), далі — визначення
+// всіх операндів позначених інструкцій. Решта присвоєнь нікому не потрібна і видаляється.
+// На відміну від аналізу живучості, прибирає й мертві цикли (лічильник, що лише росте).
+//
+// simplifyControlFlow (над лінійним кодом, після виходу з SSA):
+//   - блоки, недосяжні з входу функції;
+//   - GOTO / IF_FALSE на мітку, що йде одразу після переходу (і умова, якщо вона стала мертвою);
+//   - мітки, на які більше ніхто не переходить.
+public class DeadCodeElimination {
+
+    // ===== Статистика =====
+
+    public int deadRemoved = 0;
+    public int unreachableRemoved = 0;
+    public int jumpsRemoved = 0;
+    public int labelsRemoved = 0;
+
+    // ===== Мертві присвоєння (SSA) =====
+
+    public void removeDead(Cfg cfg) {
+        List<Ir.Local> locals = cfg.function.locals();
+        Ir.Instr[] defs = new Ir.Instr[locals.size()];
+        boolean[] useful = new boolean[locals.size()]; // за Local.index визначення
+        List<Ir.Instr> worklist = new ArrayList<>();
+
+        for (Cfg.Block b : cfg.blocks) {
+            for (Ir.Instr instr : b.instrs) {
+                if (isRemovable(instr)) defs[instr.dst.index] = instr;
+                else worklist.add(instr);
+            }
+        }
+
+        while (!worklist.isEmpty()) {
+            Ir.Instr instr = worklist.remove(worklist.size() - 1);
+            if (instr.op == Ir.Opcode.FOLDED) continue;
+            markDef(instr.a, defs, useful, worklist);
+            markDef(instr.b, defs, useful, worklist);
+            if (instr.args != null) {
+                for (Ir.Operand arg : instr.args) markDef(arg, defs, useful, worklist);
+            }
+        }
+
+        for (Cfg.Block b : cfg.blocks) {
+            List<Ir.Instr> instrs = b.instrs;
+            int out = 0;
+            for (int i = 0; i < instrs.size(); i++) {
+                Ir.Instr instr = instrs.get(i);
+                if (isRemovable(instr) && !useful[instr.dst.index]) {
+                    if (instr.op != Ir.Opcode.PHI) deadRemoved++;
+                    continue;
+                }
+                instrs.set(out++, instr);
+            }
+            instrs.subList(out, instrs.size()).clear();
+        }
+    }
+
+    private static void markDef(Ir.Operand operand, Ir.Instr[] defs, boolean[] useful, List<Ir.Instr> worklist) {
+        if (!(operand instanceof Ir.Local)) return;
+        int index = ((Ir.Local) operand).index;
+        if (useful[index] || defs[index] == null) return;
+        useful[index] = true;
+        worklist.add(defs[index]);
+    }
+
+    // Присвоєння SSA-версії, яке можна видалити, якщо значення не читають
+    private static boolean isRemovable(Ir.Instr instr) {
+        return instr.dst != null && instr.dst.version > 0 && isPure(instr);
+    }
+
+    // Чисте присвоєння локальній змінній: без нього програма поводиться так само
+    static boolean isPure(Ir.Instr instr) {
+        if (!Ssa.isSsaLocal(instr.dst)) return false;
+        switch (instr.op) {
+            case MOVE:
+            case ADD:
+            case SUB:
+            case MUL:
+            case LT:
+            case LE:
+            case EQ:
+            case NOT:
+            case NEG:
+            case ISVOID:
+            case PHI:
+                return true;
+            case DIV: // ділення на нуль — помилка під час виконання
+                return instr.b instanceof Ir.IntConst && ((Ir.IntConst) instr.b).value != 0;
+            default: // CALL, NEW — побічні ефекти (ініціалізація атрибутів нового об'єкта);
+                     // LOAD — атрибут змінюють STORE і виклики, тож не переноситься і не видаляється
+                return false;
+        }
+    }
+
+    // ===== Керування (лінійний код) =====
+
+    public void simplifyControlFlow(Ir.Function function) {
+        if (function.code.isEmpty()) return;
+        removeUnreachable(function);
+
+        // Переходи на мітку, що стоїть одразу за ними; видалення одного може зробити
+        // зайвим попередній (порожня гілка if), тож до нерухомої точки
+        List<Ir.Instr> code = function.code;
+        int out;
+        boolean conditionRemoved = false;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            out = 0;
+            for (int i = 0; i < code.size(); i++) {
+                Ir.Instr instr = code.get(i);
+                if (instr.op.isJump() && jumpsToNext(code, i)) {
+                    jumpsRemoved++;
+                    conditionRemoved |= instr.op != Ir.Opcode.GOTO;
+                    changed = true;
+                    continue;
+                }
+                code.set(out++, instr);
+            }
+            code.subList(out, code.size()).clear();
+        }
+        // Умова видаленого умовного переходу могла стати непотрібною
+        if (conditionRemoved) removeDeadLinear(function);
+
+        // Мітки без переходів
+        Set<Ir.Label> targets = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Ir.Instr instr : code) {
+            if (instr.op.isJump()) targets.add(instr.label);
+        }
+        out = 0;
+        for (int i = 0; i < code.size(); i++) {
+            Ir.Instr instr = code.get(i);
+            if (instr.op == Ir.Opcode.LABEL && !targets.contains(instr.label)) {
+                labelsRemoved++;
+                continue;
+            }
+            code.set(out++, instr);
+        }
+        code.subList(out, code.size()).clear();
+    }
+
+    // Мертві присвоєння в лінійному коді: прохід назад від живих на виході блоку
+    private void removeDeadLinear(Ir.Function function) {
+        Cfg cfg = Cfg.build(function);
+        Liveness liveness = Liveness.analyze(cfg);
+        for (Cfg.Block b : cfg.blocks) {
+            BitSet live = liveness.liveOut(b);
+            List<Ir.Instr> instrs = b.instrs;
+            boolean removed = false;
+            for (int i = instrs.size() - 1; i >= 0; i--) {
+                Ir.Instr instr = instrs.get(i);
+                if (isPure(instr) && !live.get(instr.dst.index)) {
+                    instrs.set(i, null);
+                    deadRemoved++;
+                    removed = true;
+                    continue;
+                }
+                Liveness.transfer(instr, live);
+            }
+            if (removed) instrs.removeIf(instr -> instr == null);
+        }
+        cfg.toCode();
+    }
+
+    private void removeUnreachable(Ir.Function function) {
+        Cfg cfg = Cfg.build(function);
+        boolean[] reachable = new boolean[cfg.blocks.size()];
+        for (Cfg.Block b : cfg.reversePostOrder()) reachable[b.index] = true;
+
+        boolean changed = false;
+        for (Cfg.Block b : cfg.blocks) {
+            if (reachable[b.index] || b.instrs.isEmpty()) continue;
+            for (Ir.Instr instr : b.instrs) {
+                if (instr.op != Ir.Opcode.FOLDED) unreachableRemoved++;
+            }
+            b.instrs.clear();
+            changed = true;
+        }
+        if (changed) cfg.toCode();
+    }
+
+    // Мітка переходу — серед міток, що йдуть одразу після нього (примітки FOLDED не код)
+    private static boolean jumpsToNext(List<Ir.Instr> code, int i) {
+        for (int j = i + 1; j < code.size(); j++) {
+            Ir.Instr next = code.get(j);
+            if (next.op == Ir.Opcode.LABEL && next.label == code.get(i).label) return true;
+            if (next.op != Ir.Opcode.LABEL && next.op != Ir.Opcode.FOLDED) return false;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,133 @@
+package ua.nuzp.cool;
+
+import java.util.Locale;
+
+// Діагностика компілятора: серйозність, код, позиція та аргументи повідомлення.
+// Текст не формується під час аналізу — лише при показі (getMessage/toString/toJson),
+// тож тисячі помилок у згенерованому файлі коштують по одному об'єкту без рядків.
+// Аргументи — незмінні значення (String, Integer, Type).
+public final class Diagnostic {
+
+    public enum Severity { ERROR, WARNING }
+
+    // Фаза визначає текстовий формат, сумісний із попереднім виводом
+    public enum Phase { SYNTAX, SEMANTIC, DRIVER }
+
+    public enum Code {
+        // Лексер і парсер (текст повідомлення — від ANTLR)
+        LEXER_ERROR(Phase.SYNTAX, Severity.ERROR, "%s"),
+        SYNTAX_ERROR(Phase.SYNTAX, Severity.ERROR, "%s"),
+
+        // Таблиця класів
+        DUPLICATE_CLASS(Phase.SEMANTIC, Severity.ERROR, "Class %s is already defined."),
+        UNDEFINED_PARENT(Phase.SEMANTIC, Severity.ERROR, "Class %s inherits from undefined class %s."),
+        INVALID_PARENT(Phase.SEMANTIC, Severity.ERROR, "Class %s cannot inherit from %s."),
+        INHERITANCE_CYCLE(Phase.SEMANTIC, Severity.ERROR,
+                "Class %1$s, or an ancestor of %1$s, is involved in an inheritance cycle."),
+
+        // Члени класів
+        DUPLICATE_ATTRIBUTE(Phase.SEMANTIC, Severity.ERROR, "Attribute '%s' is already defined."),
+        DUPLICATE_METHOD(Phase.SEMANTIC, Severity.ERROR, "Method '%s' is already defined."),
+        INHERITED_ATTRIBUTE(Phase.SEMANTIC, Severity.ERROR, "Attribute '%s' is already defined in %s."),
+        OVERRIDE_MISMATCH(Phase.SEMANTIC, Severity.ERROR,
+                "Method '%1$s' overrides %2$s.%1$s with a different signature."),
+        UNDEFINED_TYPE(Phase.SEMANTIC, Severity.ERROR, "Undefined type: %s"),
+
+        // Вирази
+        RETURN_MISMATCH(Phase.SEMANTIC, Severity.ERROR, "Type mismatch. Method '%s' returns %s but is declared %s"),
+        IF_CONDITION(Phase.SEMANTIC, Severity.ERROR, "If condition must be Bool"),
+        LOOP_CONDITION(Phase.SEMANTIC, Severity.ERROR, "Loop condition must be Bool"),
+        UNDECLARED_ASSIGN(Phase.SEMANTIC, Severity.ERROR, "Assignment to undeclared variable: %s"),
+        UNDECLARED_IDENTIFIER(Phase.SEMANTIC, Severity.ERROR, "Undeclared identifier: %s"),
+        STATIC_DISPATCH(Phase.SEMANTIC, Severity.ERROR, "Static dispatch type %s is not an ancestor of %s"),
+        UNDEFINED_METHOD(Phase.SEMANTIC, Severity.ERROR, "Undefined method: %s"),
+        ARGUMENT_COUNT(Phase.SEMANTIC, Severity.ERROR, "Method '%s' expects %d argument(s) but got %d"),
+        ARGUMENT_TYPE(Phase.SEMANTIC, Severity.ERROR, "Type mismatch. Cannot pass %s as argument %d of '%s' (%s)"),
+        ARITHMETIC_TYPE(Phase.SEMANTIC, Severity.ERROR, "Arithmetic requires Int."),
+        INT_TOO_LARGE(Phase.SEMANTIC, Severity.ERROR, "Integer constant is too large."),
+        ASSIGN_TYPE(Phase.SEMANTIC, Severity.ERROR, "Type mismatch. Cannot assign %s to %s"),
+
+        // Попередження
+        UNUSED_PARAMETER(Phase.SEMANTIC, Severity.WARNING, "Unused parameter: '%s'"),
+        UNUSED_VARIABLE(Phase.SEMANTIC, Severity.WARNING, "Unused local variable: '%s'"),
+        DEAD_ELSE(Phase.SEMANTIC, Severity.WARNING, "'if true': Dead else branch."),
+        DEAD_THEN(Phase.SEMANTIC, Severity.WARNING, "'if false': Dead then branch."),
+        INFINITE_LOOP(Phase.SEMANTIC, Severity.WARNING, "Infinite loop detected."),
+
+        // Драйвер
+        READ_ERROR(Phase.DRIVER, Severity.ERROR, "Cannot read file: %s"),
+        WRITE_ERROR(Phase.DRIVER, Severity.ERROR, "Cannot write output: %s"),
+        RUN_INTERNAL_ERROR(Phase.DRIVER, Severity.ERROR, "Internal error while running: %s");
+
+        public final Phase phase;
+        public final Severity severity;
+        final String template;
+
+        Code(Phase phase, Severity severity, String template) {
+            this.phase = phase;
+            this.severity = severity;
+            this.template = template;
+        }
+    }
+
+    public final Code code;
+    public final int line;   // 0, якщо позиція невідома
+    public final int column;
+    private final Object[] args;
+
+    public Diagnostic(Code code, int line, int column, Object... args) {
+        this.code = code;
+        this.line = line;
+        this.column = column;
+        this.args = args;
+    }
+
+    public Severity getSeverity() { return code.severity; }
+    public boolean isError() { return code.severity == Severity.ERROR; }
+
+    // Текст повідомлення без позиції
+    public String getMessage() {
+        return String.format(Locale.ROOT, code.template, args);
+    }
+
+    // Формат консолі: "Error at 2:5 -> ...", "Error (Line 2): ...", "Warning (Line 2): ..."
+    @Override
+    public String toString() {
+        String kind = isError() ? "Error" : "Warning";
+        switch (code.phase) {
+            case SYNTAX: return kind + " at " + line + ":" + column + " -> " + getMessage();
+            case SEMANTIC: return kind + " (Line " + line + "): " + getMessage();
+            default: return getMessage();
+        }
+    }
+
+    // Один JSON-об'єкт (для машинного виводу драйвера)
+    public String toJson(String file) {
+        StringBuilder sb = new StringBuilder(128).append('{');
+        sb.append("\"file\":"); jsonString(sb, file);
+        sb.append(",\"severity\":\"").append(code.severity.name().toLowerCase(Locale.ROOT)).append('"');
+        sb.append(",\"code\":\"").append(code.name()).append('"');
+        sb.append(",\"line\":").append(line);
+        sb.append(",\"column\":").append(column);
+        sb.append(",\"message\":"); jsonString(sb, getMessage());
+        return sb.append('}').toString();
+    }
+
+    private static void jsonString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,140 @@
+package ua.nuzp.cool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Дерево домінаторів CFG та межі домінування.
+// Безпосередні домінатори — ітеративний алгоритм Cooper-Harvey-Kennedy над зворотним
+// post-order (на структурованому коді сходиться за 2 проходи).
+// dominates(a, b) — за сталий час через pre/post-нумерацію дерева, як Type.conformsTo.
+// Враховуються лише досяжні з входу блоки; для недосяжних idom == null.
+public class Dominators {
+
+    private final Cfg cfg;
+    private final List<Cfg.Block> rpo;
+    private final Cfg.Block[] idom;
+    private final List<List<Cfg.Block>> children;
+    private final int[] pre;
+    private final int[] post;
+    private List<List<Cfg.Block>> frontiers;
+
+    private Dominators(Cfg cfg) {
+        int n = cfg.blocks.size();
+        this.cfg = cfg;
+        this.rpo = cfg.reversePostOrder();
+        this.idom = new Cfg.Block[n];
+        this.children = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) children.add(new ArrayList<>(2));
+        this.pre = new int[n];
+        this.post = new int[n];
+    }
+
+    public static Dominators compute(Cfg cfg) {
+        Dominators d = new Dominators(cfg);
+        d.computeIdoms();
+        d.number();
+        return d;
+    }
+
+    // Досяжні блоки у зворотному post-order
+    public List<Cfg.Block> reversePostOrder() { return rpo; }
+
+    public boolean isReachable(Cfg.Block b) { return idom[b.index] != null; }
+
+    // Безпосередній домінатор; для входу — сам вхід
+    public Cfg.Block idom(Cfg.Block b) { return idom[b.index]; }
+
+    public List<Cfg.Block> children(Cfg.Block b) { return children.get(b.index); }
+
+    // a домінує b (кожен блок домінує сам себе)
+    public boolean dominates(Cfg.Block a, Cfg.Block b) {
+        if (!isReachable(a) || !isReachable(b)) return false;
+        return pre[a.index] <= pre[b.index] && post[b.index] <= post[a.index];
+    }
+
+    // ===== Побудова =====
+
+    private void computeIdoms() {
+        int[] order = new int[cfg.blocks.size()]; // номер у RPO
+        for (int i = 0; i < rpo.size(); i++) order[rpo.get(i).index] = i;
+
+        Cfg.Block entry = cfg.entry();
+        idom[entry.index] = entry;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 1; i < rpo.size(); i++) {
+                Cfg.Block b = rpo.get(i);
+                Cfg.Block newIdom = null;
+                for (Cfg.Block p : b.preds) {
+                    if (idom[p.index] == null) continue; // недосяжний або ще не оброблений
+                    newIdom = newIdom == null ? p : intersect(p, newIdom, order);
+                }
+                if (idom[b.index] != newIdom) {
+                    idom[b.index] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+
+        for (Cfg.Block b : rpo) {
+            if (b != entry) children.get(idom[b.index].index).add(b);
+        }
+    }
+
+    private Cfg.Block intersect(Cfg.Block a, Cfg.Block b, int[] order) {
+        while (a != b) {
+            while (order[a.index] > order[b.index]) a = idom[a.index];
+            while (order[b.index] > order[a.index]) b = idom[b.index];
+        }
+        return a;
+    }
+
+    // pre/post-нумерація дерева домінаторів (ітеративно: дерево може бути дуже глибоким)
+    private void number() {
+        int n = cfg.blocks.size();
+        Cfg.Block[] stack = new Cfg.Block[n];
+        int[] nextChild = new int[n];
+        int sp = 0;
+        int counter = 0;
+        stack[sp++] = cfg.entry();
+        pre[cfg.entry().index] = counter++;
+        while (sp > 0) {
+            Cfg.Block b = stack[sp - 1];
+            List<Cfg.Block> kids = children.get(b.index);
+            if (nextChild[b.index] < kids.size()) {
+                Cfg.Block c = kids.get(nextChild[b.index]++);
+                pre[c.index] = counter++;
+                stack[sp++] = c;
+            } else {
+                post[b.index] = counter++;
+                sp--;
+            }
+        }
+    }
+
+    // ===== Межі домінування =====
+
+    // DF(b): блоки, де домінування b закінчується (місця для phi-вузлів)
+    public List<Cfg.Block> frontier(Cfg.Block b) {
+        if (frontiers == null) computeFrontiers();
+        return frontiers.get(b.index);
+    }
+
+    private void computeFrontiers() {
+        int n = cfg.blocks.size();
+        frontiers = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) frontiers.add(new ArrayList<>(0));
+
+        for (Cfg.Block b : rpo) {
+            if (b.preds.size() < 2) continue;
+            for (Cfg.Block p : b.preds) {
+                if (!isReachable(p)) continue;
+                for (Cfg.Block runner = p; runner != idom[b.index]; runner = idom[runner.index]) {
+                    List<Cfg.Block> df = frontiers.get(runner.index);
+                    if (df.isEmpty() || df.get(df.size() - 1) != b) df.add(b);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package ua.nuzp.cool;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Купа Vm: об'єкти Cool лежать в одному великому масиві long[], а не в об'єктах JVM,
+// тож програма, що багато виділяє, не навантажує купу JVM — лише власні області.
+//
+// Значення-посилання в регістрах і атрибутах — long:
+//   0 — void; 1 .. 2^31 — адреса об'єкта (номер слова в mem);
+//   INT_TAG | значення, BOOL_TAG | 0/1 — упаковані Int і Bool без виділення пам'яті.
+// Об'єкт: заголовок (тег класу << 32 | розмір у словах разом із заголовком), далі атрибути
+// по слову на атрибут у порядку оголошення (предки першими) — int або посилання;
+// які слова — посилання, збирач дізнається з ClassInfo.refOffsets за тегом класу.
+// String: заголовок, довжина, символи по чотири в слові (решта останнього слова — нулі).
+//
+// Області mem:
+//   [1, permanentEnd)        — постійна: рядки-константи та імена класів (Program.image),
+//                              не збирається і не містить посилань;
+//   [permanentEnd, nurseryEnd) — молоде покоління: виділення — зсув вказівника top;
+//   [nurseryEnd, oldTop)     — старе покоління.
+// Мала збірка (Cheney): живі об'єкти молодого покоління копіюються в кінець старого
+// (підвищуються всі уцілілі), скопійовані, але ще не переглянуті об'єкти — між scan і oldTop.
+// Корені — регістри-посилання Vm і запам'ятовані старі об'єкти, в атрибут яких записано
+// посилання на молодий (бар'єр запису — remember()). Заголовок переміщеного об'єкта — ~нова адреса.
+// Місця для уцілілих у старому поколінні не вистачає — масив подовжується (удвічі).
+// Велика збірка — коли старе покоління перевищило oldLimit (удвічі більше за живі дані після
+// попередньої великої збірки, не менше OLD_LIMIT_WORDS): обидва покоління копіюються тим самим
+// алгоритмом у новий масив. Великі об'єкти (довгі рядки) виділяються одразу в старому поколінні.
+public final class Heap {
+
+    static final int NURSERY_WORDS = 1 << 16;
+    static final int INITIAL_OLD_WORDS = 1 << 16;
+    static final int OLD_LIMIT_WORDS = 1 << 18;
+    static final int PRETENURE_WORDS = NURSERY_WORDS / 8;
+    private static final int MAX_WORDS = Integer.MAX_VALUE - 8;
+
+    // ===== Значення =====
+
+    static final long VOID = 0;
+    static final long INT_TAG = 1L << 32;
+    static final long BOOL_TAG = 2L << 32;
+    static final long FALSE = BOOL_TAG;
+    static final long TRUE = BOOL_TAG | 1;
+
+    static long ofInt(int value) { return INT_TAG | (value & 0xFFFFFFFFL); }
+
+    static long ofBool(boolean value) { return value ? TRUE : FALSE; }
+
+    static boolean isObject(long value) { return value != VOID && value < INT_TAG; }
+
+    // ===== Заголовок =====
+
+    static final long REMEMBERED = 1L << 31; // старий об'єкт уже в запам'ятованій множині
+
+    static long header(int tag, int size) { return (long) tag << 32 | size; }
+
+    static int tagOf(long header) { return (int) (header >>> 32); }
+
+    static int sizeOf(long header) { return (int) header & Integer.MAX_VALUE; }
+
+    static int stringWords(int length) { return 2 + ((length + 3) >> 2); }
+
+    // ===== Постійна область =====
+
+    // Будується при трансляції байткоду: однакові рядки — один об'єкт; слово 0 — void
+    static final class Image {
+        private final int stringTag;
+        private final Map<String, Long> strings = new HashMap<>();
+        private long[] words = new long[64];
+        private int size = 1;
+
+        Image(int stringTag) { this.stringTag = stringTag; }
+
+        long string(String s) {
+            Long ref = strings.get(s);
+            if (ref != null) return ref;
+            int n = stringWords(s.length());
+            if (size + n > words.length) words = Arrays.copyOf(words, Math.max(words.length * 2, size + n));
+            writeString(words, size, stringTag, s);
+            strings.put(s, (long) size);
+            size += n;
+            return size - n;
+        }
+
+        long[] toArray() { return Arrays.copyOf(words, size); }
+    }
+
+    // ===== Стан =====
+
+    long[] mem;
+    final int permanentEnd;  // початок молодого покоління
+    final int nurseryEnd;    // початок старого покоління
+    private int top;
+    private int oldTop;
+    private final int stringTag;
+    private final int[][] refOffsets; // за тегом класу
+    private int[] remembered = new int[64];
+    private int rememberedCount = 0;
+    private long oldLimit = OLD_LIMIT_WORDS;
+
+    // ===== Статистика =====
+
+    public int minorCollections = 0;
+    public int majorCollections = 0;
+    public long promotedWords = 0;   // скопійовано з молодого покоління в старе
+    public long pretenuredWords = 0; // виділено одразу в старому поколінні
+    public long totalPauseNanos = 0;
+    public long maxPauseNanos = 0;
+    private long collectedNurseryWords = 0;
+
+    Heap(Bytecode.Program program) {
+        long[] image = program.image;
+        permanentEnd = image.length;
+        nurseryEnd = permanentEnd + NURSERY_WORDS;
+        mem = new long[nurseryEnd + INITIAL_OLD_WORDS];
+        System.arraycopy(image, 0, mem, 0, image.length);
+        top = permanentEnd;
+        oldTop = nurseryEnd;
+        stringTag = program.stringClass.tag;
+        refOffsets = new int[program.classes.length][];
+        for (Bytecode.ClassInfo c : program.classes) refOffsets[c.tag] = c.refOffsets;
+    }
+
+    // Усього виділено слів з початку виконання
+    public long allocatedWords() {
+        return collectedNurseryWords + (top - permanentEnd) + pretenuredWords;
+    }
+
+    // Зайнято слів старим поколінням
+    public long oldWords() {
+        return oldTop - nurseryEnd;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "GC: %d minor, %d major, pause total %.3f ms, max %.3f ms; "
+                        + "allocated %d words, promoted %d, pretenured %d, old generation %d of %d",
+                minorCollections, majorCollections, totalPauseNanos / 1e6, maxPauseNanos / 1e6,
+                allocatedWords(), promotedWords, pretenuredWords, oldWords(), mem.length - nurseryEnd);
+    }
+
+    // ===== Виділення =====
+
+    // Адреса size неініціалізованих слів; при нестачі місця — збірка з коренями roots[0, rootTop).
+    // Після виклику mem може бути іншим масивом, а адреси в roots — іншими
+    int allocate(int size, long[] roots, int rootTop) {
+        int a = top;
+        if (size <= nurseryEnd - a) {
+            top = a + size;
+            return a;
+        }
+        return allocateSlow(size, roots, rootTop);
+    }
+
+    private int allocateSlow(int size, long[] roots, int rootTop) {
+        if (size > PRETENURE_WORDS) {
+            if (oldTop - nurseryEnd + size > oldLimit) major(roots, rootTop, size);
+            else reserve(size);
+            int a = oldTop;
+            oldTop += size;
+            pretenuredWords += size;
+            return a;
+        }
+        if (oldTop - nurseryEnd > oldLimit) {
+            major(roots, rootTop, 0);
+        } else {
+            reserve(top - permanentEnd); // уцілілі можуть зайняти все молоде покоління
+            minor(roots, rootTop);
+        }
+        int a = top;
+        top += size;
+        return a;
+    }
+
+    // Щонайменше words вільних слів у старому поколінні
+    private void reserve(int words) {
+        if (words <= mem.length - oldTop) return;
+        long size = Math.max((long) oldTop + words, nurseryEnd + 2L * (mem.length - nurseryEnd));
+        if (size > MAX_WORDS) size = (long) oldTop + words;
+        if (size > MAX_WORDS) throw new Vm.RuntimeError("Out of memory");
+        mem = Arrays.copyOf(mem, (int) size);
+    }
+
+    // Копія об'єкта з регістра roots[slot] (не String)
+    int copy(int slot, long[] roots, int rootTop) {
+        int size = sizeOf(mem[(int) roots[slot]]);
+        int a = allocate(size, roots, rootTop);
+        int o = (int) roots[slot];
+        System.arraycopy(mem, o, mem, a, size);
+        mem[a] &= ~REMEMBERED;
+        // Копія у старому поколінні може посилатися на молоде
+        if (a >= nurseryEnd && refOffsets[tagOf(mem[a])].length > 0) remember(a);
+        return a;
+    }
+
+    // Бар'єр запису: у старий об'єкт o записано посилання на молодий
+    void remember(int o) {
+        if ((mem[o] & REMEMBERED) != 0) return;
+        mem[o] |= REMEMBERED;
+        if (rememberedCount == remembered.length) remembered = Arrays.copyOf(remembered, rememberedCount * 2);
+        remembered[rememberedCount++] = o;
+    }
+
+    // ===== Рядки =====
+
+    private static void writeString(long[] mem, int a, int stringTag, String s) {
+        int length = s.length();
+        int n = stringWords(length);
+        mem[a] = header(stringTag, n);
+        mem[a + 1] = length;
+        for (int w = 0; w < n - 2; w++) {
+            long word = 0;
+            for (int k = 0, i = w * 4; k < 4 && i < length; k++, i++) word |= (long) s.charAt(i) << (k * 16);
+            mem[a + 2 + w] = word;
+        }
+    }
+
+    long newString(String s, long[] roots, int rootTop) {
+        int a = allocate(stringWords(s.length()), roots, rootTop);
+        writeString(mem, a, stringTag, s);
+        return a;
+    }
+
+    int length(long s) {
+        return (int) mem[(int) s + 1];
+    }
+
+    private char charAt(int s, int i) {
+        return (char) (mem[s + 2 + (i >> 2)] >>> ((i & 3) << 4));
+    }
+
+    String string(long s) {
+        int a = (int) s;
+        char[] chars = new char[(int) mem[a + 1]];
+        for (int i = 0; i < chars.length; i++) chars[i] = charAt(a, i);
+        return new String(chars);
+    }
+
+    // Новий рядок length символів; символи записуються put(), слова спершу обнуляються
+    private int newChars(int length, long[] roots, int rootTop) {
+        int n = stringWords(length);
+        int a = allocate(n, roots, rootTop);
+        mem[a] = header(stringTag, n);
+        mem[a + 1] = length;
+        Arrays.fill(mem, a + 2, a + n, 0);
+        return a;
+    }
+
+    // Символи [from, from + count) рядка s — у рядок a з позиції at
+    private void put(int a, int at, int s, int from, int count) {
+        if ((at & 3) == 0 && (from & 3) == 0) {
+            // Вирівняні: цілими словами, останнє — з нулями за межею count
+            int words = (count + 3) >> 2;
+            System.arraycopy(mem, s + 2 + (from >> 2), mem, a + 2 + (at >> 2), words);
+            int tail = count & 3;
+            if (tail != 0) mem[a + 2 + (at >> 2) + words - 1] &= (1L << (tail * 16)) - 1;
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            int j = at + i;
+            mem[a + 2 + (j >> 2)] |= (long) charAt(s, from + i) << ((j & 3) << 4);
+        }
+    }
+
+    // Рядки з регістрів roots[left] і roots[right]
+    long concat(int left, int right, long[] roots, int rootTop) {
+        int l = length(roots[left]);
+        int r = length(roots[right]);
+        int a = newChars(l + r, roots, rootTop);
+        put(a, 0, (int) roots[left], 0, l);
+        put(a, l, (int) roots[right], 0, r);
+        return a;
+    }
+
+    // Межі вже перевірені
+    long substring(int slot, int from, int count, long[] roots, int rootTop) {
+        int a = newChars(count, roots, rootTop);
+        put(a, 0, (int) roots[slot], from, count);
+        return a;
+    }
+
+    // Рівність Cool: Int, Bool та String — за значенням, об'єкти — за адресою
+    boolean equal(long a, long b) {
+        if (a == b) return true;
+        if (!isObject(a) || !isObject(b)) return false;
+        int x = (int) a;
+        int y = (int) b;
+        long h = mem[x];
+        if (tagOf(h) != stringTag || mem[y] != h) return false;
+        int size = sizeOf(h);
+        return Arrays.equals(mem, x + 1, x + size, mem, y + 1, y + size);
+    }
+
+    // ===== Збирання =====
+
+    // Уцілілі об'єкти молодого покоління — в кінець старого; сірі — між scan і oldTop
+    private void minor(long[] roots, int rootTop) {
+        long start = System.nanoTime();
+        int scan = oldTop;
+        for (int i = 0; i < rootTop; i++) roots[i] = promote(roots[i]);
+        for (int i = 0; i < rememberedCount; i++) {
+            int o = remembered[i];
+            mem[o] &= ~REMEMBERED;
+            for (int k : refOffsets[tagOf(mem[o])]) mem[o + k] = promote(mem[o + k]);
+        }
+        rememberedCount = 0;
+        while (scan < oldTop) {
+            long h = mem[scan];
+            for (int k : refOffsets[tagOf(h)]) mem[scan + k] = promote(mem[scan + k]);
+            scan += sizeOf(h);
+        }
+        collectedNurseryWords += top - permanentEnd;
+        top = permanentEnd;
+        clearAbove(roots, rootTop);
+        minorCollections++;
+        pause(start);
+    }
+
+    private long promote(long value) {
+        if (value < permanentEnd || value >= nurseryEnd) return value; // void, постійний, старий, Int, Bool
+        int a = (int) value;
+        long h = mem[a];
+        if (h < 0) return ~h;
+        int size = sizeOf(h);
+        int to = oldTop;
+        System.arraycopy(mem, a, mem, to, size);
+        oldTop = to + size;
+        promotedWords += size;
+        mem[a] = ~(long) to;
+        return to;
+    }
+
+    // Обидва покоління — у новий масив; reserve слів старого покоління лишаються вільними
+    private void major(long[] roots, int rootTop, int reserve) {
+        long start = System.nanoTime();
+        long[] from = mem;
+        long used = (long) (oldTop - nurseryEnd) + (top - permanentEnd);
+        long capacity = Math.max(INITIAL_OLD_WORDS, used + reserve);
+        if (nurseryEnd + capacity > MAX_WORDS) throw new Vm.RuntimeError("Out of memory");
+        mem = new long[(int) (nurseryEnd + capacity)];
+        System.arraycopy(from, 0, mem, 0, permanentEnd);
+        oldTop = nurseryEnd;
+        for (int i = 0; i < rootTop; i++) roots[i] = evacuate(from, roots[i]);
+        int scan = nurseryEnd;
+        while (scan < oldTop) {
+            long h = mem[scan];
+            for (int k : refOffsets[tagOf(h)]) mem[scan + k] = evacuate(from, mem[scan + k]);
+            scan += sizeOf(h);
+        }
+        rememberedCount = 0;
+        collectedNurseryWords += top - permanentEnd;
+        top = permanentEnd;
+        clearAbove(roots, rootTop);
+        oldLimit = Math.max(OLD_LIMIT_WORDS, 2L * (oldTop - nurseryEnd));
+        majorCollections++;
+        pause(start);
+    }
+
+    private long evacuate(long[] from, long value) {
+        if (value < permanentEnd || value >= INT_TAG) return value; // void, постійний, Int, Bool
+        int a = (int) value;
+        long h = from[a];
+        if (h < 0) return ~h;
+        int size = sizeOf(h);
+        int to = oldTop;
+        System.arraycopy(from, a, mem, to, size);
+        mem[to] = h & ~REMEMBERED;
+        oldTop = to + size;
+        from[a] = ~(long) to;
+        return to;
+    }
+
+    // Регістри вище rootTop не оновлювалися: наступна збірка не повинна прийняти їх за адреси
+    private static void clearAbove(long[] roots, int rootTop) {
+        Arrays.fill(roots, rootTop, roots.length, VOID);
+    }
+
+    private void pause(long start) {
+        long pause = System.nanoTime() - start;
+        totalPauseNanos += pause;
+        maxPauseNanos = Math.max(maxPauseNanos, pause);
+    }
+}
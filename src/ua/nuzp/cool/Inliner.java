@@ -0,0 +1,312 @@
+package ua.nuzp.cool;
+
+import ua.nuzp.cool.Ir.Opcode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Міжпроцедурна оптимізація всієї програми — перед пофункційними проходами Optimizer.
+//
+// Девіртуалізація за ієрархією класів (CHA): програма Cool закрита, всі класи відомі, тож якщо
+// жоден нащадок статичного типу отримувача не перевизначає метод, у виклику одна можлива ціль —
+// CALL стає статичним (x@Owner.m). Для кожного імені методу зберігаються впорядковані номери
+// Type.pre класів, що його оголошують: перевизначення в нащадку — номер усередині (pre, post) типу.
+// Неявний виклик отримує явного отримувача self.
+//
+// Вбудовування: статичний виклик малого методу програми без власних викликів (гетер, сетер,
+// формула над атрибутами) замінюється копією тіла. Параметри — нові змінні, PARAM стає MOVE
+// аргументу на тому ж місці; тимчасові значення, змінні та мітки тіла — нові; RET — MOVE
+// результату і перехід у кінець. Тіла методів без викликів оптимізуються раніше за інші
+// функції (Optimizer), тож вбудовується вже оптимізований код. На self тіло працює
+// з атрибутами self напряму; на іншому об'єкті атрибути читаються і пишуться LOAD / STORE,
+// а CHECK перед тілом зберігає помилку "Dispatch to void". new SELF_TYPE вбудовується
+// лише на self.
+// Тіло — до MAX_CALLEE інструкцій, функція зростає не більше ніж на MAX_GROWTH.
+public class Inliner {
+
+    static final int MAX_CALLEE = 12;
+    static final int MAX_GROWTH = 256;
+
+    // ===== Статистика (останнього run) =====
+
+    public int devirtualized = 0;
+    public int inlined = 0;
+
+    private final ClassTable table;
+    private final Map<String, Ir.Function> methods = new HashMap<>(); // "Клас.метод" -> IR
+    private final Map<String, int[]> declaredIn = new HashMap<>(); // метод -> Type.pre класів, зростання
+    private int tempCounter = 0;
+    private int labelCounter = 0;
+
+    private Ir.Function function; // функція, у яку вбудовуються виклики
+    private Ir.Var self;
+
+    public Inliner(Ir.Program program, ClassTable table) {
+        this.table = table;
+        for (Ir.ClassUnit c : program.classes) {
+            number(c.init);
+            for (Ir.Function f : c.methods) {
+                methods.put(c.name + "." + f.name, f);
+                number(f);
+            }
+        }
+        Map<String, List<Integer>> pres = new HashMap<>();
+        for (Type t : table.getTypes()) {
+            for (String name : t.getMethods().keySet()) pres.computeIfAbsent(name, k -> new ArrayList<>()).add(t.pre);
+        }
+        for (Map.Entry<String, List<Integer>> e : pres.entrySet()) {
+            int[] sorted = e.getValue().stream().mapToInt(Integer::intValue).sorted().toArray();
+            declaredIn.put(e.getKey(), sorted);
+        }
+    }
+
+    // Нові Temp і мітки нумеруються після наявних: номери унікальні в програмі
+    private void number(Ir.Function f) {
+        for (Ir.Local l : f.locals()) {
+            if (l instanceof Ir.Temp) tempCounter = Math.max(tempCounter, ((Ir.Temp) l).number);
+        }
+        for (Ir.Instr instr : f.code) {
+            if (instr.label != null) labelCounter = Math.max(labelCounter, instr.label.number);
+        }
+    }
+
+    // Девіртуалізує виклики функції та вбудовує малі методи
+    public void run(Ir.Function f) {
+        devirtualized = 0;
+        inlined = 0;
+        function = f;
+        self = null;
+        int budget = MAX_GROWTH;
+        List<Ir.Instr> code = f.code;
+        List<Ir.Instr> out = null; // новий код — з першого вбудовування
+        int[] pending = new int[code.size()]; // позиції PARAM у новому коді: аргументи вкладених викликів — стеком
+        int depth = 0;
+        for (int i = 0; i < code.size(); i++) {
+            Ir.Instr instr = code.get(i);
+            if (instr.op == Opcode.PARAM) pending[depth++] = out != null ? out.size() : i;
+            if (instr.op != Opcode.CALL) {
+                if (out != null) out.add(instr);
+                continue;
+            }
+            Type.Method m = resolve(instr);
+            depth -= m.params.size();
+            Ir.Function callee = instr.direct ? methods.get(m.owner.name + "." + m.name) : null;
+            int size = callee != null ? inlineSize(callee, isSelf(instr.a)) : -1;
+            if (size < 0 || size > budget) {
+                if (out != null) out.add(instr);
+                continue;
+            }
+            if (out == null) out = new ArrayList<>(code.subList(0, i));
+            int before = out.size();
+            inline(instr, callee, out, pending, depth);
+            budget -= out.size() - before;
+            inlined++;
+        }
+        if (out != null) {
+            code.clear();
+            code.addAll(out);
+        }
+        function = null;
+    }
+
+    // ===== Девіртуалізація =====
+
+    // Метод, який викликає CALL; якщо ціль одна — виклик стає статичним
+    private Type.Method resolve(Ir.Instr call) {
+        Type t = table.lookup(call.a == null ? function.className : call.type);
+        Type.Method m = t.lookupMethod(call.name);
+        if (call.direct || !isSingleTarget(t, call.name)) return m;
+        if (call.a == null) call.a = self();
+        call.type = m.owner.name;
+        call.direct = true;
+        devirtualized++;
+        return m;
+    }
+
+    // Жоден нащадок t не оголошує власний метод name
+    private boolean isSingleTarget(Type t, String name) {
+        int[] pres = declaredIn.get(name);
+        int i = Arrays.binarySearch(pres, t.pre + 1);
+        if (i < 0) i = -i - 1;
+        return i == pres.length || pres[i] > t.post;
+    }
+
+    private Ir.Var self() {
+        if (self != null) return self;
+        for (Ir.Local l : function.locals()) {
+            if (l.version == 0 && isSelf(l)) return self = (Ir.Var) l;
+        }
+        return self = function.newVar("self");
+    }
+
+    private static boolean isSelf(Ir.Operand op) {
+        return op instanceof Ir.Var && !((Ir.Var) op).attribute && ((Ir.Var) op).name.equals("self");
+    }
+
+    private static boolean isAttribute(Ir.Operand op) {
+        return op instanceof Ir.Var && ((Ir.Var) op).attribute;
+    }
+
+    // ===== Вбудовування =====
+
+    // Розмір тіла без міток; -1 — не вбудовується (є виклики, завелике, new SELF_TYPE не на self)
+    private static int inlineSize(Ir.Function callee, boolean onSelf) {
+        int size = 0;
+        for (Ir.Instr instr : callee.code) {
+            switch (instr.op) {
+                case LABEL:
+                case FOLDED:
+                    break;
+                case PARAM:
+                case CALL:
+                    return -1;
+                case NEW:
+                    if (!onSelf && instr.name.equals("SELF_TYPE")) return -1;
+                    size++;
+                    break;
+                default:
+                    size++;
+            }
+        }
+        return size <= MAX_CALLEE ? size : -1;
+    }
+
+    // Тіло callee замість call; аргументи — PARAM на позиціях pending[first...]
+    private void inline(Ir.Instr call, Ir.Function callee, List<Ir.Instr> out, int[] pending, int first) {
+        Map<Ir.Local, Ir.Local> locals = new IdentityHashMap<>();
+        Map<Ir.Label, Ir.Label> labels = new IdentityHashMap<>();
+        for (int j = 0; j < callee.params.size(); j++) {
+            Ir.Var p = callee.params.get(j);
+            Ir.Var copy = function.newVar(p.name);
+            locals.put(p, copy);
+            out.set(pending[first + j], new Ir.Instr(Opcode.MOVE, copy, out.get(pending[first + j]).a, null));
+        }
+
+        Ir.Operand receiver = call.a;
+        boolean onSelf = isSelf(receiver);
+        if (!onSelf) {
+            // Атрибут-отримувач читається один раз: тіло може змінити атрибут через STORE
+            if (isAttribute(receiver)) {
+                Ir.Temp copy = newTemp();
+                out.add(new Ir.Instr(Opcode.MOVE, copy, receiver, null));
+                receiver = copy;
+            }
+            out.add(new Ir.Instr(Opcode.CHECK, null, receiver, null));
+        }
+
+        Inlined body = new Inlined(callee.className, receiver, onSelf, locals, out);
+        Ir.Label end = null;
+        int last = callee.code.size() - 1;
+        while (last > 0 && callee.code.get(last).op == Opcode.FOLDED) last--;
+        for (int i = 0; i <= last; i++) {
+            Ir.Instr instr = callee.code.get(i);
+            if (instr.op == Opcode.FOLDED) continue;
+            if (instr.op == Opcode.RET) {
+                Ir.Operand value = instr.a != null ? body.read(instr.a) : Ir.VoidConst.INSTANCE;
+                out.add(new Ir.Instr(Opcode.MOVE, call.dst, value, null));
+                if (i == last) continue;
+                if (end == null) end = newLabel();
+                Ir.Instr jump = new Ir.Instr(Opcode.GOTO, null, null, null);
+                jump.label = end;
+                out.add(jump);
+                continue;
+            }
+            Ir.Instr copy = new Ir.Instr(instr.op, null, body.read(instr.a), body.read(instr.b));
+            if (instr.label != null) copy.label = labels.computeIfAbsent(instr.label, l -> newLabel());
+            if (instr.op.isCompareJump()) {
+                // Тіло вже оптимізоване: злите порівняння з переходом розділяється назад,
+                // проходи до Peephole функції-отримувача працюють з IF_FALSE
+                Ir.Temp cond = newTemp();
+                copy.op = Opcode.IF_FALSE;
+                out.add(new Ir.Instr(instr.op == Opcode.IF_GE ? Opcode.LT : instr.op == Opcode.IF_GT ? Opcode.LE : Opcode.EQ,
+                        cond, copy.a, copy.b));
+                copy.a = cond;
+                copy.b = null;
+            }
+            copy.name = instr.name;
+            copy.type = instr.type;
+            copy.direct = instr.direct;
+            copy.types = instr.types;
+            body.write(copy, instr.dst);
+        }
+        if (end != null) {
+            Ir.Instr label = new Ir.Instr(Opcode.LABEL, null, null, null);
+            label.label = end;
+            out.add(label);
+        }
+    }
+
+    // Перенесення операндів тіла у функцію-отримувача
+    private final class Inlined {
+        final String className;
+        final Ir.Operand receiver;
+        final boolean onSelf;
+        final Map<Ir.Local, Ir.Local> locals;
+        final List<Ir.Instr> out;
+
+        Inlined(String className, Ir.Operand receiver, boolean onSelf,
+                Map<Ir.Local, Ir.Local> locals, List<Ir.Instr> out) {
+            this.className = className;
+            this.receiver = receiver;
+            this.onSelf = onSelf;
+            this.locals = locals;
+            this.out = out;
+        }
+
+        // Атрибут не на self читається LOAD перед інструкцією
+        Ir.Operand read(Ir.Operand op) {
+            if (!(op instanceof Ir.Local)) return op;
+            if (isAttribute(op)) {
+                String name = ((Ir.Var) op).name;
+                if (onSelf) return function.attribute(name);
+                Ir.Temp t = newTemp();
+                out.add(load(t, name));
+                return t;
+            }
+            if (isSelf(op)) return onSelf ? self() : receiver;
+            return local((Ir.Local) op);
+        }
+
+        // Додає copy з результатом у відповідник dst; атрибут не на self — через STORE
+        void write(Ir.Instr copy, Ir.Local dst) {
+            out.add(copy);
+            if (dst == null) return;
+            if (!isAttribute(dst)) {
+                copy.dst = local(dst);
+            } else if (onSelf) {
+                copy.dst = function.attribute(((Ir.Var) dst).name);
+            } else {
+                Ir.Temp t = newTemp();
+                copy.dst = t;
+                Ir.Instr store = new Ir.Instr(Opcode.STORE, null, receiver, t);
+                store.name = ((Ir.Var) dst).name;
+                store.type = className;
+                out.add(store);
+            }
+        }
+
+        private Ir.Instr load(Ir.Temp t, String name) {
+            Ir.Instr load = new Ir.Instr(Opcode.LOAD, t, receiver, null);
+            load.name = name;
+            load.type = className;
+            return load;
+        }
+
+        private Ir.Local local(Ir.Local l) {
+            return locals.computeIfAbsent(l,
+                    k -> k instanceof Ir.Temp ? newTemp() : function.newVar(((Ir.Var) k).name));
+        }
+    }
+
+    private Ir.Temp newTemp() {
+        return function.newTemp(++tempCounter);
+    }
+
+    private Ir.Label newLabel() {
+        return new Ir.Label(++labelCounter);
+    }
+}
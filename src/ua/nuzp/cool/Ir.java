@@ -0,0 +1,350 @@
+package ua.nuzp.cool;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Проміжне представлення (IR): триадресні інструкції над типізованими операндами.
+// Будується CodeGenerator з AST; оптимізаційні проходи працюють з інструкціями напряму,
+// без розбору тексту. Текст (toString / Program.toText) формується лише на запит.
+//
+// Операнди:
+//   Temp  — тимчасове значення (t1, t2, ...), Var — іменована змінна (параметр, let, атрибут);
+//           обидва — Local зі щільним номером index у межах функції (для бітсетів/масивів);
+//           у формі SSA кожне присвоєння створює версію (origin — вихідна змінна, t3.2, x.1);
+//   IntConst / BoolConst / StringConst / VoidConst — типізовані константи (#5, #1, "a", void).
+// Label — об'єкт мітки; переходи посилаються на нього, а не на рядок.
+public final class Ir {
+
+    private Ir() { }
+
+    // ===== Операнди =====
+
+    public abstract static class Operand { }
+
+    public abstract static class Local extends Operand {
+        public final int index;    // щільний номер у межах функції
+        public final Local origin; // вихідна змінна (для не-SSA змінних — вона сама)
+        public final int version;  // 0 — вихідна змінна
+        int lastVersion = 0;       // лічильник версій SSA (лише у вихідної змінної)
+
+        Local(int index, Local origin, int version) {
+            this.index = index;
+            this.origin = origin != null ? origin : this;
+            this.version = version;
+        }
+
+        String suffix() { return version == 0 ? "" : "." + version; }
+    }
+
+    public static final class Temp extends Local {
+        public final int number; // номер у тексті: t<number>, унікальний у програмі
+
+        Temp(int index, int number, Temp origin, int version) {
+            super(index, origin, version);
+            this.number = number;
+        }
+
+        @Override public String toString() { return "t" + number + suffix(); }
+    }
+
+    public static final class Var extends Local {
+        public final String name;
+        // Атрибут об'єкта: може змінитися будь-яким викликом, тож не є локальною змінною
+        // для SSA та поширення констант
+        public final boolean attribute;
+
+        Var(int index, String name, boolean attribute, Var origin, int version) {
+            super(index, origin, version);
+            this.name = name;
+            this.attribute = attribute;
+        }
+
+        @Override public String toString() { return name + suffix(); }
+    }
+
+    public abstract static class Const extends Operand {
+        // Integer, Boolean, String або null (void)
+        public abstract Object value();
+    }
+
+    public static final class IntConst extends Const {
+        private static final IntConst[] CACHE = new IntConst[1024 + 128];
+
+        public final int value;
+
+        private IntConst(int value) { this.value = value; }
+
+        // Малі константи не створюються повторно
+        public static IntConst of(int value) {
+            if (value < -128 || value >= 1024) return new IntConst(value);
+            IntConst c = CACHE[value + 128];
+            if (c == null) CACHE[value + 128] = c = new IntConst(value);
+            return c;
+        }
+
+        @Override public Object value() { return value; }
+        @Override public String toString() { return "#" + value; }
+    }
+
+    public static final class BoolConst extends Const {
+        public static final BoolConst TRUE = new BoolConst(true);
+        public static final BoolConst FALSE = new BoolConst(false);
+
+        public final boolean value;
+
+        private BoolConst(boolean value) { this.value = value; }
+
+        public static BoolConst of(boolean value) { return value ? TRUE : FALSE; }
+
+        @Override public Object value() { return value; }
+        @Override public String toString() { return value ? "#1" : "#0"; }
+    }
+
+    public static final class StringConst extends Const {
+        public final String value;
+
+        public StringConst(String value) { this.value = value; }
+
+        @Override public Object value() { return value; }
+        @Override public String toString() { return Ast.quote(value); }
+    }
+
+    public static final class VoidConst extends Const {
+        public static final VoidConst INSTANCE = new VoidConst();
+
+        private VoidConst() { }
+
+        @Override public Object value() { return null; }
+        @Override public String toString() { return "void"; }
+    }
+
+    public static final class Label {
+        public final int number;
+
+        Label(int number) { this.number = number; }
+
+        @Override public String toString() { return "L" + number; }
+    }
+
+    // ===== Інструкції =====
+
+    public enum Opcode {
+        MOVE,                           // dst <- a
+        ADD, SUB, MUL, DIV,             // dst <- a op b
+        LT, LE, EQ,                     // dst <- a op b (Bool)
+        NOT, NEG, ISVOID,               // dst <- op a
+        NEW,                            // dst <- new name
+        CASE,                           // dst <- номер гілки types, найближчої до динамічного класу a
+        LOAD, STORE,                    // dst <- a.name / a.name <- b: атрибут іншого об'єкта (Inliner)
+        CHECK,                          // помилка "Dispatch to void", якщо a — void (Inliner)
+        PARAM,                          // аргумент наступного CALL
+        CALL,                           // dst <- a.name(PARAM...); a == null — виклик методу self
+        LABEL, GOTO,                    // label
+        IF_FALSE,                       // if !a goto label
+        IF_GE, IF_GT, IF_NE,            // if a >= b / a > b / a != b goto label (Peephole: порівняння + IF_FALSE)
+        RET,                            // return a (a == null — без значення)
+        PHI,                            // dst <- phi(args) — лише у формі SSA, args за Block.preds
+        FOLDED;                         // примітка: a name b згорнуто в константу (без семантики)
+
+        public boolean isBinary() { return compareTo(ADD) >= 0 && compareTo(EQ) <= 0; }
+        public boolean isUnary() { return this == NOT || this == NEG || this == ISVOID; }
+        public boolean isJump() { return this == GOTO || this == IF_FALSE || isCompareJump(); }
+        public boolean isCompareJump() { return this == IF_GE || this == IF_GT || this == IF_NE; }
+    }
+
+    // Поля змінні: проходи оптимізації переписують інструкції на місці
+    public static final class Instr {
+        public Opcode op;
+        public Local dst;
+        public Operand a;
+        public Operand b;
+        public Label label;
+        public String name; // CALL — метод, NEW — тип, LOAD / STORE — атрибут, FOLDED — символ операції
+        public String type; // CALL з отримувачем: клас, у якому шукається метод (статичний тип a або T);
+                            // LOAD, STORE — клас, атрибут якого читається / записується
+        public boolean direct; // CALL: a@T.name — статичний виклик, без динамічної диспетчеризації
+        public Operand[] args; // PHI — по одному операнду на попередника блоку
+        public String[] types; // CASE — типи гілок у порядку оголошення
+
+        public Instr(Opcode op, Local dst, Operand a, Operand b) {
+            this.op = op;
+            this.dst = dst;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(32);
+            print(sb);
+            return sb.toString();
+        }
+
+        void print(StringBuilder sb) {
+            switch (op) {
+                case MOVE:
+                case NOT:
+                case NEG:
+                case ISVOID:
+                    sb.append(op).append(' ').append(dst).append(", ").append(a);
+                    break;
+                case NEW:
+                    sb.append(op).append(' ').append(dst).append(", ").append(name);
+                    break;
+                case CALL:
+                    sb.append(op).append(' ').append(dst).append(", ");
+                    if (a != null) sb.append(a).append(direct ? "@" + type : "").append('.');
+                    sb.append(name);
+                    break;
+                case LOAD:
+                    sb.append("LOAD ").append(dst).append(", ").append(a).append('.').append(name);
+                    break;
+                case STORE:
+                    sb.append("STORE ").append(a).append('.').append(name).append(", ").append(b);
+                    break;
+                case PARAM:
+                case CHECK:
+                    sb.append(op).append(' ').append(a);
+                    break;
+                case LABEL:
+                    sb.append(label).append(':');
+                    break;
+                case GOTO:
+                    sb.append("GOTO ").append(label);
+                    break;
+                case IF_FALSE:
+                    sb.append("IF_FALSE ").append(a).append(" GOTO ").append(label);
+                    break;
+                case IF_GE:
+                case IF_GT:
+                case IF_NE:
+                    sb.append(op).append(' ').append(a).append(", ").append(b).append(" GOTO ").append(label);
+                    break;
+                case RET:
+                    sb.append("RET");
+                    if (a != null) sb.append(' ').append(a);
+                    break;
+                case PHI:
+                    sb.append("PHI ").append(dst);
+                    for (Operand arg : args) sb.append(", ").append(arg);
+                    break;
+                case CASE:
+                    sb.append("CASE ").append(dst).append(", ").append(a);
+                    for (String type : types) sb.append(", ").append(type);
+                    break;
+                case FOLDED:
+                    sb.append("; OPTIMIZATION: Folded constant ").append(a).append(name).append(b);
+                    break;
+                default: // бінарні
+                    sb.append(op).append(' ').append(dst).append(", ").append(a).append(", ").append(b);
+            }
+        }
+    }
+
+    // ===== Функції, класи, програма =====
+
+    public static final class Function {
+        public final String className;
+        public final String name; // null — код ініціалізації атрибутів класу
+        public final List<Var> params = new ArrayList<>();
+        public final List<Instr> code = new ArrayList<>();
+        private final List<Local> locals = new ArrayList<>();
+        private final Map<String, Var> attributes = new HashMap<>();
+
+        public Function(String className, String name) {
+            this.className = className;
+            this.name = name;
+        }
+
+        // Усі Temp і Var функції; locals().get(i).index == i
+        public List<Local> locals() { return locals; }
+
+        public Temp newTemp(int number) {
+            Temp t = new Temp(locals.size(), number, null, 0);
+            locals.add(t);
+            return t;
+        }
+
+        // Нова локальна змінна (параметр, let); однакові імена у різних областях — різні Var
+        public Var newVar(String name) {
+            Var v = new Var(locals.size(), name, false, null, 0);
+            locals.add(v);
+            return v;
+        }
+
+        // Атрибут поточного класу (один Var на ім'я в межах функції)
+        public Var attribute(String name) {
+            Var v = attributes.get(name);
+            if (v == null) {
+                v = new Var(locals.size(), name, true, null, 0);
+                locals.add(v);
+                attributes.put(name, v);
+            }
+            return v;
+        }
+
+        // Нова SSA-версія вихідної змінної
+        public Local newVersion(Local origin) {
+            int version = ++origin.lastVersion;
+            Local v = origin instanceof Temp
+                    ? new Temp(locals.size(), ((Temp) origin).number, (Temp) origin, version)
+                    : new Var(locals.size(), ((Var) origin).name, false, (Var) origin, version);
+            locals.add(v);
+            return v;
+        }
+
+        // Видаляє SSA-версії (після виходу з SSA на них ніщо не посилається)
+        public void dropVersions() {
+            int size = locals.size();
+            while (size > 0 && locals.get(size - 1).version > 0) size--;
+            locals.subList(size, locals.size()).clear();
+            for (Local l : locals) l.lastVersion = 0;
+        }
+
+        public Instr emit(Opcode op, Local dst, Operand a, Operand b) {
+            Instr instr = new Instr(op, dst, a, b);
+            code.add(instr);
+            return instr;
+        }
+
+        void print(StringBuilder sb) {
+            if (name != null) sb.append("\nFUNC ").append(name).append(":\n");
+            for (Instr instr : code) {
+                instr.print(sb);
+                sb.append('\n');
+            }
+        }
+    }
+
+    public static final class ClassUnit {
+        public final String name;
+        public final Function init;
+        public final List<Function> methods = new ArrayList<>();
+
+        public ClassUnit(String name) {
+            this.name = name;
+            this.init = new Function(name, null);
+        }
+    }
+
+    public static final class Program {
+        public final List<ClassUnit> classes = new ArrayList<>();
+
+        public String toText() {
+            StringBuilder sb = new StringBuilder(4096);
+            sb.append("; --- START OF CODE GENERATION ---\n");
+            sb.append("; Target: 3-Address Code (Intermediate Representation)\n\n");
+            for (ClassUnit c : classes) {
+                sb.append("\n; CLASS: ").append(c.name).append('\n');
+                c.init.print(sb);
+                for (Function f : c.methods) f.print(sb);
+            }
+            sb.append("\n; --- END OF PROGRAM ---\n");
+            return sb.toString();
+        }
+
+        @Override public String toString() { return toText(); }
+    }
+}
@@ -0,0 +1,599 @@
+package ua.nuzp.cool;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static ua.nuzp.cool.ClassFileWriter.*;
+
+// Генерація байткоду JVM з AST: кожен клас Cool — клас JVM (INHERITS — суперклас),
+// методи — віртуальні методи з тими самими іменами, атрибути — поля, ініціалізатори — конструктор.
+// Результат завантажується CoolRuntime.Loader і виконується HotSpot (з JIT-компіляцією).
+// Генератор працює з AST, а не з IR: триадресний код не містить отримувача виклику,
+// статичної диспетчеризації та case. Статичні типи виразів бере з Ast.Expr.checkedType.
+//
+// Представлення значень за статичним типом:
+//   Int, Bool — int (у дескрипторах I та Z); там, де очікується Object, — Integer/Boolean;
+//   String — java.lang.String; Object — java.lang.Object (CoolObject, Integer, Boolean або String);
+//   IO та класи програми — CoolIO та однойменні класи JVM у пакеті без імені.
+// Методи базових класів для отримувача типу Object/Int/Bool/String та статична диспетчеризація
+// e@T.m() — виклик статичного варіанта m$static(self, ...): для Object/IO/String він у CoolObject,
+// CoolIO, CoolString, для класів програми генерується лише для методів, що так викликаються.
+// void — null: виклик методу void дає NullPointerException, яку CoolRuntime повідомляє
+// як помилку Cool з рядком джерела (методи мають LineNumberTable).
+// Ініціалізація атрибутів — у конструкторі після конструктора предка, тож ініціалізатор предка,
+// що через перевизначений метод читає ще не ініціалізований String-атрибут нащадка, бачить null.
+public class JvmBackend implements Ast.Visitor<Type> {
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String STRING = "java/lang/String";
+    private static final String INTEGER = "java/lang/Integer";
+    private static final String BOOLEAN = "java/lang/Boolean";
+    private static final String COOL_OBJECT = "ua/nuzp/cool/CoolObject";
+    private static final String COOL_IO = "ua/nuzp/cool/CoolIO";
+    private static final String COOL_STRING = "ua/nuzp/cool/CoolString";
+    private static final String RUNTIME = "ua/nuzp/cool/CoolRuntime";
+    private static final String RUNTIME_ERROR = "()Lua/nuzp/cool/CoolRuntime$RuntimeError;";
+
+    private final ClassTable classes;
+    private final String sourceFile;
+    private final Map<Type, Ast.ClassDecl> decls = new LinkedHashMap<>();
+    private final Map<Type, ClassFileWriter> writers = new LinkedHashMap<>();
+
+    // Методи програми, для яких потрібен статичний варіант (статична диспетчеризація)
+    private final Set<Type.Method> staticVariants = new HashSet<>();
+    private final List<Type.Method> pendingStatic = new ArrayList<>();
+
+    private final Map<Type, String> descriptors = new IdentityHashMap<>();
+    private final Map<Type.Method, String> methodDescriptors = new IdentityHashMap<>();
+    private final Map<Type.Method, String> staticDescriptors = new IdentityHashMap<>();
+
+    // ===== Стан поточного методу =====
+
+    private static final class Local {
+        final String name;
+        final Type type;
+        final int slot;
+
+        Local(String name, Type type, int slot) {
+            this.name = name;
+            this.type = type;
+            this.slot = slot;
+        }
+    }
+
+    private Type currentClass;
+    private ClassFileWriter.Code code;
+    private final List<Local> scope = new ArrayList<>(); // параметри, let та гілки case
+    private int nextSlot;
+
+    private JvmBackend(ClassTable classes, String sourceName) {
+        this.classes = classes;
+        this.sourceFile = sourceName.substring(Math.max(sourceName.lastIndexOf('/'), sourceName.lastIndexOf('\\')) + 1);
+    }
+
+    // Класи програми без помилок (після SemanticAnalyzer): ім'я класу -> вміст class-файлу
+    public static Map<String, byte[]> compile(Ast.Program program, ClassTable classes, String sourceName) {
+        JvmBackend backend = new JvmBackend(classes, sourceName);
+        for (Ast.ClassDecl c : program.classes) backend.decls.putIfAbsent(classes.lookup(c.name), c);
+        for (Map.Entry<Type, Ast.ClassDecl> e : backend.decls.entrySet()) backend.compileClass(e.getValue(), e.getKey());
+
+        // Статичні варіанти можуть вимагати інших статичних варіантів
+        while (!backend.pendingStatic.isEmpty()) {
+            Type.Method m = backend.pendingStatic.remove(backend.pendingStatic.size() - 1);
+            for (Ast.Feature f : backend.decls.get(m.owner).features) {
+                if (f instanceof Ast.Method && f.name.equals(m.name)) {
+                    backend.compileMethod(backend.writers.get(m.owner), m.owner, (Ast.Method) f, true);
+                }
+            }
+        }
+
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        for (ClassFileWriter w : backend.writers.values()) result.put(w.getName(), w.toByteArray());
+        return result;
+    }
+
+    // ===== Класи та методи =====
+
+    private void compileClass(Ast.ClassDecl c, Type type) {
+        ClassFileWriter w = new ClassFileWriter(type.name, superName(type.getParent()));
+        w.setSourceFile(sourceFile);
+        writers.put(type, w);
+        for (Type.Attribute a : type.getAttributes().values()) w.addField(ACC_PUBLIC, a.name, descriptor(a.type));
+
+        // Конструктор: предок, значення за замовчуванням String, ініціалізатори в порядку оголошення
+        begin(w.addMethod(ACC_PUBLIC, "<init>", "()V"), type);
+        code.line(c.line);
+        code.local(ALOAD, 0);
+        code.invoke(INVOKESPECIAL, superName(type.getParent()), "<init>", "()V");
+        for (Type.Attribute a : type.getAttributes().values()) {
+            if (a.type != classes.stringType) continue;
+            code.local(ALOAD, 0);
+            code.sconst("");
+            code.field(PUTFIELD, type.name, a.name, descriptor(a.type));
+        }
+        for (Ast.Feature f : c.features) {
+            if (!(f instanceof Ast.Attribute) || ((Ast.Attribute) f).init == null) continue;
+            Type.Attribute a = type.getAttributes().get(f.name);
+            code.line(f.line);
+            code.local(ALOAD, 0);
+            coerce(visit(((Ast.Attribute) f).init), a.type);
+            code.field(PUTFIELD, type.name, a.name, descriptor(a.type));
+        }
+        code.op(RETURN);
+
+        for (Ast.Feature f : c.features) {
+            if (f instanceof Ast.Method) compileMethod(w, type, (Ast.Method) f, false);
+        }
+    }
+
+    // Віртуальний метод або його статичний варіант m$static(self, ...) з тим самим тілом
+    private void compileMethod(ClassFileWriter w, Type type, Ast.Method m, boolean isStatic) {
+        Type.Method method = type.getMethods().get(m.name);
+        String name = isStatic ? m.name + "$static" : m.name;
+        begin(w.addMethod(ACC_PUBLIC | (isStatic ? ACC_STATIC : 0), name, methodDescriptor(method, isStatic)), type);
+        for (int i = 0; i < m.formals.size(); i++) declare(m.formals.get(i).name, method.params.get(i));
+        code.line(m.line);
+        coerce(visit(m.body), returnType(method));
+        code.op(isPrimitive(method.returnType) ? IRETURN : ARETURN);
+    }
+
+    private void begin(ClassFileWriter.Code code, Type type) {
+        this.code = code;
+        this.currentClass = type;
+        scope.clear();
+        nextSlot = 1; // слот 0 — self
+    }
+
+    @Override
+    public Type visitProgram(Ast.Program n) {
+        throw new UnsupportedOperationException("JvmBackend compiles classes through compile()");
+    }
+
+    @Override
+    public Type visitClassDecl(Ast.ClassDecl n) {
+        throw new UnsupportedOperationException("JvmBackend compiles classes through compile()");
+    }
+
+    @Override
+    public Type visitAttribute(Ast.Attribute n) {
+        throw new UnsupportedOperationException("Attributes are compiled into the constructor");
+    }
+
+    @Override
+    public Type visitMethod(Ast.Method n) {
+        throw new UnsupportedOperationException("Methods are compiled through compileMethod()");
+    }
+
+    // ===== Вирази =====
+
+    // Генерує обчислення виразу; результат — статичний тип значення, залишеного на стеку
+    private Type visit(Ast.Expr e) {
+        return e.accept(this);
+    }
+
+    @Override
+    public Type visitIntConst(Ast.IntConst n) {
+        code.iconst(n.value);
+        return classes.intType;
+    }
+
+    @Override
+    public Type visitBoolConst(Ast.BoolConst n) {
+        code.iconst(n.value ? 1 : 0);
+        return classes.boolType;
+    }
+
+    @Override
+    public Type visitStringConst(Ast.StringConst n) {
+        code.sconst(n.value);
+        return classes.stringType;
+    }
+
+    @Override
+    public Type visitId(Ast.Id n) {
+        if (n.name.equals("self")) {
+            code.local(ALOAD, 0);
+            return currentClass;
+        }
+        Local l = resolve(n.name);
+        if (l != null) {
+            code.local(isPrimitive(l.type) ? ILOAD : ALOAD, l.slot);
+            return l.type;
+        }
+        Type.Attribute a = currentClass.lookupAttribute(n.name);
+        code.local(ALOAD, 0);
+        code.field(GETFIELD, a.owner.name, a.name, descriptor(a.type));
+        return a.type;
+    }
+
+    // Результат присвоєння — саме значення (без перетворення до типу змінної)
+    @Override
+    public Type visitAssign(Ast.Assign n) {
+        Type value = visit(n.value);
+        code.op(DUP);
+        Local l = resolve(n.name);
+        if (l != null) {
+            coerce(value, l.type);
+            code.local(isPrimitive(l.type) ? ISTORE : ASTORE, l.slot);
+        } else {
+            Type.Attribute a = currentClass.lookupAttribute(n.name);
+            coerce(value, a.type);
+            code.local(ALOAD, 0);
+            code.op(SWAP);
+            code.field(PUTFIELD, a.owner.name, a.name, descriptor(a.type));
+        }
+        return value;
+    }
+
+    @Override
+    public Type visitBlock(Ast.Block n) {
+        for (int i = 0; i < n.body.size() - 1; i++) {
+            visit(n.body.get(i));
+            code.op(POP);
+        }
+        return visit(n.body.get(n.body.size() - 1));
+    }
+
+    @Override
+    public Type visitIf(Ast.If n) {
+        Label otherwise = new Label();
+        Label end = new Label();
+        branch(n.condition, false, otherwise);
+        coerce(visit(n.thenBranch), n.checkedType);
+        code.jump(GOTO, end);
+        code.mark(otherwise);
+        coerce(visit(n.elseBranch), n.checkedType);
+        code.mark(end);
+        return n.checkedType;
+    }
+
+    // Значення циклу — void. Умова на початку (мітка циклу досяжна до переходу назад);
+    // обертання циклу C2 робить сам
+    @Override
+    public Type visitWhile(Ast.While n) {
+        Label top = new Label();
+        Label end = new Label();
+        code.mark(top);
+        branch(n.condition, false, end);
+        visit(n.body);
+        code.op(POP);
+        code.jump(GOTO, top);
+        code.mark(end);
+        code.op(ACONST_NULL);
+        return classes.objectType;
+    }
+
+    @Override
+    public Type visitLet(Ast.Let n) {
+        int mark = scope.size();
+        int slot = nextSlot;
+        for (Ast.LetBinding b : n.bindings) {
+            Type type = resolveType(b.type);
+            // Ініціалізатор обчислюється до появи змінної в області видимості
+            if (b.init != null) coerce(visit(b.init), type);
+            else defaultValue(type);
+            store(declare(b.name, type));
+        }
+        Type result = visit(n.body);
+        scope.subList(mark, scope.size()).clear();
+        nextSlot = slot;
+        return result;
+    }
+
+    // Гілки перевіряються від найглибшого типу: перша гілка, якій відповідає значення,
+    // і є найближчим предком його класу (типи-предки одного класу лежать на одному ланцюжку)
+    @Override
+    public Type visitCase(Ast.Case n) {
+        Type value = visit(n.value);
+        coerce(value, classes.objectType);
+        int slot = nextSlot++;
+        code.local(ASTORE, slot);
+        if (!isPrimitive(value) && value != classes.stringType) {
+            Label notVoid = new Label();
+            code.local(ALOAD, slot);
+            code.jump(IFNONNULL, notVoid);
+            code.line(n.line);
+            code.invoke(INVOKESTATIC, RUNTIME, "caseOnVoid", RUNTIME_ERROR);
+            code.op(ATHROW);
+            code.mark(notVoid);
+        }
+
+        List<Ast.CaseBranch> branches = new ArrayList<>(n.branches);
+        branches.sort(Comparator.comparingInt((Ast.CaseBranch b) -> resolveType(b.type).getDepth()).reversed());
+        Label end = new Label();
+        boolean exhaustive = false;
+        for (Ast.CaseBranch b : branches) {
+            Type type = resolveType(b.type);
+            Label next = new Label();
+            exhaustive = type == classes.objectType;
+            if (!exhaustive) {
+                code.local(ALOAD, slot);
+                code.type(INSTANCEOF, referenceName(type));
+                code.jump(IFEQ, next);
+            }
+            code.local(ALOAD, slot);
+            coerce(classes.objectType, type);
+            int mark = scope.size();
+            store(declare(b.name, type));
+            coerce(visit(b.body), n.checkedType);
+            scope.subList(mark, scope.size()).clear();
+            nextSlot = slot + 1;
+            code.jump(GOTO, end);
+            if (exhaustive) break;
+            code.mark(next);
+        }
+        if (!exhaustive) {
+            code.local(ALOAD, slot);
+            code.line(n.line);
+            code.invoke(INVOKESTATIC, RUNTIME, "caseNoMatch", "(Ljava/lang/Object;)Lua/nuzp/cool/CoolRuntime$RuntimeError;");
+            code.op(ATHROW);
+        }
+        code.mark(end);
+        nextSlot = slot;
+        return n.checkedType;
+    }
+
+    @Override
+    public Type visitNew(Ast.New n) {
+        if (n.type.equals("SELF_TYPE")) {
+            code.local(ALOAD, 0);
+            code.invoke(INVOKESTATIC, RUNTIME, "newSelf", "(Ljava/lang/Object;)Ljava/lang/Object;");
+            code.type(CHECKCAST, currentClass.name);
+            return currentClass;
+        }
+        Type type = classes.lookup(n.type);
+        if (isPrimitive(type) || type == classes.stringType) {
+            defaultValue(type);
+            return type;
+        }
+        String name = type == classes.objectType ? COOL_OBJECT : type == classes.ioType ? COOL_IO : type.name;
+        code.type(NEW, name);
+        code.op(DUP);
+        code.invoke(INVOKESPECIAL, name, "<init>", "()V");
+        return type;
+    }
+
+    // ===== Виклики =====
+
+    @Override
+    public Type visitImplicitDispatch(Ast.ImplicitDispatch n) {
+        code.local(ALOAD, 0);
+        return call(currentClass.lookupMethod(n.name), currentClass, false, n.args, n);
+    }
+
+    @Override
+    public Type visitDispatch(Ast.Dispatch n) {
+        Type receiver = visit(n.target);
+        Type lookup = n.staticType != null ? classes.lookup(n.staticType) : receiver;
+        Type.Method method = lookup.lookupMethod(n.name);
+        // Отримувач базового типу (крім IO) може бути Integer/Boolean/String — без віртуального виклику
+        boolean direct = n.staticType != null || classes.isBasic(receiver) && receiver != classes.ioType;
+        if (direct) {
+            coerce(receiver, method.owner);
+            if (!classes.isBasic(method.owner) && staticVariants.add(method)) pendingStatic.add(method);
+        }
+        return call(method, receiver, direct, n.args, n);
+    }
+
+    private Type call(Type.Method method, Type receiver, boolean direct, List<Ast.Expr> args, Ast.Expr at) {
+        for (int i = 0; i < args.size(); i++) coerce(visit(args.get(i)), method.params.get(i));
+        code.line(at.line);
+        if (direct) {
+            code.invoke(INVOKESTATIC, staticOwner(method.owner), method.name + "$static", methodDescriptor(method, true));
+        } else {
+            code.invoke(INVOKEVIRTUAL, referenceName(receiver), method.name, methodDescriptor(method, false));
+        }
+        // SELF_TYPE: дескриптор повертає клас першого оголошення методу, вираз має тип отримувача
+        Type result = method.returnsSelfType ? receiver : method.returnType;
+        coerce(returnType(method), result);
+        return result;
+    }
+
+    // ===== Операції =====
+
+    @Override
+    public Type visitAddSub(Ast.AddSub n) {
+        return arithmetic(n, n.op == Ast.Op.PLUS ? IADD : ISUB);
+    }
+
+    @Override
+    public Type visitMulDiv(Ast.MulDiv n) {
+        return arithmetic(n, n.op == Ast.Op.MULT ? IMUL : IDIV);
+    }
+
+    private Type arithmetic(Ast.Binary n, int opcode) {
+        coerce(visit(n.left), classes.intType);
+        coerce(visit(n.right), classes.intType);
+        if (opcode == IDIV) code.line(n.line); // ділення на нуль
+        code.op(opcode);
+        return classes.intType;
+    }
+
+    @Override
+    public Type visitNegation(Ast.Negation n) {
+        coerce(visit(n.e), classes.intType);
+        code.op(INEG);
+        return classes.intType;
+    }
+
+    @Override public Type visitNot(Ast.Not n) { return booleanValue(n); }
+    @Override public Type visitCompare(Ast.Compare n) { return booleanValue(n); }
+    @Override public Type visitIsVoid(Ast.IsVoid n) { return booleanValue(n); }
+
+    // Логічний вираз як значення 0/1
+    private Type booleanValue(Ast.Expr e) {
+        Label no = new Label();
+        Label end = new Label();
+        branch(e, false, no);
+        code.iconst(1);
+        code.jump(GOTO, end);
+        code.mark(no);
+        code.iconst(0);
+        code.mark(end);
+        return classes.boolType;
+    }
+
+    // Перехід на target, якщо e має значення when; порівняння та not — без проміжного Bool
+    private void branch(Ast.Expr e, boolean when, Label target) {
+        if (e instanceof Ast.Not) {
+            branch(((Ast.Not) e).e, !when, target);
+        } else if (e instanceof Ast.BoolConst) {
+            if (((Ast.BoolConst) e).value == when) code.jump(GOTO, target);
+        } else if (e instanceof Ast.Compare) {
+            compare((Ast.Compare) e, when, target);
+        } else if (e instanceof Ast.IsVoid) {
+            Type type = visit(((Ast.IsVoid) e).e);
+            if (isPrimitive(type) || type == classes.stringType) {
+                code.op(POP);
+                if (!when) code.jump(GOTO, target);
+            } else {
+                code.jump(when ? IFNULL : IFNONNULL, target);
+            }
+        } else {
+            coerce(visit(e), classes.boolType);
+            code.jump(when ? IFNE : IFEQ, target);
+        }
+    }
+
+    private void compare(Ast.Compare n, boolean when, Label target) {
+        Type left = n.left.checkedType;
+        Type right = n.right.checkedType;
+        if (n.op != Ast.Op.EQ) {
+            coerce(visit(n.left), classes.intType);
+            coerce(visit(n.right), classes.intType);
+            if (n.op == Ast.Op.LT) code.jump(when ? IF_ICMPLT : IF_ICMPGE, target);
+            else code.jump(when ? IF_ICMPLE : IF_ICMPGT, target);
+        } else if (left == right && isPrimitive(left)) {
+            coerce(visit(n.left), left);
+            coerce(visit(n.right), right);
+            code.jump(when ? IF_ICMPEQ : IF_ICMPNE, target);
+        } else if (isObjectClass(left) && isObjectClass(right)) {
+            // Лише посилання: значення базових типів тут бути не може
+            visit(n.left);
+            visit(n.right);
+            code.jump(when ? IF_ACMPEQ : IF_ACMPNE, target);
+        } else {
+            coerce(visit(n.left), classes.objectType);
+            coerce(visit(n.right), classes.objectType);
+            code.invoke(INVOKESTATIC, RUNTIME, "equal", "(Ljava/lang/Object;Ljava/lang/Object;)Z");
+            code.jump(when ? IFNE : IFEQ, target);
+        }
+    }
+
+    // ===== Змінні =====
+
+    private Local resolve(String name) {
+        for (int i = scope.size() - 1; i >= 0; i--) {
+            if (scope.get(i).name.equals(name)) return scope.get(i);
+        }
+        return null;
+    }
+
+    private Local declare(String name, Type type) {
+        Local l = new Local(name, type, nextSlot++);
+        scope.add(l);
+        return l;
+    }
+
+    private void store(Local l) {
+        code.local(isPrimitive(l.type) ? ISTORE : ASTORE, l.slot);
+    }
+
+    private void defaultValue(Type type) {
+        if (isPrimitive(type)) code.iconst(0);
+        else if (type == classes.stringType) code.sconst("");
+        else code.op(ACONST_NULL);
+    }
+
+    private Type resolveType(String name) {
+        return name.equals("SELF_TYPE") ? currentClass : classes.lookup(name);
+    }
+
+    // ===== Представлення типів =====
+
+    // Перетворення значення на вершині стеку: упакування Int/Bool в Object, розпакування,
+    // CHECKCAST при звуженні (результат SELF_TYPE, гілка case); розширення посилань — без коду
+    private void coerce(Type from, Type to) {
+        if (from == to) return;
+        if (isPrimitive(from)) {
+            if (isPrimitive(to)) return;
+            if (from == classes.intType) code.invoke(INVOKESTATIC, INTEGER, "valueOf", "(I)Ljava/lang/Integer;");
+            else code.invoke(INVOKESTATIC, BOOLEAN, "valueOf", "(Z)Ljava/lang/Boolean;");
+        } else if (isPrimitive(to)) {
+            if (to == classes.intType) {
+                code.type(CHECKCAST, INTEGER);
+                code.invoke(INVOKEVIRTUAL, INTEGER, "intValue", "()I");
+            } else {
+                code.type(CHECKCAST, BOOLEAN);
+                code.invoke(INVOKEVIRTUAL, BOOLEAN, "booleanValue", "()Z");
+            }
+        } else if (!from.conformsTo(to)) {
+            code.type(CHECKCAST, referenceName(to));
+        }
+    }
+
+    private boolean isPrimitive(Type t) {
+        return t == classes.intType || t == classes.boolType;
+    }
+
+    // IO або клас програми: значення — завжди об'єкт CoolObject або void
+    private boolean isObjectClass(Type t) {
+        return !classes.isBasic(t) || t == classes.ioType;
+    }
+
+    // Клас JVM для посилання на значення типу (Int/Bool — упаковані)
+    private String referenceName(Type t) {
+        if (t == classes.objectType) return OBJECT;
+        if (t == classes.stringType) return STRING;
+        if (t == classes.ioType) return COOL_IO;
+        if (t == classes.intType) return INTEGER;
+        if (t == classes.boolType) return BOOLEAN;
+        return t.name;
+    }
+
+    private String superName(Type parent) {
+        return parent == classes.objectType ? COOL_OBJECT : parent == classes.ioType ? COOL_IO : parent.name;
+    }
+
+    // Клас зі статичними варіантами методів owner
+    private String staticOwner(Type owner) {
+        if (owner == classes.objectType) return COOL_OBJECT;
+        if (owner == classes.ioType) return COOL_IO;
+        if (owner == classes.stringType) return COOL_STRING;
+        return owner.name;
+    }
+
+    // Дескриптори кешуються: один і той самий рядок — один хеш у пулі констант
+    private String descriptor(Type t) {
+        return descriptors.computeIfAbsent(t, k -> k == classes.intType ? "I"
+                : k == classes.boolType ? "Z" : "L" + referenceName(k) + ";");
+    }
+
+    private String methodDescriptor(Type.Method m, boolean withSelf) {
+        return (withSelf ? staticDescriptors : methodDescriptors).computeIfAbsent(m, k -> {
+            StringBuilder sb = new StringBuilder("(");
+            if (withSelf) sb.append(descriptor(k.owner));
+            for (Type p : k.params) sb.append(descriptor(p));
+            return sb.append(')').append(descriptor(returnType(k))).toString();
+        });
+    }
+
+    // Тип результату в дескрипторі. SELF_TYPE розв'язаний у клас, що оголошує метод, тож
+    // перевизначення в нащадку мало б інший дескриптор і не перекривало б метод предка
+    // у JVM — береться клас першого оголошення
+    private static Type returnType(Type.Method m) {
+        if (!m.returnsSelfType) return m.returnType;
+        Type.Method first = m;
+        for (Type t = m.owner.getParent(); t != null; t = t.getParent()) {
+            Type.Method inherited = t.getMethods().get(m.name);
+            if (inherited != null) first = inherited;
+        }
+        return first.returnType;
+    }
+}
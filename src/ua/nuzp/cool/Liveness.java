@@ -0,0 +1,176 @@
+package ua.nuzp.cool;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.List;
+
+// Аналіз живучості змінних над CFG (зворотна задача потоку даних).
+//   in[B]  = use[B] ∪ (out[B] \ def[B]),   out[B] = ∪ in[S] для наступників S.
+// Множини — BitSet лише над "глобальними" змінними: тими, що читаються в якомусь блоці
+// до присвоєння в ньому. Решта (більшість тимчасових) живе в межах одного блоку і
+// на межах блоків ніколи не жива, тож ширина бітсетів не росте з розміром методу.
+// Ітерація — робочий список у post-order (для зворотної задачі це майже топологічний порядок),
+// тож ациклічний код сходиться за один прохід, а цикли — за кілька.
+// Зберігається лише in[B]; out[B] обчислюється за запитом з in наступників.
+// Живучість усередині блоку клієнт отримує проходом назад від liveOut(B) з transfer().
+public class Liveness {
+
+    private final int[] globalIds;  // Local.index -> номер у бітсетах або -1
+    private final int[] globals;    // номер у бітсетах -> Local.index
+    private final BitSet[] liveIn;  // за номерами глобальних змінних
+
+    private Liveness(int[] globalIds, int[] globals, int blocks) {
+        this.globalIds = globalIds;
+        this.globals = globals;
+        this.liveIn = new BitSet[blocks];
+    }
+
+    // Живі на вході/виході блоку змінні (BitSet за Local.index; новий об'єкт на кожен виклик)
+    public BitSet liveIn(Cfg.Block b) { return toLocals(liveIn[b.index]); }
+
+    public BitSet liveOut(Cfg.Block b) {
+        BitSet global = new BitSet();
+        for (Cfg.Block s : b.succs) global.or(liveIn[s.index]);
+        return toLocals(global);
+    }
+
+    public boolean isLiveIn(Cfg.Block b, Ir.Local v) {
+        int id = globalIds[v.index];
+        return id >= 0 && liveIn[b.index].get(id);
+    }
+
+    public boolean isLiveOut(Cfg.Block b, Ir.Local v) {
+        for (Cfg.Block s : b.succs) {
+            if (isLiveIn(s, v)) return true;
+        }
+        return false;
+    }
+
+    // Кількість змінних, живих на межах блоків
+    public int globalCount() { return globals.length; }
+
+    // Змінна читається в якомусь блоці до присвоєння в ньому (інакше ніде не жива на межах)
+    public boolean isGlobal(Ir.Local v) { return globalIds[v.index] >= 0; }
+
+    public static Liveness analyze(Cfg cfg) {
+        int locals = cfg.function.locals().size();
+        int n = cfg.blocks.size();
+
+        // 1. Глобальні змінні: читання до присвоєння в межах блоку
+        int[] globalIds = new int[locals];
+        int[] definedIn = new int[locals]; // номер блоку + 1, де змінну вже присвоєно
+        int count = 0;
+        for (Cfg.Block b : cfg.blocks) {
+            for (Ir.Instr instr : b.instrs) {
+                count = markGlobal(instr, instr.a, b, definedIn, globalIds, count);
+                count = markGlobal(instr, instr.b, b, definedIn, globalIds, count);
+                if (instr.dst != null) definedIn[instr.dst.index] = b.index + 1;
+            }
+        }
+        int[] globals = new int[count];
+        for (int i = 0, next = 0; i < locals; i++) {
+            if (globalIds[i] > 0) {
+                globalIds[i] = next;
+                globals[next++] = i;
+            } else {
+                globalIds[i] = -1;
+            }
+        }
+
+        // 2. use/def кожного блоку (лише глобальні змінні): прохід назад по інструкціях
+        Liveness result = new Liveness(globalIds, globals, n);
+        BitSet[] use = new BitSet[n];
+        BitSet[] def = new BitSet[n];
+        for (Cfg.Block b : cfg.blocks) {
+            BitSet u = new BitSet();
+            BitSet d = new BitSet();
+            List<Ir.Instr> instrs = b.instrs;
+            for (int i = instrs.size() - 1; i >= 0; i--) {
+                Ir.Instr instr = instrs.get(i);
+                if (instr.dst != null && globalIds[instr.dst.index] >= 0) {
+                    u.clear(globalIds[instr.dst.index]);
+                    d.set(globalIds[instr.dst.index]);
+                }
+                if (instr.op == Ir.Opcode.FOLDED) continue;
+                if (instr.a instanceof Ir.Local && globalIds[((Ir.Local) instr.a).index] >= 0)
+                    u.set(globalIds[((Ir.Local) instr.a).index]);
+                if (instr.b instanceof Ir.Local && globalIds[((Ir.Local) instr.b).index] >= 0)
+                    u.set(globalIds[((Ir.Local) instr.b).index]);
+            }
+            use[b.index] = u;
+            def[b.index] = d;
+            result.liveIn[b.index] = (BitSet) u.clone();
+        }
+
+        // 3. Робочий список: спочатку всі блоки в post-order, недосяжні — в кінці
+        ArrayDeque<Cfg.Block> worklist = new ArrayDeque<>(n);
+        boolean[] queued = new boolean[n];
+        List<Cfg.Block> rpo = cfg.reversePostOrder();
+        for (int i = rpo.size() - 1; i >= 0; i--) {
+            worklist.add(rpo.get(i));
+            queued[rpo.get(i).index] = true;
+        }
+        for (Cfg.Block b : cfg.blocks) {
+            if (!queued[b.index]) {
+                worklist.add(b);
+                queued[b.index] = true;
+            }
+        }
+
+        BitSet scratch = new BitSet(count);
+        while (!worklist.isEmpty()) {
+            Cfg.Block b = worklist.poll();
+            queued[b.index] = false;
+
+            scratch.clear();
+            for (Cfg.Block s : b.succs) scratch.or(result.liveIn[s.index]);
+            scratch.andNot(def[b.index]);
+            scratch.or(use[b.index]);
+            if (scratch.equals(result.liveIn[b.index])) continue;
+
+            BitSet old = result.liveIn[b.index];
+            result.liveIn[b.index] = scratch;
+            scratch = old;
+            for (Cfg.Block p : b.preds) {
+                if (!queued[p.index]) {
+                    worklist.add(p);
+                    queued[p.index] = true;
+                }
+            }
+        }
+        return result;
+    }
+
+    // Читання змінної, ще не присвоєної в поточному блоці, робить її глобальною
+    // (globalIds тимчасово: 1 — глобальна, 0 — ні)
+    private static int markGlobal(Ir.Instr instr, Ir.Operand operand, Cfg.Block b,
+                                  int[] definedIn, int[] globalIds, int count) {
+        if (instr.op == Ir.Opcode.FOLDED || !(operand instanceof Ir.Local)) return count;
+        int index = ((Ir.Local) operand).index;
+        if (definedIn[index] == b.index + 1 || globalIds[index] != 0) return count;
+        globalIds[index] = 1;
+        return count + 1;
+    }
+
+    // Від старших бітів до молодших: результат виділяється один раз потрібного розміру
+    private BitSet toLocals(BitSet set) {
+        BitSet result = new BitSet();
+        for (int i = set.length() - 1; i >= 0; i = set.previousSetBit(i - 1)) result.set(globals[i]);
+        return result;
+    }
+
+    // ===== Допоміжні =====
+
+    // live (після instr) -> live (перед instr), BitSet за Local.index
+    public static void transfer(Ir.Instr instr, BitSet live) {
+        if (instr.dst != null) live.clear(instr.dst.index);
+        addUses(instr, live);
+    }
+
+    // Змінні, які читає інструкція (FOLDED — лише примітка, операнди не читає)
+    public static void addUses(Ir.Instr instr, BitSet set) {
+        if (instr.op == Ir.Opcode.FOLDED) return;
+        if (instr.a instanceof Ir.Local) set.set(((Ir.Local) instr.a).index);
+        if (instr.b instanceof Ir.Local) set.set(((Ir.Local) instr.b).index);
+    }
+}
@@ -0,0 +1,254 @@
+package ua.nuzp.cool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Оптимізація циклів над SSA: винесення інваріантів (LICM) та зменшення сили множень.
+// Цикли обробляються від внутрішніх до зовнішніх, тож винесене з внутрішнього циклу
+// може далі вийти і з зовнішнього.
+//
+// Інваріант — чисте присвоєння, операнди якого — константи або значення, визначені поза
+// циклом (зокрема вже винесені). Воно переноситься в кінець передзаголовка: той домінує все
+// тіло, тож нове місце домінує всі використання. Винесення спекулятивне (цикл може не
+// виконатись жодного разу), тому лише операції без побічних ефектів і без помилок виконання.
+//
+// Зменшення сили: базова індукційна змінна — phi заголовка i = phi(i0, i + c) з константним
+// кроком c. Множення i * k на інваріант k замінюється новою індукційною змінною
+// s = phi(i0 * k, s + c * k) — додавання замість множення на кожній ітерації.
+// Int у Cool — 32-бітний з переповненням за модулем 2^32, тож (i + c) * k == i * k + c * k.
+public class LoopOptimizer {
+
+    // ===== Статистика =====
+
+    public int invariantsHoisted = 0;
+    public int multiplicationsReduced = 0;
+
+    private final Cfg cfg;
+    private Loops loops;
+    private Cfg.Block[] defBlock;     // за Local.index: блок визначення (null — вхід у функцію)
+    private Ir.Instr[] defInstr;
+    private Ir.Operand[] replacement; // за Local.index: значення замість видаленого множення
+    private boolean replaced = false;
+
+    // Базова індукційна змінна: phi заголовка та присвоєння наступного значення
+    private static final class Induction {
+        final Ir.Operand init;
+        final Ir.Instr next;
+        final int step;
+
+        Induction(Ir.Operand init, Ir.Instr next, int step) {
+            this.init = init;
+            this.next = next;
+            this.step = step;
+        }
+    }
+
+    private LoopOptimizer(Cfg cfg) {
+        this.cfg = cfg;
+    }
+
+    public static LoopOptimizer run(Cfg cfg) {
+        LoopOptimizer opt = new LoopOptimizer(cfg);
+        Dominators dom = Dominators.compute(cfg);
+        opt.loops = Loops.find(cfg, dom);
+        if (opt.loops.loops().isEmpty()) return opt;
+        if (Loops.insertPreheaders(cfg, opt.loops)) opt.loops = Loops.find(cfg, Dominators.compute(cfg));
+
+        opt.indexDefinitions();
+        for (Loops.Loop loop : opt.loops.loops()) {
+            if (loop.preheader == null) continue;
+            opt.hoist(loop);
+            opt.reduce(loop);
+        }
+        if (opt.replaced) opt.substitute();
+        return opt;
+    }
+
+    private void indexDefinitions() {
+        int n = cfg.function.locals().size();
+        defBlock = new Cfg.Block[n];
+        defInstr = new Ir.Instr[n];
+        replacement = new Ir.Operand[n];
+        for (Cfg.Block b : cfg.blocks) {
+            for (Ir.Instr instr : b.instrs) {
+                if (Ssa.isSsaLocal(instr.dst)) define(instr, b);
+            }
+        }
+    }
+
+    private void define(Ir.Instr instr, Cfg.Block b) {
+        int index = instr.dst.index;
+        if (index >= defBlock.length) {
+            int size = Math.max(index + 1, defBlock.length * 2);
+            defBlock = Arrays.copyOf(defBlock, size);
+            defInstr = Arrays.copyOf(defInstr, size);
+            replacement = Arrays.copyOf(replacement, size);
+        }
+        defBlock[index] = b;
+        defInstr[index] = instr;
+    }
+
+    // ===== Інваріанти =====
+
+    private void hoist(Loops.Loop loop) {
+        for (Cfg.Block b : loop.blocks) {
+            List<Ir.Instr> instrs = b.instrs;
+            int out = 0;
+            for (int i = 0; i < instrs.size(); i++) {
+                Ir.Instr instr = instrs.get(i);
+                if (instr.op != Ir.Opcode.PHI && instr.op != Ir.Opcode.FOLDED) {
+                    instr.a = current(instr.a);
+                    instr.b = current(instr.b);
+                    if (instr.dst != null && instr.dst.version > 0 && DeadCodeElimination.isPure(instr)
+                            && isInvariant(instr.a, loop) && isInvariant(instr.b, loop)) {
+                        appendToPreheader(loop, instr);
+                        invariantsHoisted++;
+                        continue;
+                    }
+                }
+                instrs.set(out++, instr);
+            }
+            instrs.subList(out, instrs.size()).clear();
+        }
+    }
+
+    private boolean isInvariant(Ir.Operand operand, Loops.Loop loop) {
+        if (operand == null || operand instanceof Ir.Const) return true;
+        if (!Ssa.isSsaLocal(operand)) return false; // атрибут змінює будь-який виклик
+        Cfg.Block b = definedIn((Ir.Local) operand);
+        return b == null || !loops.contains(loop, b);
+    }
+
+    private Cfg.Block definedIn(Ir.Local l) {
+        return l.index < defBlock.length ? defBlock[l.index] : null;
+    }
+
+    // Перед завершальним переходом передзаголовка
+    private void appendToPreheader(Loops.Loop loop, Ir.Instr instr) {
+        List<Ir.Instr> instrs = loop.preheader.instrs;
+        Ir.Instr last = loop.preheader.last();
+        instrs.add(last != null && last.op.isJump() ? instrs.size() - 1 : instrs.size(), instr);
+        if (instr.dst != null) define(instr, loop.preheader);
+    }
+
+    // ===== Зменшення сили =====
+
+    private void reduce(Loops.Loop loop) {
+        Cfg.Block header = loop.header;
+        if (loop.latches.size() != 1 || header.preds.size() != 2) return;
+        int inside = header.preds.indexOf(loop.latches.get(0));
+        int outside = 1 - inside;
+
+        Map<Ir.Local, Induction> inductions = new IdentityHashMap<>();
+        for (Ir.Instr instr : header.instrs) {
+            if (instr.op == Ir.Opcode.LABEL) continue;
+            if (instr.op != Ir.Opcode.PHI) break;
+            Induction iv = induction(instr, instr.args[outside], current(instr.args[inside]), loop);
+            if (iv != null) inductions.put(instr.dst, iv);
+        }
+        if (inductions.isEmpty()) return;
+
+        // Спершу збираються множення, потім переписуються: вставка змінює списки блоків
+        List<Ir.Instr> multiplications = new ArrayList<>();
+        for (Cfg.Block b : loop.blocks) {
+            for (Ir.Instr instr : b.instrs) {
+                if (instr.op != Ir.Opcode.MUL || !Ssa.isSsaLocal(instr.dst)) continue;
+                instr.a = current(instr.a);
+                instr.b = current(instr.b);
+                if (inductions.containsKey(instr.a) && isInvariant(instr.b, loop)
+                        || inductions.containsKey(instr.b) && isInvariant(instr.a, loop)) {
+                    multiplications.add(instr);
+                }
+            }
+        }
+        for (Ir.Instr mul : multiplications) {
+            boolean left = inductions.containsKey(mul.a) && isInvariant(mul.b, loop);
+            Induction iv = inductions.get(left ? mul.a : mul.b);
+            reduce(loop, mul, iv, left ? mul.b : mul.a, inside, outside);
+        }
+    }
+
+    // phi = phi(init, next), де next = phi + c або phi - c
+    private Induction induction(Ir.Instr phi, Ir.Operand init, Ir.Operand next, Loops.Loop loop) {
+        if (init == null || !Ssa.isSsaLocal(next)) return null;
+        Ir.Local l = (Ir.Local) next;
+        Cfg.Block b = definedIn(l);
+        if (b == null || !loops.contains(loop, b)) return null;
+        Ir.Instr def = defInstr[l.index];
+        if (def.op == Ir.Opcode.ADD && def.a == phi.dst && def.b instanceof Ir.IntConst)
+            return new Induction(init, def, ((Ir.IntConst) def.b).value);
+        if (def.op == Ir.Opcode.ADD && def.b == phi.dst && def.a instanceof Ir.IntConst)
+            return new Induction(init, def, ((Ir.IntConst) def.a).value);
+        if (def.op == Ir.Opcode.SUB && def.a == phi.dst && def.b instanceof Ir.IntConst)
+            return new Induction(init, def, -((Ir.IntConst) def.b).value);
+        return null;
+    }
+
+    // d <- i * k  =>  s = phi(i0 * k, s') у заголовку, s' <- s + c * k після i' <- i + c
+    private void reduce(Loops.Loop loop, Ir.Instr mul, Induction iv, Ir.Operand k, int inside, int outside) {
+        Ir.Function function = cfg.function;
+        Ir.Local origin = mul.dst.origin;
+
+        // s та s' — перші нові версії: при виході з SSA вони й отримують ім'я d
+        Ir.Local s = function.newVersion(origin);
+        Ir.Local next = function.newVersion(origin);
+        Ir.Operand start = multiply(loop, origin, iv.init, k);
+        Ir.Operand step = multiply(loop, origin, Ir.IntConst.of(iv.step), k);
+
+        Ir.Instr phi = new Ir.Instr(Ir.Opcode.PHI, s, null, null);
+        phi.args = new Ir.Operand[2];
+        phi.args[outside] = start;
+        phi.args[inside] = next;
+        List<Ir.Instr> headerInstrs = loop.header.instrs;
+        int at = 0;
+        while (at < headerInstrs.size() && headerInstrs.get(at).op == Ir.Opcode.LABEL) at++;
+        headerInstrs.add(at, phi);
+        define(phi, loop.header);
+
+        Cfg.Block stepBlock = defBlock[iv.next.dst.index];
+        Ir.Instr add = new Ir.Instr(Ir.Opcode.ADD, next, s, step);
+        stepBlock.instrs.add(stepBlock.instrs.indexOf(iv.next) + 1, add);
+        define(add, stepBlock);
+
+        // Множення більше не потрібне: використання d переходять на s
+        Cfg.Block mulBlock = defBlock[mul.dst.index];
+        mulBlock.instrs.remove(mulBlock.instrs.indexOf(mul));
+        replacement[mul.dst.index] = s;
+        replaced = true;
+        multiplicationsReduced++;
+    }
+
+    // Добуток для передзаголовка: константа або нова версія origin <- a * k
+    private Ir.Operand multiply(Loops.Loop loop, Ir.Local origin, Ir.Operand a, Ir.Operand k) {
+        if (a instanceof Ir.IntConst && k instanceof Ir.IntConst)
+            return Ir.IntConst.of(((Ir.IntConst) a).value * ((Ir.IntConst) k).value);
+        if (a instanceof Ir.IntConst && ((Ir.IntConst) a).value == 0) return a;
+        if (a instanceof Ir.IntConst && ((Ir.IntConst) a).value == 1) return k;
+        Ir.Instr instr = new Ir.Instr(Ir.Opcode.MUL, cfg.function.newVersion(origin), a, k);
+        appendToPreheader(loop, instr);
+        return instr.dst;
+    }
+
+    // ===== Заміна видалених значень =====
+
+    private Ir.Operand current(Ir.Operand operand) {
+        if (!(operand instanceof Ir.Local)) return operand;
+        int index = ((Ir.Local) operand).index;
+        Ir.Operand r = index < replacement.length ? replacement[index] : null;
+        return r != null ? r : operand;
+    }
+
+    private void substitute() {
+        for (Cfg.Block b : cfg.blocks) {
+            for (Ir.Instr instr : b.instrs) {
+                instr.a = current(instr.a);
+                instr.b = current(instr.b);
+                if (instr.args == null) continue;
+                for (int j = 0; j < instr.args.length; j++) instr.args[j] = current(instr.args[j]);
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package ua.nuzp.cool;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Природні цикли CFG.
+// Зворотне ребро — t -> h, де h домінує t; цикл — заголовок h та блоки, з яких t досяжний
+// без проходу через h. Зворотні ребра з одним заголовком дають один цикл.
+// Заголовки обробляються у зворотному до RPO порядку, тож внутрішні цикли знаходяться раніше
+// за зовнішні: loops() — від внутрішніх до зовнішніх, вкладеність — через parent.
+// Передзаголовок (preheader) — єдиний вхід у заголовок ззовні циклу, блок з єдиним
+// наступником: код, винесений з циклу, виконується там один раз перед входом.
+public class Loops {
+
+    public static final class Loop {
+        public final Cfg.Block header;
+        public final List<Cfg.Block> latches = new ArrayList<>(1); // джерела зворотних ребер
+        public final List<Cfg.Block> blocks = new ArrayList<>();   // тіло з заголовком, у RPO
+        public Loop parent;         // найближчий охоплюючий цикл
+        public Cfg.Block preheader; // null — кілька входів ззовні або вхід з розгалуження
+
+        Loop(Cfg.Block header) { this.header = header; }
+
+        @Override public String toString() { return "loop " + header + " " + blocks; }
+    }
+
+    private final List<Loop> loops = new ArrayList<>();
+    private final Loop[] innermost; // за Block.index: найглибший цикл, що містить блок
+
+    private Loops(Cfg cfg) {
+        this.innermost = new Loop[cfg.blocks.size()];
+    }
+
+    public static Loops find(Cfg cfg, Dominators dom) {
+        Loops result = new Loops(cfg);
+        result.build(cfg, dom);
+        return result;
+    }
+
+    public List<Loop> loops() { return loops; }
+
+    public Loop innermost(Cfg.Block b) { return innermost[b.index]; }
+
+    public boolean contains(Loop loop, Cfg.Block b) {
+        for (Loop l = innermost[b.index]; l != null; l = l.parent) {
+            if (l == loop) return true;
+        }
+        return false;
+    }
+
+    // ===== Пошук =====
+
+    private void build(Cfg cfg, Dominators dom) {
+        List<Cfg.Block> rpo = dom.reversePostOrder();
+        int[] order = new int[cfg.blocks.size()];
+        for (int i = 0; i < rpo.size(); i++) order[rpo.get(i).index] = i;
+        int[] mark = new int[cfg.blocks.size()]; // номер циклу + 1: блок уже в тілі
+        List<Cfg.Block> worklist = new ArrayList<>();
+
+        for (int k = rpo.size() - 1; k >= 0; k--) {
+            Cfg.Block h = rpo.get(k);
+            Loop loop = null;
+            for (Cfg.Block p : h.preds) {
+                if (!dom.dominates(h, p)) continue;
+                if (loop == null) loop = new Loop(h);
+                loop.latches.add(p);
+            }
+            if (loop == null) continue;
+
+            // Тіло: обхід назад від зворотних ребер до заголовка
+            int stamp = loops.size() + 1;
+            mark[h.index] = stamp;
+            loop.blocks.add(h);
+            innermost[h.index] = loop;
+            worklist.addAll(loop.latches);
+            while (!worklist.isEmpty()) {
+                Cfg.Block b = worklist.remove(worklist.size() - 1);
+                if (mark[b.index] == stamp) continue;
+                mark[b.index] = stamp;
+                loop.blocks.add(b);
+                Loop inner = innermost[b.index];
+                if (inner == null) {
+                    innermost[b.index] = loop;
+                } else {
+                    while (inner.parent != null) inner = inner.parent;
+                    if (inner != loop) inner.parent = loop;
+                }
+                for (Cfg.Block p : b.preds) {
+                    if (mark[p.index] != stamp && dom.isReachable(p)) worklist.add(p);
+                }
+            }
+            loop.blocks.sort(Comparator.comparingInt(b -> order[b.index]));
+            loop.preheader = preheader(loop);
+            loops.add(loop);
+        }
+    }
+
+    private Cfg.Block preheader(Loop loop) {
+        Cfg.Block entry = null;
+        for (Cfg.Block p : loop.header.preds) {
+            if (loop.latches.contains(p)) continue;
+            if (entry != null) return null;
+            entry = p;
+        }
+        return entry != null && entry.succs.size() == 1 ? entry : null;
+    }
+
+    // ===== Передзаголовки =====
+
+    // Порожній передзаголовок там, де в цикл входять без мітки з блоку з умовним переходом
+    // (while одразу на початку гілки then). Повертає true, якщо граф змінився — тоді
+    // домінатори та цикли слід обчислити заново.
+    public static boolean insertPreheaders(Cfg cfg, Loops loops) {
+        boolean changed = false;
+        for (Loop loop : loops.loops) {
+            if (loop.preheader != null) continue;
+            Cfg.Block entry = null;
+            int entries = 0;
+            for (Cfg.Block p : loop.header.preds) {
+                if (!loop.latches.contains(p)) {
+                    entry = p;
+                    entries++;
+                }
+            }
+            if (entries != 1 || !fallsThrough(entry, loop.header)) continue;
+            loop.preheader = cfg.splitFallThrough(entry, loop.header);
+            changed = true;
+        }
+        return changed;
+    }
+
+    // from закінчується умовним переходом на іншу мітку, а to — наступний блок у розміщенні
+    private static boolean fallsThrough(Cfg.Block from, Cfg.Block to) {
+        Ir.Instr last = from.last();
+        if (last == null || !last.op.isJump() || last.op == Ir.Opcode.GOTO) return false;
+        Ir.Instr first = to.instrs.isEmpty() ? null : to.instrs.get(0);
+        return first == null || first.op != Ir.Opcode.LABEL || first.label != last.label;
+    }
+}
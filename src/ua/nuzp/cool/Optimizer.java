@@ -0,0 +1,212 @@
+package ua.nuzp.cool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Оптимізація IR програми. З таблицею класів спершу — девіртуалізація та вбудовування малих
+// методів по всій програмі (Inliner), далі функція за функцією:
+//   CFG -> домінатори -> живучість -> SSA -> SCCP -> нумерація значень і поширення копій
+//   -> цикли (інваріанти, зменшення сили) -> мертвий код -> вихід з SSA
+//   -> недосяжні блоки, зайві переходи та мітки -> скалярна заміна об'єктів, що не втікають
+//   (ScalarReplacement; якщо спрацювала — SSA-проходи ще раз) -> peephole над лінійним кодом.
+// Для кожної функції зберігається звіт: розмір до/після та лічильники проходів.
+// Функції незалежні, тож прохід можна виконувати паралельно для різних програм.
+public class Optimizer {
+
+    // Лічильники проходів; у звіті — в порядку оголошення
+    public enum Counter {
+        DEVIRTUALIZED("calls devirtualized"),
+        INLINED("calls inlined"),
+        ALLOCATIONS_REMOVED("allocations removed"),
+        CONSTANTS_PROPAGATED("constants propagated"),
+        BRANCHES_FOLDED("branches folded"),
+        CONSTANTS_REMOVED("constant definitions removed"),
+        COPIES_PROPAGATED("copies propagated"),
+        LOCAL_REDUNDANT("redundant expressions removed (block)"),
+        GLOBAL_REDUNDANT("redundant expressions removed (dominator)"),
+        INVARIANTS_HOISTED("loop invariants hoisted"),
+        STRENGTH_REDUCED("multiplications strength-reduced"),
+        DEAD_REMOVED("dead instructions removed"),
+        UNREACHABLE_REMOVED("unreachable instructions removed"),
+        JUMPS_REMOVED("redundant jumps removed"),
+        LABELS_REMOVED("unused labels removed"),
+        PEEPHOLE("peephole rewrites"),
+        BRANCHES_FUSED("compare-and-branch fused");
+
+        public final String description;
+
+        Counter(String description) { this.description = description; }
+    }
+
+    public static final class FunctionReport {
+        public final String className;
+        public final String name; // null — ініціалізація атрибутів
+        public final int instructionsBefore;
+        int instructionsAfter;
+        private final int[] counts = new int[Counter.values().length];
+
+        FunctionReport(Ir.Function function) {
+            this.className = function.className;
+            this.name = function.name;
+            this.instructionsBefore = size(function);
+        }
+
+        public int getInstructionsAfter() { return instructionsAfter; }
+        public int get(Counter counter) { return counts[counter.ordinal()]; }
+        public int removed() { return instructionsBefore - instructionsAfter; }
+
+        void add(Counter counter, int n) { counts[counter.ordinal()] += n; }
+
+        // "Main.f: 40 -> 25 instructions (dead instructions removed: 10, ...)"
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(className).append('.').append(name != null ? name : "<init>").append(": ")
+              .append(instructionsBefore).append(" -> ").append(instructionsAfter).append(" instructions");
+            appendCounts(sb, counts);
+            return sb.toString();
+        }
+    }
+
+    private final List<FunctionReport> reports = new ArrayList<>();
+    private List<Peephole.Rule> peepholeRules = Peephole.defaultRules();
+    private ScalarReplacement scalarReplacement; // з таблицею класів (optimize(program, table))
+
+    public List<FunctionReport> getReports() { return reports; }
+
+    // Набір правил peephole (порожній список — прохід вимкнено)
+    public void setPeepholeRules(List<Peephole.Rule> rules) { this.peepholeRules = rules; }
+
+    public void optimize(Ir.Program program) {
+        optimize(program, null);
+    }
+
+    // table == null — без міжпроцедурного проходу. Функції без викликів (Inliner їх не змінює)
+    // оптимізуються першими: вбудовується вже оптимізоване тіло. Звіти — у порядку програми,
+    // розмір "до" — до вбудовування
+    public void optimize(Ir.Program program, ClassTable table) {
+        scalarReplacement = table != null ? new ScalarReplacement(program, table) : null;
+        List<Ir.Function> functions = new ArrayList<>();
+        for (Ir.ClassUnit c : program.classes) {
+            functions.add(c.init);
+            functions.addAll(c.methods);
+        }
+        FunctionReport[] functionReports = new FunctionReport[functions.size()];
+        boolean[] leaf = new boolean[functions.size()];
+        for (int i = 0; i < functionReports.length; i++) {
+            functionReports[i] = new FunctionReport(functions.get(i));
+            reports.add(functionReports[i]);
+            leaf[i] = !hasCalls(functions.get(i));
+            if (leaf[i]) optimize(functions.get(i), functionReports[i]);
+        }
+        Inliner inliner = table != null ? new Inliner(program, table) : null;
+        for (int i = 0; i < functionReports.length; i++) {
+            if (leaf[i]) continue;
+            if (inliner != null) {
+                inliner.run(functions.get(i));
+                functionReports[i].add(Counter.DEVIRTUALIZED, inliner.devirtualized);
+                functionReports[i].add(Counter.INLINED, inliner.inlined);
+            }
+            optimize(functions.get(i), functionReports[i]);
+        }
+    }
+
+    public void optimize(Ir.Function function) {
+        FunctionReport report = new FunctionReport(function);
+        reports.add(report);
+        optimize(function, report);
+    }
+
+    private static boolean hasCalls(Ir.Function function) {
+        for (Ir.Instr instr : function.code) {
+            if (instr.op == Ir.Opcode.CALL) return true;
+        }
+        return false;
+    }
+
+    private void optimize(Ir.Function function, FunctionReport report) {
+        if (function.code.isEmpty()) return;
+
+        optimizeSsa(function, report);
+        // Атрибути замінених об'єктів — нові змінні: поширення копій і мертвий код ще раз
+        if (scalarReplacement != null && scalarReplacement.run(function)) {
+            report.add(Counter.ALLOCATIONS_REMOVED, scalarReplacement.allocationsRemoved);
+            optimizeSsa(function, report);
+        }
+
+        Peephole peephole = new Peephole(peepholeRules);
+        peephole.run(function);
+        int fused = peephole.count(Peephole.FUSE_BRANCH);
+        report.add(Counter.PEEPHOLE, peephole.total() - fused);
+        report.add(Counter.BRANCHES_FUSED, fused);
+
+        report.instructionsAfter = size(function);
+    }
+
+    // CFG -> ... -> вихід з SSA -> спрощення переходів; результат — лінійний код
+    private static void optimizeSsa(Ir.Function function, FunctionReport report) {
+        Cfg cfg = Cfg.build(function);
+        Dominators dom = Dominators.compute(cfg);
+        Ssa.construct(cfg, dom, Liveness.analyze(cfg));
+
+        Sccp sccp = Sccp.run(cfg);
+        report.add(Counter.CONSTANTS_PROPAGATED, sccp.constantsPropagated);
+        report.add(Counter.BRANCHES_FOLDED, sccp.branchesFolded);
+        report.add(Counter.CONSTANTS_REMOVED, sccp.instructionsRemoved);
+        report.add(Counter.UNREACHABLE_REMOVED, sccp.unreachableRemoved);
+
+        ValueNumbering vn = ValueNumbering.run(cfg, dom);
+        report.add(Counter.COPIES_PROPAGATED, vn.copiesPropagated);
+        report.add(Counter.LOCAL_REDUNDANT, vn.localRedundant);
+        report.add(Counter.GLOBAL_REDUNDANT, vn.globalRedundant);
+
+        LoopOptimizer loops = LoopOptimizer.run(cfg);
+        report.add(Counter.INVARIANTS_HOISTED, loops.invariantsHoisted);
+        report.add(Counter.STRENGTH_REDUCED, loops.multiplicationsReduced);
+
+        DeadCodeElimination dce = new DeadCodeElimination();
+        dce.removeDead(cfg);
+        Ssa.destruct(cfg);
+        dce.simplifyControlFlow(function);
+        report.add(Counter.DEAD_REMOVED, dce.deadRemoved);
+        report.add(Counter.UNREACHABLE_REMOVED, dce.unreachableRemoved);
+        report.add(Counter.JUMPS_REMOVED, dce.jumpsRemoved);
+        report.add(Counter.LABELS_REMOVED, dce.labelsRemoved);
+    }
+
+    // Звіт по функціях, де щось змінилось, і підсумок
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        int[] total = new int[Counter.values().length];
+        int before = 0;
+        int after = 0;
+        for (FunctionReport r : reports) {
+            before += r.instructionsBefore;
+            after += r.instructionsAfter;
+            for (int i = 0; i < total.length; i++) total[i] += r.counts[i];
+            if (r.removed() != 0) sb.append(r).append('\n');
+        }
+        sb.append("Total: ").append(before).append(" -> ").append(after).append(" instructions");
+        appendCounts(sb, total);
+        return sb.append('\n').toString();
+    }
+
+    private static void appendCounts(StringBuilder sb, int[] counts) {
+        String sep = " (";
+        for (Counter c : Counter.values()) {
+            if (counts[c.ordinal()] == 0) continue;
+            sb.append(sep).append(c.description).append(": ").append(counts[c.ordinal()]);
+            sep = ", ";
+        }
+        if (!sep.equals(" (")) sb.append(')');
+    }
+
+    // Інструкції функції без приміток FOLDED
+    private static int size(Ir.Function function) {
+        int n = 0;
+        for (Ir.Instr instr : function.code) {
+            if (instr.op != Ir.Opcode.FOLDED) n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,43 @@
+package ua.nuzp.cool;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+// Режим передбачення (prediction) парсера.
+// LL        — стандартний повний LL(*) ANTLR (як у CoolParser за замовчуванням).
+// TWO_STAGE — спочатку швидкий SLL з BailErrorStrategy; лише якщо він не впорався
+//             (синтаксична помилка або неоднозначність SLL), повторний розбір у LL.
+//             Для коректних програм результат ідентичний, повідомлення про помилки — теж,
+//             бо вони формуються виключно на другому (LL) етапі.
+public enum ParseMode {
+    LL,
+    TWO_STAGE;
+
+    public CoolParser.ProgramContext parse(TokenStream tokens, ANTLRErrorListener listener) {
+        CoolParser parser = new CoolParser(tokens);
+        parser.removeErrorListeners();
+
+        if (this == TWO_STAGE) {
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            parser.setErrorHandler(new BailErrorStrategy());
+            try {
+                return parser.program();
+            } catch (ParseCancellationException e) {
+                // Повернення до початку потоку токенів і повний LL-розбір
+                tokens.seek(0);
+                parser.reset();
+                parser.setErrorHandler(new DefaultErrorStrategy());
+            }
+        }
+
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        if (listener != null) parser.addErrorListener(listener);
+        return parser.program();
+    }
+
+    // "ll", "two-stage" (для параметрів командного рядка)
+    public static ParseMode fromName(String name) {
+        return valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+}
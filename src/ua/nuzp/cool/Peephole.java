@@ -0,0 +1,279 @@
+package ua.nuzp.cool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Peephole-оптимізація лінійного коду: правила над ковзним вікном сусідніх інструкцій.
+// Таблиця правил — за кодом операції першої інструкції вікна, тож у кожній позиції
+// перевіряються лише правила, що можуть спрацювати. Набір правил змінний: Peephole(rules)
+// приймає будь-які реалізації Rule, defaultRules() — стандартний набір.
+// Вікно — наступні інструкції без приміток FOLDED. Проходи повторюються, доки жодне правило
+// не спрацює. Лічильники читань змінних і переходів на мітки ведуться під час переписування,
+// тож умова «значення читається лише тут» перевіряється за сталий час.
+public class Peephole {
+
+    public static final String FUSE_BRANCH = "fuse-compare-branch";
+
+    // Правило: розмір вікна та коди операцій, з яких воно може починатися
+    public abstract static class Rule {
+        public final String name;
+        final int size;
+        final Ir.Opcode[] first;
+
+        protected Rule(String name, int size, Ir.Opcode... first) {
+            this.name = name;
+            this.size = size;
+            this.first = first;
+        }
+
+        // Переписує вікно через Window.set/remove; false — правило не застосовне
+        protected abstract boolean apply(Window w);
+    }
+
+    // Вікно над кодом функції; зміни — лише через set/remove (оновлюють лічильники)
+    public final class Window {
+        private final int[] at;
+        private int size;
+
+        Window(int capacity) { this.at = new int[capacity]; }
+
+        public int size() { return size; }
+
+        public Ir.Instr get(int j) { return code[at[j]]; }
+
+        public void set(int j, Ir.Instr instr) {
+            count(code[at[j]], -1);
+            count(instr, 1);
+            code[at[j]] = instr;
+        }
+
+        public void remove(int j) { set(j, null); }
+
+        // Кількість читань змінної в усій функції
+        public int uses(Ir.Local l) { return l.index < uses.length ? uses[l.index] : 0; }
+
+        // Кількість переходів на мітку
+        public int jumpsTo(Ir.Label label) {
+            Integer n = jumps.get(label);
+            return n != null ? n : 0;
+        }
+
+        // Наступні size інструкцій від позиції i (без FOLDED та видалених)
+        boolean fill(int i, int size) {
+            this.size = 0;
+            for (int k = i; k < code.length && this.size < size; k++) {
+                if (code[k] != null && code[k].op != Ir.Opcode.FOLDED) at[this.size++] = k;
+            }
+            return this.size == size;
+        }
+    }
+
+    private final Map<Ir.Opcode, List<Rule>> table = new EnumMap<>(Ir.Opcode.class);
+    private final int maxSize;
+    private final Map<String, Integer> counts = new LinkedHashMap<>();
+
+    private Ir.Instr[] code;
+    private int[] uses;
+    private final Map<Ir.Label, Integer> jumps = new IdentityHashMap<>();
+
+    public Peephole() {
+        this(defaultRules());
+    }
+
+    public Peephole(List<Rule> rules) {
+        int max = 1;
+        for (Rule r : rules) {
+            for (Ir.Opcode op : r.first) table.computeIfAbsent(op, k -> new ArrayList<>(2)).add(r);
+            max = Math.max(max, r.size);
+        }
+        this.maxSize = max;
+    }
+
+    // ===== Статистика =====
+
+    // Спрацювання правил за іменами, у порядку першого спрацювання
+    public Map<String, Integer> getCounts() { return counts; }
+
+    public int count(String rule) { return counts.getOrDefault(rule, 0); }
+
+    public int total() {
+        int n = 0;
+        for (int c : counts.values()) n += c;
+        return n;
+    }
+
+    // ===== Прохід =====
+
+    public void run(Ir.Function function) {
+        code = function.code.toArray(new Ir.Instr[0]);
+        uses = new int[function.locals().size()];
+        jumps.clear();
+        for (Ir.Instr instr : code) count(instr, 1);
+
+        Window w = new Window(maxSize);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < code.length; i++) {
+                // У тій самій позиції — доки спрацьовують правила (результат одного — вхід іншого)
+                while (code[i] != null) {
+                    Rule applied = null;
+                    for (Rule r : table.getOrDefault(code[i].op, List.of())) {
+                        if (w.fill(i, r.size) && r.apply(w)) {
+                            applied = r;
+                            break;
+                        }
+                    }
+                    if (applied == null) break;
+                    counts.merge(applied.name, 1, Integer::sum);
+                    changed = true;
+                }
+            }
+        }
+
+        function.code.clear();
+        for (Ir.Instr instr : code) {
+            if (instr != null) function.code.add(instr);
+        }
+        code = null;
+    }
+
+    private void count(Ir.Instr instr, int delta) {
+        if (instr == null || instr.op == Ir.Opcode.FOLDED) return;
+        countUse(instr.a, delta);
+        countUse(instr.b, delta);
+        if (instr.op.isJump()) jumps.merge(instr.label, delta, Integer::sum);
+    }
+
+    private void countUse(Ir.Operand operand, int delta) {
+        if (operand instanceof Ir.Local && ((Ir.Local) operand).index < uses.length) {
+            uses[((Ir.Local) operand).index] += delta;
+        }
+    }
+
+    // ===== Стандартні правила =====
+
+    public static List<Rule> defaultRules() {
+        return new ArrayList<>(Arrays.asList(
+                SELF_MOVE, JUMP_TO_NEXT, UNUSED_LABEL, DEAD_DEFINITION,
+                ALGEBRAIC, FORWARD_RESULT, FUSE_COMPARE_BRANCH));
+    }
+
+    // MOVE x, x
+    static final Rule SELF_MOVE = new Rule("self-move", 1, Ir.Opcode.MOVE) {
+        @Override
+        protected boolean apply(Window w) {
+            Ir.Instr m = w.get(0);
+            if (m.dst != m.a) return false;
+            w.remove(0);
+            return true;
+        }
+    };
+
+    // GOTO L / умовний перехід на L, за яким одразу йде L:
+    static final Rule JUMP_TO_NEXT = new Rule("jump-to-next", 2,
+            Ir.Opcode.GOTO, Ir.Opcode.IF_FALSE, Ir.Opcode.IF_GE, Ir.Opcode.IF_GT, Ir.Opcode.IF_NE) {
+        @Override
+        protected boolean apply(Window w) {
+            Ir.Instr next = w.get(1);
+            if (next.op != Ir.Opcode.LABEL || next.label != w.get(0).label) return false;
+            w.remove(0);
+            return true;
+        }
+    };
+
+    // Мітка, на яку ніхто не переходить
+    static final Rule UNUSED_LABEL = new Rule("unused-label", 1, Ir.Opcode.LABEL) {
+        @Override
+        protected boolean apply(Window w) {
+            if (w.jumpsTo(w.get(0).label) != 0) return false;
+            w.remove(0);
+            return true;
+        }
+    };
+
+    // Чисте присвоєння локальній змінній, яку ніхто не читає (умова видаленого переходу)
+    static final Rule DEAD_DEFINITION = new Rule("dead-definition", 1,
+            Ir.Opcode.MOVE, Ir.Opcode.ADD, Ir.Opcode.SUB, Ir.Opcode.MUL, Ir.Opcode.DIV,
+            Ir.Opcode.LT, Ir.Opcode.LE, Ir.Opcode.EQ, Ir.Opcode.NOT, Ir.Opcode.NEG, Ir.Opcode.ISVOID) {
+        @Override
+        protected boolean apply(Window w) {
+            Ir.Instr instr = w.get(0);
+            if (!DeadCodeElimination.isPure(instr) || w.uses(instr.dst) != 0) return false;
+            w.remove(0);
+            return true;
+        }
+    };
+
+    // x + 0, 0 + x, x - 0, x * 1, 1 * x, x / 1 => x;  x * 0, 0 * x => 0
+    static final Rule ALGEBRAIC = new Rule("algebraic-identity", 1,
+            Ir.Opcode.ADD, Ir.Opcode.SUB, Ir.Opcode.MUL, Ir.Opcode.DIV) {
+        @Override
+        protected boolean apply(Window w) {
+            Ir.Instr instr = w.get(0);
+            Ir.Operand value;
+            switch (instr.op) {
+                case ADD:
+                    value = isInt(instr.b, 0) ? instr.a : isInt(instr.a, 0) ? instr.b : null;
+                    break;
+                case SUB:
+                    value = isInt(instr.b, 0) ? instr.a : null;
+                    break;
+                case MUL:
+                    if (isInt(instr.a, 0) || isInt(instr.b, 0)) value = Ir.IntConst.of(0);
+                    else value = isInt(instr.b, 1) ? instr.a : isInt(instr.a, 1) ? instr.b : null;
+                    break;
+                default:
+                    value = isInt(instr.b, 1) ? instr.a : null;
+            }
+            if (value == null) return false;
+            w.set(0, new Ir.Instr(Ir.Opcode.MOVE, instr.dst, value, null));
+            return true;
+        }
+    };
+
+    // t <- op ...; x <- t, де t більше ніхто не читає => x <- op ...
+    static final Rule FORWARD_RESULT = new Rule("forward-result", 2,
+            Ir.Opcode.MOVE, Ir.Opcode.ADD, Ir.Opcode.SUB, Ir.Opcode.MUL, Ir.Opcode.DIV,
+            Ir.Opcode.LT, Ir.Opcode.LE, Ir.Opcode.EQ, Ir.Opcode.NOT, Ir.Opcode.NEG, Ir.Opcode.ISVOID,
+            Ir.Opcode.NEW, Ir.Opcode.CALL, Ir.Opcode.LOAD) {
+        @Override
+        protected boolean apply(Window w) {
+            Ir.Instr def = w.get(0);
+            Ir.Instr move = w.get(1);
+            if (move.op != Ir.Opcode.MOVE || move.a != def.dst || !Ssa.isSsaLocal(def.dst)
+                    || w.uses(def.dst) != 1) return false;
+            def.dst = move.dst;
+            w.remove(1);
+            return true;
+        }
+    };
+
+    // t <- a < b; IF_FALSE t GOTO L, де t більше ніхто не читає => IF_GE a, b GOTO L
+    static final Rule FUSE_COMPARE_BRANCH = new Rule(FUSE_BRANCH, 2,
+            Ir.Opcode.LT, Ir.Opcode.LE, Ir.Opcode.EQ) {
+        @Override
+        protected boolean apply(Window w) {
+            Ir.Instr cmp = w.get(0);
+            Ir.Instr branch = w.get(1);
+            if (branch.op != Ir.Opcode.IF_FALSE || branch.a != cmp.dst || !Ssa.isSsaLocal(cmp.dst)
+                    || w.uses(cmp.dst) != 1) return false;
+            Ir.Opcode op = cmp.op == Ir.Opcode.LT ? Ir.Opcode.IF_GE
+                    : cmp.op == Ir.Opcode.LE ? Ir.Opcode.IF_GT : Ir.Opcode.IF_NE;
+            Ir.Instr fused = new Ir.Instr(op, null, cmp.a, cmp.b);
+            fused.label = branch.label;
+            w.set(0, fused);
+            w.remove(1);
+            return true;
+        }
+    };
+
+    private static boolean isInt(Ir.Operand operand, int value) {
+        return operand instanceof Ir.IntConst && ((Ir.IntConst) operand).value == value;
+    }
+}
@@ -0,0 +1,190 @@
+package ua.nuzp.cool;
+
+import ua.nuzp.cool.Ir.Opcode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Аналіз втечі (escape analysis) і скалярна заміна об'єктів, що не залишають функцію.
+//
+// Після вбудовування (Inliner) гетери та сетери на щойно створеному об'єкті стають
+// NEW t + CHECK t / LOAD d, t.a / STORE t.a, v. Якщо t лише так і використовується, об'єкт
+// ніхто інший не бачить: його атрибути — звичайні змінні функції (t.a), NEW — присвоєння
+// їм початкових значень, LOAD / STORE — MOVE, CHECK зникає, ISVOID t — false. Алокація
+// і подальша робота збирача купи зникають разом з об'єктом.
+//
+// Об'єкт втікає, якщо t передається (PARAM, отримувач CALL), повертається (RET), записується
+// кудись (MOVE, STORE значенням), порівнюється (EQ) або розбирається case — тоді заміни немає.
+// Кожне присвоєння t — NEW того самого класу, і t не жива на вході у функцію: будь-яке
+// використання бачить останній створений об'єкт, тож одного набору змінних достатньо.
+// Конструктор класу (з предками) має зводитися до присвоєнь атрибутам констант — інакше він
+// отримує self і об'єкт втікає в нього.
+//
+// Прохід працює з лінійним кодом після виходу з SSA: копії вже поширені, тож об'єкт живе
+// в одній змінній. Нові змінні атрибутів Optimizer проводить через SSA-проходи ще раз.
+public class ScalarReplacement {
+
+    // ===== Статистика (останнього run) =====
+
+    public int allocationsRemoved = 0;
+
+    private final ClassTable table;
+    private final Map<String, Ir.ClassUnit> units = new HashMap<>();
+    // Клас -> атрибут -> значення після конструктора; відсутній клас — ще не обчислено
+    private final Map<String, Map<String, Ir.Const>> initial = new HashMap<>();
+
+    public ScalarReplacement(Ir.Program program, ClassTable table) {
+        this.table = table;
+        for (Ir.ClassUnit c : program.classes) units.put(c.name, c);
+    }
+
+    // Замінює змінними функції об'єкти, що не втікають; true — код змінився
+    public boolean run(Ir.Function function) {
+        allocationsRemoved = 0;
+        List<Ir.Local> locals = function.locals();
+        String[] classOf = new String[locals.size()]; // клас NEW кандидата
+        boolean[] escapes = new boolean[locals.size()];
+        for (Ir.Var p : function.params) escapes[p.index] = true;
+
+        for (Ir.Instr instr : function.code) {
+            if (instr.op == Opcode.FOLDED) continue;
+            if (instr.dst != null && !isAttribute(instr.dst)) {
+                int d = instr.dst.index;
+                if (instr.op != Opcode.NEW || initialValues(instr.name) == null
+                        || classOf[d] != null && !classOf[d].equals(instr.name)) {
+                    escapes[d] = true;
+                } else {
+                    classOf[d] = instr.name;
+                }
+            }
+            switch (instr.op) {
+                case CHECK:
+                case ISVOID:
+                case LOAD:
+                    break;
+                case STORE:
+                    escape(instr.b, escapes);
+                    break;
+                default:
+                    escape(instr.a, escapes);
+                    escape(instr.b, escapes);
+                    if (instr.args != null) {
+                        for (Ir.Operand arg : instr.args) escape(arg, escapes);
+                    }
+            }
+        }
+
+        boolean any = false;
+        for (int i = 0; i < classOf.length; i++) {
+            if (classOf[i] != null && !escapes[i]) any = true;
+        }
+        if (!any) return false;
+
+        // Без NEW на якомусь шляху змінна — void на вході у функцію
+        Cfg cfg = Cfg.build(function);
+        Liveness liveness = Liveness.analyze(cfg);
+        for (int i = 0; i < classOf.length; i++) {
+            if (classOf[i] != null && !escapes[i] && liveness.isLiveIn(cfg.entry(), locals.get(i))) escapes[i] = true;
+        }
+
+        // Змінні атрибутів — лише тих, що читаються або пишуться
+        Map<Ir.Local, Map<String, Ir.Var>> fields = new HashMap<>();
+        for (Ir.Instr instr : function.code) {
+            if ((instr.op == Opcode.LOAD || instr.op == Opcode.STORE) && replaced(instr.a, classOf, escapes)) {
+                fields.computeIfAbsent((Ir.Local) instr.a, k -> new LinkedHashMap<>())
+                        .computeIfAbsent(instr.name, a -> function.newVar(instr.a + "." + a));
+            }
+        }
+
+        List<Ir.Instr> out = new ArrayList<>(function.code.size());
+        for (Ir.Instr instr : function.code) {
+            switch (instr.op) {
+                case NEW:
+                    if (!replaced(instr.dst, classOf, escapes)) break;
+                    Map<String, Ir.Const> values = initialValues(instr.name);
+                    for (Map.Entry<String, Ir.Var> f : fields.getOrDefault(instr.dst, Map.of()).entrySet()) {
+                        out.add(new Ir.Instr(Opcode.MOVE, f.getValue(), values.get(f.getKey()), null));
+                    }
+                    allocationsRemoved++;
+                    continue;
+                case CHECK:
+                    if (replaced(instr.a, classOf, escapes)) continue;
+                    break;
+                case ISVOID:
+                    if (!replaced(instr.a, classOf, escapes)) break;
+                    out.add(new Ir.Instr(Opcode.MOVE, instr.dst, Ir.BoolConst.FALSE, null));
+                    continue;
+                case LOAD:
+                    if (!replaced(instr.a, classOf, escapes)) break;
+                    out.add(new Ir.Instr(Opcode.MOVE, instr.dst, fields.get(instr.a).get(instr.name), null));
+                    continue;
+                case STORE:
+                    if (!replaced(instr.a, classOf, escapes)) break;
+                    out.add(new Ir.Instr(Opcode.MOVE, fields.get(instr.a).get(instr.name), instr.b, null));
+                    continue;
+                default:
+                    break;
+            }
+            out.add(instr);
+        }
+        if (allocationsRemoved == 0) return false;
+        function.code.clear();
+        function.code.addAll(out);
+        return true;
+    }
+
+    private static void escape(Ir.Operand op, boolean[] escapes) {
+        if (op instanceof Ir.Local) escapes[((Ir.Local) op).index] = true;
+    }
+
+    private static boolean replaced(Ir.Operand op, String[] classOf, boolean[] escapes) {
+        if (!(op instanceof Ir.Local) || isAttribute(op)) return false;
+        int i = ((Ir.Local) op).index;
+        return classOf[i] != null && !escapes[i];
+    }
+
+    private static boolean isAttribute(Ir.Operand op) {
+        return op instanceof Ir.Var && ((Ir.Var) op).attribute;
+    }
+
+    // ===== Початкові значення атрибутів =====
+
+    // Атрибути класу та предків після конструктора; null — клас не замінюється
+    // (Int, Bool, String, SELF_TYPE або конструктор не з присвоєнь констант)
+    private Map<String, Ir.Const> initialValues(String className) {
+        if (initial.containsKey(className)) return initial.get(className);
+        Map<String, Ir.Const> values = null;
+        Type t = className.equals("SELF_TYPE") ? null : table.lookup(className);
+        if (t != null && t != table.intType && t != table.boolType && t != table.stringType) {
+            Map<String, Ir.Const> parent = t.getParent() != null ? initialValues(t.getParent().name) : Map.of();
+            values = parent != null ? construct(t, new HashMap<>(parent)) : null;
+        }
+        initial.put(className, values);
+        return values;
+    }
+
+    // Власні атрибути t: значення за замовчуванням, далі присвоєння конструктора
+    private Map<String, Ir.Const> construct(Type t, Map<String, Ir.Const> values) {
+        for (Type.Attribute a : t.getAttributes().values()) values.put(a.name, defaultValue(a.type.name));
+        Ir.ClassUnit unit = units.get(t.name);
+        if (unit == null) return values;
+        for (Ir.Instr instr : unit.init.code) {
+            if (instr.op == Opcode.FOLDED) continue;
+            if (instr.op != Opcode.MOVE || !isAttribute(instr.dst) || !(instr.a instanceof Ir.Const)) return null;
+            values.put(((Ir.Var) instr.dst).name, (Ir.Const) instr.a);
+        }
+        return values;
+    }
+
+    private static Ir.Const defaultValue(String type) {
+        switch (type) {
+            case "Int": return Ir.IntConst.of(0);
+            case "Bool": return Ir.BoolConst.FALSE;
+            case "String": return new Ir.StringConst("");
+            default: return Ir.VoidConst.INSTANCE;
+        }
+    }
+}
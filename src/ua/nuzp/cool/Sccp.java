@@ -0,0 +1,331 @@
+package ua.nuzp.cool;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Розріджене умовне поширення констант (sparse conditional constant propagation,
+// Wegman-Zadeck) над функцією у формі SSA.
+// Решітка значень кожної версії: TOP (ще невідомо) -> константа -> BOTTOM (не константа).
+// Два робочі списки: ребра CFG, що стали виконуваними, та інструкції, чиї операнди змінились.
+// На відміну від окремих згортки констант і видалення мертвих гілок, проходи підсилюють
+// один одного: константна умова робить гілку невиконуваною, і її присвоєння не псують phi.
+//
+// Після аналізу (rewrite):
+//   - константи підставляються замість використань;
+//   - IF_FALSE з константною умовою видаляється або стає GOTO;
+//   - невиконувані блоки очищаються, а невиконувані ребра видаляються з CFG;
+//   - чисті присвоєння константних значень видаляються (phi отримують константи як аргументи).
+// Атрибути, параметри, self та значення CALL/NEW — завжди BOTTOM.
+public class Sccp {
+
+    private static final int TOP = 0;
+    private static final int CONST = 1;
+    private static final int BOTTOM = 2;
+
+    private final Cfg cfg;
+    private final int[] state;          // за Local.index
+    private final Ir.Const[] value;
+    private final List<List<Ir.Instr>> uses;
+    private final Map<Ir.Instr, Cfg.Block> blockOf = new IdentityHashMap<>();
+    private final boolean[] executable; // блоки
+    private final boolean[][] edges;    // [блок][номер попередника] — ребро виконуване
+
+    private final ArrayDeque<Cfg.Block> flowFrom = new ArrayDeque<>();
+    private final ArrayDeque<Cfg.Block> flowTo = new ArrayDeque<>();
+    private final ArrayDeque<Ir.Instr> ssaWorklist = new ArrayDeque<>();
+
+    // ===== Статистика =====
+
+    public int constantsPropagated = 0;
+    public int branchesFolded = 0;
+    public int instructionsRemoved = 0;   // константні присвоєння та умови
+    public int unreachableRemoved = 0;    // інструкції невиконуваних блоків
+
+    private Sccp(Cfg cfg) {
+        this.cfg = cfg;
+        int locals = cfg.function.locals().size();
+        this.state = new int[locals];
+        this.value = new Ir.Const[locals];
+        this.uses = new ArrayList<>(locals);
+        for (int i = 0; i < locals; i++) uses.add(null);
+        int n = cfg.blocks.size();
+        this.executable = new boolean[n];
+        this.edges = new boolean[n][];
+        for (Cfg.Block b : cfg.blocks) edges[b.index] = new boolean[b.preds.size()];
+    }
+
+    // Аналіз і перетворення функції у формі SSA
+    public static Sccp run(Cfg cfg) {
+        Sccp sccp = new Sccp(cfg);
+        sccp.collectUses();
+        sccp.propagate();
+        sccp.rewrite();
+        return sccp;
+    }
+
+    private void collectUses() {
+        for (Cfg.Block b : cfg.blocks) {
+            for (Ir.Instr instr : b.instrs) {
+                blockOf.put(instr, b);
+                if (instr.op == Ir.Opcode.FOLDED) continue;
+                addUse(instr.a, instr);
+                addUse(instr.b, instr);
+                if (instr.args != null) {
+                    for (Ir.Operand arg : instr.args) addUse(arg, instr);
+                }
+            }
+        }
+    }
+
+    private void addUse(Ir.Operand operand, Ir.Instr instr) {
+        if (!(operand instanceof Ir.Local)) return;
+        int index = ((Ir.Local) operand).index;
+        List<Ir.Instr> list = uses.get(index);
+        if (list == null) uses.set(index, list = new ArrayList<>(2));
+        list.add(instr);
+    }
+
+    // ===== Поширення =====
+
+    private void propagate() {
+        visitBlock(cfg.entry());
+        while (!flowFrom.isEmpty() || !ssaWorklist.isEmpty()) {
+            while (!flowFrom.isEmpty()) {
+                Cfg.Block from = flowFrom.poll();
+                Cfg.Block to = flowTo.poll();
+                int j = to.preds.indexOf(from);
+                if (edges[to.index][j]) continue;
+                edges[to.index][j] = true;
+                if (!executable[to.index]) {
+                    visitBlock(to);
+                } else {
+                    for (Ir.Instr instr : to.instrs) {
+                        if (instr.op == Ir.Opcode.PHI) visitInstr(instr, to);
+                    }
+                }
+            }
+            while (!ssaWorklist.isEmpty()) {
+                Ir.Instr instr = ssaWorklist.poll();
+                Cfg.Block b = blockOf.get(instr);
+                if (executable[b.index]) visitInstr(instr, b);
+            }
+        }
+    }
+
+    private void visitBlock(Cfg.Block b) {
+        executable[b.index] = true;
+        for (Ir.Instr instr : b.instrs) visitInstr(instr, b);
+        Ir.Instr last = b.last();
+        if (last == null || (!last.op.isJump() && last.op != Ir.Opcode.RET)) {
+            for (Cfg.Block s : b.succs) addEdge(b, s);
+        }
+    }
+
+    private void visitInstr(Ir.Instr instr, Cfg.Block b) {
+        switch (instr.op) {
+            case GOTO:
+                addEdge(b, b.succs.get(0));
+                return;
+            case IF_FALSE: {
+                int cond = stateOf(instr.a);
+                // Мітка переходу — наступний блок: одне ребро (Cfg), виконується за будь-якої умови
+                if (cond == CONST && b.succs.size() > 1) {
+                    boolean taken = !((Ir.BoolConst) constOf(instr.a)).value;
+                    for (Cfg.Block s : b.succs) {
+                        if (isJumpTarget(instr, s) == taken) addEdge(b, s);
+                    }
+                } else {
+                    // TOP у виконуваному блоці не трапляється (визначення домінує використання)
+                    for (Cfg.Block s : b.succs) addEdge(b, s);
+                }
+                return;
+            }
+            default:
+                if (instr.dst == null || !Ssa.isSsaLocal(instr.dst)) return;
+                evaluate(instr);
+        }
+    }
+
+    private void addEdge(Cfg.Block from, Cfg.Block to) {
+        flowFrom.add(from);
+        flowTo.add(to);
+    }
+
+    // Ребро з IF_FALSE на його мітку (інакше — перехід до наступного блоку)
+    private static boolean isJumpTarget(Ir.Instr jump, Cfg.Block s) {
+        for (Ir.Instr instr : s.instrs) {
+            if (instr.op != Ir.Opcode.LABEL) return false;
+            if (instr.label == jump.label) return true;
+        }
+        return false;
+    }
+
+    // Нове значення присвоєння; при зміні — повторна обробка використань
+    private void evaluate(Ir.Instr instr) {
+        int index = instr.dst.index;
+        if (state[index] == BOTTOM) return;
+
+        Ir.Const result = null;
+        int newState;
+        if (instr.op == Ir.Opcode.PHI) {
+            newState = TOP;
+            Cfg.Block b = blockOf.get(instr);
+            for (int j = 0; j < instr.args.length && newState != BOTTOM; j++) {
+                if (!edges[b.index][j]) continue;
+                int s = stateOf(instr.args[j]);
+                if (s == TOP) continue;
+                if (s == BOTTOM) {
+                    newState = BOTTOM;
+                } else if (newState == TOP) {
+                    newState = CONST;
+                    result = constOf(instr.args[j]);
+                } else if (!sameValue(result, constOf(instr.args[j]))) {
+                    newState = BOTTOM;
+                }
+            }
+        } else {
+            int sa = instr.a != null ? stateOf(instr.a) : BOTTOM;
+            int sb = instr.b != null ? stateOf(instr.b) : CONST;
+            if (instr.op == Ir.Opcode.NEW || instr.op == Ir.Opcode.CALL
+                    || sa == BOTTOM || sb == BOTTOM) {
+                newState = BOTTOM;
+            } else if (sa == TOP || sb == TOP) {
+                newState = TOP;
+            } else {
+                result = fold(instr.op, constOf(instr.a), instr.b != null ? constOf(instr.b) : null);
+                newState = result != null ? CONST : BOTTOM;
+            }
+        }
+
+        if (newState == state[index]) return;
+        state[index] = newState;
+        value[index] = result;
+        List<Ir.Instr> list = uses.get(index);
+        if (list != null) ssaWorklist.addAll(list);
+    }
+
+    private int stateOf(Ir.Operand operand) {
+        if (operand instanceof Ir.Const) return CONST;
+        if (!Ssa.isSsaLocal(operand)) return BOTTOM;
+        Ir.Local l = (Ir.Local) operand;
+        return l.version == 0 ? BOTTOM : state[l.index];
+    }
+
+    private Ir.Const constOf(Ir.Operand operand) {
+        return operand instanceof Ir.Const ? (Ir.Const) operand : value[((Ir.Local) operand).index];
+    }
+
+    private static boolean sameValue(Ir.Const x, Ir.Const y) {
+        return x.getClass() == y.getClass() && Objects.equals(x.value(), y.value());
+    }
+
+    // Значення операції над константами; null — не обчислюється під час компіляції
+    private static Ir.Const fold(Ir.Opcode op, Ir.Const a, Ir.Const b) {
+        switch (op) {
+            case MOVE:
+                return a;
+            case ADD:
+            case SUB:
+            case MUL:
+            case DIV: {
+                if (!(a instanceof Ir.IntConst) || !(b instanceof Ir.IntConst)) return null;
+                int x = ((Ir.IntConst) a).value;
+                int y = ((Ir.IntConst) b).value;
+                switch (op) {
+                    case ADD: return Ir.IntConst.of(x + y);
+                    case SUB: return Ir.IntConst.of(x - y);
+                    case MUL: return Ir.IntConst.of(x * y);
+                    default: return y == 0 ? null : Ir.IntConst.of(x / y); // ділення на 0 — під час виконання
+                }
+            }
+            case LT:
+            case LE: {
+                if (!(a instanceof Ir.IntConst) || !(b instanceof Ir.IntConst)) return null;
+                int x = ((Ir.IntConst) a).value;
+                int y = ((Ir.IntConst) b).value;
+                return Ir.BoolConst.of(op == Ir.Opcode.LT ? x < y : x <= y);
+            }
+            case EQ:
+                return Ir.BoolConst.of(sameValue(a, b));
+            case NOT:
+                return a instanceof Ir.BoolConst ? Ir.BoolConst.of(!((Ir.BoolConst) a).value) : null;
+            case NEG:
+                return a instanceof Ir.IntConst ? Ir.IntConst.of(-((Ir.IntConst) a).value) : null;
+            case ISVOID:
+                return Ir.BoolConst.of(a instanceof Ir.VoidConst);
+            default:
+                return null;
+        }
+    }
+
+    // ===== Перетворення =====
+
+    private void rewrite() {
+        for (Cfg.Block b : cfg.blocks) {
+            List<Ir.Instr> instrs = b.instrs;
+            if (!executable[b.index]) {
+                for (Ir.Instr instr : instrs) {
+                    if (instr.op != Ir.Opcode.PHI && instr.op != Ir.Opcode.FOLDED) unreachableRemoved++;
+                }
+                instrs.clear();
+                continue;
+            }
+            int out = 0;
+            for (int i = 0; i < instrs.size(); i++) {
+                Ir.Instr instr = instrs.get(i);
+                if (instr.dst != null && Ssa.isSsaLocal(instr.dst) && state[instr.dst.index] == CONST) {
+                    // Значення відоме й підставлене в усі використання
+                    if (instr.op != Ir.Opcode.PHI) instructionsRemoved++;
+                    continue;
+                }
+                if (instr.op == Ir.Opcode.PHI) {
+                    for (int j = 0; j < instr.args.length; j++) instr.args[j] = substitute(instr.args[j]);
+                } else if (instr.op != Ir.Opcode.FOLDED) {
+                    instr.a = substitute(instr.a);
+                    instr.b = substitute(instr.b);
+                    if (instr.op == Ir.Opcode.IF_FALSE && instr.a instanceof Ir.Const) {
+                        branchesFolded++;
+                        if (((Ir.BoolConst) instr.a).value) {
+                            instructionsRemoved++;
+                            continue;
+                        }
+                        instr.op = Ir.Opcode.GOTO;
+                        instr.a = null;
+                    }
+                }
+                instrs.set(out++, instr);
+            }
+            instrs.subList(out, instrs.size()).clear();
+        }
+        removeDeadEdges();
+    }
+
+    // Невиконувані ребра зникають із CFG разом з відповідними аргументами phi
+    private void removeDeadEdges() {
+        for (Cfg.Block b : cfg.blocks) {
+            for (int j = b.preds.size() - 1; j >= 0; j--) {
+                if (edges[b.index][j]) continue;
+                Cfg.Block p = b.preds.remove(j);
+                p.succs.remove(b);
+                for (Ir.Instr instr : b.instrs) {
+                    if (instr.op == Ir.Opcode.LABEL) continue;
+                    if (instr.op != Ir.Opcode.PHI) break;
+                    Ir.Operand[] args = new Ir.Operand[instr.args.length - 1];
+                    System.arraycopy(instr.args, 0, args, 0, j);
+                    System.arraycopy(instr.args, j + 1, args, j, args.length - j);
+                    instr.args = args;
+                }
+            }
+        }
+    }
+
+    private Ir.Operand substitute(Ir.Operand operand) {
+        if (!(operand instanceof Ir.Local) || stateOf(operand) != CONST) return operand;
+        constantsPropagated++;
+        return value[((Ir.Local) operand).index];
+    }
+}
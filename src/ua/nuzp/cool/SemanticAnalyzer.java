@@ -1,320 +1,595 @@
 package ua.nuzp.cool;
 
-import org.antlr.v4.runtime.tree.ParseTree;
 import java.util.*;
-
-public class SemanticAnalyzer extends CoolParserBaseVisitor<String> {
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Семантичний аналіз у дві фази:
+//  1) глобальний послідовний прохід — таблиця класів, атрибути та сигнатури методів;
+//  2) перевірка тіл класів — кожен клас окремою задачею fork-join пулу (ClassChecker)
+//     з власними стеком символів і буферами діагностик.
+// Після фази 1 таблиця класів лише читається, тож класи перевіряються незалежно;
+// діагностики зливаються в порядку класів у програмі, результат не залежить від потоків.
+// Після maxErrors помилок аналіз зупиняється: вивід — ті самі перші maxErrors помилок
+// (з попередженнями до останньої з них), що й при послідовній перевірці без ліміту.
+public class SemanticAnalyzer {
+
+    // Менше класів не варто розпаралелювати: накладні витрати більші за виграш
+    private static final int PARALLEL_THRESHOLD = 8;
 
     // ===== Таблиця символів =====
 
-    enum SymbolType { VARIABLE, METHOD, CLASS }
-
     static class Symbol {
         String name;
-        String type;
-        SymbolType kind;
+        Type type;
         boolean isUsed = false;
 
-        public Symbol(String name, String type, SymbolType kind) {
+        public Symbol(String name, Type type) {
             this.name = name;
             this.type = type;
-            this.kind = kind;
         }
     }
 
-    static class Scope {
-        Scope parent;
-        Map<String, Symbol> symbols = new HashMap<>();
+    // Плаский стек символів з мітками областей видимості.
+    // Кожне ім'я отримує числовий id; current[id] — індекс поточного (найглибшого) зв'язування
+    // в стеку, shadowed[i] — зв'язування, яке символ i затіняє. Пошук — один hash-запит
+    // та читання масиву; вихід з області видимості лише знімає її символи зі стеку.
+    static class SymbolStack {
+        private final Map<String, Integer> nameIds = new HashMap<>();
+        private int[] current = new int[64];
+
+        private Symbol[] stack = new Symbol[64];
+        private int[] shadowed = new int[64];
+        private int[] stackNameIds = new int[64];
+        private int top = 0;
+
+        private int[] marks = new int[16];
+        private int depth = 0;
+
+        public void enterScope() {
+            if (depth == marks.length) marks = Arrays.copyOf(marks, depth * 2);
+            marks[depth++] = top;
+        }
 
-        public Scope(Scope parent) { this.parent = parent; }
+        public void exitScope() {
+            int mark = marks[--depth];
+            while (top > mark) {
+                top--;
+                current[stackNameIds[top]] = shadowed[top];
+                stack[top] = null;
+            }
+        }
 
-        public void define(Symbol sym) { symbols.put(sym.name, sym); }
+        public void define(Symbol sym) {
+            int id = nameId(sym.name);
+            if (top == stack.length) {
+                stack = Arrays.copyOf(stack, top * 2);
+                shadowed = Arrays.copyOf(shadowed, top * 2);
+                stackNameIds = Arrays.copyOf(stackNameIds, top * 2);
+            }
+            stack[top] = sym;
+            shadowed[top] = current[id];
+            stackNameIds[top] = id;
+            current[id] = top++;
+        }
 
         public Symbol resolve(String name) {
-            if (symbols.containsKey(name)) return symbols.get(name);
-            if (parent != null) return parent.resolve(name);
-            return null;
+            Integer id = nameIds.get(name);
+            if (id == null) return null;
+            int index = current[id];
+            return index < 0 ? null : stack[index];
         }
 
-        public Collection<Symbol> getLocalSymbols() {
-            return symbols.values();
+        // Символи поточної області видимості в порядку оголошення
+        public List<Symbol> getLocalSymbols() {
+            int mark = depth > 0 ? marks[depth - 1] : 0;
+            return Arrays.asList(stack).subList(mark, top);
+        }
+
+        private int nameId(String name) {
+            Integer id = nameIds.get(name);
+            if (id == null) {
+                id = nameIds.size();
+                nameIds.put(name, id);
+                if (id == current.length) current = Arrays.copyOf(current, id * 2);
+                current[id] = -1;
+            }
+            return id;
         }
     }
 
     // ===== Поля аналізатора =====
 
-    private Scope currentScope;
-    private final List<String> errors = new ArrayList<>();
-    private final List<String> warnings = new ArrayList<>();
-    private final Map<String, Symbol> globalClasses = new HashMap<>();
+    private final List<Diagnostic> errors = new ArrayList<>();
+    private final List<Diagnostic> warnings = new ArrayList<>();
+    private ClassTable classes;
+    private boolean parallel = true;
+    private int maxErrors = Integer.MAX_VALUE;
+    private boolean errorLimitReached = false;
 
-    public SemanticAnalyzer() {
-        currentScope = new Scope(null);
-        defineBaseClasses();
-    }
+    // Найменший індекс класу, перевірка якого вичерпала ліміт помилок;
+    // діагностики наступних класів все одно будуть відкинуті, тож їх перевірка переривається
+    private final AtomicInteger limitClass = new AtomicInteger(Integer.MAX_VALUE);
 
-    public List<String> getErrors() { return errors; }
-    public List<String> getWarnings() { return warnings; }
+    public List<Diagnostic> getErrors() { return errors; }
+    public List<Diagnostic> getWarnings() { return warnings; }
+    public ClassTable getClassTable() { return classes; }
+    public boolean isErrorLimitReached() { return errorLimitReached; }
 
-    // ===== Базові класи =====
+    public void setParallel(boolean parallel) { this.parallel = parallel; }
 
-    private void defineBaseClasses() {
-        defineGlobalClass("Object");
-        defineGlobalClass("IO");
-        defineGlobalClass("Int");
-        defineGlobalClass("String");
-        defineGlobalClass("Bool");
+    public void setMaxErrors(int maxErrors) {
+        if (maxErrors < 1) throw new IllegalArgumentException("maxErrors must be positive");
+        this.maxErrors = maxErrors;
     }
 
-    private void defineGlobalClass(String name) {
-        Symbol s = new Symbol(name, name, SymbolType.CLASS);
-        s.isUsed = true;
-        globalClasses.put(name, s);
-        currentScope.define(s);
+    // Переривання аналізу при досягненні ліміту (без стеку викликів — це не помилка програми)
+    private static final class ErrorLimitReached extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ErrorLimitReached() { super(null, null, false, false); }
     }
 
-    private void error(int line, String msg) {
-        errors.add("Error (Line " + line + "): " + msg);
+    private static final ErrorLimitReached LIMIT_REACHED = new ErrorLimitReached();
+
+    private void error(int line, int column, Diagnostic.Code code, Object... args) {
+        report(new Diagnostic(code, line, column, args));
     }
 
-    private void warn(int line, String msg) {
-        warnings.add("Warning (Line " + line + "): " + msg);
+    private void report(Diagnostic d) {
+        if (!d.isError()) {
+            warnings.add(d);
+            return;
+        }
+        errors.add(d);
+        if (errors.size() >= maxErrors) throw LIMIT_REACHED;
+    }
+
+    // ===== Аналіз програми =====
+
+    public void analyze(Ast.Program program) {
+        try {
+            analyzeProgram(program);
+        } catch (ErrorLimitReached e) {
+            errorLimitReached = true;
+        }
     }
 
-    // ===== Visitor логіка =====
+    private void analyzeProgram(Ast.Program program) {
+        // Фаза 1: класи, атрибути, сигнатури методів
+        classes = ClassTable.build(program, this::error);
+
+        List<ClassChecker> checkers = new ArrayList<>(program.classes.size());
+        Set<String> seen = new HashSet<>();
+        for (Ast.ClassDecl c : program.classes) {
+            if (!seen.add(c.name)) continue; // повторне оголошення вже повідомлено таблицею класів
+            Type type = classes.lookup(c.name);
+            registerFeatures(c, type);
+            checkers.add(new ClassChecker(c, type, checkers.size()));
+        }
+        // Конфлікти з успадкованими членами — коли зареєстровано всі класи
+        for (ClassChecker checker : checkers) checkInheritedFeatures(checker.decl, checker.currentClass);
+
+        // Фаза 2: тіла класів (паралельно).
+        // Паралельно кожен клас отримує весь залишок ліміту; послідовно — залишок після попередніх
+        int budget = maxErrors - errors.size();
+        if (parallel && checkers.size() >= PARALLEL_THRESHOLD) {
+            for (ClassChecker checker : checkers) checker.budget = budget;
+            ForkJoinTask.invokeAll(checkers);
+        } else {
+            for (ClassChecker checker : checkers) {
+                checker.budget = budget;
+                checker.invoke();
+                budget -= checker.errorCount;
+            }
+        }
+
+        // Детерміноване злиття діагностик у порядку класів (до ліміту помилок)
+        for (ClassChecker checker : checkers) {
+            for (Diagnostic d : checker.diagnostics) report(d);
+        }
+    }
 
-    @Override
-    public String visitProgram(CoolParser.ProgramContext ctx) {
-        // Реєстрація класів
-        for (CoolParser.ClassDefineContext c : ctx.classDefine()) {
-            String name = c.type.getText();
-            if (globalClasses.containsKey(name)) {
-                error(c.start.getLine(), "Class " + name + " is already defined.");
+    private void registerFeatures(Ast.ClassDecl c, Type type) {
+        for (Ast.Feature f : c.features) {
+            if (f instanceof Ast.Attribute) {
+                Ast.Attribute a = (Ast.Attribute) f;
+                if (type.getAttributes().containsKey(a.name)) {
+                    error(a.line, a.column, Diagnostic.Code.DUPLICATE_ATTRIBUTE, a.name);
+                } else {
+                    classes.addAttribute(type, a.name, resolveType(a.type, type, a.line, a.column, this::error));
+                }
             } else {
-                Symbol s = new Symbol(name, name, SymbolType.CLASS);
-                globalClasses.put(name, s);
-                currentScope.define(s);
+                Ast.Method m = (Ast.Method) f;
+                if (type.getMethods().containsKey(m.name)) {
+                    error(m.line, m.column, Diagnostic.Code.DUPLICATE_METHOD, m.name);
+                    continue;
+                }
+                List<Type> params = new ArrayList<>(m.formals.size());
+                for (Ast.Formal formal : m.formals) {
+                    params.add(resolveType(formal.type, type, formal.line, formal.column, this::error));
+                }
+                boolean selfType = m.returnType.equals("SELF_TYPE");
+                classes.addMethod(type, m.name, params,
+                        resolveType(m.returnType, type, m.line, m.column, this::error), selfType);
             }
         }
-        return super.visitProgram(ctx);
     }
 
-    @Override
-    public String visitClassDefine(CoolParser.ClassDefineContext ctx) {
-        currentScope = new Scope(currentScope);
-        currentScope.define(new Symbol("self", ctx.type.getText(), SymbolType.VARIABLE));
+    private void checkInheritedFeatures(Ast.ClassDecl c, Type type) {
+        Type parent = type.getParent();
+        if (parent == null) return;
 
-        super.visitClassDefine(ctx);
+        for (Ast.Feature f : c.features) {
+            if (f instanceof Ast.Attribute) {
+                Type.Attribute inherited = parent.lookupAttribute(f.name);
+                if (inherited != null)
+                    error(f.line, f.column, Diagnostic.Code.INHERITED_ATTRIBUTE, f.name, inherited.owner);
+            } else {
+                Type.Method own = type.getMethods().get(f.name);
+                Type.Method inherited = parent.lookupMethod(f.name);
+                // SELF_TYPE розв'язується в клас, що оголошує метод: порівнюється лише прапорець
+                if (inherited != null && own != null && (!inherited.params.equals(own.params)
+                        || own.returnsSelfType != inherited.returnsSelfType
+                        || !own.returnsSelfType && inherited.returnType != own.returnType)) {
+                    error(f.line, f.column, Diagnostic.Code.OVERRIDE_MISMATCH, f.name, inherited.owner);
+                }
+            }
+        }
+    }
 
-        currentScope = currentScope.parent;
-        return ctx.type.getText();
+    // Ім'я типу -> Type; SELF_TYPE трактується як поточний клас, невідомий тип — як Object
+    private Type resolveType(String name, Type currentClass, int line, int column,
+                             ClassTable.ErrorReporter reporter) {
+        if (name.equals("SELF_TYPE")) return currentClass;
+        Type t = classes.lookup(name);
+        if (t == null) {
+            reporter.error(line, column, Diagnostic.Code.UNDEFINED_TYPE, name);
+            return classes.objectType;
+        }
+        return t;
     }
 
-    // Реєстрація атрибутів класу в таблиці символів
-    public String visitAttribute(CoolParser.AttributeContext ctx) {
-        String name = ctx.name.getText();
-        String type = ctx.type.getText();
+    // ===== Перевірка тіла одного класу =====
 
-        if (currentScope.resolve(name) != null) {
-            error(ctx.start.getLine(), "Attribute '" + name + "' is already defined.");
-        } else {
-            currentScope.define(new Symbol(name, type, SymbolType.VARIABLE));
+    @SuppressWarnings("serial") // задача пулу, не серіалізується
+    class ClassChecker extends ForkJoinTask<Void> implements Ast.Visitor<Type> {
+
+        private final Ast.ClassDecl decl;
+        private final Type currentClass;
+        private final SymbolStack symbols = new SymbolStack();
+        private final int index; // порядковий номер класу (для злиття та ліміту)
+        private final List<Diagnostic> diagnostics = new ArrayList<>(); // у порядку виявлення
+        private int budget;
+        private int errorCount;
+        private ConstantEvaluator constants;
+
+        ClassChecker(Ast.ClassDecl decl, Type currentClass, int index) {
+            this.decl = decl;
+            this.currentClass = currentClass;
+            this.index = index;
         }
 
-        if (ctx.value != null) {
-            visit(ctx.value);
+        private void error(int line, int column, Diagnostic.Code code, Object... args) {
+            report(new Diagnostic(code, line, column, args));
+            if (++errorCount >= budget) {
+                limitClass.accumulateAndGet(index, Math::min);
+                throw LIMIT_REACHED;
+            }
         }
 
-        return type;
-    }
+        private void warn(int line, int column, Diagnostic.Code code, Object... args) {
+            report(new Diagnostic(code, line, column, args));
+        }
+
+        private void report(Diagnostic d) {
+            if (limitClass.get() < index) throw LIMIT_REACHED; // попередній клас вичерпав ліміт
+            diagnostics.add(d);
+        }
 
-    @Override
-    public String visitMethod(CoolParser.MethodContext ctx) {
-        String mName = ctx.name.getText();
-        currentScope.define(new Symbol(mName, ctx.returnType.getText(), SymbolType.METHOD));
+        // ===== ForkJoinTask =====
 
-        currentScope = new Scope(currentScope);
+        @Override public Void getRawResult() { return null; }
+        @Override protected void setRawResult(Void value) { }
 
-        if (ctx.formal() != null) {
-            for (CoolParser.FormalContext f : ctx.formal()) {
-                currentScope.define(new Symbol(f.name.getText(), f.type.getText(), SymbolType.VARIABLE));
+        @Override
+        protected boolean exec() {
+            // Константні значення умов обчислюються одним проходом до перевірки типів
+            if (limitClass.get() < index) return true;
+            constants = ConstantEvaluator.evaluate(decl);
+            try {
+                visit(decl);
+            } catch (ErrorLimitReached e) {
+                // решта класу не перевіряється
             }
+            return true;
         }
 
-        visit(ctx.body);
+        // Тип виразу запам'ятовується у вузлі — для генераторів коду, яким потрібні типи
+        private Type visit(Ast.Node node) {
+            Type type = node.accept(this);
+            if (node instanceof Ast.Expr) ((Ast.Expr) node).checkedType = type;
+            return type;
+        }
 
-        // Перевірка невикористаних параметрів
-        for (Symbol s : currentScope.getLocalSymbols()) {
-            if (s.kind == SymbolType.VARIABLE && !s.name.equals("self") && !s.isUsed) {
-                warn(ctx.start.getLine(), "Unused parameter: '" + s.name + "'");
-            }
+        // ===== Visitor логіка =====
+
+        @Override
+        public Type visitProgram(Ast.Program program) {
+            throw new UnsupportedOperationException("ClassChecker works on a single class");
         }
 
-        currentScope = currentScope.parent;
-        return ctx.returnType.getText();
-    }
+        @Override
+        public Type visitClassDecl(Ast.ClassDecl c) {
+            symbols.enterScope();
+            symbols.define(new Symbol("self", currentClass));
+
+            // Атрибути класу та його предків (від кореня ієрархії)
+            List<Type> chain = new ArrayList<>();
+            for (Type t = currentClass; t != null; t = t.getParent()) chain.add(t);
+            for (int i = chain.size() - 1; i >= 0; i--) {
+                for (Type.Attribute a : chain.get(i).getAttributes().values()) {
+                    symbols.define(new Symbol(a.name, a.type));
+                }
+            }
+
+            for (Ast.Feature f : c.features) visit(f);
 
-    @Override
-    public String visitBlock(CoolParser.BlockContext ctx) {
-        String lastType = "Object";
-        for (CoolParser.ExprContext expr : ctx.expr()) {
-            lastType = visit(expr);
+            symbols.exitScope();
+            return currentClass;
         }
-        return lastType;
-    }
 
-    @Override
-    public String visitLet(CoolParser.LetContext ctx) {
-        currentScope = new Scope(currentScope);
+        @Override
+        public Type visitAttribute(Ast.Attribute a) {
+            Type type = declaredType(a.type);
+            if (a.init != null) {
+                checkAssignable(visit(a.init), type, a.line, a.column);
+            }
+            return type;
+        }
+
+        @Override
+        public Type visitMethod(Ast.Method m) {
+            Type returnType = declaredType(m.returnType);
+
+            symbols.enterScope();
+
+            for (Ast.Formal f : m.formals) {
+                symbols.define(new Symbol(f.name, declaredType(f.type)));
+            }
+
+            Type bodyType = visit(m.body);
+            if (!isCompatible(bodyType, returnType))
+                error(m.line, m.column, Diagnostic.Code.RETURN_MISMATCH, m.name, bodyType, returnType);
+
+            // Перевірка невикористаних параметрів
+            for (Symbol s : symbols.getLocalSymbols()) {
+                if (!s.isUsed) {
+                    warn(m.line, m.column, Diagnostic.Code.UNUSED_PARAMETER, s.name);
+                }
+            }
 
-        for (CoolParser.LetMapContext map : ctx.letMap()) {
-            currentScope.define(new Symbol(map.name.getText(), map.type.getText(), SymbolType.VARIABLE));
-            if (map.value != null) visit(map.value);
+            symbols.exitScope();
+            return returnType;
+        }
+
+        @Override
+        public Type visitBlock(Ast.Block b) {
+            Type lastType = classes.objectType;
+            for (Ast.Expr expr : b.body) {
+                lastType = visit(expr);
+            }
+            return lastType;
         }
 
-        String type = visit(ctx.body);
+        @Override
+        public Type visitLet(Ast.Let let) {
+            symbols.enterScope();
 
-        // Перевірка невикористаних локальних змінних
-        for (Symbol s : currentScope.getLocalSymbols()) {
-            if (s.kind == SymbolType.VARIABLE && !s.isUsed) {
-                warn(ctx.start.getLine(), "Unused local variable: '" + s.name + "'");
+            for (Ast.LetBinding map : let.bindings) {
+                Type type = resolveType(map.type, map.line, map.column);
+                // Ініціалізатор обчислюється до появи змінної в області видимості
+                if (map.init != null) checkAssignable(visit(map.init), type, map.line, map.column);
+                symbols.define(new Symbol(map.name, type));
             }
+
+            Type type = visit(let.body);
+
+            // Перевірка невикористаних локальних змінних
+            for (Symbol s : symbols.getLocalSymbols()) {
+                if (!s.isUsed) {
+                    warn(let.line, let.column, Diagnostic.Code.UNUSED_VARIABLE, s.name);
+                }
+            }
+
+            symbols.exitScope();
+            return type;
         }
 
-        currentScope = currentScope.parent;
-        return type;
-    }
+        @Override
+        public Type visitCase(Ast.Case c) {
+            visit(c.value);
 
-    @Override
-    public String visitIf(CoolParser.IfContext ctx) {
-        String condText = ctx.condition.getText();
+            Type type = null;
+            for (Ast.CaseBranch b : c.branches) {
+                symbols.enterScope();
+                Symbol branchVar = new Symbol(b.name, resolveType(b.type, b.line, b.column));
+                branchVar.isUsed = true; // змінна гілки часто потрібна лише для вибору типу
+                symbols.define(branchVar);
+                Type branchType = visit(b.body);
+                symbols.exitScope();
 
-        if (condText.equals("true")) {
-            warn(ctx.start.getLine(), "'if true': Dead else branch.");
-        } else if (condText.equals("false")) {
-            warn(ctx.start.getLine(), "'if false': Dead then branch.");
+                type = type == null ? branchType : classes.lub(type, branchType);
+            }
+            return type;
         }
 
-        String condType = visit(ctx.condition);
-        if (!"Bool".equals(condType))
-            error(ctx.start.getLine(), "If condition must be Bool");
+        @Override
+        public Type visitIf(Ast.If n) {
+            if (constants.isTrue(n.condition)) {
+                warn(n.line, n.column, Diagnostic.Code.DEAD_ELSE);
+            } else if (constants.isFalse(n.condition)) {
+                warn(n.line, n.column, Diagnostic.Code.DEAD_THEN);
+            }
 
-        String t = visit(ctx.thenBranch);
-        String e = visit(ctx.elseBranch);
+            Type condType = visit(n.condition);
+            if (condType != classes.boolType)
+                error(n.line, n.column, Diagnostic.Code.IF_CONDITION);
 
-        return t.equals(e) ? t : "Object";
-    }
+            Type t = visit(n.thenBranch);
+            Type e = visit(n.elseBranch);
 
-    @Override
-    public String visitWhile(CoolParser.WhileContext ctx) {
-        if (ctx.condition.getText().equals("true")) {
-            warn(ctx.start.getLine(), "Infinite loop detected.");
+            return classes.lub(t, e);
         }
 
-        String condType = visit(ctx.condition);
-        if (!"Bool".equals(condType))
-            error(ctx.start.getLine(), "Loop condition must be Bool");
+        @Override
+        public Type visitWhile(Ast.While n) {
+            if (constants.isTrue(n.condition)) {
+                warn(n.line, n.column, Diagnostic.Code.INFINITE_LOOP);
+            }
+
+            Type condType = visit(n.condition);
+            if (condType != classes.boolType)
+                error(n.line, n.column, Diagnostic.Code.LOOP_CONDITION);
 
-        visit(ctx.body);
-        return "Object";
-    }
+            visit(n.body);
+            return classes.objectType;
+        }
 
-    @Override
-    public String visitAssign(CoolParser.AssignContext ctx) {
-        String varName = ctx.name.getText();
-        Symbol sym = currentScope.resolve(varName);
-        String valType = visit(ctx.value);
+        @Override
+        public Type visitAssign(Ast.Assign n) {
+            Symbol sym = symbols.resolve(n.name);
+            Type valType = visit(n.value);
 
-        if (sym == null) {
-            error(ctx.start.getLine(), "Assignment to undeclared variable: " + varName);
-        } else if (!isCompatible(valType, sym.type)) {
-            error(ctx.start.getLine(), "Type mismatch. Cannot assign " + valType + " to " + sym.type);
+            if (sym == null) {
+                error(n.line, n.column, Diagnostic.Code.UNDECLARED_ASSIGN, n.name);
+            } else {
+                checkAssignable(valType, sym.type, n.line, n.column);
+            }
+
+            return valType;
         }
 
-        return valType;
-    }
+        @Override
+        public Type visitId(Ast.Id n) {
+            Symbol sym = symbols.resolve(n.name);
 
-    @Override
-    public String visitId(CoolParser.IdContext ctx) {
-        String name = ctx.OBJECTID().getText();
-        Symbol sym = currentScope.resolve(name);
+            if (sym == null) {
+                error(n.line, n.column, Diagnostic.Code.UNDECLARED_IDENTIFIER, n.name);
+                return classes.objectType;
+            }
 
-        if (sym == null) {
-            error(ctx.start.getLine(), "Undeclared identifier: " + name);
-            return "Object";
+            sym.isUsed = true;
+            return sym.type;
         }
 
-        sym.isUsed = true;
-        return sym.type;
-    }
+        @Override
+        public Type visitImplicitDispatch(Ast.ImplicitDispatch n) {
+            return checkCall(currentClass, currentClass, n.name, n.args, n);
+        }
+
+        @Override
+        public Type visitDispatch(Ast.Dispatch n) {
+            Type target = visit(n.target);
+            Type lookupType = target;
+            if (n.staticType != null) {
+                lookupType = resolveType(n.staticType, n.line, n.column);
+                if (!target.conformsTo(lookupType))
+                    error(n.line, n.column, Diagnostic.Code.STATIC_DISPATCH, lookupType, target);
+            }
+            return checkCall(target, lookupType, n.name, n.args, n);
+        }
 
-    @Override
-    public String visitImplicitDispatch(CoolParser.ImplicitDispatchContext ctx) {
-        String mName = ctx.OBJECTID().getText();
+        // Перевірка виклику: метод у класі lookupType, кількість і типи аргументів
+        private Type checkCall(Type receiver, Type lookupType, String name, List<Ast.Expr> args, Ast.Node at) {
+            List<Type> argTypes = new ArrayList<>(args.size());
+            boolean[] failed = new boolean[args.size()]; // аргумент уже з помилкою — тип не перевіряється
+            for (int i = 0; i < args.size(); i++) {
+                int before = errorCount;
+                argTypes.add(visit(args.get(i)));
+                failed[i] = errorCount != before;
+            }
+
+            Type.Method method = lookupType.lookupMethod(name);
+            if (method == null) {
+                error(at.line, at.column, Diagnostic.Code.UNDEFINED_METHOD, name);
+                return classes.objectType;
+            }
 
-        if (ctx.expr() != null) {
-            for (CoolParser.ExprContext arg : ctx.expr()) visit(arg);
+            if (method.params.size() != argTypes.size()) {
+                error(at.line, at.column, Diagnostic.Code.ARGUMENT_COUNT, name, method.params.size(), argTypes.size());
+            } else {
+                for (int i = 0; i < argTypes.size(); i++) {
+                    if (!failed[i] && !isCompatible(argTypes.get(i), method.params.get(i)))
+                        error(at.line, at.column, Diagnostic.Code.ARGUMENT_TYPE,
+                                argTypes.get(i), i + 1, name, method.params.get(i));
+                }
+            }
+
+            return method.returnsSelfType ? receiver : method.returnType;
         }
 
-        Symbol sym = currentScope.resolve(mName);
-        if (sym == null && !isStandardIOMethod(mName)) {
-            error(ctx.start.getLine(), "Undefined method: " + mName);
-            return "Object";
+        @Override
+        public Type visitAddSub(Ast.AddSub n) {
+            return arithmetic(n);
         }
 
-        return sym != null ? sym.type : "Object";
-    }
+        @Override
+        public Type visitMulDiv(Ast.MulDiv n) {
+            return arithmetic(n);
+        }
 
-    @Override
-    public String visitDispatch(CoolParser.DispatchContext ctx) {
-        visit(ctx.target);
-        if (ctx.expr() != null) {
-            for (CoolParser.ExprContext arg : ctx.expr()) visit(arg);
+        private Type arithmetic(Ast.Binary n) {
+            Type l = visit(n.left);
+            Type r = visit(n.right);
+            if (l != classes.intType || r != classes.intType)
+                error(n.line, n.column, Diagnostic.Code.ARITHMETIC_TYPE);
+            return classes.intType;
         }
-        return "Object";
-    }
 
-    @Override
-    public String visitAddSub(CoolParser.AddSubContext ctx) {
-        String l = visit(ctx.left);
-        String r = visit(ctx.right);
-        if (!"Int".equals(l) || !"Int".equals(r))
-            error(ctx.start.getLine(), "Arithmetic requires Int.");
-        return "Int";
-    }
+        @Override
+        public Type visitCompare(Ast.Compare n) {
+            visit(n.left);
+            visit(n.right);
+            return classes.boolType;
+        }
 
-    @Override
-    public String visitMulDiv(CoolParser.MulDivContext ctx) {
-        String l = visit(ctx.left);
-        String r = visit(ctx.right);
-        if (!"Int".equals(l) || !"Int".equals(r))
-            error(ctx.start.getLine(), "Arithmetic requires Int.");
-        return "Int";
-    }
+        @Override public Type visitNegation(Ast.Negation n) { return visit(n.e); }
+        @Override public Type visitNot(Ast.Not n) { return visit(n.e); }
+        @Override public Type visitIsVoid(Ast.IsVoid n) { visit(n.e); return classes.boolType; }
 
-    @Override
-    public String visitCompare(CoolParser.CompareContext ctx) {
-        visit(ctx.left);
-        visit(ctx.right);
-        return "Bool";
-    }
+        // Літерали
+        @Override
+        public Type visitIntConst(Ast.IntConst n) {
+            if (n.overflow) error(n.line, n.column, Diagnostic.Code.INT_TOO_LARGE);
+            return classes.intType;
+        }
 
-    // Літерали
-    @Override public String visitInt(CoolParser.IntContext ctx) { return "Int"; }
-    @Override public String visitString(CoolParser.StringContext ctx) { return "String"; }
-    @Override public String visitTrue(CoolParser.TrueContext ctx) { return "Bool"; }
-    @Override public String visitFalse(CoolParser.FalseContext ctx) { return "Bool"; }
-    @Override public String visitNew(CoolParser.NewContext ctx) { return ctx.type.getText(); }
+        @Override public Type visitStringConst(Ast.StringConst n) { return classes.stringType; }
+        @Override public Type visitBoolConst(Ast.BoolConst n) { return classes.boolType; }
+        @Override public Type visitNew(Ast.New n) { return resolveType(n.type, n.line, n.column); }
 
-    // ===== Допоміжні =====
+        // ===== Допоміжні =====
 
-    private boolean isCompatible(String actual, String expected) {
-        if (expected == null || actual == null) return true;
-        if (expected.equals("Object")) return true;
-        return expected.equals(actual);
-    }
+        private Type resolveType(String name, int line, int column) {
+            return SemanticAnalyzer.this.resolveType(name, currentClass, line, column, this::error);
+        }
+
+        // Тип з сигнатури, вже перевіреної глобальним проходом (повторно не повідомляється)
+        private Type declaredType(String name) {
+            if (name.equals("SELF_TYPE")) return currentClass;
+            Type t = classes.lookup(name);
+            return t != null ? t : classes.objectType;
+        }
 
-    private boolean isStandardIOMethod(String name) {
-        return name.startsWith("out_") || name.startsWith("in_");
+        private void checkAssignable(Type actual, Type expected, int line, int column) {
+            if (!isCompatible(actual, expected))
+                error(line, column, Diagnostic.Code.ASSIGN_TYPE, actual, expected);
+        }
+
+        private boolean isCompatible(Type actual, Type expected) {
+            if (expected == null || actual == null) return true;
+            return actual.conformsTo(expected);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,312 @@
+package ua.nuzp.cool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+// Побудова та руйнування форми SSA (static single assignment) для однієї функції.
+//
+// construct: phi-вузли розставляються в ітерованих межах домінування блоків з присвоєннями
+// (Cytron et al.), але лише там, де змінна жива на вході (pruned SSA) — тож тимчасові
+// значення, що живуть в одному блоці, phi не отримують. Перейменування — обхід дерева
+// домінаторів з масивом поточних версій і журналом відкату (без рекурсії та стеків на змінну).
+// Атрибути в SSA не переводяться: їх змінює будь-який виклик.
+// Версія 0 змінної — значення на вході у функцію (параметр, self або ще не присвоєна змінна).
+//
+// destruct: phi замінюються копіями в попередниках, а версії знову об'єднуються
+// з вихідною змінною, якщо їхні інтервали життя не перетинаються. Після поширення копій
+// та нумерації значень версії можуть жити одночасно — тоді версія лишається окремою
+// змінною з власним іменем (x.2).
+public final class Ssa {
+
+    private Ssa() { }
+
+    public static void construct(Cfg cfg, Dominators dom, Liveness liveness) {
+        placePhis(cfg, dom, liveness);
+        rename(cfg, dom);
+    }
+
+    public static void destruct(Cfg cfg) {
+        Ir.Function function = cfg.function;
+        replacePhis(cfg);
+
+        // Версії, що не перетинаються з уже об'єднаними, знову стають вихідною змінною
+        boolean[] coalesced = coalesce(cfg);
+        Ir.Local[] rename = new Ir.Local[coalesced.length];
+        List<Ir.Local> locals = function.locals();
+        for (int i = 0; i < rename.length; i++) {
+            Ir.Local l = locals.get(i);
+            if (coalesced[i]) rename[i] = l.origin;
+        }
+        List<Ir.Local> separate = new ArrayList<>();
+        for (int i = 0; i < rename.length; i++) {
+            if (rename[i] == null) separate.add(locals.get(i));
+        }
+        function.dropVersions();
+        for (Ir.Local l : separate) rename[l.index] = function.newVar(l.toString()); // x.2, t5.1
+
+        for (Cfg.Block b : cfg.blocks) {
+            List<Ir.Instr> instrs = b.instrs;
+            int out = 0;
+            for (int i = 0; i < instrs.size(); i++) {
+                Ir.Instr instr = instrs.get(i);
+                if (instr.dst != null) instr.dst = (Ir.Local) renamed(instr.dst, rename);
+                instr.a = renamed(instr.a, rename);
+                instr.b = renamed(instr.b, rename);
+                if (instr.op == Ir.Opcode.MOVE && instr.a == instr.dst && isSsaLocal(instr.dst)) continue; // x <- x
+                instrs.set(out++, instr);
+            }
+            instrs.subList(out, instrs.size()).clear();
+        }
+        cfg.toCode();
+    }
+
+    public static boolean isSsaLocal(Ir.Operand operand) {
+        return operand instanceof Ir.Local && !isAttribute((Ir.Local) operand);
+    }
+
+    private static boolean isAttribute(Ir.Local l) {
+        return l instanceof Ir.Var && ((Ir.Var) l).attribute;
+    }
+
+    // ===== Вихід з SSA =====
+
+    // d <- phi(a1..an) => "c <- ai" в кінці кожного попередника та "d <- c" на місці phi.
+    // c — нова версія тієї ж змінної, тож зазвичай усі копії об'єднуються в x <- x і зникають.
+    // Копія перед IF_FALSE виконується й на іншому ребрі, але c читає лише цей phi.
+    private static void replacePhis(Cfg cfg) {
+        for (Cfg.Block b : cfg.blocks) {
+            for (Ir.Instr instr : b.instrs) {
+                if (instr.op == Ir.Opcode.LABEL) continue;
+                if (instr.op != Ir.Opcode.PHI) break;
+                Ir.Local copy = cfg.function.newVersion(instr.dst.origin);
+                for (int j = 0; j < b.preds.size(); j++) {
+                    if (instr.args[j] == null) continue; // недосяжний попередник
+                    Cfg.Block p = b.preds.get(j);
+                    Ir.Instr last = p.last();
+                    int at = last != null && last.op.isJump() ? p.instrs.size() - 1 : p.instrs.size();
+                    p.instrs.add(at, new Ir.Instr(Ir.Opcode.MOVE, copy, instr.args[j], null));
+                }
+                instr.op = Ir.Opcode.MOVE;
+                instr.a = copy;
+                instr.args = null;
+            }
+        }
+    }
+
+    // Перетин версій однієї змінної: визначення v, коли жива інша версія w
+    // (крім копії v <- w — значення однакові). Версія 0 завжди лишається вихідною змінною,
+    // решта об'єднуються жадібно в порядку номерів.
+    private static boolean[] coalesce(Cfg cfg) {
+        List<Ir.Local> locals = cfg.function.locals();
+        int n = locals.size();
+        List<List<Ir.Local>> interference = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) interference.add(null);
+        int[] liveOfOrigin = new int[n];
+
+        Liveness liveness = Liveness.analyze(cfg);
+        for (Cfg.Block b : cfg.blocks) {
+            BitSet live = liveness.liveOut(b);
+            for (int i = live.nextSetBit(0); i >= 0; i = live.nextSetBit(i + 1)) liveOfOrigin[locals.get(i).origin.index]++;
+
+            for (int k = b.instrs.size() - 1; k >= 0; k--) {
+                Ir.Instr instr = b.instrs.get(k);
+                if (instr.op == Ir.Opcode.FOLDED) continue;
+                Ir.Local v = instr.dst;
+                if (v != null && isSsaLocal(v)) {
+                    int origin = v.origin.index;
+                    if (live.get(v.index)) {
+                        live.clear(v.index);
+                        liveOfOrigin[origin]--;
+                    }
+                    Ir.Operand source = instr.op == Ir.Opcode.MOVE ? instr.a : null;
+                    if (liveOfOrigin[origin] > 0) {
+                        for (int i = live.nextSetBit(0); i >= 0; i = live.nextSetBit(i + 1)) {
+                            Ir.Local w = locals.get(i);
+                            if (w.origin.index == origin && w != source) addInterference(interference, v, w);
+                        }
+                    }
+                }
+                liveUse(instr.a, live, liveOfOrigin);
+                liveUse(instr.b, live, liveOfOrigin);
+            }
+            // Лічильники — лише для змінних, живих на вході блоку (без повного очищення масиву)
+            for (int i = live.nextSetBit(0); i >= 0; i = live.nextSetBit(i + 1)) liveOfOrigin[locals.get(i).origin.index] = 0;
+        }
+
+        boolean[] coalesced = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            Ir.Local l = locals.get(i);
+            boolean ok = true;
+            if (l.version > 0 && interference.get(i) != null) {
+                for (Ir.Local w : interference.get(i)) {
+                    if (coalesced[w.index]) {
+                        ok = false;
+                        break;
+                    }
+                }
+            }
+            coalesced[i] = ok;
+        }
+        return coalesced;
+    }
+
+    private static void liveUse(Ir.Operand operand, BitSet live, int[] liveOfOrigin) {
+        if (!isSsaLocal(operand)) return;
+        Ir.Local l = (Ir.Local) operand;
+        if (!live.get(l.index)) {
+            live.set(l.index);
+            liveOfOrigin[l.origin.index]++;
+        }
+    }
+
+    private static void addInterference(List<List<Ir.Local>> interference, Ir.Local v, Ir.Local w) {
+        if (interference.get(v.index) == null) interference.set(v.index, new ArrayList<>(2));
+        if (interference.get(w.index) == null) interference.set(w.index, new ArrayList<>(2));
+        interference.get(v.index).add(w);
+        interference.get(w.index).add(v);
+    }
+
+    private static Ir.Operand renamed(Ir.Operand operand, Ir.Local[] rename) {
+        if (!(operand instanceof Ir.Local)) return operand;
+        Ir.Local l = (Ir.Local) operand;
+        return l.index < rename.length && rename[l.index] != null ? rename[l.index] : operand;
+    }
+
+    // ===== Розстановка phi =====
+
+    private static void placePhis(Cfg cfg, Dominators dom, Liveness liveness) {
+        int locals = cfg.function.locals().size();
+        int n = cfg.blocks.size();
+
+        // Блоки з присвоєннями кожної змінної (лише для змінних, живих на межах блоків)
+        List<List<Cfg.Block>> defBlocks = new ArrayList<>(locals);
+        for (int i = 0; i < locals; i++) defBlocks.add(null);
+        for (Cfg.Block b : dom.reversePostOrder()) {
+            for (Ir.Instr instr : b.instrs) {
+                Ir.Local d = instr.dst;
+                if (d == null || isAttribute(d) || !liveness.isGlobal(d)) continue;
+                List<Cfg.Block> list = defBlocks.get(d.index);
+                if (list == null) defBlocks.set(d.index, list = new ArrayList<>(2));
+                if (list.isEmpty() || list.get(list.size() - 1) != b) list.add(b);
+            }
+        }
+
+        // Ітерована межа домінування; hasPhi/queued — номер змінної + 1, щоб не очищати масиви
+        int[] hasPhi = new int[n];
+        int[] queued = new int[n];
+        List<List<Ir.Instr>> phis = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) phis.add(null);
+        List<Cfg.Block> worklist = new ArrayList<>();
+        List<Ir.Local> all = cfg.function.locals();
+        for (int v = 0; v < locals; v++) {
+            List<Cfg.Block> defs = defBlocks.get(v);
+            if (defs == null) continue;
+            Ir.Local var = all.get(v);
+            worklist.clear();
+            for (Cfg.Block b : defs) {
+                queued[b.index] = v + 1;
+                worklist.add(b);
+            }
+            while (!worklist.isEmpty()) {
+                Cfg.Block b = worklist.remove(worklist.size() - 1);
+                for (Cfg.Block f : dom.frontier(b)) {
+                    if (hasPhi[f.index] == v + 1) continue;
+                    hasPhi[f.index] = v + 1;
+                    if (liveness.isLiveIn(f, var)) {
+                        Ir.Instr phi = new Ir.Instr(Ir.Opcode.PHI, var, null, null);
+                        phi.args = new Ir.Operand[f.preds.size()];
+                        List<Ir.Instr> list = phis.get(f.index);
+                        if (list == null) phis.set(f.index, list = new ArrayList<>(2));
+                        list.add(phi);
+                    }
+                    if (queued[f.index] != v + 1) {
+                        queued[f.index] = v + 1;
+                        worklist.add(f);
+                    }
+                }
+            }
+        }
+
+        // phi — одразу після мітки блоку
+        for (Cfg.Block b : cfg.blocks) {
+            List<Ir.Instr> list = phis.get(b.index);
+            if (list == null) continue;
+            int at = 0;
+            while (at < b.instrs.size() && b.instrs.get(at).op == Ir.Opcode.LABEL) at++;
+            b.instrs.addAll(at, list);
+        }
+    }
+
+    // ===== Перейменування =====
+
+    private static void rename(Cfg cfg, Dominators dom) {
+        Ir.Function function = cfg.function;
+        int origins = function.locals().size();
+        Ir.Local[] current = new Ir.Local[origins]; // null — версія 0
+        int[] logVar = new int[64];                 // журнал: змінна та попередня версія
+        Ir.Local[] logOld = new Ir.Local[64];
+        int logSize = 0;
+
+        int n = cfg.blocks.size();
+        Cfg.Block[] stack = new Cfg.Block[n];
+        int[] nextChild = new int[n];
+        int[] logMark = new int[n];
+        int sp = 0;
+        stack[sp++] = cfg.entry();
+        boolean enter = true;
+        while (sp > 0) {
+            Cfg.Block b = stack[sp - 1];
+            if (enter) {
+                logMark[b.index] = logSize;
+                for (Ir.Instr instr : b.instrs) {
+                    if (instr.op != Ir.Opcode.PHI) {
+                        instr.a = currentVersion(instr.a, current);
+                        instr.b = currentVersion(instr.b, current);
+                    }
+                    Ir.Local d = instr.dst;
+                    if (d == null || isAttribute(d)) continue;
+                    if (logSize == logVar.length) {
+                        logVar = Arrays.copyOf(logVar, logSize * 2);
+                        logOld = Arrays.copyOf(logOld, logSize * 2);
+                    }
+                    logVar[logSize] = d.origin.index;
+                    logOld[logSize++] = current[d.origin.index];
+                    instr.dst = function.newVersion(d.origin);
+                    current[d.origin.index] = instr.dst;
+                }
+                for (Cfg.Block s : b.succs) {
+                    int j = s.preds.indexOf(b);
+                    for (Ir.Instr instr : s.instrs) {
+                        if (instr.op == Ir.Opcode.LABEL) continue;
+                        if (instr.op != Ir.Opcode.PHI) break;
+                        Ir.Local origin = instr.dst.origin;
+                        Ir.Local v = current[origin.index];
+                        instr.args[j] = v != null ? v : origin;
+                    }
+                }
+            }
+
+            List<Cfg.Block> kids = dom.children(b);
+            if (nextChild[b.index] < kids.size()) {
+                stack[sp++] = kids.get(nextChild[b.index]++);
+                enter = true;
+            } else {
+                while (logSize > logMark[b.index]) {
+                    logSize--;
+                    current[logVar[logSize]] = logOld[logSize];
+                }
+                sp--;
+                enter = false;
+            }
+        }
+    }
+
+    private static Ir.Operand currentVersion(Ir.Operand operand, Ir.Local[] current) {
+        if (!(operand instanceof Ir.Local)) return operand;
+        Ir.Local l = (Ir.Local) operand;
+        Ir.Local v = current[l.index];
+        return v != null ? v : operand;
+    }
+}
@@ -0,0 +1,91 @@
+package ua.nuzp.cool;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Тип (клас) Cool. Для кожного імені класу в межах ClassTable існує рівно один об'єкт Type,
+// тож типи порівнюються за посиланням (==), а не через equals рядків.
+// pre/post — номери вузла при обході дерева наслідування в глибину (pre-order / post-order):
+// A <= B (A успадковує B) тоді й лише тоді, коли інтервал [pre, post] A вкладений в інтервал B.
+public final class Type {
+
+    public final String name;
+    final int index;   // щільний номер у ClassTable
+    Type parent;       // null лише для Object
+    int depth;
+    int pre;
+    int post;
+
+    // Власні (не успадковані) члени класу, заповнюються глобальним проходом аналізатора
+    final Map<String, Attribute> attributes = new LinkedHashMap<>();
+    final Map<String, Method> methods = new LinkedHashMap<>();
+
+    // ===== Члени класу =====
+
+    public static final class Attribute {
+        public final String name;
+        public final Type type;
+        public final Type owner;
+
+        Attribute(String name, Type type, Type owner) {
+            this.name = name;
+            this.type = type;
+            this.owner = owner;
+        }
+    }
+
+    public static final class Method {
+        public final String name;
+        public final List<Type> params;
+        public final Type returnType;
+        public final boolean returnsSelfType; // SELF_TYPE: результат має тип отримувача
+        public final Type owner;
+
+        Method(String name, List<Type> params, Type returnType, boolean returnsSelfType, Type owner) {
+            this.name = name;
+            this.params = List.copyOf(params);
+            this.returnType = returnType;
+            this.returnsSelfType = returnsSelfType;
+            this.owner = owner;
+        }
+    }
+
+    Type(String name, int index) {
+        this.name = name;
+        this.index = index;
+    }
+
+    public Type getParent() { return parent; }
+    public int getDepth() { return depth; }
+
+    // Перевірка підтипу за O(1)
+    public boolean conformsTo(Type other) {
+        return other.pre <= pre && post <= other.post;
+    }
+
+    public Map<String, Attribute> getAttributes() { return attributes; }
+    public Map<String, Method> getMethods() { return methods; }
+
+    // Метод класу або найближчого предка
+    public Method lookupMethod(String name) {
+        for (Type t = this; t != null; t = t.parent) {
+            Method m = t.methods.get(name);
+            if (m != null) return m;
+        }
+        return null;
+    }
+
+    public Attribute lookupAttribute(String name) {
+        for (Type t = this; t != null; t = t.parent) {
+            Attribute a = t.attributes.get(name);
+            if (a != null) return a;
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,221 @@
+package ua.nuzp.cool;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Нумерація значень над SSA за деревом домінаторів (dominator-based value numbering,
+// Briggs-Cooper-Simpson) разом з поширенням копій.
+// Обхід дерева домінаторів у прямому порядку з таблицею виразів, що має області видимості:
+// вираз, обчислений у блоці, видно в усіх блоках, які він домінує, тож повторне обчислення
+// там замінюється першим результатом. Всередині одного блоку це звичайна локальна
+// нумерація (LVN), у домінованих блоках — глобальна (GVN); лічильники — окремо.
+// Копія d <- a дає d те саме значення, що й a: використання d переходять на a,
+// а сама копія стає мертвою (її прибирає DeadCodeElimination).
+// phi з однаковими аргументами — теж копія.
+// Атрибути, NEW та CALL у нумерацію не входять: їхні значення змінюються між читаннями.
+public class ValueNumbering {
+
+    // ===== Статистика =====
+
+    public int copiesPropagated = 0;
+    public int localRedundant = 0;  // повтор у тому ж блоці
+    public int globalRedundant = 0; // повтор у домінованому блоці
+
+    private final Cfg cfg;
+    private final Ir.Operand[] value; // за Local.index: представник значення (null — сама змінна)
+    private final Map<Expr, Entry> table = new HashMap<>();
+    private final List<Expr> log = new ArrayList<>(); // вирази в порядку додавання (для відкату)
+
+    private ValueNumbering(Cfg cfg) {
+        this.cfg = cfg;
+        this.value = new Ir.Operand[cfg.function.locals().size()];
+    }
+
+    public static ValueNumbering run(Cfg cfg, Dominators dom) {
+        ValueNumbering vn = new ValueNumbering(cfg);
+        vn.walk(dom);
+        return vn;
+    }
+
+    // ===== Ключ виразу =====
+
+    private static final class Expr {
+        final Ir.Opcode op;
+        final Ir.Operand a;
+        final Ir.Operand b;
+
+        Expr(Ir.Opcode op, Ir.Operand a, Ir.Operand b) {
+            // Комутативні операції — в однаковому порядку операндів
+            if ((op == Ir.Opcode.ADD || op == Ir.Opcode.MUL || op == Ir.Opcode.EQ) && rank(a) > rank(b)) {
+                Ir.Operand t = a;
+                a = b;
+                b = t;
+            }
+            this.op = op;
+            this.a = a;
+            this.b = b;
+        }
+
+        private static int rank(Ir.Operand o) {
+            return o instanceof Ir.Local ? ((Ir.Local) o).index : Integer.MAX_VALUE;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Expr)) return false;
+            Expr e = (Expr) o;
+            return op == e.op && same(a, e.a) && same(b, e.b);
+        }
+
+        @Override
+        public int hashCode() {
+            return (op.hashCode() * 31 + hash(a)) * 31 + hash(b);
+        }
+
+        private static boolean same(Ir.Operand x, Ir.Operand y) {
+            if (x == y) return true;
+            if (!(x instanceof Ir.Const) || !(y instanceof Ir.Const)) return false;
+            return x.getClass() == y.getClass() && Objects.equals(((Ir.Const) x).value(), ((Ir.Const) y).value());
+        }
+
+        private static int hash(Ir.Operand o) {
+            if (o == null) return 0;
+            if (o instanceof Ir.Local) return ((Ir.Local) o).index;
+            return Objects.hashCode(((Ir.Const) o).value()) ^ o.getClass().hashCode();
+        }
+    }
+
+    private static final class Entry {
+        final Ir.Local result;
+        final Cfg.Block block;
+
+        Entry(Ir.Local result, Cfg.Block block) {
+            this.result = result;
+            this.block = block;
+        }
+    }
+
+    // ===== Обхід =====
+
+    private void walk(Dominators dom) {
+        int n = cfg.blocks.size();
+        Cfg.Block[] stack = new Cfg.Block[n];
+        int[] nextChild = new int[n];
+        int[] logMark = new int[n];
+        int sp = 0;
+        stack[sp++] = cfg.entry();
+        boolean enter = true;
+        while (sp > 0) {
+            Cfg.Block b = stack[sp - 1];
+            if (enter) {
+                logMark[b.index] = log.size();
+                visitBlock(b);
+            }
+            List<Cfg.Block> kids = dom.children(b);
+            if (nextChild[b.index] < kids.size()) {
+                stack[sp++] = kids.get(nextChild[b.index]++);
+                enter = true;
+            } else {
+                while (log.size() > logMark[b.index]) table.remove(log.remove(log.size() - 1));
+                sp--;
+                enter = false;
+            }
+        }
+    }
+
+    private void visitBlock(Cfg.Block b) {
+        List<Ir.Instr> instrs = b.instrs;
+        int out = 0;
+        for (int i = 0; i < instrs.size(); i++) {
+            Ir.Instr instr = instrs.get(i);
+            if (instr.op == Ir.Opcode.PHI) {
+                visitPhi(instr);
+            } else if (instr.op != Ir.Opcode.FOLDED) {
+                instr.a = valueOf(instr.a);
+                instr.b = valueOf(instr.b);
+                if (instr.dst != null && Ssa.isSsaLocal(instr.dst) && isRedundant(instr, b)) continue;
+            }
+            instrs.set(out++, instr);
+        }
+        instrs.subList(out, instrs.size()).clear();
+
+        // Аргументи phi у наступниках — з цього блоку
+        for (Cfg.Block s : b.succs) {
+            int j = s.preds.indexOf(b);
+            for (Ir.Instr instr : s.instrs) {
+                if (instr.op == Ir.Opcode.LABEL) continue;
+                if (instr.op != Ir.Opcode.PHI) break;
+                instr.args[j] = valueOf(instr.args[j]);
+            }
+        }
+    }
+
+    // phi, усі аргументи якого однакові (або сам phi у циклі), — копія цього аргументу
+    private void visitPhi(Ir.Instr phi) {
+        Ir.Operand same = null;
+        for (Ir.Operand arg : phi.args) {
+            Ir.Operand v = valueOf(arg);
+            if (v == null || v == phi.dst) continue;
+            if (same == null) {
+                same = v;
+            } else if (!Expr.same(same, v)) {
+                return;
+            }
+        }
+        if (same != null) {
+            value[phi.dst.index] = same;
+            copiesPropagated++;
+        }
+    }
+
+    // Копія або вже обчислений вираз: запам'ятовує значення dst, інструкція стає зайвою
+    private boolean isRedundant(Ir.Instr instr, Cfg.Block b) {
+        Ir.Local dst = instr.dst;
+        switch (instr.op) {
+            case MOVE:
+                if (instr.a instanceof Ir.Const || Ssa.isSsaLocal(instr.a)) {
+                    value[dst.index] = instr.a;
+                    copiesPropagated++;
+                }
+                return false; // мертву копію прибере DeadCodeElimination
+            case ADD:
+            case SUB:
+            case MUL:
+            case DIV:
+            case LT:
+            case LE:
+            case EQ:
+            case NOT:
+            case NEG:
+            case ISVOID:
+                if (!isNumbered(instr.a) || (instr.b != null && !isNumbered(instr.b))) return false;
+                Expr e = new Expr(instr.op, instr.a, instr.b);
+                Entry found = table.get(e);
+                if (found != null) {
+                    value[dst.index] = found.result;
+                    if (found.block == b) localRedundant++;
+                    else globalRedundant++;
+                    return true;
+                }
+                table.put(e, new Entry(dst, b));
+                log.add(e);
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    // Операнд з відомим незмінним значенням (атрибут може змінитися будь-яким викликом)
+    private static boolean isNumbered(Ir.Operand operand) {
+        return operand instanceof Ir.Const || Ssa.isSsaLocal(operand);
+    }
+
+    private Ir.Operand valueOf(Ir.Operand operand) {
+        if (!(operand instanceof Ir.Local)) return operand;
+        Ir.Operand v = value[((Ir.Local) operand).index];
+        return v != null ? v : operand;
+    }
+}
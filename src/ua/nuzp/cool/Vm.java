@@ -0,0 +1,492 @@
+package ua.nuzp.cool;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static ua.nuzp.cool.Bytecode.*;
+
+// Інтерпретатор регістрового байткоду (Bytecode): виконує (new Main).main().
+// Регістри всіх кадрів — два паралельні стеки: int[] для Int/Bool та long[] для посилань;
+// кадр — вікно з fp довжиною Function.registers (вид регістра відомий з трансляції).
+// Виклики не використовують стек Java: адреса повернення, fp і функція кадру зберігаються
+// в окремих масивах, тож глибина рекурсії Cool обмежена лише MAX_REGISTERS / MAX_FRAMES.
+// Основний цикл — один switch за кодом операції; стан (code, pc, fp) тримається в локальних змінних.
+// Динамічний виклик: тег класу отримувача (із заголовка об'єкта) порівнюється з мономорфним кешем місця виклику (CallSite),
+// лише при промаху — поліморфний кеш і vtable; пошуку методу за іменем під час виконання немає.
+// Отримувачі Int, Bool та String мають класи Program.intClass тощо.
+// case — один пошук у таблиці переходів за тегом класу значення, без перевірок підтипів.
+// Об'єкти та рядки — у власній купі (Heap), посилання — значення Heap; корені збирача —
+// стек посилань до кінця поточного кадру. Збірка може замінити масив купи, тож основний цикл
+// звертається до нього лише через heap.mem. Запис посилання в атрибут старого об'єкта
+// проходить бар'єр (Heap.remember).
+// Вбудований IO працює з потоками, переданими у конструктор.
+public final class Vm {
+
+    private static final int MAX_REGISTERS = 1 << 24;
+    private static final int MAX_FRAMES = 1 << 22;
+
+    // ===== Помилки виконання =====
+
+    public static class RuntimeError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        RuntimeError(String message) { super(message, null, false, false); }
+    }
+
+    // abort(): завершення програми, а не помилка
+    public static final class Abort extends RuntimeError {
+        private static final long serialVersionUID = 1L;
+
+        Abort(String className) { super("Abort called from class " + className); }
+    }
+
+    // ===== Стан =====
+
+    private final Program program;
+    private final BufferedReader in;
+    private final PrintStream out;
+
+    private final Heap heap;
+    private int[] ints = new int[1 << 12];
+    private long[] refs = new long[1 << 12];
+    private Function[] frameFunction = new Function[256];
+    private int[] framePc = new int[256]; // адреса інструкції виклику в коді кадру
+    private int[] frameFp = new int[256];
+    private Function current; // функція, у якій сталася помилка
+
+    public Vm(Program program, InputStream in, PrintStream out) {
+        this.program = program;
+        this.heap = new Heap(program);
+        this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.out = out;
+    }
+
+    public Heap getHeap() {
+        return heap;
+    }
+
+    // Виконує програму; false — помилка виконання (повідомлення — в err)
+    public static boolean run(Program program, InputStream in, PrintStream out, PrintStream err) {
+        return run(program, in, out, err, null);
+    }
+
+    // gcStats — куди вивести статистику збирача після виконання (null — нікуди)
+    public static boolean run(Program program, InputStream in, PrintStream out, PrintStream err, PrintStream gcStats) {
+        Vm vm = new Vm(program, in, out);
+        try {
+            vm.execute();
+            return true;
+        } catch (Abort e) {
+            err.println(e.getMessage());
+        } catch (RuntimeError e) {
+            err.println("Runtime error in " + vm.current + ": " + e.getMessage());
+        } finally {
+            out.flush();
+            if (gcStats != null) gcStats.println(vm.heap);
+        }
+        return false;
+    }
+
+    public void execute() {
+        if (program.main == null) throw new RuntimeError("Class Main is not defined");
+        Function main = program.main.lookupMethod("main");
+        if (main == null || main.paramKinds.length != 0) throw new RuntimeError("Main.main() is not defined");
+        refs[0] = newObject(program.main, 0);
+        // Конструктор повертає self у refs[0] — можливо, переміщений збирачем
+        if (program.main.constructor != null) invoke(program.main.constructor);
+        invoke(main);
+    }
+
+    // Виклик функції верхнього рівня (без аргументів) для self з refs[0] у кадрі з fp = 0
+    private void invoke(Function f) {
+        if (f.nativeId >= 0) throw new RuntimeError("Cannot start from built-in method " + f);
+        ensure(f.registers);
+        interpret(f, 0);
+    }
+
+    // Об'єкт класу cls з прототипу; живі посилання — refs[0, rootTop)
+    private long newObject(ClassInfo cls, int rootTop) {
+        long[] prototype = cls.prototype;
+        int a = heap.allocate(prototype.length, refs, rootTop);
+        long[] mem = heap.mem;
+        for (int i = 0; i < prototype.length; i++) mem[a + i] = prototype[i];
+        return a;
+    }
+
+    // ===== Основний цикл =====
+
+    private void interpret(Function entry, int entryFp) {
+        Function f = entry;
+        int[] code = f.code;
+        Object[] constants = f.constants;
+        int[] ints = this.ints;
+        long[] refs = this.refs;
+        int fp = entryFp;
+        int pc = 0;
+        int depth = 0;
+        try {
+            for (;;) {
+                switch (code[pc]) {
+                    case MOV:
+                        ints[fp + code[pc + 1]] = ints[fp + code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case MOVR:
+                        refs[fp + code[pc + 1]] = refs[fp + code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case LDI:
+                        ints[fp + code[pc + 1]] = code[pc + 2];
+                        pc += 3;
+                        break;
+                    case LDK:
+                        refs[fp + code[pc + 1]] = f.literals[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case ADD:
+                        ints[fp + code[pc + 1]] = ints[fp + code[pc + 2]] + ints[fp + code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case SUB:
+                        ints[fp + code[pc + 1]] = ints[fp + code[pc + 2]] - ints[fp + code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case MUL:
+                        ints[fp + code[pc + 1]] = ints[fp + code[pc + 2]] * ints[fp + code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case DIV: {
+                        int b = ints[fp + code[pc + 3]];
+                        if (b == 0) throw new RuntimeError("Division by zero");
+                        ints[fp + code[pc + 1]] = ints[fp + code[pc + 2]] / b;
+                        pc += 4;
+                        break;
+                    }
+                    case ADDI:
+                        ints[fp + code[pc + 1]] = ints[fp + code[pc + 2]] + code[pc + 3];
+                        pc += 4;
+                        break;
+                    case LT:
+                        ints[fp + code[pc + 1]] = ints[fp + code[pc + 2]] < ints[fp + code[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case LE:
+                        ints[fp + code[pc + 1]] = ints[fp + code[pc + 2]] <= ints[fp + code[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case EQ:
+                        ints[fp + code[pc + 1]] = ints[fp + code[pc + 2]] == ints[fp + code[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case EQR:
+                        ints[fp + code[pc + 1]] = heap.equal(refs[fp + code[pc + 2]], refs[fp + code[pc + 3]]) ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case NOT:
+                        ints[fp + code[pc + 1]] = ints[fp + code[pc + 2]] ^ 1;
+                        pc += 3;
+                        break;
+                    case NEG:
+                        ints[fp + code[pc + 1]] = -ints[fp + code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case ISVOID:
+                        ints[fp + code[pc + 1]] = refs[fp + code[pc + 2]] == Heap.VOID ? 1 : 0;
+                        pc += 3;
+                        break;
+                    case BOXI:
+                        refs[fp + code[pc + 1]] = Heap.ofInt(ints[fp + code[pc + 2]]);
+                        pc += 3;
+                        break;
+                    case BOXB:
+                        refs[fp + code[pc + 1]] = Heap.ofBool(ints[fp + code[pc + 2]] != 0);
+                        pc += 3;
+                        break;
+                    case UNBOX:
+                        ints[fp + code[pc + 1]] = (int) refs[fp + code[pc + 2]]; // Int або Bool (0 / 1)
+                        pc += 3;
+                        break;
+                    case GETF:
+                        ints[fp + code[pc + 1]] = (int) heap.mem[(int) refs[fp] + code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case GETFR:
+                        refs[fp + code[pc + 1]] = heap.mem[(int) refs[fp] + code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case PUTF:
+                        heap.mem[(int) refs[fp] + code[pc + 1]] = ints[fp + code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case PUTFR: {
+                        int o = (int) refs[fp];
+                        long v = refs[fp + code[pc + 2]];
+                        heap.mem[o + code[pc + 1]] = v;
+                        if (o >= heap.nurseryEnd && v >= heap.permanentEnd && v < heap.nurseryEnd) heap.remember(o);
+                        pc += 3;
+                        break;
+                    }
+                    case GETO:
+                        ints[fp + code[pc + 1]] = (int) heap.mem[(int) refs[fp + code[pc + 2]] + code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case GETOR:
+                        refs[fp + code[pc + 1]] = heap.mem[(int) refs[fp + code[pc + 2]] + code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case PUTO:
+                        heap.mem[(int) refs[fp + code[pc + 1]] + code[pc + 2]] = ints[fp + code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case PUTOR: {
+                        int o = (int) refs[fp + code[pc + 1]];
+                        long v = refs[fp + code[pc + 3]];
+                        heap.mem[o + code[pc + 2]] = v;
+                        if (o >= heap.nurseryEnd && v >= heap.permanentEnd && v < heap.nurseryEnd) heap.remember(o);
+                        pc += 4;
+                        break;
+                    }
+                    case CHECK:
+                        if (refs[fp + code[pc + 1]] == Heap.VOID) throw new RuntimeError("Dispatch to void");
+                        pc += 2;
+                        break;
+                    case JMP:
+                        pc = code[pc + 1];
+                        break;
+                    case JF:
+                        pc = ints[fp + code[pc + 1]] == 0 ? code[pc + 2] : pc + 3;
+                        break;
+                    case JGE:
+                        pc = ints[fp + code[pc + 1]] >= ints[fp + code[pc + 2]] ? code[pc + 3] : pc + 4;
+                        break;
+                    case JGT:
+                        pc = ints[fp + code[pc + 1]] > ints[fp + code[pc + 2]] ? code[pc + 3] : pc + 4;
+                        break;
+                    case JNE:
+                        pc = ints[fp + code[pc + 1]] != ints[fp + code[pc + 2]] ? code[pc + 3] : pc + 4;
+                        break;
+                    case JNER:
+                        pc = !heap.equal(refs[fp + code[pc + 1]], refs[fp + code[pc + 2]]) ? code[pc + 3] : pc + 4;
+                        break;
+                    case CASE: {
+                        long value = refs[fp + code[pc + 2]];
+                        if (value == Heap.VOID) throw new RuntimeError("Case on void");
+                        ClassInfo cls = classOf(value);
+                        int branch = ((CaseTable) constants[code[pc + 3]]).branch(cls.tag);
+                        if (branch < 0) throw new RuntimeError("No case branch matches class " + cls.name);
+                        ints[fp + code[pc + 1]] = branch;
+                        pc += 4;
+                        break;
+                    }
+
+                    // ===== Виклики =====
+
+                    case NEW:
+                    case NEWSELF:
+                    case INIT: {
+                        long self;
+                        ClassInfo cls;
+                        if (code[pc] == INIT) {
+                            self = refs[fp];
+                            cls = program.classes[code[pc + 2]];
+                        } else {
+                            cls = code[pc] == NEW ? program.classes[code[pc + 2]] : classOf(refs[fp]);
+                            self = newObject(cls, fp + f.registers);
+                        }
+                        Function callee = cls.constructor;
+                        if (callee == null) {
+                            refs[fp + code[pc + 1]] = self;
+                            pc += LENGTH[code[pc]];
+                            break;
+                        }
+                        int nfp = fp + f.registers;
+                        if (nfp + callee.registers > ints.length) {
+                            ensure(nfp + callee.registers);
+                            ints = this.ints;
+                            refs = this.refs;
+                        }
+                        refs[nfp] = self;
+                        push(++depth, f, pc, fp);
+                        f = callee;
+                        code = f.code;
+                        constants = f.constants;
+                        fp = nfp;
+                        pc = 0;
+                        break;
+                    }
+                    case CALL:
+                    case CALLD: {
+                        long self = refs[fp + code[pc + 2]];
+                        Function callee;
+                        if (code[pc] == CALL) {
+                            int tag = Heap.isObject(self) ? Heap.tagOf(heap.mem[(int) self]) : classOf(self).tag;
+                            CallSite site = f.sites[code[pc + 3]];
+                            callee = tag == site.tag ? site.target : site.lookup(program.classes[tag]);
+                        } else {
+                            if (self == Heap.VOID) throw new RuntimeError("Dispatch to void");
+                            callee = (Function) constants[code[pc + 3]];
+                        }
+                        int argc = code[pc + 4];
+                        if (callee.nativeId >= 0) {
+                            callNative(callee, fp + code[pc + 2], fp, fp + f.registers, fp + code[pc + 1], pc + 5, code);
+                            pc += 5 + argc;
+                            break;
+                        }
+                        int nfp = fp + f.registers;
+                        if (nfp + callee.registers > ints.length) {
+                            ensure(nfp + callee.registers);
+                            ints = this.ints;
+                            refs = this.refs;
+                        }
+                        refs[nfp] = self;
+                        byte[] kinds = callee.paramKinds;
+                        for (int i = 0; i < argc; i++) {
+                            int src = fp + code[pc + 5 + i];
+                            if (kinds[i] == REF) refs[nfp + 1 + i] = refs[src];
+                            else ints[nfp + 1 + i] = ints[src];
+                        }
+                        push(++depth, f, pc, fp);
+                        f = callee;
+                        code = f.code;
+                        constants = f.constants;
+                        fp = nfp;
+                        pc = 0;
+                        break;
+                    }
+                    case RET:
+                    case RETR: {
+                        boolean ref = code[pc] == RETR;
+                        int value = ref ? 0 : ints[fp + code[pc + 1]];
+                        long refValue = ref ? refs[fp + code[pc + 1]] : Heap.VOID;
+                        if (depth == 0) {
+                            if (ref) refs[entryFp] = refValue;
+                            else ints[entryFp] = value;
+                            return;
+                        }
+                        f = frameFunction[depth];
+                        pc = framePc[depth];
+                        fp = frameFp[depth];
+                        depth--;
+                        code = f.code;
+                        constants = f.constants;
+                        if (ref) refs[fp + code[pc + 1]] = refValue;
+                        else ints[fp + code[pc + 1]] = value;
+                        pc += code[pc] == CALL || code[pc] == CALLD ? 5 + code[pc + 4] : LENGTH[code[pc]];
+                        break;
+                    }
+                    default:
+                        throw new IllegalStateException("Bad opcode " + code[pc] + " in " + f);
+                }
+            }
+        } catch (RuntimeError e) {
+            current = f;
+            throw e;
+        }
+    }
+
+    private void push(int depth, Function f, int pc, int fp) {
+        if (depth == frameFunction.length) {
+            if (depth >= MAX_FRAMES) throw new RuntimeError("Stack overflow");
+            frameFunction = Arrays.copyOf(frameFunction, depth * 2);
+            framePc = Arrays.copyOf(framePc, depth * 2);
+            frameFp = Arrays.copyOf(frameFp, depth * 2);
+        }
+        frameFunction[depth] = f;
+        framePc[depth] = pc;
+        frameFp[depth] = fp;
+    }
+
+    // Стеки регістрів ростуть удвічі; понад MAX_REGISTERS — переповнення стеку Cool
+    private void ensure(int needed) {
+        if (needed <= ints.length) return;
+        if (needed > MAX_REGISTERS) throw new RuntimeError("Stack overflow");
+        int size = Math.min(MAX_REGISTERS, Math.max(needed, ints.length * 2));
+        ints = Arrays.copyOf(ints, size);
+        refs = Arrays.copyOf(refs, size);
+    }
+
+    // Клас отримувача виклику; void — помилка виконання
+    private ClassInfo classOf(long value) {
+        if (Heap.isObject(value)) return program.classes[Heap.tagOf(heap.mem[(int) value])];
+        if (value == Heap.VOID) throw new RuntimeError("Dispatch to void");
+        return value < Heap.BOOL_TAG ? program.intClass : program.boolClass;
+    }
+
+    // ===== Вбудовані методи =====
+
+    // Отримувач — у регістрі self, аргументи — у регістрах code[args..] кадру fp, результат —
+    // у регістр dst; живі посилання — refs[0, top)
+    private void callNative(Function f, int self, int fp, int top, int dst, int args, int[] code) {
+        switch (f.nativeId) {
+            case NATIVE_ABORT:
+                throw new Abort(classOf(refs[self]).name);
+            case NATIVE_TYPE_NAME:
+                refs[dst] = classOf(refs[self]).typeName;
+                break;
+            case NATIVE_COPY: {
+                // Int, Bool, String незмінні
+                ClassInfo cls = classOf(refs[self]);
+                refs[dst] = Heap.isObject(refs[self]) && cls != program.stringClass ? heap.copy(self, refs, top) : refs[self];
+                break;
+            }
+            case NATIVE_OUT_STRING:
+                out.print(heap.string(refs[fp + code[args]]));
+                refs[dst] = refs[self];
+                break;
+            case NATIVE_OUT_INT:
+                out.print(ints[fp + code[args]]);
+                refs[dst] = refs[self];
+                break;
+            case NATIVE_IN_STRING: {
+                String line = readLine();
+                refs[dst] = heap.newString(line != null ? line : "", refs, top);
+                break;
+            }
+            case NATIVE_IN_INT: {
+                // Некоректне число або кінець введення — 0
+                String line = readLine();
+                int value = 0;
+                if (line != null) {
+                    try {
+                        value = Integer.parseInt(line.trim());
+                    } catch (NumberFormatException e) {
+                        value = 0;
+                    }
+                }
+                ints[dst] = value;
+                break;
+            }
+            case NATIVE_LENGTH:
+                ints[dst] = heap.length(refs[self]);
+                break;
+            case NATIVE_CONCAT:
+                refs[dst] = heap.concat(self, fp + code[args], refs, top);
+                break;
+            case NATIVE_SUBSTR: {
+                int length = heap.length(refs[self]);
+                int i = ints[fp + code[args]];
+                int l = ints[fp + code[args + 1]];
+                if (i < 0 || l < 0 || i > length - l)
+                    throw new RuntimeError("Substring out of range: substr(" + i + ", " + l + ") of length " + length);
+                refs[dst] = heap.substring(self, i, l, refs, top);
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown native method " + f);
+        }
+    }
+
+    private String readLine() {
+        try {
+            return in.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}